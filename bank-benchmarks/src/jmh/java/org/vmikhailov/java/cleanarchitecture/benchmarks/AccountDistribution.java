@@ -0,0 +1,32 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * How operations are spread over the benchmark accounts.
+ */
+public enum AccountDistribution {
+    UNIFORM {
+        @Override
+        int next(int accounts) {
+            return ThreadLocalRandom.current().nextInt(accounts);
+        }
+    },
+    /*
+     * Nine of ten operations touch the first (hot) account, e.g. a merchant or a payroll account.
+     */
+    HOT_ACCOUNT {
+        @Override
+        int next(int accounts) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return random.nextInt(10) == 0 ? random.nextInt(accounts) : 0;
+        }
+    };
+
+    abstract int next(int accounts);
+
+    int nextOtherThan(int accounts, int other) {
+        int next = next(accounts);
+        return next != other ? next : (other + 1 + ThreadLocalRandom.current().nextInt(accounts - 1)) % accounts;
+    }
+}
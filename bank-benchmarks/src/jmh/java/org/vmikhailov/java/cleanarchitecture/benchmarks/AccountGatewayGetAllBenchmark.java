@@ -0,0 +1,76 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Compares client accounts lookup through the client index with the full storage scan
+ * InMemoryAccountGateway used before the index was introduced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class AccountGatewayGetAllBenchmark {
+    private static final int ACCOUNTS_PER_CLIENT = 5;
+
+    @Param({"10000", "100000", "1000000"})
+    int accounts;
+
+    private InMemoryAccountGateway accountGateway;
+    private Map<Long, Account<Long, FiatMoney>> scannedStorage;
+    private List<Client<Long>> clients;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryClientGateway clientGateway = new InMemoryClientGateway();
+        accountGateway = new InMemoryAccountGateway(clientGateway);
+        scannedStorage = new ConcurrentHashMap<>();
+        clients = new ArrayList<>(accounts / ACCOUNTS_PER_CLIENT);
+        for (int i = 0; i < accounts / ACCOUNTS_PER_CLIENT; i++) {
+            Client<Long> client = clientGateway.create(BankFixtures.clientData(i));
+            clients.add(client);
+            for (int j = 0; j < ACCOUNTS_PER_CLIENT; j++) {
+                Account<Long, FiatMoney> account = accountGateway.create(BankFixtures.accountData(client, BigDecimal.valueOf(j)));
+                scannedStorage.put(account.getId(), account);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Account<Long, FiatMoney>> indexedGetAll() {
+        return accountGateway.getAll(randomClient());
+    }
+
+    @Benchmark
+    public List<Account<Long, FiatMoney>> fullScanGetAll() {
+        Client<Long> client = randomClient();
+        return scannedStorage.values().stream().filter(a -> a.test(client)).collect(Collectors.toList());
+    }
+
+    private Client<Long> randomClient() {
+        return clients.get(ThreadLocalRandom.current().nextInt(clients.size()));
+    }
+}
@@ -0,0 +1,105 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLocks;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+ * A lock per account (stripes = 0) against the striped lock table.
+ *
+ * Heap footprint is printed by the trial setup - retained heap of the account gateway storage per account,
+ * all the accounts share the account data, so the difference between the rows is the lock objects.
+ * Throughput is the transfer use-case on uniformly spread accounts.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(4)
+public class AccountLockStripesBenchmark {
+    private static final int FOOTPRINT_ACCOUNTS = 1_000_000;
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"0", "1024", "65536"})
+    int stripes;
+
+    @Param({"100000"})
+    int accounts;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        printFootprint();
+
+        bankContext = new BankContext("bank.locks.stripes=" + stripes);
+        useCases = bankContext.useCases();
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(accounts);
+        int to = AccountDistribution.UNIFORM.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    private void printFootprint() {
+        InMemoryClientGateway clientGateway = new InMemoryClientGateway();
+        Client<Long> client = clientGateway.create(BankFixtures.clientData(0));
+        FiatAccountData accountData = BankFixtures.accountData(client, BigDecimal.ZERO);
+
+        long before = usedHeap();
+        InMemoryAccountGateway accountGateway = new InMemoryAccountGateway(clientGateway,
+                new ImmediateAccountLockPolicy(), new AccountLocks(stripes));
+        for (int i = 0; i < FOOTPRINT_ACCOUNTS; i++) {
+            accountGateway.create(accountData);
+        }
+        long used = usedHeap() - before;
+        System.out.printf("%nstripes:%d heap per account: %.1f bytes (%d accounts)%n",
+                stripes, (double) used / FOOTPRINT_ACCOUNTS, FOOTPRINT_ACCOUNTS);
+        // keeps the gateway reachable until the heap is measured
+        accountGateway.get(1L);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
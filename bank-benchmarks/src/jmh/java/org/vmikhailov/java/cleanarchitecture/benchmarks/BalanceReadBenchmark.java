@@ -0,0 +1,135 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.LockOrdered;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Balances of all the accounts of a client read by three threads while one thread transfers between the accounts
+ * of the clients - the seqlock validated reads of getBalances and the reads of a balance snapshot against locking
+ * the accounts for the read.
+ */
+@State(Scope.Benchmark)
+public class BalanceReadBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"optimistic", "snapshot", "locked"})
+    String read;
+
+    @Param({"1000"})
+    int clients;
+
+    @Param({"4"})
+    int accountsPerClient;
+
+    private BankUseCases<Long, FiatMoney, FiatTransaction> useCases;
+    private InMemoryAccountGateway accountGateway;
+    private List<Client<Long>> bankClients;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryClientGateway clientGateway = new InMemoryClientGateway();
+        accountGateway = new InMemoryAccountGateway(clientGateway);
+        InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accountGateway);
+        useCases = new BankUseCases<Long, FiatMoney, FiatTransaction>(clientGateway, accountGateway, transactions,
+                new LockBasedFiatTransactionService(transactions, accountGateway, new ImmediateAccountLockPolicy())) {
+        };
+        bankClients = new ArrayList<>(clients);
+        bankAccounts = new ArrayList<>(clients * accountsPerClient);
+        for (int i = 0; i < clients; i++) {
+            Client<Long> client = useCases.registerNewClient(BankFixtures.clientData(i));
+            bankClients.add(client);
+            // accounts of a client with the same data are rejected
+            for (int j = 0; j < accountsPerClient; j++) {
+                bankAccounts.add(useCases.createAccount(client, BankFixtures.accountData(client, INITIAL_AMOUNT.add(BigDecimal.valueOf(j)))));
+            }
+        }
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public List<FiatMoney> getBalances() {
+        List<Account<Long, FiatMoney>> accounts = accountGateway.getAll(bankClients.get(AccountDistribution.UNIFORM.next(clients)));
+        switch (read) {
+            case "optimistic":
+                return accountGateway.getBalances(accounts);
+            case "snapshot":
+                return snapshotBalances(accounts);
+            default:
+                return lockedBalances(accounts);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(bankAccounts.size());
+        int to = AccountDistribution.UNIFORM.nextOtherThan(bankAccounts.size(), from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    private List<FiatMoney> snapshotBalances(List<Account<Long, FiatMoney>> accounts) {
+        List<FiatMoney> balances = new ArrayList<>(accounts.size());
+        try (BalanceSnapshot<Long, FiatMoney> snapshot = accountGateway.openSnapshot()) {
+            for (Account<Long, FiatMoney> account : accounts) {
+                balances.add(snapshot.getBalance(account).orElse(null));
+            }
+        }
+        return balances;
+    }
+
+    /*
+     * Read as a lock-based transaction would - the accounts locked in the lock order. A locked account fails the read.
+     */
+    private static List<FiatMoney> lockedBalances(List<Account<Long, FiatMoney>> accounts) {
+        accounts.sort(LockOrdered.ORDER);
+        List<FiatMoney> balances = new ArrayList<>(accounts.size());
+        int locked = 0;
+        try {
+            for (; locked < accounts.size(); locked++) {
+                accounts.get(locked).lock();
+            }
+            for (Account<Long, FiatMoney> account : accounts) {
+                balances.add(account.getAccountData().getMoney());
+            }
+            return balances;
+        } catch (AccountException ex) {
+            return null;
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                accounts.get(i).unlock();
+            }
+        }
+    }
+}
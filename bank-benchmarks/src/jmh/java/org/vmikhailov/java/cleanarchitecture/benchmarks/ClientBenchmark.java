@@ -0,0 +1,61 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Client onboarding and identification against a store of the given size.
+ * Registration keeps adding clients, so the store slightly grows during the measurement.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ClientBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int storeSize;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<ClientData<Long>> registeredClients;
+    private AtomicLong newClientNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext();
+        useCases = bankContext.useCases();
+        registeredClients = new ArrayList<>(storeSize);
+        for (int i = 0; i < storeSize; i++) {
+            registeredClients.add(BankFixtures.clientData(i));
+            useCases.registerNewClient(registeredClients.get(i));
+        }
+        newClientNumber = new AtomicLong(storeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public Client<Long> registerNewClient() {
+        return useCases.registerNewClient(BankFixtures.clientData(newClientNumber.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Client<Long> getClient() {
+        return useCases.getClient(registeredClients.get(ThreadLocalRandom.current().nextInt(storeSize)));
+    }
+}
@@ -0,0 +1,99 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/*
+ * Accounts caching their client against looking it up on every isActive/getClient - the uncached accounts get
+ * a client storage that doesn't notify about the deleted clients. The transfer use-case checks both accounts.
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+public class ClientCacheBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"true", "false"})
+    boolean cachedClients;
+
+    @Param({"100000"})
+    int accounts;
+
+    private BankUseCases<Long, FiatMoney, FiatTransaction> useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryClientGateway clients = new InMemoryClientGateway();
+        InMemoryAccountGateway accountGateway = new InMemoryAccountGateway(cachedClients ? clients : withoutNotifications(clients));
+        InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accountGateway);
+        useCases = new BankUseCases<Long, FiatMoney, FiatTransaction>(clients, accountGateway, transactions,
+                new LockBasedFiatTransactionService(transactions, accountGateway, new ImmediateAccountLockPolicy())) {
+        };
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public boolean isActive() {
+        return bankAccounts.get(AccountDistribution.UNIFORM.next(accounts)).isActive();
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(accounts);
+        int to = AccountDistribution.UNIFORM.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    private static ClientDataAccess<Long> withoutNotifications(InMemoryClientGateway clients) {
+        return new ClientDataAccess<Long>() {
+            @Override
+            public Client<Long> create(ClientData<Long> data) {
+                return clients.create(data);
+            }
+
+            @Override
+            public void delete(Long identity) {
+                clients.delete(identity);
+            }
+
+            @Override
+            public Optional<Client<Long>> get(Long identity) {
+                return clients.get(identity);
+            }
+
+            @Override
+            public List<Client<Long>> getAll(Predicate<Client<Long>> params) {
+                return clients.getAll(params);
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+ * Cost of the hot account tracking on the transfer use-case, uniformly spread and mostly hitting one account.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class ContentionTrackerBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"false", "true"})
+    boolean tracking;
+
+    @Param({"UNIFORM", "HOT_ACCOUNT"})
+    AccountDistribution distribution;
+
+    @Param({"10000"})
+    int accounts;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext("bank.locks.contention.enabled=" + tracking);
+        useCases = bankContext.useCases();
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = distribution.next(accounts);
+        int to = distribution.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+ * Cost of the bank meters on the transfer use-case: no meters, meters without and with the latency histogram.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"off", "counters", "histograms"})
+    String metrics;
+
+    @Param({"10000"})
+    int accounts;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext(
+                "bank.metrics.enabled=" + !"off".equals(metrics),
+                "bank.metrics.histograms=" + "histograms".equals(metrics));
+        useCases = bankContext.useCases();
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(accounts);
+        int to = AccountDistribution.UNIFORM.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+
+/*
+ * BigDecimal based FiatMoney balances against FixedPointAccountData minor units balances,
+ * both for the bare arithmetic and for the balance changing use-cases (check gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+public class MoneyRepresentationBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000.00");
+
+    @Param({"BIG_DECIMAL", "FIXED_POINT"})
+    String representation;
+
+    @Param({"lock-based", "lock-free"})
+    String transactionService;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private Account<Long, FiatMoney> accountA;
+    private Account<Long, FiatMoney> accountB;
+    private FiatMoney amount;
+
+    private FiatMoney fiatBalance;
+    private FixedPointMoney fixedPointBalance;
+    private FixedPointMoney fixedPointAmount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext("bank.transactions.service=" + transactionService);
+        useCases = bankContext.useCases();
+        Client<Long> client = useCases.registerNewClient(BankFixtures.clientData(0));
+        boolean fixedPoint = "FIXED_POINT".equals(representation);
+        accountA = useCases.createAccount(client, fixedPoint
+                ? BankFixtures.fixedPointAccountData(client, INITIAL_AMOUNT)
+                : BankFixtures.accountData(client, INITIAL_AMOUNT));
+        accountB = useCases.createAccount(client, fixedPoint
+                ? BankFixtures.fixedPointAccountData(client, BigDecimal.ZERO)
+                : BankFixtures.accountData(client, BigDecimal.ZERO));
+        amount = BankFixtures.money(new BigDecimal("0.01"));
+
+        fiatBalance = BankFixtures.money(INITIAL_AMOUNT);
+        fixedPointBalance = FixedPointMoney.of(fiatBalance);
+        fixedPointAmount = FixedPointMoney.of(amount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction replenishAccount() {
+        return useCases.replenishAccount(accountA, amount);
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        return useCases.transferMoney(accountA, accountB, amount);
+    }
+
+    @Benchmark
+    public Object addition() {
+        if ("FIXED_POINT".equals(representation)) {
+            fixedPointBalance = fixedPointBalance.add(fixedPointAmount);
+            return fixedPointBalance;
+        }
+        fiatBalance = new FiatMoney(fiatBalance.getCurrency(), fiatBalance.getAmount().add(amount.getAmount()));
+        return fiatBalance;
+    }
+}
@@ -0,0 +1,82 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A payroll - one account pays every other one - made as a single multi-leg transfer
+ * against the same payroll made by looping transferMoney. Time is per whole payroll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiLegTransferBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"10", "100", "5000"})
+    int legs;
+
+    @Param({"lock-based", "lock-free"})
+    String transactionService;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private Account<Long, FiatMoney> payrollAccount;
+    private List<Account<Long, FiatMoney>> employeeAccounts;
+    private List<TransferLeg<Long, FiatMoney>> payroll;
+    private FiatMoney salary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext("bank.transactions.service=" + transactionService);
+        useCases = bankContext.useCases();
+        Client<Long> employer = useCases.registerNewClient(BankFixtures.clientData(0));
+        payrollAccount = useCases.createAccount(employer, BankFixtures.accountData(employer, INITIAL_AMOUNT));
+        salary = BankFixtures.money(BigDecimal.ONE);
+        employeeAccounts = new ArrayList<>(legs);
+        payroll = new ArrayList<>(legs);
+        for (int i = 1; i <= legs; i++) {
+            Client<Long> employee = useCases.registerNewClient(BankFixtures.clientData(i));
+            Account<Long, FiatMoney> account = useCases.createAccount(employee, BankFixtures.accountData(employee, BigDecimal.ZERO));
+            employeeAccounts.add(account);
+            payroll.add(new TransferLeg<>(payrollAccount, account, salary));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction multiLegTransfer() {
+        return useCases.transferMoney(payroll);
+    }
+
+    @Benchmark
+    public void loopedTransferMoney(Blackhole blackhole) {
+        for (Account<Long, FiatMoney> employeeAccount : employeeAccounts) {
+            blackhole.consume(useCases.transferMoney(payrollAccount, employeeAccount, salary));
+        }
+    }
+}
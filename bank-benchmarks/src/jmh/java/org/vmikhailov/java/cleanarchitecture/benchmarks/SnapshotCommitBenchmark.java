@@ -0,0 +1,98 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ * Transfers of four writer threads while a fifth thread either keeps a balance snapshot open - a new one is opened
+ * before the previous one is closed - or reads the balances without one. Writers version the balances only while
+ * a snapshot is open, compare the transfer throughput of the two.
+ */
+@State(Scope.Benchmark)
+public class SnapshotCommitBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"none", "open"})
+    String snapshot;
+
+    @Param({"4000"})
+    int accounts;
+
+    private BankUseCases<Long, FiatMoney, FiatTransaction> useCases;
+    private InMemoryAccountGateway accountGateway;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+    private BalanceSnapshot<Long, FiatMoney> openSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryClientGateway clientGateway = new InMemoryClientGateway();
+        accountGateway = new InMemoryAccountGateway(clientGateway);
+        InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accountGateway);
+        useCases = new BankUseCases<Long, FiatMoney, FiatTransaction>(clientGateway, accountGateway, transactions,
+                new LockBasedFiatTransactionService(transactions, accountGateway, new ImmediateAccountLockPolicy())) {
+        };
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+        if ("open".equals(snapshot)) {
+            openSnapshot = accountGateway.openSnapshot();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (openSnapshot != null) {
+            openSnapshot.close();
+        }
+    }
+
+    @Benchmark
+    @Group("commit")
+    @GroupThreads(4)
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(bankAccounts.size());
+        int to = AccountDistribution.UNIFORM.nextOtherThan(bankAccounts.size(), from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    @Group("commit")
+    @GroupThreads(1)
+    public Optional<FiatMoney> readBalance() {
+        Account<Long, FiatMoney> account = bankAccounts.get(AccountDistribution.UNIFORM.next(bankAccounts.size()));
+        if (openSnapshot == null) {
+            return Optional.of(accountGateway.getBalances(Collections.singletonList(account)).get(0));
+        }
+        BalanceSnapshot<Long, FiatMoney> next = accountGateway.openSnapshot();
+        openSnapshot.close();
+        openSnapshot = next;
+        return next.getBalance(account);
+    }
+}
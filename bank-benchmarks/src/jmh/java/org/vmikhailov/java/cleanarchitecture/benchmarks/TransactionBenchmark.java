@@ -0,0 +1,95 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+ * Balance changing use-cases. Failed operations (e.g. account locked by another thread)
+ * are counted as completed ones - check the error rate with the lock metrics, not here.
+ */
+@State(Scope.Benchmark)
+public abstract class TransactionBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"1000"})
+    int accounts;
+
+    @Param({"UNIFORM", "HOT_ACCOUNT"})
+    AccountDistribution distribution;
+
+    @Param({"lock-based", "lock-free", "partitioned"})
+    String transactionService;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext("bank.transactions.service=" + transactionService);
+        useCases = bankContext.useCases();
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public FiatTransaction replenishAccount() {
+        try {
+            return useCases.replenishAccount(bankAccounts.get(distribution.next(accounts)), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public FiatTransaction withdrawFromAccount() {
+        try {
+            return useCases.withdrawFromAccount(bankAccounts.get(distribution.next(accounts)), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = distribution.next(accounts);
+        int to = distribution.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends TransactionBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends TransactionBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    public static class AllCores extends TransactionBenchmark {
+    }
+}
@@ -0,0 +1,63 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+ * History of one account with the given length, next to a neighbour account with the same amount
+ * of transactions - so the bank total volume is twice the measured history.
+ */
+@State(Scope.Benchmark)
+public class TransactionHistoryBenchmark {
+    private static final int LATEST_PAGE_SIZE = 50;
+
+    @Param({"10", "1000", "100000"})
+    int historyLength;
+
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private Account<Long, FiatMoney> account;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bankContext = new BankContext();
+        useCases = bankContext.useCases();
+        Client<Long> client = useCases.registerNewClient(BankFixtures.clientData(0));
+        account = useCases.createAccount(client, BankFixtures.accountData(client, BigDecimal.ZERO));
+        Account<Long, FiatMoney> neighbourAccount = useCases.createAccount(client, BankFixtures.accountData(client, BigDecimal.ONE));
+        FiatMoney amount = BankFixtures.money(BigDecimal.ONE);
+        for (int i = 0; i < historyLength; i++) {
+            useCases.replenishAccount(account, amount);
+            useCases.replenishAccount(neighbourAccount, amount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bankContext.close();
+    }
+
+    @Benchmark
+    public List<FiatTransaction> getAllTransactions() {
+        return useCases.getAllTransactions(account);
+    }
+
+    @Benchmark
+    public List<FiatTransaction> getLatestTransactionsPage() {
+        return useCases.getTransactionsPage(account, null, LATEST_PAGE_SIZE, HistoryDirection.NEWEST_FIRST);
+    }
+}
@@ -0,0 +1,96 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+ * Committed transfers per second with the write-ahead log in every durability mode, "none" is the baseline without it.
+ * Records per fsync of the trial are printed on tear down.
+ */
+@State(Scope.Benchmark)
+public abstract class WriteAheadLogBenchmark {
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000000000");
+
+    @Param({"1000"})
+    int accounts;
+
+    @Param({"none", "fsync", "group", "async"})
+    String durability;
+
+    @Param({"1ms"})
+    String groupMaxLatency;
+
+    private Path directory;
+    private BankContext bankContext;
+    private FiatCurrencyBankUseCases useCases;
+    private List<Account<Long, FiatMoney>> bankAccounts;
+    private FiatMoney amount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("none".equals(durability)) {
+            bankContext = new BankContext();
+        } else {
+            directory = Files.createTempDirectory("bank-wal");
+            bankContext = new BankContext("bank.wal.dir=" + directory,
+                    "bank.wal.durability=" + durability,
+                    "bank.wal.group-max-latency=" + groupMaxLatency);
+        }
+        useCases = bankContext.useCases();
+        bankAccounts = BankFixtures.clientAccounts(useCases, accounts, INITIAL_AMOUNT);
+        amount = BankFixtures.money(BigDecimal.ONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (directory != null) {
+            WriteAheadLog log = bankContext.getBean(WriteAheadLog.class);
+            System.out.printf("%n%s: %d records, %.1f records per fsync%n", durability, log.getRecords(),
+                    log.getSyncs() == 0 ? 0.0 : (double) log.getRecords() / log.getSyncs());
+        }
+        bankContext.close();
+        if (directory != null) {
+            for (Path segment : WriteAheadLog.segments(directory).values()) {
+                Files.delete(segment);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public FiatTransaction transferMoney() {
+        int from = AccountDistribution.UNIFORM.next(accounts);
+        int to = AccountDistribution.UNIFORM.nextOtherThan(accounts, from);
+        try {
+            return useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+        } catch (AccountException ex) {
+            return null;
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends WriteAheadLogBenchmark {
+    }
+
+    @Threads(16)
+    public static class SixteenThreads extends WriteAheadLogBenchmark {
+    }
+}
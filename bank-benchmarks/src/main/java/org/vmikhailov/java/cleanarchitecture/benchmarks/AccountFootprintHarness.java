@@ -0,0 +1,98 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.OffHeapAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLocks;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/*
+ * Per-account memory of the heap and the off-heap account stores.
+ *
+ * Creates the clients first, then the accounts of one store, and reports the heap and direct memory the accounts
+ * added after a full GC, plus the time of that full GC with the store populated - the heap store makes the GC
+ * walk every account object, the off-heap one just a few slabs.
+ *
+ * Usage: AccountFootprintHarness [--accounts N] [--accounts-per-client N] [--store heap|off-heap]
+ * (-XX:MaxDirectMemorySize has to fit 32 bytes per account for the off-heap store)
+ */
+public class AccountFootprintHarness {
+    public static void main(String[] args) {
+        int accounts = 5_000_000;
+        int accountsPerClient = 10;
+        String store = "off-heap";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--accounts":
+                    accounts = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--accounts-per-client":
+                    accountsPerClient = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--store":
+                    store = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option:" + args[i]);
+            }
+        }
+        InMemoryClientGateway clients = new InMemoryClientGateway();
+        List<Client<Long>> createdClients = new ArrayList<>();
+        for (int i = 0; i < (accounts + accountsPerClient - 1) / accountsPerClient; i++) {
+            createdClients.add(clients.create(BankFixtures.clientData(i)));
+        }
+        AccountLocks locks = new AccountLocks(AccountLocks.DEFAULT_STRIPES);
+        FiatAccountDataAccess gateway = "heap".equals(store)
+                ? new InMemoryAccountGateway(clients, new ImmediateAccountLockPolicy(), locks)
+                : new OffHeapAccountGateway(clients, new ImmediateAccountLockPolicy(), locks, 1 << 20);
+
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+        BigDecimal balance = new BigDecimal("1000.00");
+        for (int i = 0; i < accounts; i++) {
+            Client<Long> client = createdClients.get(i / accountsPerClient);
+            gateway.create(BankFixtures.accountData(client, balance));
+        }
+        long heapAfter = usedHeap();
+        long directAfter = usedDirect();
+        long gcStart = System.nanoTime();
+        System.gc();
+        long gcNanos = System.nanoTime() - gcStart;
+
+        System.out.println(format("store:%s accounts:%d", store, accounts));
+        System.out.println(format("heap: %.1f MB, %.1f bytes/account", (heapAfter - heapBefore) / 1e6,
+                (heapAfter - heapBefore) / (double) accounts));
+        System.out.println(format("off-heap: %.1f MB, %.1f bytes/account", (directAfter - directBefore) / 1e6,
+                (directAfter - directBefore) / (double) accounts));
+        System.out.println(format("full gc with the accounts: %.1f ms", gcNanos / 1e6));
+        // keeps the store reachable until the end of the measurement
+        System.out.println("account " + accounts + " present: " + gateway.get((long) accounts).isPresent());
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedDirect() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,41 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+/*
+ * Fresh in-memory bank wired the same way as the application, without the web layer.
+ * The fixtures currency codec is registered, so snapshots can be enabled by the properties.
+ */
+final class BankContext implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+
+    BankContext(String... properties) {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("logging.level.root=WARN")
+                .properties(properties)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("currencyCodec", BankFixtures.CURRENCY_CODEC))
+                .run();
+    }
+
+    FiatCurrencyBankUseCases useCases() {
+        return getBean(FiatCurrencyBankUseCases.class);
+    }
+
+    <B> B getBean(Class<B> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
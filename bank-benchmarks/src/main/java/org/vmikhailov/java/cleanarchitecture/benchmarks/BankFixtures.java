@@ -0,0 +1,81 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.CurrencyCodec;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+final class BankFixtures {
+    static final Currency CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+    static final CurrencyCodec CURRENCY_CODEC = new CurrencyCodec() {
+        @Override
+        public String codeOf(Currency currency) {
+            return "BNK";
+        }
+
+        @Override
+        public Currency currencyOf(String code) {
+            return CURRENCY;
+        }
+    };
+
+    private BankFixtures() {
+    }
+
+    static UniversalBankClientData clientData(long number) {
+        ClientDocument document = ClientDocument.builder()
+                .clientName("name" + number)
+                .clientSurname("surname" + number)
+                .documentNumber("document" + number)
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        return UniversalBankClientData.builder()
+                .name("name" + number)
+                .surname("surname" + number)
+                .birthDate(LocalDate.of(1970, 1, 1).plusDays(number % 20_000))
+                .documents(Collections.singletonList(document))
+                .build();
+    }
+
+    /**
+     * Accounts of the given number of clients, one account per client, all funded with the amount.
+     */
+    static List<Account<Long, FiatMoney>> clientAccounts(BankUseCases<Long, FiatMoney, ?> useCases, int clients,
+                                                         BigDecimal amount) {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client<Long> client = useCases.registerNewClient(clientData(i));
+            accounts.add(useCases.createAccount(client, accountData(client, amount)));
+        }
+        return accounts;
+    }
+
+    static FiatAccountData accountData(Client<Long> client, BigDecimal amount) {
+        return new FiatAccountData(money(amount), client);
+    }
+
+    static FixedPointAccountData fixedPointAccountData(Client<Long> client, BigDecimal amount) {
+        return new FixedPointAccountData(money(amount), client);
+    }
+
+    static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(CURRENCY, amount);
+    }
+}
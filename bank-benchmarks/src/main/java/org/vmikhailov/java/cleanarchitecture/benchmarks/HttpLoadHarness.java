@@ -0,0 +1,212 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/*
+ * Transfers over the HTTP API - one transfer per POST /transfers request versus batches of them per POST /batch.
+ *
+ * Starts the application on a random local port, creates the accounts through the use cases, then every mode
+ * runs the given number of client threads for the given time, each sending its next request once the previous
+ * one is answered. Reported are the requests and the transfers per second and the latency of a request.
+ *
+ * Usage: HttpLoadHarness [--accounts N] [--threads N] [--seconds N] [--batch-size N]
+ */
+public class HttpLoadHarness {
+    private final String baseUrl;
+    private final List<Long> accountIds;
+    private final int threads;
+    private final long durationNanos;
+
+    HttpLoadHarness(String baseUrl, List<Long> accountIds, int threads, long durationNanos) {
+        this.baseUrl = baseUrl;
+        this.accountIds = accountIds;
+        this.threads = threads;
+        this.durationNanos = durationNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = 10_000;
+        int threads = 8;
+        int seconds = 10;
+        int batchSize = 100;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--accounts":
+                    accounts = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option:" + args[i]);
+            }
+        }
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("logging.level.root=WARN", "server.port=0")
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("currencyCodec", BankFixtures.CURRENCY_CODEC))
+                .run()) {
+            FiatCurrencyBankUseCases useCases = context.getBean(FiatCurrencyBankUseCases.class);
+            List<Long> accountIds = new ArrayList<>(accounts);
+            for (Account<Long, FiatMoney> account : BankFixtures.clientAccounts(useCases, accounts, new BigDecimal("1000000"))) {
+                accountIds.add(account.getId());
+            }
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpLoadHarness harness = new HttpLoadHarness(baseUrl, accountIds, threads, seconds * 1_000_000_000L);
+
+            // warm-up of both paths, not reported
+            new HttpLoadHarness(baseUrl, accountIds, threads, Math.min(seconds, 3) * 1_000_000_000L).run(1);
+            new HttpLoadHarness(baseUrl, accountIds, threads, Math.min(seconds, 3) * 1_000_000_000L).run(batchSize);
+            harness.run(1).report("single", 1);
+            harness.run(batchSize).report("batch of " + batchSize, batchSize);
+        }
+    }
+
+    /**
+     * @param batchSize transfers per request, 1 - POST /transfers
+     */
+    Result run(int batchSize) throws InterruptedException {
+        LongAdder failed = new LongAdder();
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        long deadline = System.nanoTime() + durationNanos;
+        for (int t = 0; t < threads; t++) {
+            long[][] threadLatencies = {new long[1 << 16]};
+            int[] count = {0};
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() - deadline < 0) {
+                    long start = System.nanoTime();
+                    try {
+                        if (batchSize == 1) {
+                            post("/transfers", transfer(false));
+                        } else {
+                            post("/batch", batch(batchSize));
+                        }
+                    } catch (IOException ex) {
+                        failed.increment();
+                    }
+                    if (count[0] == threadLatencies[0].length) {
+                        threadLatencies[0] = Arrays.copyOf(threadLatencies[0], count[0] * 2);
+                    }
+                    threadLatencies[0][count[0]++] = System.nanoTime() - start;
+                }
+                synchronized (latencies) {
+                    latencies.add(Arrays.copyOf(threadLatencies[0], count[0]));
+                }
+            }, "http-load-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(sorted, elapsed, failed.sum());
+    }
+
+    private String batch(int batchSize) {
+        StringBuilder batch = new StringBuilder(batchSize * 100).append('[');
+        for (int i = 0; i < batchSize; i++) {
+            batch.append(i == 0 ? "" : ",").append(transfer(true));
+        }
+        return batch.append(']').toString();
+    }
+
+    private String transfer(boolean batchOperation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromIndex = random.nextInt(accountIds.size());
+        long from = accountIds.get(fromIndex);
+        long to = accountIds.get((fromIndex + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size());
+        return batchOperation
+                ? "{\"operation\":\"TRANSFER\",\"accountId\":" + from + ",\"toAccountId\":" + to + ",\"currency\":\"BNK\",\"amount\":1}"
+                : "{\"fromAccountId\":" + from + ",\"toAccountId\":" + to + ",\"currency\":\"BNK\",\"amount\":1}";
+    }
+
+    /*
+     * The response is read to the end, so the connection is kept alive for the next request of the thread.
+     */
+    private void post(String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(bytes);
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                response.write(buffer, 0, read);
+            }
+        }
+        if (status >= 500) {
+            throw new IOException("status " + status);
+        }
+    }
+
+    private static final class Result {
+        final long[] sortedLatencies;
+        final long elapsedNanos;
+        final long failed;
+
+        Result(long[] sortedLatencies, long elapsedNanos, long failed) {
+            this.sortedLatencies = sortedLatencies;
+            this.elapsedNanos = elapsedNanos;
+            this.failed = failed;
+        }
+
+        void report(String mode, int batchSize) {
+            double seconds = elapsedNanos / 1e9;
+            int requests = sortedLatencies.length;
+            System.out.println(format("%s: requests:%d failed:%d elapsed:%.1fs", mode, requests, failed, seconds));
+            System.out.println(format("  throughput: %.1f requests/s, %.1f transfers/s", requests / seconds,
+                    (long) requests * batchSize / seconds));
+            System.out.println(format("  request latency ms: p50=%.2f p99=%.2f max=%.2f",
+                    percentile(0.5), percentile(0.99), percentile(1)));
+        }
+
+        private double percentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
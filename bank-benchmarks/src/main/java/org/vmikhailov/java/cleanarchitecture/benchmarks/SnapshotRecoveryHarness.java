@@ -0,0 +1,204 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.BankSnapshots;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.RecoveryStats;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotStats;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/*
+ * Measures snapshot and recovery of the in-memory bank.
+ *
+ * Creates the accounts, makes half of the transfers, takes a snapshot while the other half runs from
+ * the given number of threads, so the log has a tail, then recovers a fresh bank from the snapshot and
+ * the log and checks every recovered balance against the original one.
+ *
+ * Usage: SnapshotRecoveryHarness [--accounts N] [--transfers N] [--threads N] [--recovery-threads N] [--dir DIR]
+ */
+public class SnapshotRecoveryHarness {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000");
+    /*
+     * Clients and accounts are logged and every creation waits until it's durable, so they are created from many
+     * threads sharing the group fsyncs.
+     */
+    private static final int CREATION_THREADS = 64;
+
+    private final int accounts;
+    private final int transfers;
+    private final int threads;
+    private final int recoveryThreads;
+    private final Path directory;
+
+    SnapshotRecoveryHarness(int accounts, int transfers, int threads, int recoveryThreads, Path directory) {
+        this.accounts = accounts;
+        this.transfers = transfers;
+        this.threads = threads;
+        this.recoveryThreads = recoveryThreads;
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = 1_000_000;
+        int transfers = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int recoveryThreads = Runtime.getRuntime().availableProcessors();
+        Path directory = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--accounts":
+                    accounts = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--transfers":
+                    transfers = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--recovery-threads":
+                    recoveryThreads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--dir":
+                    directory = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option:" + args[i]);
+            }
+        }
+        boolean temporary = directory == null;
+        if (temporary) {
+            directory = Files.createTempDirectory("bank-snapshot");
+        }
+        try {
+            new SnapshotRecoveryHarness(accounts, transfers < 0 ? accounts : transfers, threads, recoveryThreads, directory).run();
+        } finally {
+            if (temporary) {
+                delete(directory);
+            }
+        }
+    }
+
+    void run() throws Exception {
+        long[] ids = new long[accounts];
+        BigDecimal[] balances = new BigDecimal[accounts];
+        try (BankContext bankContext = new BankContext(properties(true))) {
+            FiatCurrencyBankUseCases useCases = bankContext.useCases();
+            List<Account<Long, FiatMoney>> bankAccounts = new ArrayList<>(Collections.nCopies(accounts, null));
+            long started = System.nanoTime();
+            createAccounts(useCases, bankAccounts);
+            for (int i = 0; i < accounts; i++) {
+                ids[i] = bankAccounts.get(i).getId();
+            }
+            System.out.println(format("created %d accounts in %.3fs", accounts, (System.nanoTime() - started) / 1e9));
+
+            transfer(useCases, bankAccounts, transfers / 2);
+            Thread tailTransfers = new Thread(() -> transfer(useCases, bankAccounts, transfers - transfers / 2));
+            tailTransfers.start();
+            SnapshotStats snapshot = bankContext.getBean(BankSnapshots.class).takeSnapshot();
+            tailTransfers.join();
+            System.out.println(format("snapshot: %.3fs, %.1f MB, %.1f bytes per account, %d transactions",
+                    snapshot.getNanos() / 1e9, snapshot.getBytes() / 1e6,
+                    (double) snapshot.getBytes() / Math.max(1, snapshot.getAccounts()), snapshot.getTransactions()));
+            for (int i = 0; i < accounts; i++) {
+                balances[i] = bankAccounts.get(i).getAccountData().getMoney().getAmount();
+            }
+        }
+
+        try (BankContext bankContext = new BankContext(properties(false))) {
+            RecoveryStats recovery = bankContext.getBean(BankSnapshots.class).recover();
+            System.out.println(format("recovery: snapshot %.3fs with %d threads, log tail %.3fs (%d records)",
+                    recovery.getSnapshotNanos() / 1e9, recoveryThreads,
+                    recovery.getReplayNanos() / 1e9, recovery.getReplayedRecords()));
+            FiatAccountDataAccess accountDataAccess = bankContext.getBean(FiatAccountDataAccess.class);
+            long mismatches = 0;
+            for (int i = 0; i < accounts; i++) {
+                BigDecimal recovered = accountDataAccess.get(ids[i])
+                        .map(account -> account.getAccountData().getMoney().getAmount())
+                        .orElse(null);
+                if (recovered == null || recovered.compareTo(balances[i]) != 0) {
+                    mismatches++;
+                }
+            }
+            System.out.println(format("balance mismatches: %d of %d", mismatches, accounts));
+        }
+    }
+
+    private String[] properties(boolean recoverOnStart) {
+        return new String[]{
+                "bank.wal.dir=" + directory.resolve("wal"),
+                "bank.wal.durability=group",
+                "bank.snapshot.dir=" + directory.resolve("snapshots"),
+                "bank.snapshot.interval=0",
+                "bank.snapshot.recovery-threads=" + recoveryThreads,
+                "bank.snapshot.recover-on-start=" + recoverOnStart};
+    }
+
+    private void createAccounts(FiatCurrencyBankUseCases useCases, List<Account<Long, FiatMoney>> bankAccounts) throws InterruptedException {
+        Thread[] workers = new Thread[Math.min(CREATION_THREADS, accounts)];
+        for (int t = 0; t < workers.length; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < accounts; i += workers.length) {
+                    Client<Long> client = useCases.registerNewClient(BankFixtures.clientData(i));
+                    // every worker sets its own indices, the joins publish them
+                    bankAccounts.set(i, useCases.createAccount(client, BankFixtures.fixedPointAccountData(client, INITIAL_BALANCE)));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void transfer(FiatCurrencyBankUseCases useCases, List<Account<Long, FiatMoney>> bankAccounts, int count) {
+        FiatMoney amount = BankFixtures.money(BigDecimal.ONE);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int share = count / threads + (t < count % threads ? 1 : 0);
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < share; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                    try {
+                        useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), amount);
+                    } catch (RuntimeException ignored) {
+                        // locked account - the balances are unchanged
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.vmikhailov.java.cleanarchitecture.benchmarks;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.trace.WorkloadTraceReader;
+import org.vmikhailov.java.cleanarchitecture.impl.trace.WorkloadTraceRecord;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.String.format;
+
+/*
+ * Replays a recorded workload trace against a fresh in-memory bank. The trace holds the balance changing calls only,
+ * so the replayed load leaves out the reads and registrations of the recorded one.
+ *
+ * Every recorded account gets its own client and account funded with the initial balance. Calls are issued
+ * at the recorded moments divided by the speed-up (0 - as fast as possible) from the given number of threads.
+ * Latency is measured from the moment the call was due, so a saturated bank shows up in the percentiles
+ * instead of silently slowing the replay down. Without pacing every call is due at the start, so latency is
+ * measured from the moment the call is issued instead - it's the service time of the calls then.
+ *
+ * Usage: WorkloadReplay <trace file> [--speedup N] [--threads N] [--initial-balance AMOUNT] [--lock-policy immediate|backoff]
+ */
+public class WorkloadReplay {
+    private final List<WorkloadTraceRecord> records;
+    private final double speedUp;
+    private final int threads;
+    private final BigDecimal initialBalance;
+    private final String lockPolicy;
+
+    private final long[] latencies;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder locked = new LongAdder();
+    private final LongAdder rollbacked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    WorkloadReplay(List<WorkloadTraceRecord> records, double speedUp, int threads, BigDecimal initialBalance,
+                   String lockPolicy) {
+        this.records = records;
+        this.speedUp = speedUp;
+        this.threads = threads;
+        this.initialBalance = initialBalance;
+        this.lockPolicy = lockPolicy;
+        this.latencies = new long[records.size()];
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: WorkloadReplay <trace file> [--speedup N] [--threads N] [--initial-balance AMOUNT] [--lock-policy immediate|backoff]");
+            System.exit(1);
+        }
+        double speedUp = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        BigDecimal initialBalance = new BigDecimal("1000000000000");
+        String lockPolicy = "immediate";
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--speedup":
+                    speedUp = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--initial-balance":
+                    initialBalance = new BigDecimal(args[i + 1]);
+                    break;
+                case "--lock-policy":
+                    lockPolicy = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option:" + args[i]);
+            }
+        }
+        new WorkloadReplay(readTrace(args[0]), speedUp, threads, initialBalance, lockPolicy).run();
+    }
+
+    private static List<WorkloadTraceRecord> readTrace(String file) throws IOException {
+        List<WorkloadTraceRecord> records = new ArrayList<>();
+        try (WorkloadTraceReader reader = new WorkloadTraceReader(new FileInputStream(file))) {
+            WorkloadTraceRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    void run() throws InterruptedException {
+        try (BankContext bankContext = new BankContext("bank.locks.policy=" + lockPolicy)) {
+            FiatCurrencyBankUseCases useCases = bankContext.useCases();
+            Map<Long, Account<Long, FiatMoney>> accounts = createAccounts(useCases);
+            long[] dueNanos = scheduleCalls();
+
+            AtomicInteger nextRecord = new AtomicInteger();
+            CountDownLatch finished = new CountDownLatch(threads);
+            long startNanos = System.nanoTime() + 1_000_000;
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    int i;
+                    while ((i = nextRecord.getAndIncrement()) < records.size()) {
+                        long due = startNanos + dueNanos[i];
+                        long now;
+                        while ((now = System.nanoTime()) < due) {
+                            LockSupport.parkNanos(due - now);
+                        }
+                        long issued = speedUp > 0 ? due : now;
+                        execute(useCases, accounts, records.get(i));
+                        latencies[i] = System.nanoTime() - issued;
+                    }
+                    finished.countDown();
+                }, "replay-" + t);
+                worker.start();
+            }
+            finished.await();
+            report(System.nanoTime() - startNanos);
+            System.out.println("account locks: " + bankContext.getBean(AccountLockPolicy.class).getMetrics());
+        }
+    }
+
+    private Map<Long, Account<Long, FiatMoney>> createAccounts(FiatCurrencyBankUseCases useCases) {
+        Map<Long, Account<Long, FiatMoney>> accounts = new HashMap<>();
+        for (WorkloadTraceRecord record : records) {
+            createAccount(useCases, accounts, record.getAccountA());
+            createAccount(useCases, accounts, record.getAccountB());
+            for (WorkloadTraceRecord.Leg leg : record.getLegs()) {
+                createAccount(useCases, accounts, leg.getFromAccount());
+                createAccount(useCases, accounts, leg.getToAccount());
+            }
+        }
+        return accounts;
+    }
+
+    private void createAccount(FiatCurrencyBankUseCases useCases, Map<Long, Account<Long, FiatMoney>> accounts, long recordedId) {
+        if (recordedId != 0 && !accounts.containsKey(recordedId)) {
+            Client<Long> client = useCases.registerNewClient(BankFixtures.clientData(recordedId));
+            accounts.put(recordedId, useCases.createAccount(client, BankFixtures.accountData(client, initialBalance)));
+        }
+    }
+
+    private long[] scheduleCalls() {
+        long[] dueNanos = new long[records.size()];
+        long recordedNanos = 0;
+        for (int i = 0; i < dueNanos.length; i++) {
+            recordedNanos += records.get(i).getDelayNanos();
+            dueNanos[i] = speedUp > 0 ? (long) (recordedNanos / speedUp) : 0;
+        }
+        return dueNanos;
+    }
+
+    private void execute(FiatCurrencyBankUseCases useCases, Map<Long, Account<Long, FiatMoney>> accounts, WorkloadTraceRecord record) {
+        Account<Long, FiatMoney> accountA = accounts.get(record.getAccountA());
+        FiatMoney money = BankFixtures.money(record.getAmount());
+        try {
+            switch (record.getOperationType()) {
+                case REPLENISH:
+                    useCases.replenishAccount(accountA, money);
+                    break;
+                case WITHDRAW:
+                    useCases.withdrawFromAccount(accountA, money);
+                    break;
+                case TRANSFER:
+                    useCases.transferMoney(accountA, accounts.get(record.getAccountB()), money);
+                    break;
+                case MULTI_TRANSFER:
+                    List<TransferLeg<Long, FiatMoney>> legs = new ArrayList<>(record.getLegs().size());
+                    for (WorkloadTraceRecord.Leg leg : record.getLegs()) {
+                        legs.add(new TransferLeg<>(accounts.get(leg.getFromAccount()), accounts.get(leg.getToAccount()),
+                                BankFixtures.money(leg.getAmount())));
+                    }
+                    useCases.transferMoney(legs);
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+            }
+            completed.increment();
+        } catch (LockedException ex) {
+            locked.increment();
+        } catch (AccountException ex) {
+            if (ex.getCause() instanceof TransactionException) {
+                rollbacked.increment();
+            } else {
+                failed.increment();
+            }
+        } catch (RuntimeException ex) {
+            failed.increment();
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        long total = records.size();
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.println(format("calls:%d threads:%d speed-up:%s elapsed:%.3fs", total, threads, speedUp, elapsedNanos / 1e9));
+        System.out.println(format("throughput: %.1f calls/s", total / (elapsedNanos / 1e9)));
+        System.out.println(format("%s latency us: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                speedUp > 0 ? "scheduled" : "service", percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1)));
+        System.out.println(format("completed:%d locked:%d (%.2f%%) rollbacked:%d (%.2f%%) failed:%d",
+                completed.sum(), locked.sum(), rate(locked.sum(), total),
+                rollbacked.sum(), rate(rollbacked.sum(), total), failed.sum()));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    private static double rate(long count, long total) {
+        return total == 0 ? 0 : count * 100.0 / total;
+    }
+}
@@ -7,6 +7,7 @@ import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public interface AccountDataAccess<I, M extends Money<?>> {
     Account<I, M> create(AccountData<I, M> data);
@@ -18,4 +19,41 @@ public interface AccountDataAccess<I, M extends Money<?>> {
     Optional<Account<I, M>> get(I identity);
 
     List<Account<I, M>> getAll(Client<I> client);
+
+    /**
+     * Balances of the accounts as they were at one moment - no transaction is seen half made.
+     * The default reads them one by one, a storage knowing when its accounts are being changed should do better.
+     *
+     * @return balances in the order of the accounts
+     */
+    default List<M> getBalances(List<? extends Account<I, M>> accounts) {
+        return accounts.stream().map(account -> account.getAccountData().getMoney()).collect(Collectors.toList());
+    }
+
+    /**
+     * Called by a transaction once it has changed the balances of the accounts, while it still holds them -
+     * the balances are seen by the snapshots opened from now on. Does nothing by default.
+     *
+     * @param accounts accounts of the transaction
+     */
+    default void committed(List<? extends Account<I, M>> accounts) {
+    }
+
+    /**
+     * @return {@code true} if the storage keeps versions of the balances, so snapshots can be opened.
+     * {@code false} by default
+     */
+    default boolean keepsBalanceVersions() {
+        return false;
+    }
+
+    /**
+     * Balances as of the latest committed version, to be closed once read.
+     *
+     * @throws UnsupportedOperationException if the storage keeps no versions of the balances, the default -
+     *                                       check {@link #keepsBalanceVersions()} first
+     */
+    default BalanceSnapshot<I, M> openSnapshot() {
+        throw new UnsupportedOperationException("balance versions are not kept");
+    }
 }
@@ -0,0 +1,30 @@
+package org.vmikhailov.java.cleanarchitecture.dao;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Money;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+
+import java.util.Optional;
+
+/*
+ * Balances as of one committed version of the storage - every read through the snapshot sees the same transactions,
+ * however many commit meanwhile. Writers are not blocked by it, but the storage keeps the versions it needs until
+ * it is closed.
+ */
+public interface BalanceSnapshot<I, M extends Money<?>> extends AutoCloseable {
+    /**
+     * @return commit version the balances are read at
+     */
+    long getVersion();
+
+    /**
+     * @return balance of the account at the version, empty if the account was not created yet
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    Optional<M> getBalance(Account<I, M> account);
+
+    /**
+     * Releases the versions kept for the snapshot.
+     */
+    @Override
+    void close();
+}
@@ -5,6 +5,7 @@ import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public interface ClientDataAccess<I> {
@@ -15,4 +16,14 @@ public interface ClientDataAccess<I> {
     Optional<Client<I>> get(I identity);
 
     List<Client<I>> getAll(Predicate<Client<I>> params);
+
+    /**
+     * Listener is called with the id of every client deleted (or replaced by the storage) from now on, once
+     * {@link #get(Object)} returns the new state of the client. Lets the other storages cache the clients.
+     *
+     * @return {@code false} if the storage doesn't notify, the clients must not be cached then
+     */
+    default boolean addChangeListener(Consumer<I> listener) {
+        return false;
+    }
 }
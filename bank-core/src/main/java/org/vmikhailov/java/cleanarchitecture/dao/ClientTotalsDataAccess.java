@@ -0,0 +1,26 @@
+package org.vmikhailov.java.cleanarchitecture.dao;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Money;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+
+import java.util.List;
+
+/*
+ * Running totals of the balances of every client, one per currency - kept up to date by the transactions
+ * as they commit, so reading them doesn't depend on the number of accounts.
+ */
+public interface ClientTotalsDataAccess<I, M extends Money<?>> {
+    /**
+     * @return total of the balances of all the client accounts per currency, deleted accounts included
+     */
+    List<M> getTotals(Client<I> client);
+
+    /**
+     * Initial balance of a new account is added to the totals of its client. The account may be changed by
+     * transactions already, they are added to the totals on their own.
+     *
+     * @param openingBalance balance the account was created with
+     */
+    void created(Account<I, M> account, M openingBalance);
+}
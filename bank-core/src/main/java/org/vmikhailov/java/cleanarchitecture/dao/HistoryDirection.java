@@ -0,0 +1,6 @@
+package org.vmikhailov.java.cleanarchitecture.dao;
+
+public enum HistoryDirection {
+    OLDEST_FIRST,
+    NEWEST_FIRST
+}
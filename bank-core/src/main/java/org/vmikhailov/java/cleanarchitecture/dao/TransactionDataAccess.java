@@ -16,4 +16,15 @@ public interface TransactionDataAccess<I, D, M extends Money<?>, T extends Trans
     Optional<T> get(I identity);
 
     List<T> getAll(Account<I, M> account);
+
+    /**
+     * One page of the account transactions history.
+     *
+     * @param account   account to take history of
+     * @param cursor    id of the last seen transaction, page starts right after it; {@code null} to start from the beginning
+     * @param pageSize  max number of transactions in the page
+     * @param direction order of the history, also defines which side of the cursor page is taken from
+     * @return transactions following the cursor in the given direction
+     */
+    List<T> getPage(Account<I, M> account, I cursor, int pageSize, HistoryDirection direction);
 }
@@ -2,4 +2,11 @@ package org.vmikhailov.java.cleanarchitecture.entities;
 
 public interface Currency {
     boolean isSame(Currency other);
+
+    /**
+     * Number of digits of the currency minor unit, e.g. 2 for cents.
+     */
+    default int getMinorUnitDigits() {
+        return 2;
+    }
 }
@@ -7,21 +7,37 @@ import org.vmikhailov.java.cleanarchitecture.entities.Money;
 import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Predicate;
 
 public abstract class AccountData<T, M extends Money<?>> implements Predicate<Account<T, M>> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AccountData, Money> MONEY_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AccountData.class, Money.class, "money");
+
     @Getter
     @NonNull
     private final Client<T> client;
     @Getter
     @Setter
-    private M money;
+    private volatile M money;
 
     protected AccountData(M money, Client<T> client) {
         this.money = money;
         this.client = client;
     }
 
+    /**
+     * Atomically replaces money, if it is still the expected one.
+     *
+     * @param expectedMoney money instance that was read before
+     * @param newMoney      money to set
+     * @return {@code true} if money was replaced, {@code false} if it has been changed meanwhile
+     */
+    public boolean compareAndSetMoney(M expectedMoney, M newMoney) {
+        return MONEY_UPDATER.compareAndSet(this, expectedMoney, newMoney);
+    }
+
     /**
      * Check is account data are the same!
      *
@@ -33,7 +49,7 @@ public abstract class AccountData<T, M extends Money<?>> implements Predicate<Ac
             return false;
         }
         if (Objects.equals(this.client.getId(), otherData.client.getId())) {
-            return Objects.equals(money, otherData.money);
+            return Objects.equals(getMoney(), otherData.getMoney());
         }
         return false;
     }
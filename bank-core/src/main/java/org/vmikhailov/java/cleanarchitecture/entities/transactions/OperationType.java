@@ -3,5 +3,6 @@ package org.vmikhailov.java.cleanarchitecture.entities.transactions;
 public enum OperationType {
     REPLENISH,
     WITHDRAW,
-    TRANSFER
+    TRANSFER,
+    MULTI_TRANSFER
 }
@@ -3,6 +3,8 @@ package org.vmikhailov.java.cleanarchitecture.entities.transactions;
 import org.vmikhailov.java.cleanarchitecture.entities.Money;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -18,4 +20,13 @@ public interface Transaction<I, M extends Money<?>> {
     OperationType getOperationType();
 
     TransactionState getState();
+
+    /**
+     * Legs of a multi-leg transfer, the transaction itself is the parent of them and has no from/to accounts.
+     *
+     * @return legs in the order they were applied, empty for other operations
+     */
+    default List<TransferLeg<I, M>> getLegs() {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,21 @@
+package org.vmikhailov.java.cleanarchitecture.entities.transactions;
+
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.Money;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+
+/*
+ * One transfer of a multi-leg transfer - e.g. a single salary of a payroll.
+ */
+@Getter
+public final class TransferLeg<I, M extends Money<?>> {
+    private final Account<I, M> fromAccount;
+    private final Account<I, M> toAccount;
+    private final M money;
+
+    public TransferLeg(Account<I, M> fromAccount, Account<I, M> toAccount, M money) {
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.money = money;
+    }
+}
@@ -0,0 +1,204 @@
+package org.vmikhailov.java.cleanarchitecture.usecases;
+
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.Money;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.Transaction;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+ * Use cases returning CompletableFuture - the calls run on the given executor, so a caller fanning out
+ * many bank calls doesn't hold a thread per call while they wait for account locks.
+ *
+ * A call fails with TimeoutException once its timeout passes, a cancelled or timed out call doesn't start
+ * if it hasn't yet. A call that has started is not interrupted - it commits or rolls back as the synchronous
+ * one would, only its result is dropped, so a timed out transfer can still be found in the history.
+ */
+public class AsyncBankUseCases<I, M extends Money<?>, T extends Transaction<I, M>> {
+    private final BankUseCases<I, M, T> useCases;
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutNanos;
+
+    /**
+     * @param useCases synchronous use cases to call
+     * @param executor runs the calls
+     * @param timer    completes the timed out calls
+     * @param timeout  timeout of every call, 0 - no timeout
+     * @param unit     unit of the timeout
+     */
+    public AsyncBankUseCases(BankUseCases<I, M, T> useCases, Executor executor, ScheduledExecutorService timer,
+                             long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.useCases = Objects.requireNonNull(useCases);
+        this.executor = Objects.requireNonNull(executor);
+        this.timer = Objects.requireNonNull(timer);
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Same use cases with another timeout for the calls made through the returned ones -
+     * e.g. {@code async.withTimeout(200, MILLISECONDS).transferMoney(from, to, money)}.
+     *
+     * @param timeout timeout of a call, 0 - no timeout
+     */
+    public AsyncBankUseCases<I, M, T> withTimeout(long timeout, TimeUnit unit) {
+        return new AsyncBankUseCases<>(useCases, executor, timer, timeout, unit);
+    }
+
+    /**
+     * @see BankUseCases#registerNewClient(ClientData)
+     */
+    public CompletableFuture<Client<I>> registerNewClient(ClientData<I> data) {
+        return call(() -> useCases.registerNewClient(data));
+    }
+
+    /**
+     * @see BankUseCases#createAccount(Client, AccountData)
+     */
+    public CompletableFuture<Account<I, M>> createAccount(Client<I> client, AccountData<I, M> accountData) {
+        return call(() -> useCases.createAccount(client, accountData));
+    }
+
+    /**
+     * @see BankUseCases#getAccountData(Object)
+     */
+    public CompletableFuture<AccountData<I, M>> getAccountData(I accountId) {
+        return call(() -> useCases.getAccountData(accountId));
+    }
+
+    /**
+     * @see BankUseCases#replenishAccount(Account, Money)
+     */
+    public CompletableFuture<T> replenishAccount(Account<I, M> account, M money) {
+        return call(() -> useCases.replenishAccount(account, money));
+    }
+
+    /**
+     * @see BankUseCases#withdrawFromAccount(Account, Money)
+     */
+    public CompletableFuture<T> withdrawFromAccount(Account<I, M> account, M money) {
+        return call(() -> useCases.withdrawFromAccount(account, money));
+    }
+
+    /**
+     * @see BankUseCases#transferMoney(Account, Account, Money)
+     */
+    public CompletableFuture<T> transferMoney(Account<I, M> fromAccount, Account<I, M> toAccount, M money) {
+        return call(() -> useCases.transferMoney(fromAccount, toAccount, money));
+    }
+
+    /**
+     * @see BankUseCases#transferMoney(List)
+     */
+    public CompletableFuture<T> transferMoney(List<TransferLeg<I, M>> legs) {
+        return call(() -> useCases.transferMoney(legs));
+    }
+
+    /**
+     * @see BankUseCases#getAllAccounts(Client)
+     */
+    public CompletableFuture<List<Account<I, M>>> getAllAccounts(Client<I> client) {
+        return call(() -> useCases.getAllAccounts(client));
+    }
+
+    /**
+     * @see BankUseCases#getBalance(Object)
+     */
+    public CompletableFuture<M> getBalance(I accountId) {
+        return call(() -> useCases.getBalance(accountId));
+    }
+
+    /**
+     * @see BankUseCases#getBalances(Client)
+     */
+    public CompletableFuture<Map<I, M>> getBalances(Client<I> client) {
+        return call(() -> useCases.getBalances(client));
+    }
+
+    /**
+     * @see BankUseCases#canOpenBalanceSnapshot()
+     */
+    public boolean canOpenBalanceSnapshot() {
+        return useCases.canOpenBalanceSnapshot();
+    }
+
+    /**
+     * @see BankUseCases#openBalanceSnapshot()
+     */
+    public CompletableFuture<BalanceSnapshot<I, M>> openBalanceSnapshot() {
+        return call(useCases::openBalanceSnapshot);
+    }
+
+    /**
+     * @see BankUseCases#getBalances(Client, BalanceSnapshot)
+     */
+    public CompletableFuture<Map<I, M>> getBalances(Client<I> client, BalanceSnapshot<I, M> snapshot) {
+        return call(() -> useCases.getBalances(client, snapshot));
+    }
+
+    /**
+     * @see BankUseCases#getClientTotals(Client)
+     */
+    public CompletableFuture<List<M>> getClientTotals(Client<I> client) {
+        return call(() -> useCases.getClientTotals(client));
+    }
+
+    /**
+     * @see BankUseCases#getAllTransactions(Account)
+     */
+    public CompletableFuture<List<T>> getAllTransactions(Account<I, M> account) {
+        return call(() -> useCases.getAllTransactions(account));
+    }
+
+    /**
+     * @see BankUseCases#getTransactionsPage(Account, Object, int, HistoryDirection)
+     */
+    public CompletableFuture<List<T>> getTransactionsPage(Account<I, M> account, I cursor, int pageSize, HistoryDirection direction) {
+        return call(() -> useCases.getTransactionsPage(account, cursor, pageSize, direction));
+    }
+
+    private <R> CompletableFuture<R> call(Supplier<R> call) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // cancelled or timed out while queued
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(call.get());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        if (timeoutNanos > 0 && !future.isDone()) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> future.completeExceptionally(new TimeoutException()),
+                    timeoutNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((result, ex) -> timeout.cancel(false));
+        }
+        return future;
+    }
+}
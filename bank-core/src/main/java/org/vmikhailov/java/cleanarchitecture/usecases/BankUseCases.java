@@ -1,7 +1,10 @@
 package org.vmikhailov.java.cleanarchitecture.usecases;
 
 import org.vmikhailov.java.cleanarchitecture.dao.AccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
 import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.dao.ClientTotalsDataAccess;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
 import org.vmikhailov.java.cleanarchitecture.dao.TransactionDataAccess;
 import org.vmikhailov.java.cleanarchitecture.entities.Money;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
@@ -18,18 +21,25 @@ import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNo
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.Transaction;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
 import org.vmikhailov.java.cleanarchitecture.transactions.TransactionService;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<I, M>> {
     private final ClientDataAccess<I> clientDataAccess;
     private final AccountDataAccess<I, M> accountDataAccess;
     private final TransactionDataAccess<I, ?, M, T> transactionDataAccess;
     private final TransactionService<I, M, T> transactionService;
+    private volatile UseCaseMetrics metrics = UseCaseMetrics.NONE;
+    private volatile ClientTotalsDataAccess<I, M> clientTotals;
 
     public BankUseCases(ClientDataAccess<I> clientDataAccess,
                         AccountDataAccess<I, M> accountDataAccess,
@@ -41,18 +51,34 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
         this.transactionService = transactionService;
     }
 
+    /**
+     * Every call is timed and reported to the metrics from now on.
+     */
+    public void setMetrics(UseCaseMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Totals the transaction service maintains - accounts created from now on are added to them.
+     */
+    public void setClientTotals(ClientTotalsDataAccess<I, M> clientTotals) {
+        this.clientTotals = Objects.requireNonNull(clientTotals);
+    }
+
     /**
      * Client registered, providing his data for identification.
      *
      * @param data all mandatory client related information
      */
     public final Client<I> registerNewClient(ClientData<I> data) {
-        Objects.requireNonNull(data);
-        List<Client<I>> clients = clientDataAccess.getAll(data);
-        if (!clients.isEmpty()) {
-            throw new ClientAlreadyExist(clients.get(0));
-        }
-        return clientDataAccess.create(data);
+        return timed(UseCase.REGISTER_CLIENT, () -> {
+            Objects.requireNonNull(data);
+            List<Client<I>> clients = returned(UseCase.REGISTER_CLIENT, clientDataAccess.getAll(data));
+            if (!clients.isEmpty()) {
+                throw new ClientAlreadyExist(clients.get(0));
+            }
+            return clientDataAccess.create(data);
+        });
     }
 
     /**
@@ -62,12 +88,14 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @return {@code Client}'s that matched to the given parameters
      */
     public final List<Client<I>> getClients(ClientData<I> data) {
-        Objects.requireNonNull(data);
-        List<Client<I>> clients = clientDataAccess.getAll(data);
-        if (clients.isEmpty()) {
-            throw new ClientNotExist();
-        }
-        return clients;
+        return timed(UseCase.GET_CLIENTS, () -> {
+            Objects.requireNonNull(data);
+            List<Client<I>> clients = returned(UseCase.GET_CLIENTS, clientDataAccess.getAll(data));
+            if (clients.isEmpty()) {
+                throw new ClientNotExist();
+            }
+            return clients;
+        });
     }
 
     /**
@@ -77,15 +105,17 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @return {@code Client}'s that matched to the given parameters
      */
     public final Client<I> getClient(ClientData<I> data) {
-        Objects.requireNonNull(data);
-        List<Client<I>> clients = clientDataAccess.getAll(data);
-        if (clients.isEmpty()) {
-            throw new ClientNotExist();
-        }
-        if (clients.size() > 1) {
-            throw new ClientDuplicatesFound();
-        }
-        return clients.get(0);
+        return timed(UseCase.GET_CLIENT, () -> {
+            Objects.requireNonNull(data);
+            List<Client<I>> clients = returned(UseCase.GET_CLIENT, clientDataAccess.getAll(data));
+            if (clients.isEmpty()) {
+                throw new ClientNotExist();
+            }
+            if (clients.size() > 1) {
+                throw new ClientDuplicatesFound();
+            }
+            return clients.get(0);
+        });
     }
 
     /**
@@ -94,12 +124,15 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param clientId client identity
      */
     public final void deleteClient(I clientId) {
-        Objects.requireNonNull(clientId);
-        Optional<Client<I>> client = clientDataAccess.get(clientId);
-        if (!client.isPresent()) {
-            throw new ClientNotExist();
-        }
-        clientDataAccess.delete(clientId);
+        timed(UseCase.DELETE_CLIENT, () -> {
+            Objects.requireNonNull(clientId);
+            Optional<Client<I>> client = clientDataAccess.get(clientId);
+            if (!client.isPresent()) {
+                throw new ClientNotExist();
+            }
+            clientDataAccess.delete(clientId);
+            return null;
+        });
     }
 
     /**
@@ -109,18 +142,27 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param accountData all mandatory account related data
      */
     public final Account<I, M> createAccount(Client<I> client, AccountData<I, M> accountData) {
-        Objects.requireNonNull(client);
-        Objects.requireNonNull(accountData);
-        if (!client.isActive()) {
-            throw new ClientNotActive();
-        }
-        Optional<? extends Account<I, M>> similarAccountExists = getAllAccounts(client)
-                .stream()
-                .filter(a -> a.getAccountData().isSameData(accountData)).findFirst();
-        if (similarAccountExists.isPresent()) {
-            throw new AccountAlreadyExists();
-        }
-        return accountDataAccess.create(accountData);
+        return timed(UseCase.CREATE_ACCOUNT, () -> {
+            Objects.requireNonNull(client);
+            Objects.requireNonNull(accountData);
+            if (!client.isActive()) {
+                throw new ClientNotActive();
+            }
+            Optional<? extends Account<I, M>> similarAccountExists = returned(UseCase.CREATE_ACCOUNT, accountDataAccess.getAll(client))
+                    .stream()
+                    .filter(a -> a.getAccountData().isSameData(accountData)).findFirst();
+            if (similarAccountExists.isPresent()) {
+                throw new AccountAlreadyExists();
+            }
+            // read before the account is published, transactions may change it right away
+            M openingBalance = accountData.getMoney();
+            Account<I, M> account = accountDataAccess.create(accountData);
+            ClientTotalsDataAccess<I, M> clientTotals = this.clientTotals;
+            if (clientTotals != null) {
+                clientTotals.created(account, openingBalance);
+            }
+            return account;
+        });
     }
 
     /**
@@ -129,12 +171,14 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param accountId account id
      */
     public final AccountData<I, M> getAccountData(I accountId) {
-        Objects.requireNonNull(accountId);
-        Optional<Account<I, M>> account = accountDataAccess.get(accountId);
-        if (!account.isPresent()) {
-            throw new AccountNotFound();
-        }
-        return account.get().getAccountData();
+        return timed(UseCase.GET_ACCOUNT_DATA, () -> {
+            Objects.requireNonNull(accountId);
+            Optional<Account<I, M>> account = accountDataAccess.get(accountId);
+            if (!account.isPresent()) {
+                throw new AccountNotFound();
+            }
+            return account.get().getAccountData();
+        });
     }
 
     /**
@@ -144,15 +188,23 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param money   amount of money to add to the {@code Account}
      */
     public final T replenishAccount(Account<I, M> account, M money) {
-        Objects.requireNonNull(account);
-        Objects.requireNonNull(money);
-        if (!account.isActive()) {
-            throw new AccountNotFound();
-        }
+        long start = startTiming();
+        RuntimeException failure = null;
         try {
+            Objects.requireNonNull(account);
+            Objects.requireNonNull(money);
+            if (!account.isActive()) {
+                throw new AccountNotFound();
+            }
             return transactionService.make(account, money, OperationType.REPLENISH);
         } catch (TransactionException ex) {
-            throw new AccountException(ex);
+            failure = new AccountException(ex);
+            throw failure;
+        } catch (RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            timed(UseCase.REPLENISH, start, failure);
         }
     }
 
@@ -163,13 +215,21 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param money   amount of money to add to the {@code Account}
      */
     public final T withdrawFromAccount(Account<I, M> account, M money) {
-        if (!account.isActive()) {
-            throw new InactiveAccount(account);
-        }
+        long start = startTiming();
+        RuntimeException failure = null;
         try {
+            if (!account.isActive()) {
+                throw new InactiveAccount(account);
+            }
             return transactionService.make(account, money, OperationType.WITHDRAW);
         } catch (TransactionException ex) {
-            throw new AccountException(ex);
+            failure = new AccountException(ex);
+            throw failure;
+        } catch (RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            timed(UseCase.WITHDRAW, start, failure);
         }
     }
 
@@ -181,19 +241,56 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @param money       amount of money to transfer
      */
     public final T transferMoney(Account<I, M> fromAccount, Account<I, M> toAccount, M money) {
-        if (!fromAccount.isActive()) {
-            throw new InactiveAccount(fromAccount);
-        }
-        if (!toAccount.isActive()) {
-            throw new InactiveAccount(toAccount);
-        }
+        long start = startTiming();
+        RuntimeException failure = null;
         try {
+            if (!fromAccount.isActive()) {
+                throw new InactiveAccount(fromAccount);
+            }
+            if (!toAccount.isActive()) {
+                throw new InactiveAccount(toAccount);
+            }
             return transactionService.make(fromAccount, toAccount, money, OperationType.TRANSFER);
         } catch (TransactionException ex) {
-            throw new AccountException(ex);
+            failure = new AccountException(ex);
+            throw failure;
+        } catch (RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            timed(UseCase.TRANSFER, start, failure);
         }
     }
 
+    /**
+     * Client transfers money between several accounts at once - e.g. a payroll from one account to many others.
+     * Either all the transfers are made or none of them.
+     *
+     * @param legs transfers to make, applied in the given order
+     * @return the parent transaction of all the transfers
+     */
+    public final T transferMoney(List<TransferLeg<I, M>> legs) {
+        return timed(UseCase.MULTI_TRANSFER, () -> {
+            Objects.requireNonNull(legs);
+            if (legs.isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+            for (TransferLeg<I, M> leg : legs) {
+                if (!leg.getFromAccount().isActive()) {
+                    throw new InactiveAccount(leg.getFromAccount());
+                }
+                if (!leg.getToAccount().isActive()) {
+                    throw new InactiveAccount(leg.getToAccount());
+                }
+            }
+            try {
+                return transactionService.make(legs);
+            } catch (TransactionException ex) {
+                throw new AccountException(ex);
+            }
+        });
+    }
+
     /**
      * Client requests information about his accounts - amount of money on it and currency.
      *
@@ -201,7 +298,98 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @return list of {@code Account}'s
      */
     public final List<Account<I, M>> getAllAccounts(Client<I> client) {
-        return accountDataAccess.getAll(client);
+        return timed(UseCase.GET_ALL_ACCOUNTS, () -> returned(UseCase.GET_ALL_ACCOUNTS, accountDataAccess.getAll(client)));
+    }
+
+    /**
+     * Client polls the balance of the account - read without locking the account.
+     *
+     * @param accountId account id
+     */
+    public final M getBalance(I accountId) {
+        return timed(UseCase.GET_BALANCE, () -> {
+            Objects.requireNonNull(accountId);
+            Optional<Account<I, M>> account = accountDataAccess.get(accountId);
+            if (!account.isPresent()) {
+                throw new AccountNotFound();
+            }
+            return accountDataAccess.getBalances(Collections.singletonList(account.get())).get(0);
+        });
+    }
+
+    /**
+     * Client requests the balances of all his accounts - as they were at one moment, e.g. a transfer between
+     * two of them is seen either made or not made.
+     *
+     * @param client to identify owner of accounts
+     * @return balances by account id
+     */
+    public final Map<I, M> getBalances(Client<I> client) {
+        return timed(UseCase.GET_BALANCES, () -> {
+            List<Account<I, M>> accounts = returned(UseCase.GET_BALANCES, accountDataAccess.getAll(client));
+            List<M> balances = accountDataAccess.getBalances(accounts);
+            Map<I, M> balancesById = new LinkedHashMap<>();
+            for (int i = 0; i < accounts.size(); i++) {
+                balancesById.put(accounts.get(i).getId(), balances.get(i));
+            }
+            return balancesById;
+        });
+    }
+
+    /**
+     * @return {@code true} if the account storage keeps versions of the balances, so a snapshot can be opened
+     */
+    public final boolean canOpenBalanceSnapshot() {
+        return accountDataAccess.keepsBalanceVersions();
+    }
+
+    /**
+     * Opens a point-in-time view of all the balances - e.g. to read the balances of several clients consistently.
+     * Writers are not blocked by it, the snapshot has to be closed to let the storage drop the old versions.
+     *
+     * @return snapshot of the latest committed version
+     * @throws UnsupportedOperationException if the account storage keeps no versions of the balances -
+     *                                       see {@link #canOpenBalanceSnapshot()}
+     */
+    public final BalanceSnapshot<I, M> openBalanceSnapshot() {
+        return timed(UseCase.OPEN_BALANCE_SNAPSHOT, accountDataAccess::openSnapshot);
+    }
+
+    /**
+     * Client requests the balances of all his accounts as of the snapshot. Accounts created after it are left out.
+     *
+     * @param client   to identify owner of accounts
+     * @param snapshot opened by {@link #openBalanceSnapshot()}
+     * @return balances by account id
+     */
+    public final Map<I, M> getBalances(Client<I> client, BalanceSnapshot<I, M> snapshot) {
+        return timed(UseCase.GET_SNAPSHOT_BALANCES, () -> {
+            Objects.requireNonNull(snapshot);
+            Map<I, M> balancesById = new LinkedHashMap<>();
+            for (Account<I, M> account : returned(UseCase.GET_SNAPSHOT_BALANCES, accountDataAccess.getAll(client))) {
+                snapshot.getBalance(account).ifPresent(balance -> balancesById.put(account.getId(), balance));
+            }
+            return balancesById;
+        });
+    }
+
+    /**
+     * Client requests his total holdings - the balances of all his accounts summed per currency.
+     * The totals are maintained as the transactions commit, so the call doesn't read the accounts.
+     *
+     * @param client to identify owner of accounts
+     * @return total per currency, no entry for a currency the client has no accounts in
+     * @throws UnsupportedOperationException if no totals are maintained
+     */
+    public final List<M> getClientTotals(Client<I> client) {
+        return timed(UseCase.GET_CLIENT_TOTALS, () -> {
+            Objects.requireNonNull(client);
+            ClientTotalsDataAccess<I, M> clientTotals = this.clientTotals;
+            if (clientTotals == null) {
+                throw new UnsupportedOperationException("client totals are not maintained");
+            }
+            return clientTotals.getTotals(client);
+        });
     }
 
     /**
@@ -211,6 +399,63 @@ public abstract class BankUseCases<I, M extends Money<?>, T extends Transaction<
      * @return list of {@code Transaction}'s
      */
     public final List<T> getAllTransactions(Account<I, M> account) {
-        return transactionDataAccess.getAll(account);
+        return timed(UseCase.GET_ALL_TRANSACTIONS, () -> returned(UseCase.GET_ALL_TRANSACTIONS, transactionDataAccess.getAll(account)));
+    }
+
+    /**
+     * Client requests his operations page by page - e.g. latest operations first.
+     *
+     * @param account   to identify source of transactions account
+     * @param cursor    id of the last transaction from the previous page, {@code null} for the first page
+     * @param pageSize  max number of transactions to return
+     * @param direction order in which history is paged
+     * @return list of {@code Transaction}'s following the cursor
+     */
+    public final List<T> getTransactionsPage(Account<I, M> account, I cursor, int pageSize, HistoryDirection direction) {
+        return timed(UseCase.GET_TRANSACTIONS_PAGE, () -> {
+            Objects.requireNonNull(account);
+            Objects.requireNonNull(direction);
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException();
+            }
+            return returned(UseCase.GET_TRANSACTIONS_PAGE, transactionDataAccess.getPage(account, cursor, pageSize, direction));
+        });
+    }
+
+    /*
+     * The call is made right away if there are no metrics - no clock reads on the hot path.
+     */
+    private <R> R timed(UseCase useCase, Supplier<R> call) {
+        UseCaseMetrics metrics = this.metrics;
+        if (!metrics.enabled()) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            R result = call.get();
+            metrics.record(useCase, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException ex) {
+            metrics.record(useCase, System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    /*
+     * Timing of the transaction calls without a lambda per call - start of the call, 0 if there are no metrics.
+     */
+    private long startTiming() {
+        return metrics.enabled() ? System.nanoTime() : 0;
+    }
+
+    private void timed(UseCase useCase, long start, RuntimeException failure) {
+        if (start != 0) {
+            metrics.record(useCase, System.nanoTime() - start, failure);
+        }
+    }
+
+    private <E> List<E> returned(UseCase useCase, List<E> entities) {
+        metrics.returned(useCase, entities.size());
+        return entities;
     }
 }
@@ -0,0 +1,25 @@
+package org.vmikhailov.java.cleanarchitecture.usecases;
+
+/*
+ * Calls of BankUseCases as they are reported to UseCaseMetrics.
+ */
+public enum UseCase {
+    REGISTER_CLIENT,
+    GET_CLIENTS,
+    GET_CLIENT,
+    DELETE_CLIENT,
+    CREATE_ACCOUNT,
+    GET_ACCOUNT_DATA,
+    REPLENISH,
+    WITHDRAW,
+    TRANSFER,
+    MULTI_TRANSFER,
+    GET_ALL_ACCOUNTS,
+    GET_BALANCE,
+    GET_BALANCES,
+    OPEN_BALANCE_SNAPSHOT,
+    GET_SNAPSHOT_BALANCES,
+    GET_CLIENT_TOTALS,
+    GET_ALL_TRANSACTIONS,
+    GET_TRANSACTIONS_PAGE
+}
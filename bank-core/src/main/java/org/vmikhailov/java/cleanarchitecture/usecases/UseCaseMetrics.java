@@ -0,0 +1,44 @@
+package org.vmikhailov.java.cleanarchitecture.usecases;
+
+/*
+ * Receives the duration of every BankUseCases call and the number of entities the storages returned for it.
+ * Called on the hot path of every call - implementations should only update counters.
+ */
+public interface UseCaseMetrics {
+    /**
+     * No metrics - the calls are not even timed.
+     */
+    UseCaseMetrics NONE = new UseCaseMetrics() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void record(UseCase useCase, long nanos, RuntimeException failure) {
+        }
+
+        @Override
+        public void returned(UseCase useCase, int entities) {
+        }
+    };
+
+    /**
+     * @return {@code false} if the calls shouldn't be timed at all
+     */
+    default boolean enabled() {
+        return true;
+    }
+
+    /**
+     * @param nanos   duration of the call
+     * @param failure exception the call failed with, {@code null} if it succeeded
+     */
+    void record(UseCase useCase, long nanos, RuntimeException failure);
+
+    /**
+     * @param entities clients, accounts or transactions the storage returned for the call - the ones matching
+     *                 the query, however many the storage had to examine to find them
+     */
+    void returned(UseCase useCase, int entities);
+}
@@ -0,0 +1,7 @@
+package org.vmikhailov.java.cleanarchitecture.impl.dao;
+
+import org.vmikhailov.java.cleanarchitecture.dao.ClientTotalsDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+
+public interface FiatClientTotalsDataAccess extends ClientTotalsDataAccess<Long, FiatMoney> {
+}
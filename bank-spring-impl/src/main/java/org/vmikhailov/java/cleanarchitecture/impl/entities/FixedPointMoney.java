@@ -0,0 +1,77 @@
+package org.vmikhailov.java.cleanarchitecture.impl.entities;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+import java.math.BigDecimal;
+
+/*
+ * Money as a number of currency minor units (e.g. cents) in a primitive long.
+ * Arithmetic is exact - overflow throws ArithmeticException instead of wrapping around.
+ */
+@Getter
+@EqualsAndHashCode
+public final class FixedPointMoney {
+    private final Currency currency;
+    private final long minorUnits;
+
+    public FixedPointMoney(Currency currency, long minorUnits) {
+        this.currency = currency;
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * @throws ArithmeticException if amount has more fraction digits than the currency minor unit or doesn't fit into long
+     */
+    public static FixedPointMoney of(FiatMoney money) {
+        return new FixedPointMoney(money.getCurrency(), toMinorUnits(money.getAmount(), money.getCurrency()));
+    }
+
+    public static boolean isRepresentable(FiatMoney money) {
+        BigDecimal amount = money.getAmount();
+        if (amount == null) {
+            return false;
+        }
+        int digits = money.getCurrency().getMinorUnitDigits();
+        if (amount.scale() > digits) {
+            amount = amount.stripTrailingZeros();
+            if (amount.scale() > digits) {
+                return false;
+            }
+        }
+        return amount.movePointRight(digits).toBigInteger().bitLength() < Long.SIZE;
+    }
+
+    public static long toMinorUnits(BigDecimal amount, Currency currency) {
+        return amount.movePointRight(currency.getMinorUnitDigits()).longValueExact();
+    }
+
+    public static BigDecimal toAmount(long minorUnits, Currency currency) {
+        return BigDecimal.valueOf(minorUnits, currency.getMinorUnitDigits());
+    }
+
+    public FixedPointMoney add(FixedPointMoney other) {
+        checkSameCurrency(other);
+        return new FixedPointMoney(currency, Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public FixedPointMoney subtract(FixedPointMoney other) {
+        checkSameCurrency(other);
+        return new FixedPointMoney(currency, Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toAmount(minorUnits, currency);
+    }
+
+    public FiatMoney toFiatMoney() {
+        return new FiatMoney(currency, toBigDecimal());
+    }
+
+    private void checkSameCurrency(FixedPointMoney other) {
+        if (!currency.isSame(other.currency)) {
+            throw new IllegalArgumentException("not working with different currency");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.vmikhailov.java.cleanarchitecture.impl.entities;
+
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * ISO 4217 currency, one instance per code - the minor unit digits are the ones of java.util.Currency.
+ */
+public final class IsoCurrency implements Currency {
+    private static final Map<String, IsoCurrency> CURRENCIES = new ConcurrentHashMap<>();
+
+    @Getter
+    private final String code;
+    private final int minorUnitDigits;
+
+    private IsoCurrency(java.util.Currency currency) {
+        this.code = currency.getCurrencyCode();
+        this.minorUnitDigits = Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the code is not an ISO 4217 one
+     */
+    public static IsoCurrency of(String code) {
+        IsoCurrency currency = CURRENCIES.get(code);
+        if (currency != null) {
+            return currency;
+        }
+        return CURRENCIES.computeIfAbsent(java.util.Currency.getInstance(code).getCurrencyCode(),
+                k -> new IsoCurrency(java.util.Currency.getInstance(k)));
+    }
+
+    @Override
+    public boolean isSame(Currency other) {
+        return this == other;
+    }
+
+    @Override
+    public int getMinorUnitDigits() {
+        return minorUnitDigits;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
@@ -0,0 +1,77 @@
+package org.vmikhailov.java.cleanarchitecture.impl.entities.account;
+
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Account data keeping the balance as currency minor units in a long.
+ * Transaction services change it without any BigDecimal/FiatMoney allocation, FiatMoney is only built
+ * when the balance is read through getMoney. Amounts finer than the currency minor unit are rejected.
+ * The minor units are the only balance - the money of AccountData is never set.
+ *
+ * Subclasses can keep the minor units elsewhere by overriding getMinorUnits, setMinorUnits and compareAndSetMinorUnits.
+ */
+public class FixedPointAccountData extends FiatAccountData {
+    @Getter
+    private final Currency currency;
+    private final AtomicLong minorUnits;
+
+    /**
+     * @throws ArithmeticException if money has more fraction digits than the currency minor unit or doesn't fit into long
+     */
+    public FixedPointAccountData(FiatMoney money, Client<Long> client) {
+        this(money.getCurrency(), client, new AtomicLong(FixedPointMoney.of(money).getMinorUnits()));
+    }
+
+    /**
+     * Data of a subclass keeping the minor units itself.
+     */
+    protected FixedPointAccountData(Currency currency, Client<Long> client) {
+        this(currency, client, null);
+    }
+
+    private FixedPointAccountData(Currency currency, Client<Long> client, AtomicLong minorUnits) {
+        super(null, client);
+        this.currency = currency;
+        this.minorUnits = minorUnits;
+    }
+
+    @Override
+    public FiatMoney getMoney() {
+        return new FiatMoney(currency, FixedPointMoney.toAmount(getMinorUnits(), currency));
+    }
+
+    @Override
+    public void setMoney(FiatMoney money) {
+        setMinorUnits(toMinorUnits(money));
+    }
+
+    @Override
+    public boolean compareAndSetMoney(FiatMoney expectedMoney, FiatMoney newMoney) {
+        return compareAndSetMinorUnits(toMinorUnits(expectedMoney), toMinorUnits(newMoney));
+    }
+
+    public long getMinorUnits() {
+        return minorUnits.get();
+    }
+
+    public void setMinorUnits(long newMinorUnits) {
+        minorUnits.set(newMinorUnits);
+    }
+
+    public boolean compareAndSetMinorUnits(long expectedMinorUnits, long newMinorUnits) {
+        return minorUnits.compareAndSet(expectedMinorUnits, newMinorUnits);
+    }
+
+    private long toMinorUnits(FiatMoney money) {
+        if (!currency.isSame(money.getCurrency())) {
+            throw new IllegalArgumentException("not working with different currency");
+        }
+        return FixedPointMoney.toMinorUnits(money.getAmount(), currency);
+    }
+}
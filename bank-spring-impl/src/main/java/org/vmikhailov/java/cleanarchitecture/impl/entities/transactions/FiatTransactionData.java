@@ -3,8 +3,11 @@ package org.vmikhailov.java.cleanarchitecture.impl.entities.transactions;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 public class FiatTransactionData {
@@ -12,12 +15,28 @@ public class FiatTransactionData {
     private final Account<Long, FiatMoney> accountB;
     private final FiatMoney amount;
     private final OperationType operationType;
+    private final List<TransferLeg<Long, FiatMoney>> legs;
 
     public FiatTransactionData(Account<Long, FiatMoney> accountA, Account<Long, FiatMoney> accountB, FiatMoney amount, OperationType operationType) {
         this.accountA = accountA;
         this.accountB = accountB;
         this.amount = amount;
         this.operationType = operationType;
+        this.legs = Collections.emptyList();
+    }
+
+    /**
+     * Parent of a multi-leg transfer.
+     *
+     * @param legs   transfers of the operation
+     * @param amount total amount of the transfers
+     */
+    public FiatTransactionData(List<TransferLeg<Long, FiatMoney>> legs, FiatMoney amount) {
+        this.accountA = null;
+        this.accountB = null;
+        this.amount = amount;
+        this.operationType = OperationType.MULTI_TRANSFER;
+        this.legs = Collections.unmodifiableList(legs);
     }
 
     public Optional<Account<Long, FiatMoney>> getAccountA() {
@@ -36,6 +55,10 @@ public class FiatTransactionData {
         return operationType;
     }
 
+    public List<TransferLeg<Long, FiatMoney>> getLegs() {
+        return legs;
+    }
+
     public TransactionState getState() {
         return TransactionState.STARTED;
     }
@@ -0,0 +1,67 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+
+import java.util.Arrays;
+
+/*
+ * Transaction ids of one account kept sorted in a plain long array - 8 bytes per transaction instead of
+ * a skip list node. Ids mostly come in ascending order, so an add is an append and the rare out of order
+ * one (concurrent creations) shifts just the few ids after it.
+ */
+class AccountJournal {
+    private long[] ids = new long[4];
+    private int size;
+
+    /**
+     * Adds the id unless it's already there - both sides of a transaction can be the same account.
+     */
+    synchronized void add(long id) {
+        if (Arrays.binarySearch(ids, 0, size, id) >= 0) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1));
+        }
+        int position = size;
+        while (position > 0 && ids[position - 1] > id) {
+            ids[position] = ids[position - 1];
+            position--;
+        }
+        ids[position] = id;
+        size++;
+    }
+
+    synchronized long[] all() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Up to pageSize ids following the cursor (exclusive) in the direction, from the start of it without a cursor.
+     */
+    synchronized long[] page(Long cursor, int pageSize, HistoryDirection direction) {
+        if (direction == HistoryDirection.NEWEST_FIRST) {
+            int end = cursor == null ? size : lowerBound(cursor);
+            int length = Math.max(0, Math.min(pageSize, end));
+            long[] page = new long[length];
+            for (int i = 0; i < length; i++) {
+                page[i] = ids[end - 1 - i];
+            }
+            return page;
+        }
+        int start = cursor == null ? 0 : upperBound(cursor);
+        return Arrays.copyOfRange(ids, start, start + Math.max(0, Math.min(pageSize, size - start)));
+    }
+
+    /* index of the first id >= value */
+    private int lowerBound(long value) {
+        int position = Arrays.binarySearch(ids, 0, size, value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /* index of the first id > value */
+    private int upperBound(long value) {
+        int position = Arrays.binarySearch(ids, 0, size, value);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+}
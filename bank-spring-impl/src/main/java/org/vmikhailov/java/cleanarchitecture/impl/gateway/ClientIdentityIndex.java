@@ -0,0 +1,91 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/*
+ * Secondary index over client identity: every document (type + number) and the personal data
+ * (name + surname + birth date) are normalized into keys pointing to the client ids that own them.
+ *
+ * Index is intentionally coarser than UniversalBankClientData equality - it only narrows the candidates,
+ * the final decision is always made by the search predicate itself.
+ */
+class ClientIdentityIndex {
+    private final Map<String, Set<Long>> index = new ConcurrentHashMap<>();
+
+    void add(Long clientId, ClientData<Long> data) {
+        for (String key : keysOf(data)) {
+            index.compute(key, (k, ids) -> {
+                Set<Long> clientIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                clientIds.add(clientId);
+                return clientIds;
+            });
+        }
+    }
+
+    void remove(Long clientId, ClientData<Long> data) {
+        for (String key : keysOf(data)) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(clientId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Candidates for the search parameters.
+     *
+     * @param searchParams search predicate
+     * @return ids of the clients that can match the predicate, or empty if predicate can't be resolved by the index
+     */
+    Optional<Set<Long>> find(Predicate<Client<Long>> searchParams) {
+        if (!(searchParams instanceof UniversalBankClientData)) {
+            return Optional.empty();
+        }
+        UniversalBankClientData data = (UniversalBankClientData) searchParams;
+        String key = data.getDocuments() == null || data.getDocuments().isEmpty()
+                ? personalKey(data)
+                : documentKey(data.getDocuments().get(0));
+        return Optional.of(index.getOrDefault(key, Collections.emptySet()));
+    }
+
+    private static List<String> keysOf(ClientData<Long> data) {
+        if (!(data instanceof UniversalBankClientData)) {
+            return Collections.emptyList();
+        }
+        UniversalBankClientData universalData = (UniversalBankClientData) data;
+        List<String> keys = new ArrayList<>();
+        keys.add(personalKey(universalData));
+        if (universalData.getDocuments() != null) {
+            universalData.getDocuments().forEach(d -> keys.add(documentKey(d)));
+        }
+        return keys;
+    }
+
+    private static String personalKey(UniversalBankClientData data) {
+        return "P|" + normalize(data.getName()) + '|' + normalize(data.getSurname()) + '|' + data.getBirthDate();
+    }
+
+    private static String documentKey(ClientDocument document) {
+        if (document == null) {
+            return "D|";
+        }
+        return "D|" + document.getDocumentType() + '|' + normalize(document.getDocumentNumber());
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,22 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+
+/*
+ * Clients and accounts created by the in-memory gateways, e.g. logged next to the balance changes, so they are
+ * recovered together. A call returns once the creation is durable, a failed one makes the gateway undo the creation.
+ */
+public interface CreationLog {
+
+    /**
+     * Called once the client is stored.
+     */
+    void clientCreated(Client<Long> client);
+
+    /**
+     * Called once the account is stored, holding its lock - transactions on the account are logged after it.
+     */
+    void accountCreated(Account<Long, FiatMoney> account);
+}
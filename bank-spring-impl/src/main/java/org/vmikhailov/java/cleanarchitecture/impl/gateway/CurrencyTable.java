@@ -0,0 +1,47 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+import java.util.Arrays;
+
+/*
+ * Currencies have no code - off-heap records point into the table of the ones seen so far by a short index.
+ * There are a handful of currencies, so the lookup is a plain scan of the array.
+ */
+class CurrencyTable {
+    private volatile Currency[] currencies = new Currency[0];
+
+    short indexOf(Currency currency) {
+        short index = find(currencies, currency);
+        if (index >= 0) {
+            return index;
+        }
+        synchronized (this) {
+            Currency[] known = currencies;
+            index = find(known, currency);
+            if (index >= 0) {
+                return index;
+            }
+            if (known.length == Short.MAX_VALUE) {
+                throw new IllegalStateException("too many currencies");
+            }
+            Currency[] grown = Arrays.copyOf(known, known.length + 1);
+            grown[known.length] = currency;
+            currencies = grown;
+            return (short) known.length;
+        }
+    }
+
+    Currency get(short index) {
+        return currencies[index];
+    }
+
+    private static short find(Currency[] known, Currency currency) {
+        for (int i = 0; i < known.length; i++) {
+            if (known[i] == currency || (known[i] != null && currency != null && known[i].isSame(currency))) {
+                return (short) i;
+            }
+        }
+        return -1;
+    }
+}
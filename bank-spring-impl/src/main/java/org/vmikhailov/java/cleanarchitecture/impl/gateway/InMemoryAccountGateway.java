@@ -1,9 +1,14 @@
 package org.vmikhailov.java.cleanarchitecture.impl.gateway;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
 import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
 import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
 import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
@@ -12,27 +17,100 @@ import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedE
 import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountContentionTracker;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLocks;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.LockOrdered;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @Repository
+@ConditionalOnProperty(name = "bank.accounts.store", havingValue = "heap", matchIfMissing = true)
 public class InMemoryAccountGateway implements FiatAccountDataAccess {
     private static final AtomicLong ID_SEQUENCE = new AtomicLong(0);
+    private static final Object NO_CLIENT = new Object();
+    private static final int OPTIMISTIC_READS = 8;
+    /*
+     * Commit of an account while a committing thread publishes its balance.
+     */
+    private static final long MARKED = -1;
+    private static final Comparator<InMemoryAccount> ID_ORDER = Comparator.comparingLong(account -> account.id);
+    private static final AtomicReferenceFieldUpdater<InMemoryAccount, Object> CLIENT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(InMemoryAccount.class, Object.class, "client");
+    private static final AtomicLongFieldUpdater<InMemoryAccount> VERSION_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(InMemoryAccount.class, "version");
+    private static final AtomicLongFieldUpdater<InMemoryAccount> COMMITTED_AT_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(InMemoryAccount.class, "committedAt");
     private final ClientDataAccess<Long> clientStorage;
+    private final AccountLockPolicy lockPolicy;
+    private final AccountLocks locks;
+    private AccountContentionTracker contention;
+    private volatile CreationLog creationLog;
     private Map<Long, InMemoryAccount> accountStorage = new ConcurrentHashMap<>();
+    private Map<Long, Set<Long>> clientAccountsIndex = new ConcurrentHashMap<>();
+    /*
+     * Accounts cache their client if the client storage tells about the deleted clients.
+     */
+    private final boolean cachedClients;
+    /*
+     * Commits are numbered in the order they are published, a snapshot reads the balances up to the latest number.
+     */
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong snapshotIds = new AtomicLong();
+    private final ConcurrentSkipListMap<VersionSnapshot, Boolean> openSnapshots = new ConcurrentSkipListMap<>(
+            Comparator.comparingLong((VersionSnapshot snapshot) -> snapshot.registeredVersion).thenComparingLong(snapshot -> snapshot.id));
 
     public InMemoryAccountGateway(ClientDataAccess<Long> clientStorage) {
+        this(clientStorage, new ImmediateAccountLockPolicy(), new AccountLocks(AccountLocks.DEFAULT_STRIPES));
+    }
+
+    @Autowired
+    public InMemoryAccountGateway(ClientDataAccess<Long> clientStorage, AccountLockPolicy lockPolicy, AccountLocks locks) {
         this.clientStorage = clientStorage;
+        this.lockPolicy = lockPolicy;
+        this.locks = locks;
+        this.cachedClients = clientStorage.addChangeListener(this::clientChanged);
+    }
+
+    /**
+     * Lock failures and sampled hold times of the accounts are reported to the tracker.
+     */
+    @Autowired(required = false)
+    public void setContentionTracker(AccountContentionTracker contention) {
+        this.contention = contention;
     }
 
+    /**
+     * Created accounts are logged from now on.
+     */
+    public void setCreationLog(CreationLog creationLog) {
+        this.creationLog = creationLog;
+    }
+
+    /**
+     * A logged account is stored locked, so no transaction on it can be logged before the account is.
+     *
+     * @throws AccountException if the account can't be logged, it's not created then
+     */
     @Override
     public Account<Long, FiatMoney> create(AccountData<Long, FiatMoney> data) {
         if (data == null) {
@@ -40,10 +118,32 @@ public class InMemoryAccountGateway implements FiatAccountDataAccess {
         }
         long id = ID_SEQUENCE.incrementAndGet();
         InMemoryAccount inMemoryAccount = new InMemoryAccount(id, data, data.getClient().getId());
-        accountStorage.put(id, inMemoryAccount);
+        CreationLog log = creationLog;
+        if (log == null) {
+            store(inMemoryAccount);
+            return inMemoryAccount;
+        }
+        inMemoryAccount.lock.lock();
+        try {
+            store(inMemoryAccount);
+            log.accountCreated(inMemoryAccount);
+        } catch (RuntimeException ex) {
+            accountStorage.remove(id);
+            unindexClientAccount(inMemoryAccount.getClientId(), id);
+            throw new AccountException(ex);
+        } finally {
+            inMemoryAccount.lock.unlock();
+        }
         return inMemoryAccount;
     }
 
+    private void store(InMemoryAccount account) {
+        accountStorage.put(account.getId(), account);
+        indexClientAccount(account.getClientId(), account.getId());
+        checkClientDeleted(account);
+        committed(Collections.singletonList(account));
+    }
+
     @Override
     public void update(Long id, AccountData<Long, FiatMoney> data) {
         if (id == null) {
@@ -56,19 +156,29 @@ public class InMemoryAccountGateway implements FiatAccountDataAccess {
         if (account == null) {
             throw new AccountNotFound();
         }
+        // balance changes are made in the data of the account itself, there's nothing to replace
+        if (data == account.accountData) {
+            return;
+        }
 
-        Lock lock = account.getLock();
-        lock.lock();
+        account.hold();
         try {
-            InMemoryAccount replacedAccount = accountStorage.put(id,
-                    new InMemoryAccount(id, data, data.getClient().getId(), lock));
-            if (replacedAccount != account) {
-                throw new AccountException();
+            Long newClientId = data.getClient().getId();
+            Long formerClientId = account.clientId;
+            account.accountData = data;
+            if (!Objects.equals(formerClientId, newClientId)) {
+                account.clientId = newClientId;
+                // the cached client is the former one, it's looked up again
+                CLIENT_UPDATER.set(account, null);
+                unindexClientAccount(formerClientId, id);
+                indexClientAccount(newClientId, id);
             }
+            checkClientDeleted(account);
+            committed(Collections.singletonList(account));
         } catch (RuntimeException ex) {
             throw new AccountException(ex);
         } finally {
-            lock.unlock();
+            account.unlock();
         }
     }
 
@@ -93,50 +203,423 @@ public class InMemoryAccountGateway implements FiatAccountDataAccess {
 
     @Override
     public List<Account<Long, FiatMoney>> getAll(Client<Long> client) {
-        return accountStorage.values().stream().filter(a -> a.test(client)).collect(Collectors.toList());
+        if (client == null || client.getId() == null) {
+            return Collections.emptyList();
+        }
+        return clientAccountsIndex.getOrDefault(client.getId(), Collections.emptySet()).stream()
+                .map(accountStorage::get)
+                .filter(Objects::nonNull)
+                .filter(a -> a.test(client))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Seqlock read: the version of an account is odd while a writer holds the account lock, so the balances are
+     * the ones of a single moment if all the versions were even and stayed the same while the balances were read.
+     * Readers don't take the locks unless the optimistic read fails a few times in a row.
+     * <p>
+     * Covers the transaction services locking the accounts they change - lock-based and lock-free ones,
+     * the single account operations of the latter change a single balance atomically anyway.
+     */
+    @Override
+    public List<FiatMoney> getBalances(List<? extends Account<Long, FiatMoney>> accounts) {
+        InMemoryAccount[] current = new InMemoryAccount[accounts.size()];
+        for (int i = 0; i < current.length; i++) {
+            current[i] = accountStorage.get(accounts.get(i).getId());
+            if (current[i] == null) {
+                throw new AccountNotFound();
+            }
+        }
+        long[] versions = new long[current.length];
+        FiatMoney[] balances = new FiatMoney[current.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            if (tryReadBalances(current, versions, balances)) {
+                return Arrays.asList(balances);
+            }
+            Thread.yield();
+        }
+        return readBalancesLocked(current, balances);
+    }
+
+    private boolean tryReadBalances(InMemoryAccount[] accounts, long[] versions, FiatMoney[] balances) {
+        for (int i = 0; i < accounts.length; i++) {
+            versions[i] = accounts[i].version;
+            if ((versions[i] & 1) != 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            balances[i] = accounts[i].accountData.getMoney();
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            if (accounts[i].version != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<FiatMoney> readBalancesLocked(InMemoryAccount[] accounts, FiatMoney[] balances) {
+        InMemoryAccount[] ordered = accounts.clone();
+        Arrays.sort(ordered, LockOrdered.ORDER);
+        int locked = 0;
+        try {
+            for (; locked < ordered.length; locked++) {
+                ordered[locked].lock.lock();
+            }
+            for (int i = 0; i < accounts.length; i++) {
+                balances[i] = accounts[i].accountData.getMoney();
+            }
+            return Arrays.asList(balances);
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                ordered[i].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Publishes the current balances of the accounts as one commit, numbered after the commits of the snapshots
+     * opened so far. Nothing is kept but the latest committed balance while no snapshot is open - while some are,
+     * the replaced balance is added to the versions of the account, the versions no open snapshot can read are
+     * dropped meanwhile.
+     * <p>
+     * The accounts are marked in the id order by a CAS of their commit, so the commits of an account - e.g. a lock-free
+     * single account operation and a transfer - are published one after another, in the order of their numbers.
+     * An account held by another thread is skipped, e.g. a lock-free single account operation committed during
+     * a transfer - the balance is not a committed one, the transfer publishes it once it commits or rolls back.
+     */
+    @Override
+    public void committed(List<? extends Account<Long, FiatMoney>> accounts) {
+        if (accounts.size() == 1) {
+            InMemoryAccount account = accountStorage.get(accounts.get(0).getId());
+            if (account != null) {
+                long committedAt = account.mark();
+                long commit = commits.incrementAndGet();
+                account.publish(committedAt, commit, horizon());
+            }
+            return;
+        }
+        InMemoryAccount[] marked = new InMemoryAccount[accounts.size()];
+        int count = 0;
+        for (Account<Long, FiatMoney> account : accounts) {
+            InMemoryAccount current = accountStorage.get(account.getId());
+            if (current != null) {
+                marked[count++] = current;
+            }
+        }
+        Arrays.sort(marked, 0, count, ID_ORDER);
+        long[] committedAt = new long[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            // a transfer to the same account
+            if (distinct > 0 && marked[distinct - 1] == marked[i]) {
+                continue;
+            }
+            marked[distinct] = marked[i];
+            committedAt[distinct++] = marked[i].mark();
+        }
+        long commit = commits.incrementAndGet();
+        long horizon = horizon();
+        for (int i = 0; i < distinct; i++) {
+            marked[i].publish(committedAt[i], commit, horizon);
+        }
+    }
+
+    /*
+     * Oldest commit an open snapshot can read, -1 if no snapshot is open. Read once the commit number is taken,
+     * so a snapshot missed here reads the commit or a later one.
+     */
+    private long horizon() {
+        if (openSnapshots.isEmpty()) {
+            return -1;
+        }
+        Map.Entry<VersionSnapshot, Boolean> oldest = openSnapshots.firstEntry();
+        return oldest == null ? -1 : oldest.getKey().registeredVersion;
+    }
+
+    @Override
+    public boolean keepsBalanceVersions() {
+        return true;
+    }
+
+    /**
+     * Snapshot of the latest commit. It is registered before the commit number is read, at a number not newer than
+     * the read one - a commit that doesn't see the registration has taken a number not newer than the one of the
+     * snapshot, so the snapshot reads the balance it publishes.
+     */
+    @Override
+    public BalanceSnapshot<Long, FiatMoney> openSnapshot() {
+        VersionSnapshot snapshot = new VersionSnapshot(snapshotIds.incrementAndGet(), commits.get());
+        openSnapshots.put(snapshot, Boolean.TRUE);
+        snapshot.version = commits.get();
+        return snapshot;
+    }
+
+    /**
+     * Visits every account holding its lock, deleted ones included - the account can't be changed by a lock-based
+     * transaction meanwhile. Accounts created during the visit can be missed.
+     *
+     * @param visitor account and its own active flag, regardless of the client one
+     */
+    public void forEachLocked(BiConsumer<Account<Long, FiatMoney>, Boolean> visitor) {
+        for (InMemoryAccount account : accountStorage.values()) {
+            Lock lock = account.getLock();
+            lock.lock();
+            try {
+                visitor.accept(account, account.isActive);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Puts back an account under the id it had, e.g. on recovery. Ids of new accounts continue after the restored ones.
+     */
+    public Account<Long, FiatMoney> restore(Long id, AccountData<Long, FiatMoney> data, boolean active) {
+        InMemoryAccount account = new InMemoryAccount(id, data, data.getClient().getId());
+        account.setActive(active);
+        accountStorage.put(id, account);
+        indexClientAccount(account.getClientId(), id);
+        checkClientDeleted(account);
+        committed(Collections.singletonList(account));
+        ID_SEQUENCE.accumulateAndGet(id, Math::max);
+        return account;
+    }
+
+    /*
+     * Pushes the current client to its accounts - the cached one is deleted or replaced.
+     */
+    private void clientChanged(Long clientId) {
+        Object client = currentClient(clientId);
+        for (Long accountId : clientAccountsIndex.getOrDefault(clientId, Collections.emptySet())) {
+            InMemoryAccount account = accountStorage.get(accountId);
+            if (account != null && account.clientId.equals(clientId)) {
+                CLIENT_UPDATER.set(account, client);
+                // moved to another client meanwhile, its client is looked up again
+                if (!account.clientId.equals(clientId)) {
+                    CLIENT_UPDATER.compareAndSet(account, client, null);
+                }
+            }
+        }
+    }
+
+    /*
+     * The client can be deleted while the account is being indexed - the push may have missed the account then.
+     * Called once the account is indexed, so either the push finds the account or this finds the client deleted.
+     */
+    private void checkClientDeleted(InMemoryAccount account) {
+        if (cachedClients && !clientStorage.get(account.clientId).isPresent()) {
+            CLIENT_UPDATER.set(account, NO_CLIENT);
+        }
+    }
+
+    private Object currentClient(Long clientId) {
+        Optional<Client<Long>> client = clientStorage.get(clientId);
+        return client.isPresent() ? client.get() : NO_CLIENT;
+    }
+
+    /*
+     * Soft deleted accounts stay in the index - they are still returned by getAll as before.
+     */
+    private void indexClientAccount(Long clientId, Long accountId) {
+        clientAccountsIndex.compute(clientId, (k, ids) -> {
+            Set<Long> accountIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            accountIds.add(accountId);
+            return accountIds;
+        });
+    }
+
+    private void unindexClientAccount(Long clientId, Long accountId) {
+        clientAccountsIndex.computeIfPresent(clientId, (k, ids) -> {
+            ids.remove(accountId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /*
+     * Balance an account had since the commit, null if the account was not created yet.
+     */
+    private static final class BalanceVersion {
+        final long commit;
+        final FiatMoney money;
+        /*
+         * Previous version, cut off by a commit once no snapshot can read it.
+         */
+        volatile BalanceVersion older;
+
+        BalanceVersion(long commit, FiatMoney money, BalanceVersion older) {
+            this.commit = commit;
+            this.money = money;
+            this.older = older;
+        }
+    }
+
+    private class VersionSnapshot implements BalanceSnapshot<Long, FiatMoney> {
+        final long id;
+        final long registeredVersion;
+        volatile long version;
+        volatile boolean closed;
+
+        VersionSnapshot(long id, long registeredVersion) {
+            this.id = id;
+            this.registeredVersion = registeredVersion;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public Optional<FiatMoney> getBalance(Account<Long, FiatMoney> account) {
+            if (closed) {
+                throw new IllegalStateException("snapshot is closed");
+            }
+            InMemoryAccount current = accountStorage.get(account.getId());
+            return current == null ? Optional.empty() : Optional.ofNullable(current.balanceAt(version));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            openSnapshots.remove(this);
+        }
     }
 
     @Getter
-    private class InMemoryAccount implements Account<Long, FiatMoney> {
+    private class InMemoryAccount implements Account<Long, FiatMoney>, LockOrdered {
         final Long id;
+        /*
+         * Replaced by an update, holding the lock.
+         */
         @Getter
-        final AccountData<Long, FiatMoney> accountData;
-        final Long clientId;
-        final Lock lock;
+        volatile AccountData<Long, FiatMoney> accountData;
+        volatile Long clientId;
+        final ReentrantLock lock;
         @Setter
         boolean isActive = true;
+        /*
+         * Acquisition time of a sampled lock acquisition, 0 if it's not sampled. Guarded by the lock.
+         */
+        @Getter(AccessLevel.NONE)
+        long lockedAt;
+        /*
+         * Holds of the account by the lock holder - the lock is reentrant, e.g. a transfer to the same account locks
+         * it twice, the version is changed by the first hold and the last release only. Guarded by the lock.
+         */
+        @Getter(AccessLevel.NONE)
+        int holds;
+        /*
+         * Active client of the account, NO_CLIENT if it's deleted, null until it's looked up.
+         * Lookups only set it from null, pushed changes overwrite it.
+         */
+        @Getter(AccessLevel.NONE)
+        volatile Object client;
+        /*
+         * Seqlock version - odd while the account is locked by Account.lock, changed by the lock holder only.
+         */
+        @Getter(AccessLevel.NONE)
+        volatile long version;
+        /*
+         * Commit the committed balance was published by, 0 before the first one, MARKED while it's being published.
+         * The committed balance is the money, or the minor units of the currency for a fixed point account.
+         */
+        @Getter(AccessLevel.NONE)
+        volatile long committedAt;
+        @Getter(AccessLevel.NONE)
+        volatile FiatMoney committedMoney;
+        @Getter(AccessLevel.NONE)
+        volatile long committedUnits;
+        @Getter(AccessLevel.NONE)
+        volatile Currency committedCurrency;
+        /*
+         * Balances replaced by the commits while snapshots are open, the latest first.
+         */
+        @Getter(AccessLevel.NONE)
+        volatile BalanceVersion balances;
 
-        private InMemoryAccount(Long id, AccountData<Long, FiatMoney> accountData, Long clientId, Lock lock) {
+        private InMemoryAccount(Long id, AccountData<Long, FiatMoney> accountData, Long clientId) {
             this.id = id;
             this.accountData = accountData;
             this.clientId = clientId;
-            this.lock = lock;
+            this.lock = locks.lockFor(id);
         }
 
-        private InMemoryAccount(Long id, AccountData<Long, FiatMoney> accountData, Long clientId) {
-            this(id, accountData, clientId, new ReentrantLock());
+        @Override
+        public long getLockOrder() {
+            return locks.lockOrder(id);
         }
 
         @Override
         public boolean isActive() {
-            return isActive && clientStorage.get(clientId).isPresent();
+            return isActive && client() != NO_CLIENT;
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public Client<Long> getClient() {
-            return clientStorage.get(clientId).orElse(null);
+            Object client = client();
+            return client != NO_CLIENT ? (Client<Long>) client : null;
+        }
+
+        private Object client() {
+            Object client = this.client;
+            if (client != null) {
+                return client;
+            }
+            client = currentClient(clientId);
+            if (!cachedClients || CLIENT_UPDATER.compareAndSet(this, null, client)) {
+                return client;
+            }
+            return this.client;
         }
 
         @Override
         public void lock() {
-            if (!lock.tryLock()) {
+            if (!lockPolicy.tryAcquire(lock)) {
+                if (contention != null) {
+                    contention.failed(id);
+                }
                 throw new LockedException();
             }
+            held();
+        }
+
+        /*
+         * Waits for the lock whatever the lock policy is, e.g. to update the account.
+         */
+        private void hold() {
+            lock.lock();
+            held();
+        }
+
+        private void held() {
+            if (holds++ > 0) {
+                return;
+            }
+            VERSION_UPDATER.incrementAndGet(this);
+            if (contention != null && contention.sample()) {
+                lockedAt = System.nanoTime();
+            }
         }
 
         @Override
         public void unlock() {
+            if (--holds > 0) {
+                lock.unlock();
+                return;
+            }
+            VERSION_UPDATER.incrementAndGet(this);
+            long lockedAt = this.lockedAt;
+            if (lockedAt == 0) {
+                lock.unlock();
+                return;
+            }
+            this.lockedAt = 0;
             lock.unlock();
+            contention.held(id, System.nanoTime() - lockedAt);
         }
 
         @Override
@@ -146,5 +629,94 @@ public class InMemoryAccountGateway implements FiatAccountDataAccess {
             }
             return Objects.equals(longClient.getId(), clientId);
         }
+
+        /*
+         * Waits until no other commit publishes the balance.
+         *
+         * @return commit of the committed balance
+         */
+        private long mark() {
+            while (true) {
+                long committedAt = this.committedAt;
+                if (committedAt != MARKED && COMMITTED_AT_UPDATER.compareAndSet(this, committedAt, MARKED)) {
+                    return committedAt;
+                }
+                Thread.yield();
+            }
+        }
+
+        /*
+         * Publishes the current balance as committed by the commit and unmarks the account - keeps the committed
+         * one if the account is held by another thread.
+         *
+         * @param committedAt commit of the committed balance, returned by mark
+         * @param horizon     oldest commit an open snapshot can read, -1 if none is open
+         */
+        private void publish(long committedAt, long commit, long horizon) {
+            long version = this.version;
+            AccountData<Long, FiatMoney> data = accountData;
+            FiatMoney money = null;
+            long units = 0;
+            Currency currency = null;
+            if (data instanceof FixedPointAccountData) {
+                units = ((FixedPointAccountData) data).getMinorUnits();
+                currency = ((FixedPointAccountData) data).getCurrency();
+            } else {
+                money = data.getMoney();
+            }
+            if (((version & 1) != 0 && !lock.isHeldByCurrentThread()) || this.version != version) {
+                this.committedAt = committedAt;
+                return;
+            }
+            if (horizon >= 0) {
+                BalanceVersion latest = new BalanceVersion(committedAt, committedBalance(), balances);
+                for (BalanceVersion older = latest; older != null; older = older.older) {
+                    if (older.commit <= horizon) {
+                        older.older = null;
+                        break;
+                    }
+                }
+                balances = latest;
+            } else if (balances != null) {
+                balances = null;
+            }
+            committedMoney = money;
+            committedUnits = units;
+            committedCurrency = currency;
+            this.committedAt = commit;
+        }
+
+        private FiatMoney committedBalance() {
+            FiatMoney money = committedMoney;
+            if (money != null) {
+                return money;
+            }
+            Currency currency = committedCurrency;
+            return currency == null ? null : new FiatMoney(currency, FixedPointMoney.toAmount(committedUnits, currency));
+        }
+
+        /*
+         * Balance the account had at the commit, null if it was not created yet.
+         */
+        private FiatMoney balanceAt(long commit) {
+            while (true) {
+                long committedAt = this.committedAt;
+                if (committedAt > commit) {
+                    for (BalanceVersion balance = balances; balance != null; balance = balance.older) {
+                        if (balance.commit <= commit) {
+                            return balance.money;
+                        }
+                    }
+                    return null;
+                }
+                if (committedAt != MARKED) {
+                    FiatMoney money = committedBalance();
+                    if (this.committedAt == committedAt) {
+                        return money;
+                    }
+                }
+                Thread.yield();
+            }
+        }
     }
 }
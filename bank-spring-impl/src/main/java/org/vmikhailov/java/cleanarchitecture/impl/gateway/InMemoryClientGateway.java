@@ -6,22 +6,40 @@ import org.springframework.stereotype.Repository;
 import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
 import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientException;
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class InMemoryClientGateway implements ClientDataAccess<Long> {
     private static final AtomicLong ID_SEQUENCE = new AtomicLong(0);
     private Map<Long, InMemoryClient> clientStorage = new ConcurrentHashMap<>();
+    private final ClientIdentityIndex identityIndex = new ClientIdentityIndex();
+    private final List<Consumer<Long>> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile CreationLog creationLog;
 
+    /**
+     * Created clients are logged from now on.
+     */
+    public void setCreationLog(CreationLog creationLog) {
+        this.creationLog = creationLog;
+    }
+
+    /**
+     * @throws ClientException if the client can't be logged, it's not created then
+     */
     @Override
     public Client<Long> create(ClientData<Long> data) {
         if (data == null) {
@@ -30,6 +48,17 @@ public class InMemoryClientGateway implements ClientDataAccess<Long> {
         long id = ID_SEQUENCE.incrementAndGet();
         InMemoryClient client = new InMemoryClient(id, data);
         clientStorage.put(id, client);
+        identityIndex.add(id, data);
+        CreationLog log = creationLog;
+        if (log != null) {
+            try {
+                log.clientCreated(client);
+            } catch (RuntimeException ex) {
+                identityIndex.remove(id, data);
+                clientStorage.remove(id);
+                throw new ClientException(ex);
+            }
+        }
         return client;
     }
 
@@ -40,6 +69,8 @@ public class InMemoryClientGateway implements ClientDataAccess<Long> {
             throw new ClientNotExist();
         }
         client.setActive(false);
+        identityIndex.remove(id, client.getClientData());
+        changeListeners.forEach(listener -> listener.accept(id));
     }
 
     @Override
@@ -53,9 +84,56 @@ public class InMemoryClientGateway implements ClientDataAccess<Long> {
 
     @Override
     public List<Client<Long>> getAll(Predicate<Client<Long>> searchParams) {
+        Optional<Set<Long>> candidates = identityIndex.find(searchParams);
+        if (candidates.isPresent()) {
+            return candidates.get().stream()
+                    .map(clientStorage::get)
+                    .filter(Objects::nonNull)
+                    .filter(Client::isActive)
+                    .filter(searchParams)
+                    .collect(Collectors.toList());
+        }
         return clientStorage.values().stream().filter(Client::isActive).filter(searchParams).collect(Collectors.toList());
     }
 
+    /**
+     * All the clients, deleted ones included.
+     */
+    public Stream<Client<Long>> all() {
+        return clientStorage.values().stream().map(client -> client);
+    }
+
+    /**
+     * Client by id, deleted ones included.
+     */
+    public Optional<Client<Long>> find(Long id) {
+        return Optional.ofNullable(clientStorage.get(id));
+    }
+
+    /**
+     * Puts back a client under the id it had, e.g. on recovery. Ids of new clients continue after the restored ones.
+     */
+    public Client<Long> restore(Long id, ClientData<Long> data, boolean active) {
+        InMemoryClient client = new InMemoryClient(id, data);
+        client.setActive(active);
+        clientStorage.put(id, client);
+        if (active) {
+            identityIndex.add(id, data);
+        }
+        ID_SEQUENCE.accumulateAndGet(id, Math::max);
+        changeListeners.forEach(listener -> listener.accept(id));
+        return client;
+    }
+
+    /**
+     * Listeners are called on delete and on restore - a restored client replaces the one with the same id.
+     */
+    @Override
+    public boolean addChangeListener(Consumer<Long> listener) {
+        changeListeners.add(Objects.requireNonNull(listener));
+        return true;
+    }
+
     @Getter
     private static class InMemoryClient extends Client<Long> {
         final Long id;
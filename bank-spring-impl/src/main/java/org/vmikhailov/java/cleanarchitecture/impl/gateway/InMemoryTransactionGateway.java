@@ -1,36 +1,78 @@
 package org.vmikhailov.java.cleanarchitecture.impl.gateway;
 
-import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
 import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+/*
+ * Transactions as columns of primitives rather than objects: account ids, unscaled amount, amount scale,
+ * currency index, operation type and state of transaction n sit at n in chunks of parallel arrays.
+ * A transaction doesn't pin its account objects - accounts are resolved by id through the account gateway
+ * on access, and history scans walk arrays instead of chasing pointers.
+ *
+ * Amounts that don't fit a long unscaled value with a byte scale and the legs of multi-leg transfers are
+ * rare, they are kept by id aside.
+ *
+ * The state column is the only atomic one: it's written after the other columns of a new transaction, and read
+ * before them, so a transaction found in another thread is seen with its columns filled.
+ */
 @Repository
+@ConditionalOnProperty(name = "bank.transactions.store", havingValue = "heap", matchIfMissing = true)
 public class InMemoryTransactionGateway implements FiatTransactionDataAccess {
-    private static final AtomicLong ID_SEQUENCE = new AtomicLong(0);
-    private Map<Long, InMemoryTransaction> transactionStorage = new ConcurrentHashMap<>();
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final short NO_AMOUNT = -1;
+    private static final byte WIDE_AMOUNT = Byte.MIN_VALUE;
+    private static final TransactionState[] STATES = TransactionState.values();
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final FiatAccountDataAccess accounts;
+    private final AtomicLong idSequence = new AtomicLong(0);
+    private final CurrencyTable currencies = new CurrencyTable();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final Map<Long, FiatMoney> wideAmounts = new ConcurrentHashMap<>();
+    private final Map<Long, Legs> transferLegs = new ConcurrentHashMap<>();
+    /*
+     * Per account journal of transaction ids, both sides of the transaction are journaled.
+     * Ids are kept sorted, so the history is returned in creation order even if concurrent
+     * creations are appended out of order.
+     */
+    private final Map<Long, AccountJournal> accountJournals = new ConcurrentHashMap<>();
+
+    public InMemoryTransactionGateway(FiatAccountDataAccess accounts) {
+        this.accounts = accounts;
+    }
 
     @Override
     public FiatTransaction create(FiatTransactionData data) {
         if (data == null) {
             throw new NullPointerException();
         }
-        long id = ID_SEQUENCE.incrementAndGet();
-        InMemoryTransaction transaction = new InMemoryTransaction(id, data);
-        transactionStorage.put(id, transaction);
-        return transaction;
+        long id = idSequence.incrementAndGet();
+        return store(id, data, data.getState());
     }
 
     @Override
@@ -38,33 +80,202 @@ public class InMemoryTransactionGateway implements FiatTransactionDataAccess {
         if (id == null) {
             throw new NullPointerException();
         }
-        InMemoryTransaction transaction = transactionStorage.get(id);
-        if (transaction == null) {
+        Chunk chunk = existingChunkOf(id);
+        if (chunk == null || chunk.state.get(indexOf(id)) == 0) {
             throw new IllegalStateException();
         }
-        transaction.setCurrentState(newState);
-        transactionStorage.put(id, transaction);
+        chunk.state.set(indexOf(id), newState.ordinal() + 1);
     }
 
     @Override
     public Optional<FiatTransaction> get(Long id) {
-        return Optional.ofNullable(transactionStorage.get(id));
+        return Optional.ofNullable(id == null ? null : view(id));
     }
 
     @Override
     public List<FiatTransaction> getAll(Account<Long, FiatMoney> account) {
-        return transactionStorage.values().stream().filter(t -> t.test(account)).collect(Collectors.toList());
+        if (account == null || account.getId() == null) {
+            return Collections.emptyList();
+        }
+        AccountJournal journal = accountJournals.get(account.getId());
+        return journal == null ? Collections.emptyList() : views(journal.all());
+    }
+
+    @Override
+    public List<FiatTransaction> getPage(Account<Long, FiatMoney> account, Long cursor, int pageSize, HistoryDirection direction) {
+        if (account == null || account.getId() == null) {
+            return Collections.emptyList();
+        }
+        AccountJournal journal = accountJournals.get(account.getId());
+        return journal == null ? Collections.emptyList() : views(journal.page(cursor, pageSize, direction));
+    }
+
+    /**
+     * All the transactions in no particular order.
+     */
+    public Stream<FiatTransaction> all() {
+        return LongStream.rangeClosed(1, idSequence.get()).<FiatTransaction>mapToObj(this::view).filter(Objects::nonNull);
+    }
+
+    /**
+     * Puts back a transaction under the id it had, e.g. on recovery. Ids of new transactions continue after the restored ones.
+     */
+    public FiatTransaction restore(Long id, FiatTransactionData data, TransactionState state) {
+        idSequence.accumulateAndGet(id, Math::max);
+        return store(id, data, state);
+    }
+
+    private FiatTransaction store(long id, FiatTransactionData data, TransactionState state) {
+        Chunk chunk = chunkOf(id);
+        int index = indexOf(id);
+        chunk.accountA[index] = data.getAccountA().map(Account::getId).orElse(0L);
+        chunk.accountB[index] = data.getAccountB().map(Account::getId).orElse(0L);
+        chunk.operation[index] = (byte) data.getOperationType().ordinal();
+        putAmount(id, chunk, index, data.getAmount());
+        if (!data.getLegs().isEmpty()) {
+            transferLegs.put(id, new Legs(data.getLegs()));
+        }
+        // publishes the columns
+        chunk.state.set(index, state.ordinal() + 1);
+        journalAccounts(id, data);
+        return new InMemoryTransaction(id, chunk, index, data);
+    }
+
+    private void putAmount(long id, Chunk chunk, int index, FiatMoney money) {
+        if (money == null) {
+            chunk.currency[index] = NO_AMOUNT;
+            return;
+        }
+        chunk.currency[index] = currencies.indexOf(money.getCurrency());
+        BigDecimal amount = money.getAmount();
+        if (amount == null || amount.scale() <= WIDE_AMOUNT || amount.scale() > Byte.MAX_VALUE
+                || amount.unscaledValue().bitLength() >= Long.SIZE) {
+            chunk.scale[index] = WIDE_AMOUNT;
+            wideAmounts.put(id, money);
+            return;
+        }
+        chunk.amount[index] = amount.unscaledValue().longValue();
+        chunk.scale[index] = (byte) amount.scale();
+    }
+
+    private FiatMoney getAmount(long id, Chunk chunk, int index) {
+        short currency = chunk.currency[index];
+        if (currency == NO_AMOUNT) {
+            return null;
+        }
+        if (chunk.scale[index] == WIDE_AMOUNT) {
+            return wideAmounts.get(id);
+        }
+        return new FiatMoney(currencies.get(currency), BigDecimal.valueOf(chunk.amount[index], chunk.scale[index]));
+    }
+
+    private InMemoryTransaction view(long id) {
+        Chunk chunk = existingChunkOf(id);
+        int index = indexOf(id);
+        return chunk == null || chunk.state.get(index) == 0 ? null : new InMemoryTransaction(id, chunk, index, null);
+    }
+
+    private List<FiatTransaction> views(long[] ids) {
+        List<FiatTransaction> transactions = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            transactions.add(view(id));
+        }
+        return transactions;
+    }
+
+    private Chunk chunkOf(long id) {
+        int chunk = (int) (id >>> CHUNK_BITS);
+        Chunk[] allocated = chunks;
+        return chunk < allocated.length ? allocated[chunk] : allocate(chunk);
+    }
+
+    private Chunk existingChunkOf(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        long chunk = id >>> CHUNK_BITS;
+        Chunk[] allocated = chunks;
+        return chunk < allocated.length ? allocated[(int) chunk] : null;
+    }
+
+    private synchronized Chunk allocate(int chunk) {
+        Chunk[] allocated = chunks;
+        if (chunk < allocated.length) {
+            return allocated[chunk];
+        }
+        Chunk[] grown = Arrays.copyOf(allocated, chunk + 1);
+        for (int i = allocated.length; i < grown.length; i++) {
+            grown[i] = new Chunk();
+        }
+        chunks = grown;
+        return grown[chunk];
+    }
+
+    private static int indexOf(long id) {
+        return (int) id & (CHUNK_SIZE - 1);
+    }
+
+    private void journalAccounts(long id, FiatTransactionData data) {
+        data.getAccountA().map(Account::getId).ifPresent(accountId -> journal(accountId).add(id));
+        data.getAccountB().map(Account::getId).ifPresent(accountId -> journal(accountId).add(id));
+        for (TransferLeg<Long, FiatMoney> leg : data.getLegs()) {
+            journal(leg.getFromAccount().getId()).add(id);
+            journal(leg.getToAccount().getId()).add(id);
+        }
+    }
+
+    private AccountJournal journal(Long accountId) {
+        return accountJournals.computeIfAbsent(accountId, k -> new AccountJournal());
+    }
+
+    private Optional<Account<Long, FiatMoney>> account(long id) {
+        return id == 0 ? Optional.empty() : accounts.get(id);
+    }
+
+    private static class Chunk {
+        final long[] accountA = new long[CHUNK_SIZE];
+        final long[] accountB = new long[CHUNK_SIZE];
+        final long[] amount = new long[CHUNK_SIZE];
+        final short[] currency = new short[CHUNK_SIZE];
+        final byte[] scale = new byte[CHUNK_SIZE];
+        final byte[] operation = new byte[CHUNK_SIZE];
+        /* state ordinal + 1, 0 - no transaction */
+        final AtomicIntegerArray state = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    /*
+     * Legs of a multi-leg transfer by account ids.
+     */
+    private static class Legs {
+        final long[] accountIds;
+        final FiatMoney[] amounts;
+
+        Legs(List<TransferLeg<Long, FiatMoney>> legs) {
+            accountIds = new long[legs.size() * 2];
+            amounts = new FiatMoney[legs.size()];
+            for (int i = 0; i < amounts.length; i++) {
+                accountIds[2 * i] = legs.get(i).getFromAccount().getId();
+                accountIds[2 * i + 1] = legs.get(i).getToAccount().getId();
+                amounts[i] = legs.get(i).getMoney();
+            }
+        }
     }
 
-    private static class InMemoryTransaction implements FiatTransaction {
+    /*
+     * View of the columns of a transaction. The one returned by create keeps the data it was created from,
+     * so the caller gets back its own account and amount objects; views read back resolve them from the columns.
+     */
+    private class InMemoryTransaction implements FiatTransaction {
         final long id;
-        final FiatTransactionData transactionData;
-        @Setter
-        TransactionState currentState;
+        final Chunk chunk;
+        final int index;
+        final FiatTransactionData data;
 
-        private InMemoryTransaction(long id, FiatTransactionData transactionData) {
+        private InMemoryTransaction(long id, Chunk chunk, int index, FiatTransactionData data) {
             this.id = id;
-            this.transactionData = transactionData;
+            this.chunk = chunk;
+            this.index = index;
+            this.data = data;
         }
 
         @Override
@@ -74,43 +285,86 @@ public class InMemoryTransactionGateway implements FiatTransactionDataAccess {
 
         @Override
         public Optional<Account<Long, FiatMoney>> getFromAccount() {
-            return transactionData.getAccountA();
+            if (data != null) {
+                return data.getAccountA();
+            }
+            return account(chunk.accountA[index]);
         }
 
         @Override
         public Optional<Account<Long, FiatMoney>> getToAccount() {
-            return transactionData.getAccountB();
+            if (data != null) {
+                return data.getAccountB();
+            }
+            return account(chunk.accountB[index]);
         }
 
         @Override
         public FiatMoney getAmount() {
-            return transactionData.getAmount();
+            if (data != null) {
+                return data.getAmount();
+            }
+            return InMemoryTransactionGateway.this.getAmount(id, chunk, index);
         }
 
         @Override
         public OperationType getOperationType() {
-            return transactionData.getOperationType();
+            return OPERATION_TYPES[chunk.operation[index]];
         }
 
         @Override
-        public TransactionState getState() {
-            if (currentState == null) {
-                return transactionData.getState();
+        public List<TransferLeg<Long, FiatMoney>> getLegs() {
+            if (data != null) {
+                return data.getLegs();
+            }
+            Legs legs = transferLegs.get(id);
+            if (legs == null) {
+                return Collections.emptyList();
             }
-            return currentState;
+            List<TransferLeg<Long, FiatMoney>> resolved = new ArrayList<>(legs.amounts.length);
+            for (int i = 0; i < legs.amounts.length; i++) {
+                resolved.add(new TransferLeg<>(account(legs.accountIds[2 * i]).orElse(null),
+                        account(legs.accountIds[2 * i + 1]).orElse(null), legs.amounts[i]));
+            }
+            return Collections.unmodifiableList(resolved);
         }
 
+        @Override
+        public TransactionState getState() {
+            return STATES[chunk.state.get(index) - 1];
+        }
+
+        /*
+         * By account id - the account object is resolved anew on every access.
+         */
         @Override
         public boolean test(Account<Long, FiatMoney> longFiatMoneyAccount) {
-            if (longFiatMoneyAccount == null) {
+            if (longFiatMoneyAccount == null || longFiatMoneyAccount.getId() == null) {
                 return false;
             }
-            Optional<Account<Long, FiatMoney>> fromAccount = getFromAccount();
-            if (fromAccount.isPresent() && longFiatMoneyAccount.equals(fromAccount.get())) {
+            long accountId = longFiatMoneyAccount.getId();
+            if (chunk.accountA[index] == accountId || chunk.accountB[index] == accountId) {
                 return true;
             }
-            Optional<Account<Long, FiatMoney>> toAccount = getToAccount();
-            return toAccount.isPresent() && longFiatMoneyAccount.equals(toAccount.get());
+            Legs legs = transferLegs.get(id);
+            if (legs != null) {
+                for (long legAccountId : legs.accountIds) {
+                    if (legAccountId == accountId) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InMemoryTransaction && ((InMemoryTransaction) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
         }
     }
 }
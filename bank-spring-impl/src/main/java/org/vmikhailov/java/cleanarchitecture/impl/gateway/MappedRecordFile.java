@@ -0,0 +1,119 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/*
+ * Fixed-size records in memory-mapped segment files <prefix>-<segment number>.seg, record n lives in
+ * segment n / recordsPerSegment at (n % recordsPerSegment) * recordSize - the record number is the whole index.
+ *
+ * Segments are created and mapped on the first record that falls into them and stay mapped, the pages
+ * themselves are paged in and out by the OS, so the records don't take heap. Records are accessed with
+ * the absolute get/put methods of the returned buffers only, which don't move the shared buffer position.
+ */
+class MappedRecordFile implements AutoCloseable {
+    private final Path directory;
+    private final String prefix;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    MappedRecordFile(Path directory, String prefix, int recordSize, int recordsPerSegment) {
+        if ((long) recordSize * recordsPerSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment can't be mapped at once: " + recordsPerSegment + " records");
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.recordSize = recordSize;
+        this.recordsPerSegment = recordsPerSegment;
+    }
+
+    /**
+     * Buffer of the segment holding the record, mapping the segment if it's the first record of it.
+     */
+    ByteBuffer segmentOf(long record) {
+        int segment = (int) (record / recordsPerSegment);
+        MappedByteBuffer[] mapped = segments;
+        if (segment < mapped.length) {
+            return mapped[segment];
+        }
+        return map(segment);
+    }
+
+    /**
+     * Buffer of the segment holding the record, or null if nothing was written to the segment.
+     */
+    ByteBuffer existingSegmentOf(long record) {
+        int segment = (int) (record / recordsPerSegment);
+        MappedByteBuffer[] mapped = segments;
+        return segment < mapped.length ? mapped[segment] : null;
+    }
+
+    int offsetOf(long record) {
+        return (int) (record % recordsPerSegment) * recordSize;
+    }
+
+    int getSegments() {
+        return segments.length;
+    }
+
+    private synchronized ByteBuffer map(int segment) {
+        MappedByteBuffer[] mapped = segments;
+        if (segment < mapped.length) {
+            return mapped[segment];
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(mapped, segment + 1);
+        for (int i = mapped.length; i < grown.length; i++) {
+            Path file = directory.resolve(format("%s-%010d.seg", prefix, i));
+            try {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channels.add(channel);
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordSize * recordsPerSegment);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        segments = grown;
+        return grown[segment];
+    }
+
+    /**
+     * Deletes the segments of an earlier run, the files are the working storage of one run only.
+     */
+    static void clear(Path directory, String prefix) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix + "-") && name.endsWith(".seg")) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the segment files, the mappings themselves are released once the buffers are garbage collected.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+        channels.clear();
+    }
+}
@@ -0,0 +1,334 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Transactions in append-only memory-mapped files instead of the heap (bank.transactions.store=mapped),
+ * so the history is bounded by the disk rather than by -Xmx.
+ *
+ * Every transaction is a fixed 64 byte record, transaction n is record n - 1, so the id is the offset index:
+ *   0 state (ordinal + 1, 0 - not written yet), 1 operation type, 2 currency (short), 4 leg count,
+ *   8 account A id, 16 account B id (0 - none), 24 amount unscaled high long, 32 low long, 40 scale,
+ *   48 first leg record.
+ * Legs of multi-leg transfers are 40 byte records of their own: from id, to id, amount high, low, scale, currency.
+ *
+ * Returned transactions are views over the mapped record - every getter reads it, a state update is a single
+ * byte written in place, accounts are resolved by id on access. Only the per-account journals of ids
+ * (8 bytes per account side) and the currency table stay on the heap.
+ *
+ * The files are the working storage of one run, bank.transactions.mapped.dir is cleared on start.
+ * Amounts must fit 127 bits of unscaled value.
+ */
+@Repository
+@ConditionalOnProperty(name = "bank.transactions.store", havingValue = "mapped")
+public class MappedTransactionGateway implements FiatTransactionDataAccess, AutoCloseable {
+    static final int RECORD_SIZE = 64;
+    static final int LEG_RECORD_SIZE = 40;
+    private static final String TRANSACTIONS = "transactions";
+    private static final String LEGS = "legs";
+    private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(64);
+    private static final TransactionState[] STATES = TransactionState.values();
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final FiatAccountDataAccess accounts;
+    private final MappedRecordFile records;
+    private final MappedRecordFile legRecords;
+    private final AtomicLong idSequence = new AtomicLong(0);
+    private final AtomicLong legSequence = new AtomicLong(0);
+    private final Map<Long, AccountJournal> accountJournals = new ConcurrentHashMap<>();
+    private final CurrencyTable currencies = new CurrencyTable();
+
+    @Autowired
+    public MappedTransactionGateway(FiatAccountDataAccess accounts,
+                                    @Value("${bank.transactions.mapped.dir}") String directory,
+                                    @Value("${bank.transactions.mapped.segment-records:1048576}") int segmentRecords) throws IOException {
+        this(accounts, Paths.get(directory), segmentRecords);
+    }
+
+    public MappedTransactionGateway(FiatAccountDataAccess accounts, Path directory, int segmentRecords) throws IOException {
+        MappedRecordFile.clear(directory, TRANSACTIONS);
+        MappedRecordFile.clear(directory, LEGS);
+        this.accounts = accounts;
+        this.records = new MappedRecordFile(directory, TRANSACTIONS, RECORD_SIZE, segmentRecords);
+        this.legRecords = new MappedRecordFile(directory, LEGS, LEG_RECORD_SIZE, segmentRecords);
+    }
+
+    @Override
+    public FiatTransaction create(FiatTransactionData data) {
+        if (data == null) {
+            throw new NullPointerException();
+        }
+        long id = idSequence.incrementAndGet();
+        ByteBuffer segment = records.segmentOf(id - 1);
+        int offset = records.offsetOf(id - 1);
+        List<TransferLeg<Long, FiatMoney>> legs = data.getLegs();
+        segment.put(offset + 1, (byte) data.getOperationType().ordinal());
+        segment.putInt(offset + 4, legs.size());
+        segment.putLong(offset + 8, data.getAccountA().map(Account::getId).orElse(0L));
+        segment.putLong(offset + 16, data.getAccountB().map(Account::getId).orElse(0L));
+        putMoney(segment, offset + 24, offset + 2, data.getAmount());
+        if (!legs.isEmpty()) {
+            segment.putLong(offset + 48, writeLegs(legs));
+        }
+        segment.put(offset, (byte) (data.getState().ordinal() + 1));
+        journalAccounts(id, data);
+        return new MappedTransaction(id, segment, offset);
+    }
+
+    @Override
+    public void updateTransactionState(Long id, TransactionState newState) {
+        if (id == null) {
+            throw new NullPointerException();
+        }
+        MappedTransaction transaction = view(id);
+        if (transaction == null) {
+            throw new IllegalStateException();
+        }
+        transaction.segment.put(transaction.offset, (byte) (newState.ordinal() + 1));
+    }
+
+    @Override
+    public Optional<FiatTransaction> get(Long id) {
+        return Optional.ofNullable(id == null ? null : view(id));
+    }
+
+    @Override
+    public List<FiatTransaction> getAll(Account<Long, FiatMoney> account) {
+        if (account == null || account.getId() == null) {
+            return Collections.emptyList();
+        }
+        AccountJournal journal = accountJournals.get(account.getId());
+        return journal == null ? Collections.emptyList() : views(journal.all());
+    }
+
+    @Override
+    public List<FiatTransaction> getPage(Account<Long, FiatMoney> account, Long cursor, int pageSize, HistoryDirection direction) {
+        if (account == null || account.getId() == null) {
+            return Collections.emptyList();
+        }
+        AccountJournal journal = accountJournals.get(account.getId());
+        return journal == null ? Collections.emptyList() : views(journal.page(cursor, pageSize, direction));
+    }
+
+    /**
+     * Number of mapped transaction segment files.
+     */
+    public int getSegments() {
+        return records.getSegments();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        records.close();
+        legRecords.close();
+    }
+
+    private long writeLegs(List<TransferLeg<Long, FiatMoney>> legs) {
+        long first = legSequence.getAndAdd(legs.size());
+        for (int i = 0; i < legs.size(); i++) {
+            TransferLeg<Long, FiatMoney> leg = legs.get(i);
+            ByteBuffer segment = legRecords.segmentOf(first + i);
+            int offset = legRecords.offsetOf(first + i);
+            segment.putLong(offset, leg.getFromAccount().getId());
+            segment.putLong(offset + 8, leg.getToAccount().getId());
+            putMoney(segment, offset + 16, offset + 36, leg.getMoney());
+        }
+        return first;
+    }
+
+    private MappedTransaction view(long id) {
+        if (id <= 0 || id > idSequence.get()) {
+            return null;
+        }
+        ByteBuffer segment = records.existingSegmentOf(id - 1);
+        int offset = records.offsetOf(id - 1);
+        if (segment == null || segment.get(offset) == 0) {
+            return null;
+        }
+        return new MappedTransaction(id, segment, offset);
+    }
+
+    private List<FiatTransaction> views(long[] ids) {
+        List<FiatTransaction> transactions = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            transactions.add(view(id));
+        }
+        return transactions;
+    }
+
+    private void journalAccounts(long id, FiatTransactionData data) {
+        data.getAccountA().map(Account::getId).ifPresent(accountId -> journal(accountId).add(id));
+        data.getAccountB().map(Account::getId).ifPresent(accountId -> journal(accountId).add(id));
+        for (TransferLeg<Long, FiatMoney> leg : data.getLegs()) {
+            journal(leg.getFromAccount().getId()).add(id);
+            journal(leg.getToAccount().getId()).add(id);
+        }
+    }
+
+    private AccountJournal journal(Long accountId) {
+        return accountJournals.computeIfAbsent(accountId, k -> new AccountJournal());
+    }
+
+    /*
+     * Amount as 128 bit two's complement unscaled value + int scale at amountOffset, currency as short at
+     * currencyOffset, -1 for no amount at all.
+     */
+    private void putMoney(ByteBuffer segment, int amountOffset, int currencyOffset, FiatMoney money) {
+        if (money == null || money.getAmount() == null) {
+            segment.putShort(currencyOffset, (short) -1);
+            return;
+        }
+        BigDecimal amount = money.getAmount();
+        BigInteger unscaled = amount.unscaledValue();
+        if (unscaled.bitLength() > 127) {
+            throw new IllegalArgumentException("amount doesn't fit a transaction record: " + amount);
+        }
+        segment.putLong(amountOffset, unscaled.shiftRight(64).longValue());
+        segment.putLong(amountOffset + 8, unscaled.longValue());
+        segment.putInt(amountOffset + 16, amount.scale());
+        segment.putShort(currencyOffset, currencies.indexOf(money.getCurrency()));
+    }
+
+    private FiatMoney getMoney(ByteBuffer segment, int amountOffset, int currencyOffset) {
+        short currency = segment.getShort(currencyOffset);
+        if (currency < 0) {
+            return null;
+        }
+        long high = segment.getLong(amountOffset);
+        long low = segment.getLong(amountOffset + 8);
+        int scale = segment.getInt(amountOffset + 16);
+        if (high == low >> 63) {
+            return new FiatMoney(currencies.get(currency), BigDecimal.valueOf(low, scale));
+        }
+        BigInteger lowBits = low < 0 ? BigInteger.valueOf(low).add(TWO_TO_64) : BigInteger.valueOf(low);
+        BigDecimal amount = new BigDecimal(BigInteger.valueOf(high).shiftLeft(64).add(lowBits), scale);
+        return new FiatMoney(currencies.get(currency), amount);
+    }
+
+    private Optional<Account<Long, FiatMoney>> account(long id) {
+        return id == 0 ? Optional.empty() : accounts.get(id);
+    }
+
+    private class MappedTransaction implements FiatTransaction {
+        final long id;
+        final ByteBuffer segment;
+        final int offset;
+
+        private MappedTransaction(long id, ByteBuffer segment, int offset) {
+            this.id = id;
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public Optional<Account<Long, FiatMoney>> getFromAccount() {
+            return account(segment.getLong(offset + 8));
+        }
+
+        @Override
+        public Optional<Account<Long, FiatMoney>> getToAccount() {
+            return account(segment.getLong(offset + 16));
+        }
+
+        @Override
+        public FiatMoney getAmount() {
+            return getMoney(segment, offset + 24, offset + 2);
+        }
+
+        @Override
+        public OperationType getOperationType() {
+            return OPERATION_TYPES[segment.get(offset + 1)];
+        }
+
+        @Override
+        public List<TransferLeg<Long, FiatMoney>> getLegs() {
+            int count = segment.getInt(offset + 4);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            long first = segment.getLong(offset + 48);
+            List<TransferLeg<Long, FiatMoney>> legs = new ArrayList<>(count);
+            for (long leg = first; leg < first + count; leg++) {
+                ByteBuffer legSegment = legRecords.segmentOf(leg);
+                int legOffset = legRecords.offsetOf(leg);
+                legs.add(new TransferLeg<>(account(legSegment.getLong(legOffset)).orElse(null),
+                        account(legSegment.getLong(legOffset + 8)).orElse(null),
+                        getMoney(legSegment, legOffset + 16, legOffset + 36)));
+            }
+            return Collections.unmodifiableList(legs);
+        }
+
+        @Override
+        public TransactionState getState() {
+            return STATES[segment.get(offset) - 1];
+        }
+
+        /*
+         * By account id - the account object is resolved anew on every access.
+         */
+        @Override
+        public boolean test(Account<Long, FiatMoney> longFiatMoneyAccount) {
+            if (longFiatMoneyAccount == null || longFiatMoneyAccount.getId() == null) {
+                return false;
+            }
+            long accountId = longFiatMoneyAccount.getId();
+            if (segment.getLong(offset + 8) == accountId || segment.getLong(offset + 16) == accountId) {
+                return true;
+            }
+            int count = segment.getInt(offset + 4);
+            long first = segment.getLong(offset + 48);
+            for (long leg = first; leg < first + count; leg++) {
+                ByteBuffer legSegment = legRecords.segmentOf(leg);
+                int legOffset = legRecords.offsetOf(leg);
+                if (legSegment.getLong(legOffset) == accountId || legSegment.getLong(legOffset + 8) == accountId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MappedTransaction && ((MappedTransaction) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountNotFound;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountContentionTracker;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLocks;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.LockOrdered;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/*
+ * Accounts in direct ByteBuffer slabs instead of heap objects (bank.accounts.store=off-heap), account n is slot n - 1:
+ *   0 balance in currency minor units, 8 client id, 16 next account of the same client (0 - last),
+ *   24 currency (short), 26 active flag.
+ * So an account takes 32 bytes off the heap and nothing on it - accounts of a client are chained through the slots,
+ * only the id of the first one is kept per client.
+ *
+ * Accounts handed out are flyweight views over the slot and so is their FixedPointAccountData - transaction
+ * services change the balance right in the slab. Java 8 has no atomic access to a direct buffer, so balance
+ * reads and compare-and-sets go through a small table of striped monitors (not the account locks - a short
+ * read must not make a tryLock of the account fail).
+ *
+ * Balances are fixed point, amounts finer than the currency minor unit are rejected. Account locks have to be
+ * striped - a lock per account would be a heap object per account again.
+ */
+@Repository
+@ConditionalOnProperty(name = "bank.accounts.store", havingValue = "off-heap")
+public class OffHeapAccountGateway implements FiatAccountDataAccess {
+    public static final int RECORD_SIZE = 32;
+    private static final int BALANCE_STRIPES = 1024;
+
+    private final InMemoryClientGateway clientStorage;
+    private final AccountLockPolicy lockPolicy;
+    private final AccountLocks locks;
+    private final int slabAccounts;
+    private final AtomicLong idSequence = new AtomicLong(0);
+    private final Object[] balanceMonitors = new Object[BALANCE_STRIPES];
+    private final CurrencyTable currencies = new CurrencyTable();
+    private final Map<Long, Long> clientFirstAccounts = new ConcurrentHashMap<>();
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private AccountContentionTracker contention;
+
+    @Autowired
+    public OffHeapAccountGateway(InMemoryClientGateway clientStorage, AccountLockPolicy lockPolicy, AccountLocks locks,
+                                 @Value("${bank.accounts.off-heap.slab-accounts:1048576}") int slabAccounts) {
+        if (locks.getStripes() == 0) {
+            throw new IllegalArgumentException("off-heap accounts need striped account locks");
+        }
+        if ((long) slabAccounts * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("slab can't be allocated at once: " + slabAccounts + " accounts");
+        }
+        this.clientStorage = clientStorage;
+        this.lockPolicy = lockPolicy;
+        this.locks = locks;
+        this.slabAccounts = slabAccounts;
+        for (int i = 0; i < BALANCE_STRIPES; i++) {
+            balanceMonitors[i] = new Object();
+        }
+    }
+
+    /**
+     * Lock failures of the accounts are reported to the tracker. Hold times are not - account views don't outlive
+     * a call, so there's nowhere to keep the acquisition time.
+     */
+    @Autowired(required = false)
+    public void setContentionTracker(AccountContentionTracker contention) {
+        this.contention = contention;
+    }
+
+    @Override
+    public Account<Long, FiatMoney> create(AccountData<Long, FiatMoney> data) {
+        if (data == null) {
+            throw new NullPointerException();
+        }
+        long clientId = data.getClient().getId();
+        Currency currency = currencyOf(data);
+        long minorUnits = minorUnitsOf(data, currency);
+        long id = idSequence.incrementAndGet();
+        ByteBuffer slab = slabOf(id);
+        int offset = offsetOf(id);
+        synchronized (balanceMonitor(id)) {
+            slab.putLong(offset, minorUnits);
+        }
+        slab.putShort(offset + 24, currencies.indexOf(currency));
+        slab.put(offset + 26, (byte) 1);
+        synchronized (clientFirstAccounts) {
+            link(slab, offset, id, clientId);
+        }
+        return new OffHeapAccount(id);
+    }
+
+    @Override
+    public void update(Long id, AccountData<Long, FiatMoney> data) {
+        if (id == null) {
+            throw new AccountNotFound();
+        }
+        if (data == null) {
+            throw new AccountException();
+        }
+        ByteBuffer slab = existingSlabOf(id);
+        if (slab == null) {
+            throw new AccountNotFound();
+        }
+        int offset = offsetOf(id);
+        Lock lock = locks.lockFor(id);
+        lock.lock();
+        try {
+            Currency currency = currencyOf(data);
+            long minorUnits = minorUnitsOf(data, currency);
+            synchronized (balanceMonitor(id)) {
+                slab.putLong(offset, minorUnits);
+                slab.putShort(offset + 24, currencies.indexOf(currency));
+            }
+            long newClientId = data.getClient().getId();
+            if (slab.getLong(offset + 8) != newClientId) {
+                synchronized (clientFirstAccounts) {
+                    unlink(slab, offset, id);
+                    link(slab, offset, id, newClientId);
+                }
+            }
+        } catch (RuntimeException ex) {
+            throw new AccountException(ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        ByteBuffer slab = id == null ? null : existingSlabOf(id);
+        if (slab == null) {
+            throw new AccountNotFound();
+        }
+        OffHeapAccount account = new OffHeapAccount(id);
+        account.lock();
+        try {
+            slab.put(offsetOf(id) + 26, (byte) 0);
+        } finally {
+            account.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Account<Long, FiatMoney>> get(Long id) {
+        if (id == null || existingSlabOf(id) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new OffHeapAccount(id));
+    }
+
+    @Override
+    public List<Account<Long, FiatMoney>> getAll(Client<Long> client) {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        if (client == null || client.getId() == null) {
+            return accounts;
+        }
+        long clientId = client.getId();
+        long id = clientFirstAccounts.getOrDefault(clientId, 0L);
+        while (id != 0) {
+            ByteBuffer slab = slabOf(id);
+            int offset = offsetOf(id);
+            if (slab.getLong(offset + 8) == clientId) {
+                accounts.add(new OffHeapAccount(id));
+            }
+            id = slab.getLong(offset + 16);
+        }
+        return accounts;
+    }
+
+    /**
+     * Number of allocated slabs, slab-accounts accounts each.
+     */
+    public int getSlabs() {
+        return slabs.length;
+    }
+
+    /* chains the account first among the client ones, under the clientFirstAccounts monitor */
+    private void link(ByteBuffer slab, int offset, long id, long clientId) {
+        slab.putLong(offset + 8, clientId);
+        slab.putLong(offset + 16, clientFirstAccounts.getOrDefault(clientId, 0L));
+        clientFirstAccounts.put(clientId, id);
+    }
+
+    /* takes the account out of its client chain, under the clientFirstAccounts monitor */
+    private void unlink(ByteBuffer slab, int offset, long id) {
+        long clientId = slab.getLong(offset + 8);
+        long next = slab.getLong(offset + 16);
+        long previous = 0;
+        long current = clientFirstAccounts.getOrDefault(clientId, 0L);
+        while (current != 0 && current != id) {
+            previous = current;
+            current = slabOf(current).getLong(offsetOf(current) + 16);
+        }
+        if (previous != 0) {
+            slabOf(previous).putLong(offsetOf(previous) + 16, next);
+        } else if (next != 0) {
+            clientFirstAccounts.put(clientId, next);
+        } else {
+            clientFirstAccounts.remove(clientId);
+        }
+    }
+
+    private ByteBuffer slabOf(long id) {
+        int slab = (int) ((id - 1) / slabAccounts);
+        ByteBuffer[] allocated = slabs;
+        return slab < allocated.length ? allocated[slab] : allocate(slab);
+    }
+
+    private ByteBuffer existingSlabOf(long id) {
+        if (id <= 0 || id > idSequence.get()) {
+            return null;
+        }
+        int slab = (int) ((id - 1) / slabAccounts);
+        ByteBuffer[] allocated = slabs;
+        return slab < allocated.length ? allocated[slab] : null;
+    }
+
+    private synchronized ByteBuffer allocate(int slab) {
+        ByteBuffer[] allocated = slabs;
+        if (slab < allocated.length) {
+            return allocated[slab];
+        }
+        ByteBuffer[] grown = Arrays.copyOf(allocated, slab + 1);
+        for (int i = allocated.length; i < grown.length; i++) {
+            grown[i] = ByteBuffer.allocateDirect(slabAccounts * RECORD_SIZE);
+        }
+        slabs = grown;
+        return grown[slab];
+    }
+
+    private int offsetOf(long id) {
+        return (int) ((id - 1) % slabAccounts) * RECORD_SIZE;
+    }
+
+    private Object balanceMonitor(long id) {
+        return balanceMonitors[(int) (id & (BALANCE_STRIPES - 1))];
+    }
+
+    private static Currency currencyOf(AccountData<Long, FiatMoney> data) {
+        return data instanceof FixedPointAccountData
+                ? ((FixedPointAccountData) data).getCurrency()
+                : data.getMoney().getCurrency();
+    }
+
+    private static long minorUnitsOf(AccountData<Long, FiatMoney> data, Currency currency) {
+        if (data instanceof FixedPointAccountData) {
+            return ((FixedPointAccountData) data).getMinorUnits();
+        }
+        try {
+            return FixedPointMoney.toMinorUnits(data.getMoney().getAmount(), currency);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("balance doesn't fit currency minor units: " + data.getMoney().getAmount(), ex);
+        }
+    }
+
+    private class OffHeapAccount implements Account<Long, FiatMoney>, LockOrdered {
+        final long id;
+
+        private OffHeapAccount(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public AccountData<Long, FiatMoney> getAccountData() {
+            ByteBuffer slab = slabOf(id);
+            int offset = offsetOf(id);
+            Client<Long> client = clientStorage.find(slab.getLong(offset + 8)).orElseThrow(AccountNotFound::new);
+            return new SlotAccountData(id, slab, offset, currencies.get(slab.getShort(offset + 24)), client);
+        }
+
+        @Override
+        public boolean isActive() {
+            ByteBuffer slab = slabOf(id);
+            int offset = offsetOf(id);
+            return slab.get(offset + 26) == 1 && clientStorage.get(slab.getLong(offset + 8)).isPresent();
+        }
+
+        @Override
+        public Client<Long> getClient() {
+            return clientStorage.get(slabOf(id).getLong(offsetOf(id) + 8)).orElse(null);
+        }
+
+        @Override
+        public long getLockOrder() {
+            return locks.lockOrder(id);
+        }
+
+        @Override
+        public void lock() {
+            if (!lockPolicy.tryAcquire(locks.lockFor(id))) {
+                if (contention != null) {
+                    contention.failed(id);
+                }
+                throw new LockedException();
+            }
+        }
+
+        @Override
+        public void unlock() {
+            locks.lockFor(id).unlock();
+        }
+
+        @Override
+        public boolean test(Client<Long> longClient) {
+            if (longClient == null) {
+                return false;
+            }
+            return Objects.equals(longClient.getId(), slabOf(id).getLong(offsetOf(id) + 8));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OffHeapAccount && ((OffHeapAccount) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+    private class SlotAccountData extends FixedPointAccountData {
+        final long id;
+        final ByteBuffer slab;
+        final int offset;
+
+        private SlotAccountData(long id, ByteBuffer slab, int offset, Currency currency, Client<Long> client) {
+            super(currency, client);
+            this.id = id;
+            this.slab = slab;
+            this.offset = offset;
+        }
+
+        @Override
+        public long getMinorUnits() {
+            synchronized (balanceMonitor(id)) {
+                return slab.getLong(offset);
+            }
+        }
+
+        @Override
+        public void setMinorUnits(long newMinorUnits) {
+            synchronized (balanceMonitor(id)) {
+                slab.putLong(offset, newMinorUnits);
+            }
+        }
+
+        @Override
+        public boolean compareAndSetMinorUnits(long expectedMinorUnits, long newMinorUnits) {
+            synchronized (balanceMonitor(id)) {
+                if (slab.getLong(offset) != expectedMinorUnits) {
+                    return false;
+                }
+                slab.putLong(offset, newMinorUnits);
+                return true;
+            }
+        }
+    }
+}
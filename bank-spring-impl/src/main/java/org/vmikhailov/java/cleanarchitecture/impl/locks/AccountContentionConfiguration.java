@@ -0,0 +1,32 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hot account tracking, on by default, bank.locks.contention.enabled=false turns it off. The heap and the off-heap
+ * account stores report their lock failures to it, the heap one the sampled hold times too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.locks.contention.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AccountContentionProperties.class)
+public class AccountContentionConfiguration {
+
+    @Bean
+    public AccountContentionTracker accountContentionTracker(AccountContentionProperties properties) {
+        AccountContentionTracker tracker = new AccountContentionTracker(properties.getCapacity(), properties.getSampleRate());
+        if (!properties.getLogInterval().isZero()) {
+            tracker.schedule(properties.getTop(), properties.getLogInterval().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return tracker;
+    }
+
+    @Bean
+    public HotAccountsEndpoint hotAccountsEndpoint(AccountContentionTracker tracker, AccountContentionProperties properties) {
+        return new HotAccountsEndpoint(tracker, properties.getTop());
+    }
+}
@@ -0,0 +1,36 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+ * bank.locks.contention.* - hot account tracking of the account locks.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.locks.contention")
+public class AccountContentionProperties {
+    /**
+     * false - account locks are not tracked.
+     */
+    private boolean enabled = true;
+    /**
+     * Accounts kept by the heavy hitters sketch.
+     */
+    private int capacity = 256;
+    /**
+     * One of sample-rate acquisitions is timed.
+     */
+    private int sampleRate = 16;
+    /**
+     * Accounts reported by the log line and by default by the endpoint.
+     */
+    private int top = 10;
+    /**
+     * The top is logged and the counters are halved every interval, 0 - never.
+     */
+    private Duration logInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,291 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Hottest accounts of the lock table - a Space-Saving heavy hitters sketch of a fixed number of counters,
+ * kept in a min-heap by lock attempts. An account missing from the sketch takes over the counter of the coldest one
+ * together with its attempts as the error of the estimate, so any account attempted more often than
+ * attempts / capacity times is in the sketch.
+ *
+ * Attempts are the failed acquisitions plus the sampled ones (one of sampleRate, weighted by it). Hold times of the
+ * sampled acquisitions go to a log-linear histogram of the counter - 4 buckets per power of two, within 25%.
+ *
+ * The sketch is guarded by a lock. Sampled holds skip the update if the lock is busy (see getDropped),
+ * failures wait for it - they are rare and are the point of the tracker.
+ */
+@Slf4j
+public class AccountContentionTracker implements AutoCloseable {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final int sampleRate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Counter> counters;
+    private final Counter[] heap;
+    private int size;
+    private final LongAdder dropped = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param capacity   counters of the sketch
+     * @param sampleRate one of sampleRate acquisitions is timed, 1 - all of them
+     */
+    public AccountContentionTracker(int capacity, int sampleRate) {
+        if (capacity <= 0 || sampleRate <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.sampleRate = sampleRate;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    /**
+     * @return {@code true} if the hold time of the acquisition just made has to be measured
+     */
+    public boolean sample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    /**
+     * Sampled acquisition of the account lock, held for the given time.
+     */
+    public void held(long accountId, long nanos) {
+        if (!lock.tryLock()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            Counter counter = counterOf(accountId, sampleRate);
+            counter.holds[bucketOf(nanos)]++;
+            counter.holdSamples++;
+            counter.maxHoldNanos = Math.max(counter.maxHoldNanos, nanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The account lock couldn't be acquired - the operation failed with a LockedException.
+     */
+    public void failed(long accountId) {
+        lock.lock();
+        try {
+            counterOf(accountId, 1).failures++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the hottest accounts, most attempted first
+     */
+    public List<HotAccount> top(int k) {
+        List<HotAccount> top = new ArrayList<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                Counter counter = heap[i];
+                top.add(new HotAccount(counter.accountId, counter.attempts, counter.error, counter.failures,
+                        counter.percentile(0.5), counter.percentile(0.99), counter.maxHoldNanos));
+            }
+        } finally {
+            lock.unlock();
+        }
+        top.sort(Comparator.comparingLong(HotAccount::getAttempts).reversed());
+        return top.subList(0, Math.min(k, top.size()));
+    }
+
+    /**
+     * @return sampled holds not recorded because the sketch was busy
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Halves all the counters, so accounts that are not hot anymore leave the top.
+     */
+    public void decay() {
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                heap[i].halve();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs the top every interval and decays the counters after it.
+     */
+    public synchronized void schedule(int k, long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("hot accounts are logged already");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bank-hot-accounts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            List<HotAccount> top = top(k);
+            if (!top.isEmpty()) {
+                log.info("hot accounts: {}", top);
+            }
+            decay();
+        }, interval, interval, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Counter counterOf(long accountId, long attempts) {
+        Counter counter = counters.get(accountId);
+        if (counter == null) {
+            if (size < heap.length) {
+                counter = new Counter(size);
+                heap[size++] = counter;
+            } else {
+                counter = heap[0];
+                counters.remove(counter.accountId);
+                counter.replace();
+            }
+            counter.accountId = accountId;
+            counters.put(accountId, counter);
+        }
+        counter.attempts += attempts;
+        siftDown(siftUp(counter.index));
+        return counter;
+    }
+
+    private int siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].attempts <= counter.attempts) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].attempts < heap[child].attempts) {
+                child++;
+            }
+            if (counter.attempts <= heap[child].attempts) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    /*
+     * Values below 4 have a bucket each, then every power of two is split in 4 buckets by the next 2 bits.
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value of the bucket
+     */
+    static long bucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long next = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift;
+        return next - 1;
+    }
+
+    private static final class Counter {
+        int index;
+        long accountId;
+        long attempts;
+        long error;
+        long failures;
+        final int[] holds = new int[BUCKETS];
+        long holdSamples;
+        long maxHoldNanos;
+
+        Counter(int index) {
+            this.index = index;
+        }
+
+        /*
+         * The coldest counter is taken over by another account - its attempts are the error of the new one.
+         */
+        void replace() {
+            error = attempts;
+            failures = 0;
+            Arrays.fill(holds, 0);
+            holdSamples = 0;
+            maxHoldNanos = 0;
+        }
+
+        void halve() {
+            attempts >>>= 1;
+            error >>>= 1;
+            failures >>>= 1;
+            holdSamples = 0;
+            for (int i = 0; i < holds.length; i++) {
+                holds[i] >>>= 1;
+                holdSamples += holds[i];
+            }
+        }
+
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile * holdSamples);
+            long seen = 0;
+            for (int i = 0; i < holds.length; i++) {
+                seen += holds[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketLimit(i), maxHoldNanos);
+                }
+            }
+            return 0;
+        }
+    }
+}
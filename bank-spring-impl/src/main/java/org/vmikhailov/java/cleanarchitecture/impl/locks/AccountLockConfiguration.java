@@ -0,0 +1,37 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Account lock table - bank.locks.stripes stripes shared by all the accounts, 0 for a lock per account.
+ *
+ * Account lock policy - bank.locks.policy=immediate (default) fails an operation on a locked account right away,
+ * bank.locks.policy=backoff waits for the lock up to bank.locks.max-wait, bounded by bank.locks.call-timeout per use-case call.
+ */
+@Configuration
+@EnableConfigurationProperties(AccountLockProperties.class)
+public class AccountLockConfiguration {
+
+    @Bean
+    public AccountLocks accountLocks(AccountLockProperties properties) {
+        return new AccountLocks(properties.getStripes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bank.locks.policy", havingValue = "immediate", matchIfMissing = true)
+    public AccountLockPolicy immediateAccountLockPolicy() {
+        return new ImmediateAccountLockPolicy();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bank.locks.policy", havingValue = "backoff")
+    public AccountLockPolicy backoffAccountLockPolicy(AccountLockProperties properties) {
+        return new BackoffAccountLockPolicy(properties.getSpinTries(),
+                properties.getMaxWait().toNanos(), properties.getCallTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
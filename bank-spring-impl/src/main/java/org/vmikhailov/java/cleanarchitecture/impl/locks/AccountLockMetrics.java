@@ -0,0 +1,74 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock acquisition counters of an AccountLockPolicy. Uncontended acquisitions are counted, but not timed.
+ */
+public class AccountLockMetrics {
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    void acquired() {
+        acquired.increment();
+    }
+
+    void acquiredAfterWait(long nanos) {
+        acquired.increment();
+        contended.increment();
+        recordWait(nanos);
+    }
+
+    void timedOut(long nanos) {
+        timeouts.increment();
+        recordWait(nanos);
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * @return acquisitions that found the lock held by another thread and had to wait for it
+     */
+    public long getContended() {
+        return contended.sum();
+    }
+
+    /**
+     * @return acquisitions the policy gave up on - each of them ended up with a LockedException
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return time spent waiting by contended and timed out acquisitions
+     */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        long waits = getContended() + getTimeouts();
+        return String.format("acquired:%d contended:%d timeouts:%d wait avg:%dus max:%dus",
+                getAcquired(), getContended(), getTimeouts(),
+                waits == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getWaitNanos() / waits),
+                TimeUnit.NANOSECONDS.toMicros(getMaxWaitNanos()));
+    }
+}
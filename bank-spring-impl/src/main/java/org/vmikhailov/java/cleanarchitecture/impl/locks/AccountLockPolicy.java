@@ -0,0 +1,33 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import java.util.concurrent.locks.Lock;
+
+/*
+ * How an account lock is acquired when it's held by another thread: fail immediately or wait for it a bit.
+ * Selected by the bank.locks.policy property, see AccountLockConfiguration.
+ */
+public interface AccountLockPolicy {
+
+    /**
+     * Acquires the lock according to the policy.
+     *
+     * @param lock lock of the account
+     * @return {@code true} if the lock is acquired, {@code false} if the policy gave up waiting for it
+     */
+    boolean tryAcquire(Lock lock);
+
+    /**
+     * Starts a use-case call - all the locks acquired by the current thread until the scope is closed
+     * share the call deadline. Nested calls keep the deadline of the outermost one.
+     *
+     * @return scope to close when the call is over
+     */
+    CallScope startCall();
+
+    AccountLockMetrics getMetrics();
+
+    interface CallScope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
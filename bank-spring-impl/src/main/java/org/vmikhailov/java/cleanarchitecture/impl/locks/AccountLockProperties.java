@@ -0,0 +1,36 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+ * bank.locks.* - account lock table and settings of the backoff lock policy, the immediate one has none.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.locks")
+public class AccountLockProperties {
+    /**
+     * Stripes of the account lock table, rounded up to a power of two. 0 - a lock per account.
+     */
+    private int stripes = AccountLocks.DEFAULT_STRIPES;
+    /**
+     * immediate or backoff.
+     */
+    private String policy = "immediate";
+    /**
+     * Polls of a busy lock before the thread parks, pauses between them grow from 64ns up to 65us.
+     */
+    private int spinTries = 10;
+    /**
+     * Max wait for a single account lock.
+     */
+    private Duration maxWait = Duration.ofMillis(10);
+    /**
+     * Max time a use-case call can spend waiting for all its account locks.
+     */
+    private Duration callTimeout = Duration.ofMillis(50);
+}
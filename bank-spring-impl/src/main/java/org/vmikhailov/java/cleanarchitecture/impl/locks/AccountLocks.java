@@ -0,0 +1,67 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Lock table of the accounts. A fixed number of stripes is shared by all the accounts (account id picks the stripe),
+ * so millions of accounts don't mean millions of lock objects. With 0 stripes every account gets its own lock.
+ *
+ * Accounts have to be locked in the lock order - two accounts sharing a stripe can be locked in any order
+ * between each other, stripes are reentrant, so the same thread takes the stripe lock twice and releases it twice.
+ */
+public class AccountLocks {
+    public static final int DEFAULT_STRIPES = 4096;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks(int stripes) {
+        if (stripes < 0 || stripes > 1 << 30) {
+            throw new IllegalArgumentException();
+        }
+        if (stripes == 0) {
+            this.stripes = null;
+            this.mask = 0;
+            return;
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public static AccountLocks perAccount() {
+        return new AccountLocks(0);
+    }
+
+    public int getStripes() {
+        return stripes == null ? 0 : stripes.length;
+    }
+
+    /**
+     * @param accountId id of a new account
+     * @return stripe of the account or a new lock if accounts are not striped
+     */
+    public ReentrantLock lockFor(long accountId) {
+        return stripes == null ? new ReentrantLock() : stripes[stripeOf(accountId)];
+    }
+
+    /**
+     * @param accountId id of the account
+     * @return order accounts have to be locked in: stripe index, or id itself if accounts are not striped
+     */
+    public long lockOrder(long accountId) {
+        return stripes == null ? accountId : stripeOf(accountId);
+    }
+
+    private int stripeOf(long accountId) {
+        // ids are sequential - consecutive accounts go to consecutive stripes
+        return (int) (accountId ^ (accountId >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,98 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/*
+ * Absorbs short contention instead of failing the operation.
+ *
+ * A busy lock is first polled with tryLock, the pause between the polls grows exponentially up to the max spin
+ * pause - account locks are held for microseconds, so most of the waits end here without a context switch.
+ * After the spin tries the thread parks in a timed tryLock and is woken up by the lock release.
+ *
+ * The wait is bounded by the max wait of a single lock and by the deadline of the whole use-case call,
+ * whichever comes first - a transfer waiting for its second account doesn't get a fresh budget.
+ */
+public class BackoffAccountLockPolicy implements AccountLockPolicy {
+    private static final long MIN_SPIN_PAUSE_NANOS = 1 << 6;
+    private static final long MAX_SPIN_PAUSE_NANOS = 1 << 16;
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final int spinTries;
+    private final long maxWaitNanos;
+    private final long callTimeoutNanos;
+    private final ThreadLocal<long[]> callDeadline = ThreadLocal.withInitial(() -> new long[]{NO_DEADLINE});
+    private final CallScope endCall = () -> callDeadline.get()[0] = NO_DEADLINE;
+    private final CallScope nestedCall = () -> {
+    };
+
+    @Getter
+    private final AccountLockMetrics metrics = new AccountLockMetrics();
+
+    public BackoffAccountLockPolicy(int spinTries, long maxWait, long callTimeout, TimeUnit unit) {
+        if (spinTries < 0 || maxWait < 0 || callTimeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.spinTries = spinTries;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.callTimeoutNanos = unit.toNanos(callTimeout);
+    }
+
+    @Override
+    public CallScope startCall() {
+        long[] deadline = callDeadline.get();
+        if (deadline[0] != NO_DEADLINE) {
+            return nestedCall;
+        }
+        deadline[0] = System.nanoTime() + callTimeoutNanos;
+        return endCall;
+    }
+
+    @Override
+    public boolean tryAcquire(Lock lock) {
+        if (lock.tryLock()) {
+            metrics.acquired();
+            return true;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos;
+        long callDeadline = this.callDeadline.get()[0];
+        if (callDeadline != NO_DEADLINE && callDeadline - deadline < 0) {
+            deadline = callDeadline;
+        }
+
+        long pauseNanos = MIN_SPIN_PAUSE_NANOS;
+        for (int i = 0; i < spinTries && System.nanoTime() - deadline < 0; i++) {
+            spin(pauseNanos);
+            if (lock.tryLock()) {
+                metrics.acquiredAfterWait(System.nanoTime() - start);
+                return true;
+            }
+            pauseNanos = Math.min(pauseNanos << 1, MAX_SPIN_PAUSE_NANOS);
+        }
+
+        long remaining = deadline - System.nanoTime();
+        try {
+            if (remaining > 0 && lock.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                metrics.acquiredAfterWait(System.nanoTime() - start);
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.timedOut(System.nanoTime() - start);
+        return false;
+    }
+
+    /*
+     * Busy wait without touching the lock - Thread.onSpinWait() is not available on java 8.
+     */
+    private static void spin(long nanos) {
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() - until < 0) {
+            // spin
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Account of the AccountContentionTracker top, counters are since the account entered the sketch (halved by decays).
+ */
+@Getter
+@AllArgsConstructor
+public class HotAccount {
+    private final long accountId;
+    /*
+     * Estimated acquisitions of the account lock, failed ones included - overestimated by up to the error.
+     */
+    private final long attempts;
+    private final long error;
+    private final long failures;
+    private final long holdP50Nanos;
+    private final long holdP99Nanos;
+    private final long holdMaxNanos;
+
+    @Override
+    public String toString() {
+        return String.format("#%d attempts:%d(+-%d) failures:%d hold p50:%dus p99:%dus max:%dus",
+                accountId, attempts, error, failures, TimeUnit.NANOSECONDS.toMicros(holdP50Nanos),
+                TimeUnit.NANOSECONDS.toMicros(holdP99Nanos), TimeUnit.NANOSECONDS.toMicros(holdMaxNanos));
+    }
+}
@@ -0,0 +1,26 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/*
+ * GET /actuator/hotaccounts?top=N - the hottest accounts of the contention tracker.
+ */
+@Endpoint(id = "hotaccounts")
+public class HotAccountsEndpoint {
+    private final AccountContentionTracker tracker;
+    private final int defaultTop;
+
+    public HotAccountsEndpoint(AccountContentionTracker tracker, int defaultTop) {
+        this.tracker = tracker;
+        this.defaultTop = defaultTop;
+    }
+
+    @ReadOperation
+    public List<HotAccount> hotAccounts(@Nullable Integer top) {
+        return tracker.top(top != null ? top : defaultTop);
+    }
+}
@@ -0,0 +1,31 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import lombok.Getter;
+
+import java.util.concurrent.locks.Lock;
+
+/*
+ * Original behaviour - a locked account fails the operation right away.
+ */
+public class ImmediateAccountLockPolicy implements AccountLockPolicy {
+    private static final CallScope NO_SCOPE = () -> {
+    };
+
+    @Getter
+    private final AccountLockMetrics metrics = new AccountLockMetrics();
+
+    @Override
+    public boolean tryAcquire(Lock lock) {
+        if (lock.tryLock()) {
+            metrics.acquired();
+            return true;
+        }
+        metrics.timedOut(0);
+        return false;
+    }
+
+    @Override
+    public CallScope startCall() {
+        return NO_SCOPE;
+    }
+}
@@ -0,0 +1,22 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+
+import java.util.Comparator;
+
+/*
+ * Account whose lock order is not its id - e.g. it's locked by a stripe shared with other accounts.
+ */
+public interface LockOrdered {
+    /**
+     * Order every caller locking several accounts locks them in, so they can't deadlock: lock order of the account
+     * gateway first (e.g. stripe of the lock table), id breaks the ties.
+     */
+    Comparator<Account<Long, ?>> ORDER = Comparator
+            .comparingLong((Account<Long, ?> account) -> account instanceof LockOrdered
+                    ? ((LockOrdered) account).getLockOrder()
+                    : account.getId())
+            .thenComparingLong(Account::getId);
+
+    long getLockOrder();
+}
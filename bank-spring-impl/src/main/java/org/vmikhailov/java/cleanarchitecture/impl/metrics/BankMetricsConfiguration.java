@@ -0,0 +1,22 @@
+package org.vmikhailov.java.cleanarchitecture.impl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Bank meters, on by default, bank.metrics.enabled=false turns them off. They are published with the other
+ * actuator metrics - GET /actuator/metrics/bank.usecase?tag=usecase:TRANSFER.
+ */
+@Configuration
+@EnableConfigurationProperties(BankMetricsProperties.class)
+@ConditionalOnProperty(name = "bank.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class BankMetricsConfiguration {
+
+    @Bean
+    public MicrometerBankMetrics bankMetrics(MeterRegistry registry, BankMetricsProperties properties) {
+        return new MicrometerBankMetrics(registry, properties.isHistograms());
+    }
+}
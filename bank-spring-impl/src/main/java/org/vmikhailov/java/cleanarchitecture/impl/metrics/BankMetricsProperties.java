@@ -0,0 +1,23 @@
+package org.vmikhailov.java.cleanarchitecture.impl.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * bank.metrics.* - use-case and transaction meters published to the actuator metrics.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.metrics")
+public class BankMetricsProperties {
+    /**
+     * false - the use cases and the transaction services are not instrumented at all.
+     */
+    private boolean enabled = true;
+    /**
+     * Publish the bucket histogram of the use-case latencies, so percentiles can be aggregated by the monitoring system.
+     * Off by default - it costs about as much as the rest of the meters together.
+     */
+    private boolean histograms = false;
+}
@@ -0,0 +1,119 @@
+package org.vmikhailov.java.cleanarchitecture.impl.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.TransactionMetrics;
+import org.vmikhailov.java.cleanarchitecture.usecases.UseCase;
+import org.vmikhailov.java.cleanarchitecture.usecases.UseCaseMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Use-case and transaction metrics on Micrometer meters:
+ *
+ * bank.usecase                  timer of every use-case call, tags usecase and outcome (success, locked, failure)
+ * bank.gateway.result.size      entities a storage returned to a use case - the matches, not the entities examined, tag usecase
+ * bank.transactions.commits     committed transactions, tag operation
+ * bank.transactions.rollbacks   rolled back transactions, tag operation
+ * bank.transactions.locked      time the accounts of a committed transaction were held, tag operation
+ * bank.locks.failures           transactions failed to lock their accounts, tag operation
+ *
+ * All the meters are registered up front and looked up by ordinal, the hot path doesn't touch the registry.
+ */
+public class MicrometerBankMetrics implements UseCaseMetrics, TransactionMetrics {
+    private static final int SUCCESS = 0;
+    private static final int LOCKED = 1;
+    private static final int FAILURE = 2;
+    private static final String[] OUTCOMES = {"success", "locked", "failure"};
+
+    private final Timer[][] calls = new Timer[UseCase.values().length][OUTCOMES.length];
+    private final DistributionSummary[] results = new DistributionSummary[UseCase.values().length];
+    private final Counter[] commits = new Counter[OperationType.values().length];
+    private final Counter[] rollbacks = new Counter[OperationType.values().length];
+    private final Timer[] locked = new Timer[OperationType.values().length];
+    private final Counter[] lockFailures = new Counter[OperationType.values().length];
+
+    /**
+     * @param histograms publish the bucket histogram of the call latencies
+     */
+    public MicrometerBankMetrics(MeterRegistry registry, boolean histograms) {
+        for (UseCase useCase : UseCase.values()) {
+            for (int outcome = 0; outcome < OUTCOMES.length; outcome++) {
+                calls[useCase.ordinal()][outcome] = Timer.builder("bank.usecase")
+                        .description("Use-case calls")
+                        .tag("usecase", useCase.name())
+                        .tag("outcome", OUTCOMES[outcome])
+                        .publishPercentileHistogram(histograms)
+                        .register(registry);
+            }
+            results[useCase.ordinal()] = DistributionSummary.builder("bank.gateway.result.size")
+                    .description("Entities returned by a storage query")
+                    .tag("usecase", useCase.name())
+                    .register(registry);
+        }
+        for (OperationType operationType : OperationType.values()) {
+            int i = operationType.ordinal();
+            commits[i] = Counter.builder("bank.transactions.commits")
+                    .tag("operation", operationType.name())
+                    .register(registry);
+            rollbacks[i] = Counter.builder("bank.transactions.rollbacks")
+                    .tag("operation", operationType.name())
+                    .register(registry);
+            locked[i] = Timer.builder("bank.transactions.locked")
+                    .description("Time the accounts of a committed transaction were held")
+                    .tag("operation", operationType.name())
+                    .register(registry);
+            lockFailures[i] = Counter.builder("bank.locks.failures")
+                    .description("Transactions failed with LockedException")
+                    .tag("operation", operationType.name())
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void record(UseCase useCase, long nanos, RuntimeException failure) {
+        calls[useCase.ordinal()][outcome(failure)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void returned(UseCase useCase, int entities) {
+        results[useCase.ordinal()].record(entities);
+    }
+
+    @Override
+    public void committed(OperationType operationType, long lockedNanos) {
+        commits[operationType.ordinal()].increment();
+        if (lockedNanos > 0) {
+            locked[operationType.ordinal()].record(lockedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void rolledBack(OperationType operationType) {
+        rollbacks[operationType.ordinal()].increment();
+    }
+
+    @Override
+    public void lockFailed(OperationType operationType) {
+        lockFailures[operationType.ordinal()].increment();
+    }
+
+    /*
+     * Use cases wrap the transaction failures, a lock failure is a cause of the use-case exception.
+     */
+    private static int outcome(RuntimeException failure) {
+        if (failure == null) {
+            return SUCCESS;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LockedException) {
+                return LOCKED;
+            }
+        }
+        return FAILURE;
+    }
+}
@@ -0,0 +1,430 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.CreationLog;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WalRecord;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLogReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readDecimal;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readString;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readVarLong;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeDecimal;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeString;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeVarLong;
+
+/*
+ * Snapshots of the in-memory gateways and recovery from the latest snapshot plus the write-ahead log tail.
+ *
+ * A snapshot is taken while transactions go on. It is cut at the next log sequence: clients and transactions
+ * are copied as they are, every account is copied holding its lock together with the next log sequence at that
+ * moment. Lock-based transactions append their log record before releasing the account locks, so the records
+ * of an account below its sequence are already in the copied balance and the ones from it are not.
+ * Recovery loads the latest snapshot - every section in parallel chunks - and replays the log from the cut,
+ * applying each record only to the accounts it is not in yet. Transactions left started are rolled back.
+ *
+ * Clients and accounts created after the latest snapshot are recovered from their log records, which are replayed
+ * before the balance changes. An account is logged before it can take part in a transaction, so a balance change of
+ * an account that is neither in the snapshot nor in the log means a broken log - recovery fails rather than apply
+ * a part of the transaction. Deletions are not logged, a deleted client or account is as active as it was in the
+ * latest snapshot.
+ */
+@Slf4j
+public class BankSnapshots implements AutoCloseable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final int keep;
+    private final int recoveryThreads;
+    private final CurrencyCodec currencyCodec;
+    private final InMemoryClientGateway clients;
+    private final InMemoryAccountGateway accounts;
+    private final InMemoryTransactionGateway transactions;
+    private final WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService scheduler;
+
+    public BankSnapshots(Path directory, int keep, int recoveryThreads, CurrencyCodec currencyCodec,
+                         InMemoryClientGateway clients, InMemoryAccountGateway accounts,
+                         InMemoryTransactionGateway transactions, WriteAheadLog writeAheadLog) throws IOException {
+        if (keep <= 0 || recoveryThreads <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.keep = keep;
+        this.recoveryThreads = recoveryThreads;
+        this.currencyCodec = currencyCodec;
+        this.clients = clients;
+        this.accounts = accounts;
+        this.transactions = transactions;
+        this.writeAheadLog = writeAheadLog;
+        Files.createDirectories(directory);
+        LoggedCreations creations = new LoggedCreations();
+        clients.setCreationLog(creations);
+        accounts.setCreationLog(creations);
+    }
+
+    /**
+     * Takes a snapshot every interval in the background.
+     */
+    public synchronized void schedule(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("snapshots are scheduled already");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bank-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                log.info("snapshot taken: {}", takeSnapshot());
+            } catch (IOException | RuntimeException ex) {
+                log.error("snapshot failed", ex);
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Writes a snapshot, deletes the snapshots beyond the kept ones and the log segments none of the kept ones need.
+     */
+    public synchronized SnapshotStats takeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        long cutSequence = writeAheadLog.nextSequence();
+        Path file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, cutSequence, SNAPSHOT_SUFFIX));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        SnapshotWriter writer = new SnapshotWriter(temporary, cutSequence, currencyCodec);
+        try {
+            for (Iterator<Client<Long>> iterator = clients.all().iterator(); iterator.hasNext(); ) {
+                writer.writeClient(iterator.next());
+            }
+            accounts.forEachLocked((account, active) -> {
+                try {
+                    writer.writeAccount(account, active, writeAheadLog.nextSequence());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            for (Iterator<FiatTransaction> iterator = transactions.all().iterator(); iterator.hasNext(); ) {
+                writer.writeTransaction(iterator.next());
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            writer.close();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        deleteOutdated();
+        return new SnapshotStats(file, cutSequence, writer.getRecords(SnapshotWriter.CLIENTS),
+                writer.getRecords(SnapshotWriter.ACCOUNTS), writer.getRecords(SnapshotWriter.TRANSACTIONS),
+                Files.size(file), System.nanoTime() - started);
+    }
+
+    /**
+     * Restores the latest snapshot and the log tail after it into the gateways, which should be empty.
+     */
+    public RecoveryStats recover() throws IOException {
+        long started = System.nanoTime();
+        NavigableMap<Long, Path> snapshots = snapshots();
+        Path snapshot = snapshots.isEmpty() ? null : snapshots.lastEntry().getValue();
+        long cutSequence = 0;
+        long restoredClients = 0;
+        long restoredAccounts = 0;
+        long restoredTransactions = 0;
+        Map<Long, Long> laterSequences = new ConcurrentHashMap<>();
+        if (snapshot != null) {
+            ExecutorService pool = Executors.newFixedThreadPool(recoveryThreads);
+            try (SnapshotReader reader = new SnapshotReader(snapshot, currencyCodec)) {
+                cutSequence = reader.getCutSequence();
+                restoredClients = restoreChunks(pool, reader.getChunks(SnapshotWriter.CLIENTS),
+                        offset -> reader.restoreClients(offset, clients));
+                restoredAccounts = restoreChunks(pool, reader.getChunks(SnapshotWriter.ACCOUNTS),
+                        offset -> reader.restoreAccounts(offset, clients, accounts, laterSequences));
+                restoredTransactions = restoreChunks(pool, reader.getChunks(SnapshotWriter.TRANSACTIONS),
+                        offset -> reader.restoreTransactions(offset, accounts, transactions));
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        long loaded = System.nanoTime();
+
+        // clients before their accounts - a client is logged before any of its accounts can be created
+        long[] created = new long[2];
+        long replayed = 0;
+        List<Path> segments = WriteAheadLog.segmentsFrom(writeAheadLog.getDirectory(), cutSequence);
+        for (Path segment : segments) {
+            try (WriteAheadLogReader reader = new WriteAheadLogReader(segment)) {
+                for (WalRecord record = reader.next(); record != null; record = reader.next()) {
+                    if (record.getSequence() >= cutSequence && record.getCreation() != null) {
+                        replayCreation(record, created);
+                        replayed++;
+                    }
+                }
+            }
+        }
+        for (Path segment : segments) {
+            try (WriteAheadLogReader reader = new WriteAheadLogReader(segment)) {
+                for (WalRecord record = reader.next(); record != null; record = reader.next()) {
+                    if (record.getSequence() >= cutSequence && record.getCreation() == null) {
+                        replay(record, laterSequences);
+                        replayed++;
+                    }
+                }
+            }
+        }
+        List<Long> leftStarted = new ArrayList<>();
+        transactions.all()
+                .filter(transaction -> transaction.getState() == TransactionState.STARTED)
+                .forEach(transaction -> leftStarted.add(transaction.getId()));
+        leftStarted.forEach(id -> transactions.updateTransactionState(id, TransactionState.ROLLBACKED));
+
+        RecoveryStats stats = new RecoveryStats(snapshot, restoredClients, restoredAccounts, restoredTransactions,
+                replayed, created[0], created[1], leftStarted.size(), loaded - started, System.nanoTime() - loaded);
+        log.info("recovered: {}", stats);
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private NavigableMap<Long, Path> snapshots() throws IOException {
+        NavigableMap<Long, Path> snapshots = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                snapshots.put(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())), file);
+            }
+        }
+        return snapshots;
+    }
+
+    private void deleteOutdated() throws IOException {
+        NavigableMap<Long, Path> snapshots = snapshots();
+        while (snapshots.size() > keep) {
+            Files.deleteIfExists(snapshots.pollFirstEntry().getValue());
+        }
+        writeAheadLog.deleteSegmentsBefore(snapshots.firstKey());
+    }
+
+    /*
+     * A creation of a client or an account already in the snapshot is skipped.
+     */
+    private void replayCreation(WalRecord record, long[] created) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(record.getCreation().getData());
+        try {
+            if (record.getCreation().getType() == WalRecord.Creation.Type.CLIENT) {
+                if (SnapshotReader.restoreClient(data, clients, true)) {
+                    created[0]++;
+                }
+                return;
+            }
+            long id = readVarLong(data);
+            long clientId = readVarLong(data);
+            Currency currency = currencyCodec.currencyOf(readString(data));
+            boolean fixedPoint = data.get() != 0;
+            FiatMoney money = new FiatMoney(currency, readDecimal(data));
+            if (accounts.get(id).isPresent()) {
+                return;
+            }
+            Client<Long> client = clients.find(clientId).orElseThrow(() -> new IOException(
+                    "log record " + record.getSequence() + " creates an account of unknown client " + clientId));
+            accounts.restore(id, fixedPoint ? new FixedPointAccountData(money, client) : new FiatAccountData(money, client), true);
+            created[1]++;
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("malformed creation log record " + record.getSequence(), ex);
+        }
+    }
+
+    /*
+     * Balance changes are additive, so records of different accounts can be replayed in any order.
+     * Every account of the record is looked up before any change is applied.
+     */
+    private void replay(WalRecord record, Map<Long, Long> laterSequences) throws IOException {
+        for (WalRecord.Leg leg : record.getLegs()) {
+            checkReplayed(record, leg.getAccountA());
+            if (leg.getAccountB() != 0) {
+                checkReplayed(record, leg.getAccountB());
+            }
+        }
+        for (WalRecord.Leg leg : record.getLegs()) {
+            BigDecimal amount = leg.getAmount();
+            switch (record.getOperationType()) {
+                case REPLENISH:
+                    change(leg.getAccountA(), amount, record.getSequence(), laterSequences);
+                    break;
+                case WITHDRAW:
+                    change(leg.getAccountA(), amount.negate(), record.getSequence(), laterSequences);
+                    break;
+                default:
+                    change(leg.getAccountA(), amount.negate(), record.getSequence(), laterSequences);
+                    change(leg.getAccountB(), amount, record.getSequence(), laterSequences);
+            }
+        }
+        Optional<FiatTransaction> transaction = transactions.get(record.getTransactionId());
+        if (transaction.isPresent()) {
+            transactions.updateTransactionState(record.getTransactionId(), TransactionState.COMMITTED);
+            return;
+        }
+        transactions.restore(record.getTransactionId(), transactionData(record), TransactionState.COMMITTED);
+    }
+
+    private void checkReplayed(WalRecord record, long accountId) throws IOException {
+        if (!accounts.get(accountId).isPresent()) {
+            throw new IOException("log record " + record.getSequence() + " changes unknown account " + accountId);
+        }
+    }
+
+    private void change(long accountId, BigDecimal delta, long sequence, Map<Long, Long> laterSequences) {
+        if (sequence < laterSequences.getOrDefault(accountId, 0L)) {
+            return;
+        }
+        Account<Long, FiatMoney> account = accounts.get(accountId).orElseThrow(IllegalStateException::new);
+        AccountData<Long, FiatMoney> data = account.getAccountData();
+        FiatMoney money = data.getMoney();
+        data.setMoney(new FiatMoney(money.getCurrency(), money.getAmount().add(delta)));
+        accounts.committed(Collections.singletonList(account));
+    }
+
+    /*
+     * Transaction created after the snapshot, its accounts are checked by replay.
+     */
+    private FiatTransactionData transactionData(WalRecord record) {
+        if (record.getOperationType() == OperationType.MULTI_TRANSFER) {
+            List<TransferLeg<Long, FiatMoney>> legs = new ArrayList<>(record.getLegs().size());
+            BigDecimal total = BigDecimal.ZERO;
+            for (WalRecord.Leg leg : record.getLegs()) {
+                Account<Long, FiatMoney> from = accounts.get(leg.getAccountA()).orElseThrow(IllegalStateException::new);
+                Account<Long, FiatMoney> to = accounts.get(leg.getAccountB()).orElseThrow(IllegalStateException::new);
+                legs.add(new TransferLeg<>(from, to, new FiatMoney(from.getAccountData().getMoney().getCurrency(), leg.getAmount())));
+                total = total.add(leg.getAmount());
+            }
+            return new FiatTransactionData(legs, new FiatMoney(legs.get(0).getMoney().getCurrency(), total));
+        }
+        WalRecord.Leg leg = record.getLegs().get(0);
+        Account<Long, FiatMoney> accountA = accounts.get(leg.getAccountA()).orElseThrow(IllegalStateException::new);
+        Account<Long, FiatMoney> accountB = leg.getAccountB() == 0 ? null
+                : accounts.get(leg.getAccountB()).orElseThrow(IllegalStateException::new);
+        return new FiatTransactionData(accountA, accountB,
+                new FiatMoney(accountA.getAccountData().getMoney().getCurrency(), leg.getAmount()),
+                record.getOperationType());
+    }
+
+    private static long restoreChunks(ExecutorService pool, List<Long> chunks, ChunkRestorer restorer) throws IOException {
+        List<Future<Integer>> futures = new ArrayList<>(chunks.size());
+        for (long offset : chunks) {
+            futures.add(pool.submit(() -> restorer.restore(offset)));
+        }
+        long restored = 0;
+        try {
+            for (Future<Integer> future : futures) {
+                restored += future.get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("malformed bank snapshot", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("recovery interrupted");
+        }
+        return restored;
+    }
+
+    /*
+     * Appends the created clients and accounts to the log and waits until they are durable. An account is encoded
+     * as its id, client id, currency code, fixed point flag and opening balance - it's still locked, so the balance
+     * is the opening one.
+     */
+    private final class LoggedCreations implements CreationLog {
+
+        @Override
+        public void clientCreated(Client<Long> client) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                SnapshotWriter.writeClientRecord(output, client);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            append(WalRecord.created(WalRecord.Creation.Type.CLIENT, bytes.toByteArray()));
+        }
+
+        @Override
+        public void accountCreated(Account<Long, FiatMoney> account) {
+            AccountData<Long, FiatMoney> data = account.getAccountData();
+            FiatMoney money = data.getMoney();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                writeVarLong(output, account.getId());
+                writeVarLong(output, data.getClient().getId());
+                writeString(output, currencyCodec.codeOf(money.getCurrency()));
+                output.writeBoolean(data instanceof FixedPointAccountData);
+                writeDecimal(output, money.getAmount());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            append(WalRecord.created(WalRecord.Creation.Type.ACCOUNT, bytes.toByteArray()));
+        }
+
+        private void append(WalRecord record) {
+            try {
+                writeAheadLog.append(record).join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkRestorer {
+        int restore(long chunkOffset) throws IOException;
+    }
+}
@@ -0,0 +1,15 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+/*
+ * Currencies have no identity of their own, snapshots keep them as codes given by the application.
+ */
+public interface CurrencyCodec {
+    String codeOf(Currency currency);
+
+    /**
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    Currency currencyOf(String code);
+}
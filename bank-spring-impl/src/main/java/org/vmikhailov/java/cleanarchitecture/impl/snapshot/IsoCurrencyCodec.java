@@ -0,0 +1,23 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.IsoCurrency;
+
+/*
+ * Codes of IsoCurrency currencies - the codec used unless the application defines its own.
+ */
+public class IsoCurrencyCodec implements CurrencyCodec {
+
+    @Override
+    public String codeOf(Currency currency) {
+        if (!(currency instanceof IsoCurrency)) {
+            throw new IllegalArgumentException("not an ISO currency: " + currency);
+        }
+        return ((IsoCurrency) currency).getCode();
+    }
+
+    @Override
+    public Currency currencyOf(String code) {
+        return IsoCurrency.of(code);
+    }
+}
@@ -0,0 +1,29 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class RecoveryStats {
+    /*
+     * null if there was no snapshot and the whole log was replayed.
+     */
+    private final Path snapshot;
+    private final long clients;
+    private final long accounts;
+    private final long transactions;
+    private final long replayedRecords;
+    /*
+     * Clients and accounts created after the snapshot, restored from the log.
+     */
+    private final long loggedClients;
+    private final long loggedAccounts;
+    private final long rollbackedTransactions;
+    private final long snapshotNanos;
+    private final long replayNanos;
+}
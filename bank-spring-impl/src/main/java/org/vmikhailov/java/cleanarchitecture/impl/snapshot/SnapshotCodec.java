@@ -0,0 +1,81 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Field encodings of the snapshot records: var-length longs, zig-zag for the signed ones,
+ * strings as UTF-8 bytes prefixed with length + 1 (0 for null), decimals as zig-zag scale and unscaled value bytes.
+ */
+final class SnapshotCodec {
+
+    private SnapshotCodec() {
+    }
+
+    static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed var-length number");
+    }
+
+    static void writeSignedVarLong(DataOutputStream output, long value) throws IOException {
+        writeVarLong(output, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(ByteBuffer input) {
+        long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(output, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1L);
+        output.write(bytes);
+    }
+
+    static String readString(ByteBuffer input) {
+        int length = (int) readVarLong(input);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeDecimal(DataOutputStream output, BigDecimal value) throws IOException {
+        writeSignedVarLong(output, value.scale());
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        writeVarLong(output, unscaled.length);
+        output.write(unscaled);
+    }
+
+    static BigDecimal readDecimal(ByteBuffer input) {
+        int scale = (int) readSignedVarLong(input);
+        byte[] unscaled = new byte[(int) readVarLong(input)];
+        input.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
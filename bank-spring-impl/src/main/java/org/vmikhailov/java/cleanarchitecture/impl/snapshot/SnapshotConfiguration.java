@@ -0,0 +1,56 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.totals.ClientTotalsVerifier;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Snapshots into bank.snapshot.dir every bank.snapshot.interval, the bank is recovered from them on start.
+ *
+ * Needs the write-ahead log (bank.wal.dir), the lock-based transaction service - the other ones change
+ * balances without holding the account locks a snapshot relies on, the heap account and transaction stores and
+ * a CurrencyCodec bean - ISO codes unless the application defines its own.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.snapshot.dir")
+@EnableConfigurationProperties(SnapshotProperties.class)
+public class SnapshotConfiguration {
+
+    @Bean
+    public BankSnapshots bankSnapshots(SnapshotProperties properties,
+                                       CurrencyCodec currencyCodec,
+                                       InMemoryClientGateway clients,
+                                       InMemoryAccountGateway accounts,
+                                       InMemoryTransactionGateway transactions,
+                                       WriteAheadLog writeAheadLog,
+                                       ObjectProvider<ClientTotalsVerifier> totalsVerifier,
+                                       @Value("${bank.transactions.service:lock-based}") String transactionService) throws IOException {
+        if (!"lock-based".equals(transactionService)) {
+            throw new IllegalStateException("snapshots need the lock-based transaction service, not " + transactionService);
+        }
+        BankSnapshots snapshots = new BankSnapshots(Paths.get(properties.getDir()), properties.getKeep(),
+                properties.getRecoveryThreads() > 0 ? properties.getRecoveryThreads() : Runtime.getRuntime().availableProcessors(),
+                currencyCodec, clients, accounts, transactions, writeAheadLog);
+        if (properties.isRecoverOnStart()) {
+            snapshots.recover();
+            // the recovered balances are not the ones the totals were counted from
+            totalsVerifier.ifAvailable(ClientTotalsVerifier::rebuild);
+        }
+        if (!properties.getInterval().isZero()) {
+            snapshots.schedule(properties.getInterval().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,36 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+ * bank.snapshot.* - snapshots of the in-memory bank, disabled unless bank.snapshot.dir is set.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.snapshot")
+public class SnapshotProperties {
+    /**
+     * Directory of the snapshots.
+     */
+    private String dir;
+    /**
+     * Time between snapshots, 0 - snapshots are taken on demand only.
+     */
+    private Duration interval = Duration.ofMinutes(10);
+    /**
+     * Snapshots kept, the log is kept from the oldest of them.
+     */
+    private int keep = 2;
+    /**
+     * Threads loading the snapshot on recovery, 0 - all the cores.
+     */
+    private int recoveryThreads;
+    /**
+     * Recover the bank from the latest snapshot and the log on start.
+     */
+    private boolean recoverOnStart = true;
+}
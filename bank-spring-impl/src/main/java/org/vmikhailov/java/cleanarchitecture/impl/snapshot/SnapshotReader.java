@@ -0,0 +1,267 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readDecimal;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readSignedVarLong;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readString;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.readVarLong;
+
+/*
+ * Reads snapshots written by SnapshotWriter. Chunks are read with positional reads, so they can be restored
+ * from many threads at once.
+ */
+final class SnapshotReader implements Closeable {
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+    private static final TransactionState[] TRANSACTION_STATES = TransactionState.values();
+    private static final ClientDocument.DocumentType[] DOCUMENT_TYPES = ClientDocument.DocumentType.values();
+
+    private final FileChannel channel;
+    private final long cutSequence;
+    private final Currency[] currencies;
+    private final List<List<Long>> sectionChunks = new ArrayList<>();
+
+    SnapshotReader(Path file, CurrencyCodec currencyCodec) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(0, SnapshotWriter.HEADER_SIZE);
+            if (header.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException("not a bank snapshot: " + file);
+            }
+            byte version = header.get();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("unsupported bank snapshot version:" + version);
+            }
+            cutSequence = header.getLong();
+            ByteBuffer trailer = read(size - SnapshotWriter.TRAILER_SIZE, SnapshotWriter.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException("incomplete bank snapshot: " + file);
+            }
+            ByteBuffer footer = read(footerOffset, (int) (size - SnapshotWriter.TRAILER_SIZE - footerOffset));
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(footer.array()));
+            currencies = new Currency[input.readInt()];
+            for (int i = 0; i < currencies.length; i++) {
+                currencies[i] = currencyCodec.currencyOf(input.readUTF());
+            }
+            for (int i = 0; i <= SnapshotWriter.TRANSACTIONS; i++) {
+                sectionChunks.add(new ArrayList<>());
+            }
+            int chunks = input.readInt();
+            for (int i = 0; i < chunks; i++) {
+                byte section = input.readByte();
+                sectionChunks.get(section).add(input.readLong());
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    long getCutSequence() {
+        return cutSequence;
+    }
+
+    List<Long> getChunks(byte section) {
+        return sectionChunks.get(section);
+    }
+
+    /**
+     * @return number of restored clients
+     */
+    int restoreClients(long chunkOffset, InMemoryClientGateway clients) throws IOException {
+        ByteBuffer body = readChunk(chunkOffset);
+        int records = body.getInt();
+        for (int i = 0; i < records; i++) {
+            restoreClient(body, clients, false);
+        }
+        return records;
+    }
+
+    /**
+     * Restores the client of the record written by SnapshotWriter.writeClientRecord.
+     *
+     * @param ifMissing restore the client only if there's no client with its id
+     * @return {@code true} if the client is restored
+     */
+    static boolean restoreClient(ByteBuffer body, InMemoryClientGateway clients, boolean ifMissing) {
+        long id = readVarLong(body);
+        boolean active = body.get() != 0;
+        String name = readString(body);
+        String surname = readString(body);
+        long birthDay = readSignedVarLong(body);
+        int documentsCount = (int) readVarLong(body);
+        List<ClientDocument> documents = null;
+        if (documentsCount > 0) {
+            documents = new ArrayList<>(documentsCount - 1);
+            for (int d = 1; d < documentsCount; d++) {
+                String number = readString(body);
+                int type = (int) readVarLong(body);
+                documents.add(new ClientDocument(number, type == 0 ? null : DOCUMENT_TYPES[type - 1],
+                        readString(body), readString(body)));
+            }
+        }
+        if (ifMissing && clients.find(id).isPresent()) {
+            return false;
+        }
+        clients.restore(id, new UniversalBankClientData(name, surname,
+                birthDay == 0 ? null : LocalDate.ofEpochDay(birthDay - 1), documents), active);
+        return true;
+    }
+
+    /**
+     * Accounts whose balance was read after the cut sequence are put into the later sequences,
+     * records of the log tail below their sequence are already in the balance.
+     *
+     * @return number of restored accounts
+     */
+    int restoreAccounts(long chunkOffset, InMemoryClientGateway clients, InMemoryAccountGateway accounts,
+                        Map<Long, Long> laterSequences) throws IOException {
+        ByteBuffer body = readChunk(chunkOffset);
+        int records = body.getInt();
+        int restored = 0;
+        for (int i = 0; i < records; i++) {
+            long id = readVarLong(body);
+            long clientId = readVarLong(body);
+            boolean active = body.get() != 0;
+            Currency currency = currencies[(int) readVarLong(body)];
+            boolean fixedPoint = body.get() != 0;
+            FiatMoney money = new FiatMoney(currency, readDecimal(body));
+            long sequence = readVarLong(body);
+            Optional<Client<Long>> client = clients.find(clientId);
+            if (!client.isPresent()) {
+                continue;
+            }
+            accounts.restore(id, fixedPoint
+                    ? new FixedPointAccountData(money, client.get())
+                    : new FiatAccountData(money, client.get()), active);
+            if (sequence > cutSequence) {
+                laterSequences.put(id, sequence);
+            }
+            restored++;
+        }
+        return restored;
+    }
+
+    /**
+     * @return number of restored transactions
+     */
+    int restoreTransactions(long chunkOffset, InMemoryAccountGateway accounts,
+                            InMemoryTransactionGateway transactions) throws IOException {
+        ByteBuffer body = readChunk(chunkOffset);
+        int records = body.getInt();
+        int restored = 0;
+        for (int i = 0; i < records; i++) {
+            long id = readVarLong(body);
+            OperationType operationType = OPERATION_TYPES[body.get()];
+            TransactionState state = TRANSACTION_STATES[body.get()];
+            long accountA = readVarLong(body);
+            long accountB = readVarLong(body);
+            Currency currency = currencies[(int) readVarLong(body)];
+            FiatMoney amount = new FiatMoney(currency, readDecimal(body));
+            int legsCount = (int) readVarLong(body);
+            List<TransferLeg<Long, FiatMoney>> legs = new ArrayList<>(legsCount);
+            boolean complete = true;
+            for (int l = 0; l < legsCount; l++) {
+                Optional<Account<Long, FiatMoney>> from = accounts.get(readVarLong(body));
+                Optional<Account<Long, FiatMoney>> to = accounts.get(readVarLong(body));
+                FiatMoney legAmount = new FiatMoney(currency, readDecimal(body));
+                if (from.isPresent() && to.isPresent()) {
+                    legs.add(new TransferLeg<>(from.get(), to.get(), legAmount));
+                } else {
+                    complete = false;
+                }
+            }
+            FiatTransactionData data;
+            if (operationType == OperationType.MULTI_TRANSFER) {
+                data = complete ? new FiatTransactionData(legs, amount) : null;
+            } else {
+                Account<Long, FiatMoney> a = accounts.get(accountA).orElse(null);
+                Account<Long, FiatMoney> b = accountB == 0 ? null : accounts.get(accountB).orElse(null);
+                data = a == null || (accountB != 0 && b == null) ? null : new FiatTransactionData(a, b, amount, operationType);
+            }
+            if (data != null) {
+                transactions.restore(id, data, state);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * Body of the chunk prefixed with its records count.
+     */
+    private ByteBuffer readChunk(long offset) throws IOException {
+        ByteBuffer header = read(offset, SnapshotWriter.CHUNK_HEADER_SIZE);
+        header.get();
+        int records = header.getInt();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        ByteBuffer body = ByteBuffer.allocate(4 + length);
+        body.putInt(records);
+        readFully(body, offset + SnapshotWriter.CHUNK_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 4, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("corrupted bank snapshot chunk at " + offset);
+        }
+        body.flip();
+        return body;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0) {
+            throw new IOException("malformed bank snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("truncated bank snapshot");
+            }
+            position += read;
+        }
+    }
+}
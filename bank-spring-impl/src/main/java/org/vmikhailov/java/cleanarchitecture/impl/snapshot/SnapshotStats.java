@@ -0,0 +1,23 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class SnapshotStats {
+    private final Path file;
+    /*
+     * Log sequence the snapshot is cut at, recovery replays the log from it.
+     */
+    private final long cutSequence;
+    private final long clients;
+    private final long accounts;
+    private final long transactions;
+    private final long bytes;
+    private final long nanos;
+}
@@ -0,0 +1,226 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeDecimal;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeSignedVarLong;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeString;
+import static org.vmikhailov.java.cleanarchitecture.impl.snapshot.SnapshotCodec.writeVarLong;
+
+/*
+ * Snapshot file layout:
+ *  header  - magic int, version byte, log sequence the snapshot is cut at long,
+ *  chunks  - section byte, records int, body length int, CRC32 of the body int, body,
+ *  footer  - currency codes (count int, codes), chunks (count int, section byte and offset long of every chunk),
+ *  trailer - footer offset long, magic int.
+ * Sections go in the order clients, accounts, transactions. Chunks don't depend on each other,
+ * so all the chunks of a section are decoded in parallel on recovery.
+ *
+ * Records:
+ *  client      - id, active, name, surname, birth date (epoch day + 1, 0 for none), documents count + 1 (0 for none),
+ *                documents (number, type ordinal + 1, client name, client surname),
+ *  account     - id, client id, active, currency index, fixed point, balance, log sequence the balance is read at,
+ *  transaction - id, operation type, state, account A id, account B id (0 for none), currency index, amount,
+ *                legs count, legs (from account id, to account id, amount).
+ */
+final class SnapshotWriter implements Closeable {
+    static final int MAGIC = 0x424E4B53;
+    static final byte VERSION = 1;
+    static final byte CLIENTS = 0;
+    static final byte ACCOUNTS = 1;
+    static final byte TRANSACTIONS = 2;
+    static final int HEADER_SIZE = 13;
+    static final int CHUNK_HEADER_SIZE = 13;
+    static final int TRAILER_SIZE = 12;
+    private static final int CHUNK_RECORDS = 16_384;
+
+    private final CurrencyCodec currencyCodec;
+    private final FileOutputStream file;
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(1 << 20);
+    private final DataOutputStream chunk = new DataOutputStream(chunkBytes);
+    private final Map<Currency, Integer> currencies = new IdentityHashMap<>();
+    private final List<String> currencyCodes = new ArrayList<>();
+    private final List<Long> chunkOffsets = new ArrayList<>();
+    private final List<Byte> chunkSections = new ArrayList<>();
+    private final long[] sectionRecords = new long[3];
+    private long position;
+    private byte section = CLIENTS;
+    private int chunkRecords;
+
+    SnapshotWriter(Path file, long cutSequence, CurrencyCodec currencyCodec) throws IOException {
+        this.currencyCodec = currencyCodec;
+        this.file = new FileOutputStream(file.toFile());
+        this.output = new DataOutputStream(new BufferedOutputStream(this.file, 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(cutSequence);
+        position = HEADER_SIZE;
+    }
+
+    long getRecords(byte section) {
+        return sectionRecords[section];
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    void writeClient(Client<Long> client) throws IOException {
+        startRecord(CLIENTS);
+        writeClientRecord(chunk, client);
+        endRecord();
+    }
+
+    /**
+     * Client record, written to the log for the clients created after the latest snapshot as well.
+     */
+    static void writeClientRecord(DataOutputStream output, Client<Long> client) throws IOException {
+        ClientData<Long> clientData = client.getClientData();
+        if (!(clientData instanceof UniversalBankClientData)) {
+            throw new IllegalStateException("unsupported client data: " + clientData.getClass());
+        }
+        UniversalBankClientData data = (UniversalBankClientData) clientData;
+        writeVarLong(output, client.getId());
+        output.writeBoolean(client.isActive());
+        writeString(output, data.getName());
+        writeString(output, data.getSurname());
+        writeSignedVarLong(output, data.getBirthDate() == null ? 0 : data.getBirthDate().toEpochDay() + 1);
+        if (data.getDocuments() == null) {
+            writeVarLong(output, 0);
+        } else {
+            writeVarLong(output, data.getDocuments().size() + 1L);
+            for (ClientDocument document : data.getDocuments()) {
+                writeString(output, document.getDocumentNumber());
+                writeVarLong(output, document.getDocumentType() == null ? 0 : document.getDocumentType().ordinal() + 1);
+                writeString(output, document.getClientName());
+                writeString(output, document.getClientSurname());
+            }
+        }
+    }
+
+    void writeAccount(Account<Long, FiatMoney> account, boolean active, long sequence) throws IOException {
+        startRecord(ACCOUNTS);
+        AccountData<Long, FiatMoney> data = account.getAccountData();
+        FiatMoney money = data.getMoney();
+        writeVarLong(chunk, account.getId());
+        writeVarLong(chunk, data.getClient().getId());
+        chunk.writeBoolean(active);
+        writeVarLong(chunk, currencyIndex(money.getCurrency()));
+        chunk.writeBoolean(data instanceof FixedPointAccountData);
+        writeDecimal(chunk, money.getAmount());
+        writeVarLong(chunk, sequence);
+        endRecord();
+    }
+
+    void writeTransaction(FiatTransaction transaction) throws IOException {
+        startRecord(TRANSACTIONS);
+        writeVarLong(chunk, transaction.getId());
+        chunk.writeByte(transaction.getOperationType().ordinal());
+        chunk.writeByte(transaction.getState().ordinal());
+        writeVarLong(chunk, transaction.getFromAccount().map(Account::getId).orElse(0L));
+        writeVarLong(chunk, transaction.getToAccount().map(Account::getId).orElse(0L));
+        writeVarLong(chunk, currencyIndex(transaction.getAmount().getCurrency()));
+        writeDecimal(chunk, transaction.getAmount().getAmount());
+        writeVarLong(chunk, transaction.getLegs().size());
+        for (TransferLeg<Long, FiatMoney> leg : transaction.getLegs()) {
+            writeVarLong(chunk, leg.getFromAccount().getId());
+            writeVarLong(chunk, leg.getToAccount().getId());
+            writeDecimal(chunk, leg.getMoney().getAmount());
+        }
+        endRecord();
+    }
+
+    /**
+     * Writes the footer and syncs the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChunk();
+            long footerOffset = position;
+            output.writeInt(currencyCodes.size());
+            for (String code : currencyCodes) {
+                output.writeUTF(code);
+            }
+            output.writeInt(chunkOffsets.size());
+            for (int i = 0; i < chunkOffsets.size(); i++) {
+                output.writeByte(chunkSections.get(i));
+                output.writeLong(chunkOffsets.get(i));
+            }
+            output.writeLong(footerOffset);
+            output.writeInt(MAGIC);
+            output.flush();
+            file.getFD().sync();
+        } finally {
+            output.close();
+        }
+    }
+
+    private int currencyIndex(Currency currency) {
+        return currencies.computeIfAbsent(currency, c -> {
+            currencyCodes.add(currencyCodec.codeOf(c));
+            return currencyCodes.size() - 1;
+        });
+    }
+
+    private void startRecord(byte recordSection) throws IOException {
+        if (recordSection < section) {
+            throw new IllegalStateException("sections are written in order");
+        }
+        if (recordSection != section) {
+            flushChunk();
+            section = recordSection;
+        }
+    }
+
+    private void endRecord() throws IOException {
+        sectionRecords[section]++;
+        if (++chunkRecords == CHUNK_RECORDS) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkRecords == 0) {
+            return;
+        }
+        chunk.flush();
+        byte[] body = chunkBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        chunkOffsets.add(position);
+        chunkSections.add(section);
+        output.writeByte(section);
+        output.writeInt(chunkRecords);
+        output.writeInt(body.length);
+        output.writeInt((int) crc.getValue());
+        output.write(body);
+        position += CHUNK_HEADER_SIZE + body.length;
+        chunkBytes.reset();
+        chunkRecords = 0;
+    }
+}
@@ -0,0 +1,102 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatClientTotalsDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Totals of the client balances per currency, changed by the committed transactions of the lock-based service
+ * while it holds their accounts - all the accounts of a client held, the client totals are the sum of their balances.
+ *
+ * Currencies are told apart by identity, as the one-instance-per-code ISO ones are.
+ */
+public class ClientBalanceTotals implements FiatClientTotalsDataAccess {
+    private final Map<Long, Map<Currency, AtomicReference<BigDecimal>>> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public List<FiatMoney> getTotals(Client<Long> client) {
+        Map<Currency, AtomicReference<BigDecimal>> clientTotals = totals.get(client.getId());
+        if (clientTotals == null) {
+            return Collections.emptyList();
+        }
+        List<FiatMoney> result = new ArrayList<>(clientTotals.size());
+        clientTotals.forEach((currency, total) -> result.add(new FiatMoney(currency, total.get())));
+        return result;
+    }
+
+    @Override
+    public void created(Account<Long, FiatMoney> account, FiatMoney openingBalance) {
+        add(account, openingBalance.getCurrency(), openingBalance.getAmount());
+    }
+
+    /**
+     * Balance changes of the transaction, called once it's committed - transfers between the accounts
+     * of the same client leave its totals as they are.
+     */
+    public void committed(FiatTransactionData transactionData) {
+        FiatMoney amount = transactionData.getAmount();
+        switch (transactionData.getOperationType()) {
+            case REPLENISH:
+                transactionData.getAccountA().ifPresent(account -> add(account, amount.getCurrency(), amount.getAmount()));
+                break;
+            case WITHDRAW:
+                transactionData.getAccountA().ifPresent(account -> add(account, amount.getCurrency(), amount.getAmount().negate()));
+                break;
+            case TRANSFER:
+                transactionData.getAccountA().ifPresent(from -> transactionData.getAccountB()
+                        .ifPresent(to -> transfer(from, to, amount)));
+                break;
+            case MULTI_TRANSFER:
+                for (TransferLeg<Long, FiatMoney> leg : transactionData.getLegs()) {
+                    transfer(leg.getFromAccount(), leg.getToAccount(), leg.getMoney());
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Replaces the totals of the client, e.g. recounted from the balances after a recovery.
+     */
+    public void replace(Long clientId, List<FiatMoney> clientTotals) {
+        Map<Currency, AtomicReference<BigDecimal>> replaced = new ConcurrentHashMap<>();
+        for (FiatMoney total : clientTotals) {
+            replaced.put(total.getCurrency(), new AtomicReference<>(total.getAmount()));
+        }
+        totals.put(clientId, replaced);
+    }
+
+    private void transfer(Account<Long, FiatMoney> from, Account<Long, FiatMoney> to, FiatMoney money) {
+        if (clientIdOf(from).equals(clientIdOf(to))) {
+            return;
+        }
+        add(from, money.getCurrency(), money.getAmount().negate());
+        add(to, money.getCurrency(), money.getAmount());
+    }
+
+    private void add(Account<Long, FiatMoney> account, Currency currency, BigDecimal delta) {
+        totals.computeIfAbsent(clientIdOf(account), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(currency, c -> new AtomicReference<>(BigDecimal.ZERO))
+                .accumulateAndGet(delta, BigDecimal::add);
+    }
+
+    /*
+     * Client the account was created for - the account itself has no client once the client is deleted.
+     */
+    private static Long clientIdOf(Account<Long, FiatMoney> account) {
+        return account.getAccountData().getClient().getId();
+    }
+}
@@ -0,0 +1,36 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Client totals, on by default, bank.totals.enabled=false turns them off.
+ */
+@Configuration
+@Conditional(ClientTotalsMaintained.class)
+@EnableConfigurationProperties(ClientTotalsProperties.class)
+public class ClientTotalsConfiguration {
+
+    @Bean
+    public ClientBalanceTotals clientBalanceTotals() {
+        return new ClientBalanceTotals();
+    }
+
+    @Bean
+    public ClientTotalsVerifier clientTotalsVerifier(InMemoryClientGateway clients, FiatAccountDataAccess accounts,
+                                                     ClientBalanceTotals totals, ClientTotalsProperties properties) {
+        ClientTotalsVerifier verifier = new ClientTotalsVerifier(clients, accounts, totals, properties.getVerifyThreads() > 0
+                ? properties.getVerifyThreads()
+                : Runtime.getRuntime().availableProcessors());
+        if (!properties.getVerifyInterval().isZero()) {
+            verifier.schedule(properties.getVerifyInterval().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return verifier;
+    }
+}
@@ -0,0 +1,23 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+/*
+ * Client totals are maintained with the lock-based transaction service only, unless bank.totals.enabled=false -
+ * the other services change balances without holding the accounts the verifier relies on.
+ */
+public class ClientTotalsMaintained extends AllNestedConditions {
+
+    ClientTotalsMaintained() {
+        super(ConfigurationPhase.PARSE_CONFIGURATION);
+    }
+
+    @ConditionalOnProperty(name = "bank.transactions.service", havingValue = "lock-based", matchIfMissing = true)
+    static class LockBasedService {
+    }
+
+    @ConditionalOnProperty(name = "bank.totals.enabled", havingValue = "true", matchIfMissing = true)
+    static class Enabled {
+    }
+}
@@ -0,0 +1,27 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+import java.math.BigDecimal;
+
+/*
+ * Client total differing from the sum of the client balances in a currency.
+ */
+@Getter
+@AllArgsConstructor
+public class ClientTotalsMismatch {
+    private final long clientId;
+    private final Currency currency;
+    /*
+     * Sum of the balances.
+     */
+    private final BigDecimal expected;
+    private final BigDecimal total;
+
+    @Override
+    public String toString() {
+        return String.format("client #%d %s: balances %s total %s", clientId, currency, expected, total);
+    }
+}
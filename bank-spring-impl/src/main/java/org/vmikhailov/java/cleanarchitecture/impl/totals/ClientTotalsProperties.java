@@ -0,0 +1,28 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+ * bank.totals.* - client totals of the lock-based transaction service.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.totals")
+public class ClientTotalsProperties {
+    /**
+     * false - no totals are maintained.
+     */
+    private boolean enabled = true;
+    /**
+     * Totals are compared with the balances every interval, 0 - never.
+     */
+    private Duration verifyInterval = Duration.ZERO;
+    /**
+     * Clients verified at once, 0 - as many as there are cores.
+     */
+    private int verifyThreads;
+}
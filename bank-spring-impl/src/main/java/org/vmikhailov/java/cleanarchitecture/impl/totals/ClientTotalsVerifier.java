@@ -0,0 +1,244 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.LockOrdered;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Compares the client totals with the balances, the clients in parallel on threads of its own - they wait for the
+ * account locks, which is no work for the common pool. A client is checked holding all its accounts, so no
+ * transaction of the client is half counted. A client whose accounts stay locked by the transactions is skipped,
+ * one with a mismatch is checked once more - its account may be being created.
+ */
+@Slf4j
+public class ClientTotalsVerifier implements AutoCloseable {
+    private static final int LOCK_ATTEMPTS = 16;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final InMemoryClientGateway clients;
+    private final FiatAccountDataAccess accounts;
+    private final ClientBalanceTotals totals;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private ScheduledExecutorService scheduler;
+
+    public ClientTotalsVerifier(InMemoryClientGateway clients, FiatAccountDataAccess accounts, ClientBalanceTotals totals) {
+        this(clients, accounts, totals, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of the clients verified at once
+     */
+    public ClientTotalsVerifier(InMemoryClientGateway clients, FiatAccountDataAccess accounts, ClientBalanceTotals totals,
+                                int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.clients = clients;
+        this.accounts = accounts;
+        this.totals = totals;
+        this.threads = threads;
+        this.executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "bank-totals-verifier-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Verification verify() {
+        LongAdder skipped = new LongAdder();
+        List<Client<Long>> all = clients.all().collect(Collectors.toList());
+        List<ClientTotalsMismatch> mismatches = new ArrayList<>();
+        forEachSlice(all, slice -> {
+            List<ClientTotalsMismatch> sliceMismatches = new ArrayList<>();
+            for (Client<Long> client : slice) {
+                List<ClientTotalsMismatch> clientMismatches = verify(client);
+                if (clientMismatches != null && !clientMismatches.isEmpty()) {
+                    clientMismatches = verify(client);
+                }
+                if (clientMismatches == null) {
+                    skipped.increment();
+                } else {
+                    sliceMismatches.addAll(clientMismatches);
+                }
+            }
+            return sliceMismatches;
+        }).forEach(mismatches::addAll);
+        return new Verification(all.size(), skipped.intValue(), mismatches);
+    }
+
+    /**
+     * Recounts the totals of every client from the balances, e.g. after a recovery has changed the balances
+     * behind the transactions back. Nothing is expected to change the accounts meanwhile.
+     */
+    public void rebuild() {
+        forEachSlice(clients.all().collect(Collectors.toList()), slice -> {
+            for (Client<Long> client : slice) {
+                totals.replace(client.getId(), sumOf(accounts.getAll(client)).entrySet().stream()
+                        .map(total -> new FiatMoney(total.getKey(), total.getValue()))
+                        .collect(Collectors.toList()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Verifies the totals every interval, the mismatches are logged.
+     */
+    public synchronized void schedule(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("totals are verified already");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bank-totals-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            Verification verification = verify();
+            if (verification.getMismatches().isEmpty()) {
+                log.info("client totals verified: {}", verification);
+            } else {
+                log.warn("client totals differ from balances: {} {}", verification, verification.getMismatches());
+            }
+        }, interval, interval, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        executor.shutdownNow();
+    }
+
+    /*
+     * Every thread gets a slice of the clients, the results are in the order of the slices.
+     */
+    private <T> List<T> forEachSlice(List<Client<Long>> all, Function<List<Client<Long>>, T> task) {
+        int sliceSize = Math.max(1, (all.size() + threads - 1) / threads);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += sliceSize) {
+            List<Client<Long>> slice = all.subList(from, Math.min(all.size(), from + sliceSize));
+            futures.add(executor.submit(() -> task.apply(slice)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        return results;
+    }
+
+    /*
+     * null if the accounts of the client can't be locked.
+     */
+    private List<ClientTotalsMismatch> verify(Client<Long> client) {
+        List<Account<Long, FiatMoney>> clientAccounts = new ArrayList<>(accounts.getAll(client));
+        clientAccounts.sort(LockOrdered.ORDER);
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+            int locked = 0;
+            try {
+                for (; locked < clientAccounts.size(); locked++) {
+                    clientAccounts.get(locked).lock();
+                }
+                return compare(client, clientAccounts);
+            } catch (AccountException ex) {
+                Thread.yield();
+            } finally {
+                for (int i = 0; i < locked; i++) {
+                    clientAccounts.get(i).unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<ClientTotalsMismatch> compare(Client<Long> client, List<Account<Long, FiatMoney>> clientAccounts) {
+        Map<Currency, BigDecimal> expected = sumOf(clientAccounts);
+        Map<Currency, BigDecimal> actual = new IdentityHashMap<>();
+        for (FiatMoney total : totals.getTotals(client)) {
+            actual.put(total.getCurrency(), total.getAmount());
+        }
+        List<ClientTotalsMismatch> mismatches = new ArrayList<>();
+        expected.forEach((currency, sum) -> {
+            BigDecimal total = actual.getOrDefault(currency, BigDecimal.ZERO);
+            if (sum.compareTo(total) != 0) {
+                mismatches.add(new ClientTotalsMismatch(client.getId(), currency, sum, total));
+            }
+        });
+        actual.forEach((currency, total) -> {
+            if (!expected.containsKey(currency) && total.signum() != 0) {
+                mismatches.add(new ClientTotalsMismatch(client.getId(), currency, BigDecimal.ZERO, total));
+            }
+        });
+        return mismatches;
+    }
+
+    private static Map<Currency, BigDecimal> sumOf(List<Account<Long, FiatMoney>> clientAccounts) {
+        Map<Currency, BigDecimal> sums = new IdentityHashMap<>();
+        for (Account<Long, FiatMoney> account : clientAccounts) {
+            FiatMoney money = account.getAccountData().getMoney();
+            sums.merge(money.getCurrency(), money.getAmount(), BigDecimal::add);
+        }
+        return sums;
+    }
+
+    @Getter
+    public static class Verification {
+        private final int clients;
+        /*
+         * Clients not verified - their accounts were locked by the transactions all the time.
+         */
+        private final int skipped;
+        private final List<ClientTotalsMismatch> mismatches;
+
+        Verification(int clients, int skipped, List<ClientTotalsMismatch> mismatches) {
+            this.clients = clients;
+            this.skipped = skipped;
+            this.mismatches = Objects.requireNonNull(mismatches);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("clients:%d skipped:%d mismatches:%d", clients, skipped, mismatches.size());
+        }
+    }
+}
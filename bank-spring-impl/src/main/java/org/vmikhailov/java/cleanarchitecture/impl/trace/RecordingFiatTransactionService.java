@@ -0,0 +1,80 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.FiatTransactionService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Writes every balance changing call into the workload trace before passing it to the actual service,
+ * so failed calls are recorded as well. Calls rejected by the use cases before they reach the service
+ * (e.g. of an inactive account) are not.
+ */
+class RecordingFiatTransactionService implements FiatTransactionService {
+    private final FiatTransactionService delegate;
+    private final WorkloadTraceWriter traceWriter;
+    private long lastCallNanos;
+
+    RecordingFiatTransactionService(FiatTransactionService delegate, WorkloadTraceWriter traceWriter) {
+        this.delegate = delegate;
+        this.traceWriter = traceWriter;
+        this.lastCallNanos = System.nanoTime();
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> account, FiatMoney money, OperationType type) throws TransactionException {
+        record(type, account, null, money);
+        return delegate.make(account, money, type);
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> fromAccount, Account<Long, FiatMoney> toAccount,
+                                FiatMoney money, OperationType type) throws TransactionException {
+        record(type, fromAccount, toAccount, money);
+        return delegate.make(fromAccount, toAccount, money, type);
+    }
+
+    @Override
+    public FiatTransaction make(List<TransferLeg<Long, FiatMoney>> legs) throws TransactionException {
+        record(legs);
+        return delegate.make(legs);
+    }
+
+    private void record(OperationType type, Account<Long, FiatMoney> accountA, Account<Long, FiatMoney> accountB, FiatMoney money) {
+        if (type == null || accountA == null || money == null || money.getAmount() == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            traceWriter.write(new WorkloadTraceRecord(now - lastCallNanos, type, accountA.getId(),
+                    accountB == null ? 0 : accountB.getId(), money.getAmount()));
+            lastCallNanos = now;
+        }
+    }
+
+    private void record(List<TransferLeg<Long, FiatMoney>> legs) {
+        if (legs == null || legs.isEmpty()) {
+            return;
+        }
+        List<WorkloadTraceRecord.Leg> tracedLegs = new ArrayList<>(legs.size());
+        for (TransferLeg<Long, FiatMoney> leg : legs) {
+            if (leg == null || leg.getFromAccount() == null || leg.getToAccount() == null
+                    || leg.getMoney() == null || leg.getMoney().getAmount() == null) {
+                return;
+            }
+            tracedLegs.add(new WorkloadTraceRecord.Leg(leg.getFromAccount().getId(), leg.getToAccount().getId(),
+                    leg.getMoney().getAmount()));
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            traceWriter.write(new WorkloadTraceRecord(now - lastCallNanos, tracedLegs));
+            lastCallNanos = now;
+        }
+    }
+}
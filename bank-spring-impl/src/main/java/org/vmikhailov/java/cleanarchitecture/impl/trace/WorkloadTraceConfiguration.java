@@ -0,0 +1,46 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.FiatTransactionService;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.UncheckedIOException;
+
+/*
+ * Recording mode - enabled by the bank.trace.record-file property, every balance changing use-case call
+ * is written into that file. The calls are recorded at the transaction service, so the other use cases - reads,
+ * client registrations and account creation - are not in the trace.
+ * The trace can be replayed by the WorkloadReplay driver of the benchmarks module.
+ */
+@Configuration
+@ConditionalOnProperty("bank.trace.record-file")
+public class WorkloadTraceConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public WorkloadTraceWriter workloadTraceWriter(Environment environment) {
+        try {
+            return new WorkloadTraceWriter(new FileOutputStream(environment.getRequiredProperty("bank.trace.record-file")));
+        } catch (FileNotFoundException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Bean
+    public static BeanPostProcessor recordingTransactionServicePostProcessor(ObjectProvider<WorkloadTraceWriter> traceWriter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FiatTransactionService) {
+                    return new RecordingFiatTransactionService((FiatTransactionService) bean, traceWriter.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Reads traces written by WorkloadTraceWriter.
+ */
+public class WorkloadTraceReader implements Closeable {
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final DataInputStream input;
+
+    public WorkloadTraceReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(input));
+        if (this.input.readInt() != WorkloadTraceWriter.MAGIC) {
+            throw new IOException("not a workload trace");
+        }
+        byte version = this.input.readByte();
+        if (version < 1 || version > WorkloadTraceWriter.VERSION) {
+            throw new IOException("unsupported workload trace version:" + version);
+        }
+    }
+
+    /**
+     * Next record of the trace.
+     *
+     * @return next record or {@code null} if trace is over
+     */
+    public WorkloadTraceRecord next() throws IOException {
+        int operation = input.read();
+        if (operation < 0) {
+            return null;
+        }
+        long delayNanos = readVarLong();
+        OperationType operationType = OPERATION_TYPES[operation];
+        if (operationType == OperationType.MULTI_TRANSFER) {
+            int legCount = (int) readVarLong();
+            List<WorkloadTraceRecord.Leg> legs = new ArrayList<>(legCount);
+            for (int i = 0; i < legCount; i++) {
+                long fromAccount = readVarLong();
+                long toAccount = readVarLong();
+                legs.add(new WorkloadTraceRecord.Leg(fromAccount, toAccount, readAmount()));
+            }
+            return new WorkloadTraceRecord(delayNanos, legs);
+        }
+        long accountA = readVarLong();
+        long accountB = readVarLong();
+        return new WorkloadTraceRecord(delayNanos, operationType, accountA, accountB, readAmount());
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private BigDecimal readAmount() throws IOException {
+        int scale = (int) unZigZag(readVarLong());
+        byte[] unscaled = new byte[input.readUnsignedByte()];
+        input.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed var-length number");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
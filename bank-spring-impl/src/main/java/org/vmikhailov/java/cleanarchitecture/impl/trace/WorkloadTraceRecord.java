@@ -0,0 +1,67 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * One recorded use-case call. Account ids are the ones of the recorded bank, replay maps them to its own accounts.
+ */
+@Getter
+public class WorkloadTraceRecord {
+    /*
+     * Time passed since the previous record (or since the recording start for the first one).
+     */
+    private final long delayNanos;
+    private final OperationType operationType;
+    /*
+     * 0 for multi-leg transfers.
+     */
+    private final long accountA;
+    /*
+     * 0 for single account operations and multi-leg transfers.
+     */
+    private final long accountB;
+    /*
+     * Total of the legs for multi-leg transfers.
+     */
+    private final BigDecimal amount;
+    /*
+     * Transfers of a multi-leg transfer, empty for the other operations.
+     */
+    private final List<Leg> legs;
+
+    public WorkloadTraceRecord(long delayNanos, OperationType operationType, long accountA, long accountB, BigDecimal amount) {
+        this.delayNanos = delayNanos;
+        this.operationType = operationType;
+        this.accountA = accountA;
+        this.accountB = accountB;
+        this.amount = amount;
+        this.legs = Collections.emptyList();
+    }
+
+    /**
+     * Multi-leg transfer.
+     */
+    public WorkloadTraceRecord(long delayNanos, List<Leg> legs) {
+        this.delayNanos = delayNanos;
+        this.operationType = OperationType.MULTI_TRANSFER;
+        this.accountA = 0;
+        this.accountB = 0;
+        this.amount = legs.stream().map(Leg::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.legs = Collections.unmodifiableList(new ArrayList<>(legs));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Leg {
+        private final long fromAccount;
+        private final long toAccount;
+        private final BigDecimal amount;
+    }
+}
@@ -0,0 +1,90 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+/*
+ * Trace of the balance changing calls - replenishments, withdrawals, transfers and multi-leg transfers, as they reach
+ * the transaction service. Reads, client registrations and account creation are not recorded, replay creates
+ * the accounts the records refer to itself.
+ *
+ * Binary trace format:
+ *  header - magic int and format version byte,
+ *  record - operation ordinal byte, delay nanos, account A, account B (all var-length longs) and amount,
+ *  multi-leg transfer record - operation ordinal byte, delay nanos, number of legs (var-length longs) and the legs:
+ *  from account, to account (var-length longs) and amount,
+ *  amount - scale (zigzag var-length long) and unscaled value bytes prefixed with their count.
+ *
+ * Version 2 added the multi-leg transfer records, version 1 traces are read as they are.
+ */
+public class WorkloadTraceWriter implements Closeable {
+    static final int MAGIC = 0x42_4E_4B_54;
+    static final byte VERSION = 2;
+
+    private final DataOutputStream output;
+
+    public WorkloadTraceWriter(OutputStream output) {
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+        try {
+            this.output.writeInt(MAGIC);
+            this.output.writeByte(VERSION);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public synchronized void write(WorkloadTraceRecord record) {
+        try {
+            output.writeByte(record.getOperationType().ordinal());
+            writeVarLong(record.getDelayNanos());
+            if (record.getOperationType() == OperationType.MULTI_TRANSFER) {
+                writeVarLong(record.getLegs().size());
+                for (WorkloadTraceRecord.Leg leg : record.getLegs()) {
+                    writeVarLong(leg.getFromAccount());
+                    writeVarLong(leg.getToAccount());
+                    writeAmount(leg.getAmount());
+                }
+                return;
+            }
+            writeVarLong(record.getAccountA());
+            writeVarLong(record.getAccountB());
+            writeAmount(record.getAmount());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeAmount(BigDecimal amount) throws IOException {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        if (unscaled.length > 0xFF) {
+            throw new IllegalArgumentException("amount is too big to be traced");
+        }
+        writeVarLong(zigZag(amount.scale()));
+        output.writeByte(unscaled.length);
+        output.write(unscaled);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
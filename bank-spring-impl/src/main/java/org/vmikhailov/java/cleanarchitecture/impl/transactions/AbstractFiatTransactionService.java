@@ -0,0 +1,431 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.LockOrdered;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WalRecord;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/*
+ * Common part of the fiat transaction services: arguments checks, transaction records and their states.
+ * Implementations decide how a business operation is turned into a command and which accounts have to be locked for it.
+ */
+abstract class AbstractFiatTransactionService implements FiatTransactionService {
+    protected final FiatTransactionDataAccess transactionDataAccess;
+    protected final FiatAccountDataAccess accountDataAccess;
+    private final AccountLockPolicy lockPolicy;
+    private WriteAheadLog writeAheadLog;
+    private volatile Throwable logFailure;
+    protected TransactionMetrics metrics = TransactionMetrics.NONE;
+
+    AbstractFiatTransactionService(FiatTransactionDataAccess transactionDataAccess,
+                                   FiatAccountDataAccess accountDataDataAccess,
+                                   AccountLockPolicy lockPolicy) {
+        this.transactionDataAccess = transactionDataAccess;
+        this.accountDataAccess = accountDataDataAccess;
+        this.lockPolicy = lockPolicy;
+    }
+
+    /**
+     * Committed transactions are appended to the log before they are reported as committed.
+     */
+    @Autowired(required = false)
+    public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * Commits, rollbacks and lock failures are counted from now on.
+     */
+    @Autowired(required = false)
+    public void setMetrics(TransactionMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Here should be some reasonable checks.
+     *
+     * @param money - money to check
+     */
+    static void checkMoney(FiatMoney money) {
+        if (money.getAmount() == null) {
+            throw new IllegalArgumentException();
+        }
+        if (money.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    static void checkCurrencyUniform(Currency currencyA, Currency currencyB) {
+        checkCurrencyUniform(currencyA, currencyB, null);
+    }
+
+    static void checkCurrencyUniform(Currency currencyA, Currency currencyB, Currency currencyC) {
+        if (!currencyA.isSame(currencyB) || (currencyC != null && !currencyA.isSame(currencyC))) {
+            throw new TransactionException("not working with different currency");
+        }
+    }
+
+    static Currency getCurrency(Account<Long, FiatMoney> account) {
+        AccountData<Long, FiatMoney> accountData = account.getAccountData();
+        if (accountData instanceof FixedPointAccountData) {
+            return ((FixedPointAccountData) accountData).getCurrency();
+        }
+        return accountData.getMoney().getCurrency();
+    }
+
+    static void sortAndLockAccounts(List<Account<Long, FiatMoney>> accounts) {
+        List<Account<Long, FiatMoney>> lockedAccounts = new ArrayList<>(accounts.size());
+        try {
+            accounts.stream().filter(Objects::nonNull).sorted(LockOrdered.ORDER).forEachOrdered(account -> {
+                account.lock();
+                lockedAccounts.add(account);
+            });
+        } catch (RuntimeException ex) {
+            lockedAccounts.forEach(Account::unlock);
+            throw ex;
+        }
+    }
+
+    static void unlockAccounts(List<Account<Long, FiatMoney>> accounts) {
+        accounts.stream().filter(Objects::nonNull).forEach(Account::unlock);
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> account, FiatMoney money, OperationType type) throws TransactionException {
+        checkMoney(money);
+        checkCurrencyUniform(getCurrency(account), money.getCurrency());
+        FiatTransactionCommand command = selectCommand(type, money, account, null);
+        return commandInvoker(command, new FiatTransactionData(account, null, money, type),
+                Collections.singletonList(account));
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> fromAccount,
+                                Account<Long, FiatMoney> toAccount,
+                                FiatMoney money, OperationType type) {
+        checkMoney(money);
+        checkCurrencyUniform(getCurrency(fromAccount), getCurrency(toAccount), money.getCurrency());
+        FiatTransactionCommand command = selectCommand(type, money, fromAccount, toAccount);
+        return commandInvoker(command, new FiatTransactionData(fromAccount, toAccount, money, type),
+                Arrays.asList(fromAccount, toAccount));
+    }
+
+    /*
+     * Legs are turned into the usual transfer commands of one sequential command, so a failed leg reverts all the
+     * applied ones. Every account is locked once, however many legs it takes part in.
+     */
+    @Override
+    public FiatTransaction make(List<TransferLeg<Long, FiatMoney>> legs) throws TransactionException {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        Currency currency = legs.get(0).getMoney().getCurrency();
+        BigDecimal total = BigDecimal.ZERO;
+        Map<Long, Account<Long, FiatMoney>> accounts = new LinkedHashMap<>();
+        FiatTransactionCommand[] commands = new FiatTransactionCommand[legs.size()];
+        for (int i = 0; i < commands.length; i++) {
+            TransferLeg<Long, FiatMoney> leg = legs.get(i);
+            FiatMoney money = leg.getMoney();
+            checkMoney(money);
+            checkCurrencyUniform(currency, getCurrency(leg.getFromAccount()), getCurrency(leg.getToAccount()));
+            checkCurrencyUniform(currency, money.getCurrency());
+            commands[i] = selectCommand(OperationType.TRANSFER, money, leg.getFromAccount(), leg.getToAccount());
+            accounts.putIfAbsent(leg.getFromAccount().getId(), leg.getFromAccount());
+            accounts.putIfAbsent(leg.getToAccount().getId(), leg.getToAccount());
+            total = total.add(money.getAmount());
+        }
+        return commandInvoker(new IndependentSequentialTransaction(commands),
+                new FiatTransactionData(new ArrayList<>(legs), new FiatMoney(currency, total)),
+                new ArrayList<>(accounts.values()));
+    }
+
+    /**
+     * Fixed point command if the accounts and the amount allow it, the implementation command otherwise.
+     */
+    final FiatTransactionCommand selectCommand(@NonNull OperationType operationType,
+                                               @NonNull FiatMoney money,
+                                               @NonNull Account<Long, FiatMoney> accountA,
+                                               Account<Long, FiatMoney> accountB) {
+        FiatTransactionCommand command = getFixedPointCommand(operationType, money, accountA, accountB);
+        return command != null ? command : getCommand(operationType, money, accountA, accountB);
+    }
+
+    /**
+     * Minor units command if all the accounts keep fixed point balances and amount is representable in minor units.
+     * FixedPointAccountData is the balance storage itself, so the balance is changed right there.
+     *
+     * @return command or {@code null} if operation can't be done in fixed point
+     */
+    private static FiatTransactionCommand getFixedPointCommand(@NonNull OperationType operationType,
+                                                               @NonNull FiatMoney money,
+                                                               @NonNull Account<Long, FiatMoney> accountA,
+                                                               Account<Long, FiatMoney> accountB) {
+        if (!(accountA.getAccountData() instanceof FixedPointAccountData)
+                || (accountB != null && !(accountB.getAccountData() instanceof FixedPointAccountData))
+                || !FixedPointMoney.isRepresentable(money)) {
+            return null;
+        }
+        FixedPointAccountData accountDataA = (FixedPointAccountData) accountA.getAccountData();
+        long minorUnits = FixedPointMoney.toMinorUnits(money.getAmount(), money.getCurrency());
+        switch (operationType) {
+            case REPLENISH:
+                return FixedPointFiatTransactionCommand.add(accountDataA, minorUnits);
+            case WITHDRAW:
+                return FixedPointFiatTransactionCommand.subtract(accountDataA, minorUnits);
+            case TRANSFER:
+                Objects.requireNonNull(accountB);
+                return new IndependentSequentialTransaction(
+                        FixedPointFiatTransactionCommand.subtract(accountDataA, minorUnits),
+                        FixedPointFiatTransactionCommand.add((FixedPointAccountData) accountB.getAccountData(), minorUnits));
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    protected abstract FiatTransactionCommand getCommand(@NonNull OperationType operationType,
+                                                         @NonNull FiatMoney money,
+                                                         @NonNull Account<Long, FiatMoney> accountA,
+                                                         Account<Long, FiatMoney> accountB);
+
+    /**
+     * Locks accounts the command is going to change, should release all taken locks if it fails.
+     *
+     * @param accounts distinct accounts of the operation, the first one is the only account of single account operations
+     */
+    protected abstract void acquireAccounts(@NonNull List<Account<Long, FiatMoney>> accounts);
+
+    protected abstract void releaseAccounts(@NonNull List<Account<Long, FiatMoney>> accounts);
+
+    /**
+     * Called once the command is executed and logged, while the accounts are still held. Called with the
+     * compensations of a transaction whose record failed as well, see {@link #compensate}. Does nothing by default.
+     */
+    protected void committed(@NonNull FiatTransactionData transactionData) {
+    }
+
+    /**
+     * Appends the executed transaction to the write-ahead log, if there is one. Called while the accounts of the
+     * transaction are still held, so the log order of the records of an account is the order they were applied in.
+     *
+     * @return future completed once the record is durable, {@code null} if there is no log
+     * @throws TransactionException if the record can't be appended, the transaction has to be rolled back then
+     */
+    final CompletableFuture<Void> appendToLog(FiatTransaction transaction) {
+        if (writeAheadLog == null) {
+            return null;
+        }
+        try {
+            return writeAheadLog.append(WalRecord.of(transaction));
+        } catch (IllegalStateException ex) {
+            logFailed(ex);
+            throw new TransactionException(ex);
+        }
+    }
+
+    /**
+     * Once a record fails the balances published meanwhile may depend on it, the service stops taking new
+     * transactions - like the log itself stops taking new records.
+     */
+    final void logFailed(Throwable cause) {
+        if (logFailure == null) {
+            logFailure = cause;
+        }
+    }
+
+    final void checkLog() {
+        Throwable failure = logFailure;
+        if (failure != null) {
+            throw new TransactionException("write-ahead log has failed", failure);
+        }
+    }
+
+    /**
+     * Settles the executed transaction once its record is durable. Called while the accounts are still held, right
+     * after the balances are published - the caller waits for the returned future once the accounts are released,
+     * so other transactions of the accounts don't wait for the record too.
+     *
+     * @param rollback     rolls the transaction back, for implementations which settle the transaction themselves
+     * @param compensation reverts the transaction after its accounts are released, runs if the record fails
+     * @return future completed once the transaction is settled, {@code null} if the implementation settles it
+     */
+    protected CompletableFuture<Void> whenDurable(CompletableFuture<Void> durable, Runnable rollback,
+                                                  Consumer<Throwable> compensation) {
+        return durable.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                compensation.accept(ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+        });
+    }
+
+    private FiatTransaction commandInvoker(@NonNull FiatTransactionCommand command,
+                                           @NonNull FiatTransactionData transactionData,
+                                           @NonNull List<Account<Long, FiatMoney>> accounts) {
+        checkLog();
+        FiatTransaction transaction = transactionDataAccess.create(transactionData);
+        OperationType operationType = transactionData.getOperationType();
+        AccountLockPolicy.CallScope scope = lockPolicy.startCall();
+        try {
+            acquireAccounts(accounts);
+        } catch (LockedException ex) {
+            metrics.lockFailed(operationType);
+            throw ex;
+        } finally {
+            scope.close();
+        }
+        long locked = metrics == TransactionMetrics.NONE ? 0 : System.nanoTime();
+        CompletableFuture<Void> settled = null;
+        boolean completed;
+        try {
+            command.execute();
+            CompletableFuture<Void> durable = appendToLog(transaction);
+            accountDataAccess.committed(accounts);
+            committed(transactionData);
+            completed = durable == null;
+            if (!completed) {
+                settled = whenDurable(durable, () -> rollback(command, transaction, operationType, accounts),
+                        cause -> compensate(transaction, transactionData, accounts, cause));
+            }
+        } catch (AccountException | TransactionException | CommandException ex) {
+            rollback(command, transaction, operationType, accounts);
+            throw new TransactionException(ex);
+        } finally {
+            releaseAccounts(accounts);
+        }
+        if (settled != null) {
+            try {
+                settled.join();
+            } catch (CompletionException ex) {
+                throw new TransactionException(ex.getCause());
+            }
+            completed = true;
+        }
+        if (completed) {
+            transactionDataAccess.updateTransactionState(transaction.getId(), TransactionState.COMMITTED);
+        }
+        metrics.committed(operationType, locked == 0 ? 0 : System.nanoTime() - locked);
+        return transaction;
+    }
+
+    private void rollback(FiatTransactionCommand command, FiatTransaction transaction, OperationType operationType,
+                          List<Account<Long, FiatMoney>> accounts) {
+        command.rollback();
+        // balances committed by others meanwhile may have been skipped
+        accountDataAccess.committed(accounts);
+        transactionDataAccess.updateTransactionState(transaction.getId(), TransactionState.ROLLBACKED);
+        metrics.rolledBack(operationType);
+    }
+
+    /*
+     * Reverts a transaction whose record failed after its accounts were released. Other transactions may have
+     * changed the balances meanwhile, so the balances seen before the execution can't be restored - every balance
+     * change is reverted by a replenishment of the negated amount, never checked for overdraft. The log fails
+     * the records following a failed one too, newest first, so the transactions which spent the money of this one
+     * are reverted before it.
+     */
+    private void compensate(FiatTransaction transaction, FiatTransactionData transactionData,
+                            List<Account<Long, FiatMoney>> accounts, Throwable cause) {
+        logFailed(cause);
+        List<FiatTransactionData> compensations = compensations(transactionData);
+        FiatTransactionCommand[] commands = new FiatTransactionCommand[compensations.size()];
+        for (int i = 0; i < commands.length; i++) {
+            FiatTransactionData compensation = compensations.get(i);
+            commands[i] = selectCommand(OperationType.REPLENISH, compensation.getAmount(),
+                    compensation.getAccountA().orElseThrow(IllegalStateException::new), null);
+        }
+        holdAccounts(accounts);
+        try {
+            new IndependentSequentialTransaction(commands).execute();
+            accountDataAccess.committed(accounts);
+            compensations.forEach(this::committed);
+        } finally {
+            releaseAccounts(accounts);
+        }
+        transactionDataAccess.updateTransactionState(transaction.getId(), TransactionState.ROLLBACKED);
+        metrics.rolledBack(transactionData.getOperationType());
+    }
+
+    /*
+     * Balance changes of the transaction negated, as replenishments of its accounts.
+     */
+    private static List<FiatTransactionData> compensations(FiatTransactionData transactionData) {
+        List<FiatTransactionData> compensations = new ArrayList<>();
+        FiatMoney amount = transactionData.getAmount();
+        Account<Long, FiatMoney> accountA = transactionData.getAccountA().orElse(null);
+        switch (transactionData.getOperationType()) {
+            case REPLENISH:
+                compensations.add(replenishment(accountA, amount, true));
+                break;
+            case WITHDRAW:
+                compensations.add(replenishment(accountA, amount, false));
+                break;
+            case TRANSFER:
+                compensations.add(replenishment(transactionData.getAccountB().orElse(null), amount, true));
+                compensations.add(replenishment(accountA, amount, false));
+                break;
+            case MULTI_TRANSFER:
+                List<TransferLeg<Long, FiatMoney>> legs = transactionData.getLegs();
+                for (int i = legs.size() - 1; i >= 0; i--) {
+                    TransferLeg<Long, FiatMoney> leg = legs.get(i);
+                    compensations.add(replenishment(leg.getToAccount(), leg.getMoney(), true));
+                    compensations.add(replenishment(leg.getFromAccount(), leg.getMoney(), false));
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException();
+        }
+        return compensations;
+    }
+
+    private static FiatTransactionData replenishment(Account<Long, FiatMoney> account, FiatMoney money, boolean negated) {
+        Objects.requireNonNull(account);
+        FiatMoney amount = negated ? new FiatMoney(money.getCurrency(), money.getAmount().negate()) : money;
+        return new FiatTransactionData(account, null, amount, OperationType.REPLENISH);
+    }
+
+    /*
+     * Waits for the accounts whatever the lock policy is - the compensation can't be given up.
+     */
+    private void holdAccounts(List<Account<Long, FiatMoney>> accounts) {
+        while (true) {
+            AccountLockPolicy.CallScope scope = lockPolicy.startCall();
+            try {
+                acquireAccounts(accounts);
+                return;
+            } catch (LockedException ex) {
+                Thread.yield();
+            } finally {
+                scope.close();
+            }
+        }
+    }
+}
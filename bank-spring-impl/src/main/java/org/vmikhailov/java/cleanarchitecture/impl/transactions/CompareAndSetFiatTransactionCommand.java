@@ -0,0 +1,67 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+/*
+ * Changes account money with a compare-and-set retry loop, without locking the account.
+ * As other commands can change the same money meanwhile, rollback applies the inverse operation
+ * instead of restoring the state seen before execution.
+ */
+class CompareAndSetFiatTransactionCommand implements FiatTransactionCommand {
+    private final AccountData<Long, FiatMoney> accountData;
+    private final UnaryOperator<BigDecimal> operator;
+    private final UnaryOperator<BigDecimal> inverseOperator;
+
+    private final AtomicBoolean canRevert = new AtomicBoolean(false);
+
+    private CompareAndSetFiatTransactionCommand(AccountData<Long, FiatMoney> accountData,
+                                                UnaryOperator<BigDecimal> operator,
+                                                UnaryOperator<BigDecimal> inverseOperator) {
+        this.accountData = accountData;
+        this.operator = operator;
+        this.inverseOperator = inverseOperator;
+    }
+
+    static CompareAndSetFiatTransactionCommand add(AccountData<Long, FiatMoney> accountData, BigDecimal amount) {
+        return new CompareAndSetFiatTransactionCommand(accountData, augend -> augend.add(amount), initial -> initial.subtract(amount));
+    }
+
+    static CompareAndSetFiatTransactionCommand subtract(AccountData<Long, FiatMoney> accountData, BigDecimal amount) {
+        return new CompareAndSetFiatTransactionCommand(accountData,
+                initial -> SubtractAbstractIndependentFiatTransactionCommand.subtractWithoutOverdraft(initial, amount),
+                augend -> augend.add(amount));
+    }
+
+    @Override
+    public void execute() {
+        try {
+            apply(operator);
+            canRevert.set(true);
+        } catch (CommandException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new CommandException(ex);
+        }
+    }
+
+    @Override
+    public void rollback() {
+        if (canRevert.compareAndSet(true, false)) {
+            apply(inverseOperator);
+        }
+    }
+
+    private void apply(UnaryOperator<BigDecimal> amountOperator) {
+        FiatMoney currentMoney;
+        FiatMoney newMoney;
+        do {
+            currentMoney = accountData.getMoney();
+            newMoney = new FiatMoney(currentMoney.getCurrency(), amountOperator.apply(currentMoney.getAmount()));
+        } while (!accountData.compareAndSetMoney(currentMoney, newMoney));
+    }
+}
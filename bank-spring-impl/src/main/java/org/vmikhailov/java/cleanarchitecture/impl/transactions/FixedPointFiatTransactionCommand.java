@@ -0,0 +1,66 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongUnaryOperator;
+
+/*
+ * Compare-and-set change of the FixedPointAccountData balance in minor units - no allocations on the way.
+ * Under account locks compare-and-set always succeeds at the first attempt, so the command fits both transaction services.
+ */
+class FixedPointFiatTransactionCommand implements FiatTransactionCommand {
+    private final FixedPointAccountData accountData;
+    private final LongUnaryOperator operator;
+    private final LongUnaryOperator inverseOperator;
+
+    private final AtomicBoolean canRevert = new AtomicBoolean(false);
+
+    private FixedPointFiatTransactionCommand(FixedPointAccountData accountData,
+                                             LongUnaryOperator operator,
+                                             LongUnaryOperator inverseOperator) {
+        this.accountData = accountData;
+        this.operator = operator;
+        this.inverseOperator = inverseOperator;
+    }
+
+    static FixedPointFiatTransactionCommand add(FixedPointAccountData accountData, long minorUnits) {
+        return new FixedPointFiatTransactionCommand(accountData,
+                augend -> Math.addExact(augend, minorUnits),
+                initial -> Math.subtractExact(initial, minorUnits));
+    }
+
+    static FixedPointFiatTransactionCommand subtract(FixedPointAccountData accountData, long minorUnits) {
+        return new FixedPointFiatTransactionCommand(accountData,
+                initial -> SubtractAbstractIndependentFiatTransactionCommand.subtractWithoutOverdraft(initial, minorUnits),
+                augend -> Math.addExact(augend, minorUnits));
+    }
+
+    @Override
+    public void execute() {
+        try {
+            apply(operator);
+            canRevert.set(true);
+        } catch (CommandException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new CommandException(ex);
+        }
+    }
+
+    @Override
+    public void rollback() {
+        if (canRevert.compareAndSet(true, false)) {
+            apply(inverseOperator);
+        }
+    }
+
+    private void apply(LongUnaryOperator minorUnitsOperator) {
+        long currentMinorUnits;
+        long newMinorUnits;
+        do {
+            currentMinorUnits = accountData.getMinorUnits();
+            newMinorUnits = minorUnitsOperator.applyAsLong(currentMinorUnits);
+        } while (!accountData.compareAndSetMinorUnits(currentMinorUnits, newMinorUnits));
+    }
+}
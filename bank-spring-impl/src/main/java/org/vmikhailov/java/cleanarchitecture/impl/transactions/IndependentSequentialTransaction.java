@@ -26,9 +26,14 @@ class IndependentSequentialTransaction implements FiatTransactionCommand {
             currentCommand = null;
         } catch (Exception ex) {
             rollback();
+            throw new CommandException(ex);
         }
     }
 
+    /*
+     * Reverted backwards - commands restoring the state captured before them (lock based ones) have to be undone
+     * in reverse order when several of them change the same account.
+     */
     @Override
     public void rollback() {
         List<FiatTransactionCommand> revertingCommands;
@@ -37,6 +42,8 @@ class IndependentSequentialTransaction implements FiatTransactionCommand {
         } else {
             revertingCommands = subCommands;
         }
-        revertingCommands.forEach(FiatTransactionCommand::rollback);
+        for (int i = revertingCommands.size() - 1; i >= 0; i--) {
+            revertingCommands.get(i).rollback();
+        }
     }
 }
@@ -0,0 +1,71 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import lombok.NonNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Alternative to the LockBasedFiatTransactionService, enabled by bank.transactions.service=lock-free.
+ *
+ * Single account operations are a compare-and-set of the account money, they never lock the account.
+ * Transfers still lock both accounts in lock order - it keeps transfers between each other consistent,
+ * while both legs are applied with compare-and-set as single account operations can run concurrently.
+ *
+ * Money is changed right in the account data handed out by the account gateway, so the service relies on
+ * gateways keeping live account data - like the in-memory one does.
+ */
+@Service
+@ConditionalOnProperty(name = "bank.transactions.service", havingValue = "lock-free")
+public class LockFreeFiatTransactionService extends AbstractFiatTransactionService {
+
+    public LockFreeFiatTransactionService(FiatTransactionDataAccess transactionDataAccess,
+                                          FiatAccountDataAccess accountDataDataAccess,
+                                          AccountLockPolicy lockPolicy) {
+        super(transactionDataAccess, accountDataDataAccess, lockPolicy);
+    }
+
+    @Override
+    protected FiatTransactionCommand getCommand(@NonNull OperationType operationType,
+                                                @NonNull FiatMoney money,
+                                                @NonNull Account<Long, FiatMoney> accountA,
+                                                Account<Long, FiatMoney> accountB) {
+        BigDecimal amount = money.getAmount();
+        switch (operationType) {
+            case REPLENISH:
+                return CompareAndSetFiatTransactionCommand.add(accountA.getAccountData(), amount);
+            case WITHDRAW:
+                return CompareAndSetFiatTransactionCommand.subtract(accountA.getAccountData(), amount);
+            case TRANSFER:
+                Objects.requireNonNull(accountB);
+                return new IndependentSequentialTransaction(
+                        CompareAndSetFiatTransactionCommand.subtract(accountA.getAccountData(), amount),
+                        CompareAndSetFiatTransactionCommand.add(accountB.getAccountData(), amount));
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    protected void acquireAccounts(@NonNull List<Account<Long, FiatMoney>> accounts) {
+        if (accounts.size() > 1) {
+            sortAndLockAccounts(accounts);
+        }
+    }
+
+    @Override
+    protected void releaseAccounts(@NonNull List<Account<Long, FiatMoney>> accounts) {
+        if (accounts.size() > 1) {
+            unlockAccounts(accounts);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bounded multi-producer single-consumer queue of partition tasks over pre-allocated slots.
+ *
+ * Every slot has a sequence: equal to the claimed position - the slot is free for the producer of that position,
+ * one ahead of it - the slot is filled for the consumer. Producers claim positions with a CAS of the tail,
+ * the consumer is the partition thread only, so the head is a plain field.
+ */
+class PartitionRingBuffer {
+    private final Runnable[] tasks;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    PartitionRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity should be a power of two: " + capacity);
+        }
+        this.tasks = new Runnable[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    boolean offer(Runnable task) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    tasks[index] = task;
+                    // volatile write - the partition thread re-checks the buffer after announcing it is going to park
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Partition thread only.
+     *
+     * @return next task or {@code null} if the buffer is empty
+     */
+    Runnable poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Runnable task = tasks[index];
+        tasks[index] = null;
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return task;
+    }
+}
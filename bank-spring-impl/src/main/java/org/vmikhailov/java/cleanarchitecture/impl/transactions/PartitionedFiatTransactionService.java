@@ -0,0 +1,351 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLockPolicy;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+ * Engine mode, enabled by bank.transactions.service=partitioned.
+ *
+ * Accounts are partitioned by id over bank.engine.partitions single writer threads (all the cores by default),
+ * every operation runs on the thread owning its accounts, so balances are changed without account locks.
+ * make(...) submits the operation and waits for it, submit(...) returns the future right away.
+ *
+ * Transfers between partitions are done in two steps: the source partition withdraws the money and hands the
+ * transaction off to the destination partition, which replenishes the account and commits the transaction.
+ * If the second step fails the money is handed back to the source partition. In between the money is in flight -
+ * it is on none of the accounts.
+ *
+ * Multi-leg transfers spanning several partitions park all of them and run on the calling thread.
+ *
+ * With a write-ahead log partition threads don't wait for the fsync - the partition goes on with the next operation
+ * meanwhile. An operation is marked committed and its future is completed once its record is durable, an operation
+ * whose record fails is rolled back on its partition. Operations executed after it may have spent its money, so
+ * once a record fails no new operations are taken.
+ */
+@Service
+@ConditionalOnProperty(name = "bank.transactions.service", havingValue = "partitioned")
+public class PartitionedFiatTransactionService extends AbstractFiatTransactionService {
+    private final PartitionedTransactionEngine engine;
+    private final ThreadLocal<PendingCommit> pendingCommit = new ThreadLocal<>();
+
+    public PartitionedFiatTransactionService(FiatTransactionDataAccess transactionDataAccess,
+                                             FiatAccountDataAccess accountDataDataAccess,
+                                             AccountLockPolicy lockPolicy,
+                                             @Value("${bank.engine.partitions:0}") int partitions,
+                                             @Value("${bank.engine.ring-size:1024}") int ringSize) {
+        super(transactionDataAccess, accountDataDataAccess, lockPolicy);
+        this.engine = new PartitionedTransactionEngine(
+                partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors(), ringSize);
+    }
+
+    @PreDestroy
+    public void close() {
+        engine.close();
+    }
+
+    public int getPartitions() {
+        return engine.getPartitions();
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> account, FiatMoney money, OperationType type) throws TransactionException {
+        return await(submit(account, money, type));
+    }
+
+    @Override
+    public FiatTransaction make(Account<Long, FiatMoney> fromAccount, Account<Long, FiatMoney> toAccount,
+                                FiatMoney money, OperationType type) {
+        return await(submit(fromAccount, toAccount, money, type));
+    }
+
+    @Override
+    public FiatTransaction make(List<TransferLeg<Long, FiatMoney>> legs) throws TransactionException {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        int[] legPartitions = legs.stream()
+                .flatMap(leg -> Stream.of(leg.getFromAccount(), leg.getToAccount()))
+                .mapToInt(account -> engine.partitionOf(account.getId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        if (legPartitions.length == 1) {
+            return await(submitDurable(legPartitions[0], () -> super.make(legs)));
+        }
+        FiatTransaction transaction;
+        PendingCommit pending;
+        try {
+            transaction = engine.exclusively(legPartitions, () -> super.make(legs));
+        } finally {
+            pending = pendingCommit.get();
+            pendingCommit.remove();
+        }
+        if (pending != null) {
+            try {
+                pending.durable.join();
+            } catch (CompletionException ex) {
+                logFailed(ex.getCause());
+                engine.exclusively(legPartitions, () -> {
+                    pending.rollback.run();
+                    return null;
+                });
+                throw new TransactionException(ex.getCause());
+            }
+            markCommitted(transaction);
+        }
+        return transaction;
+    }
+
+    public CompletableFuture<FiatTransaction> submit(@NonNull Account<Long, FiatMoney> account,
+                                                     @NonNull FiatMoney money,
+                                                     @NonNull OperationType type) {
+        return submitDurable(engine.partitionOf(account.getId()), () -> super.make(account, money, type));
+    }
+
+    public CompletableFuture<FiatTransaction> submit(@NonNull Account<Long, FiatMoney> fromAccount,
+                                                     @NonNull Account<Long, FiatMoney> toAccount,
+                                                     @NonNull FiatMoney money,
+                                                     @NonNull OperationType type) {
+        int fromPartition = engine.partitionOf(fromAccount.getId());
+        int toPartition = engine.partitionOf(toAccount.getId());
+        if (fromPartition == toPartition || type != OperationType.TRANSFER) {
+            return submitDurable(fromPartition, () -> super.make(fromAccount, toAccount, money, type));
+        }
+        CompletableFuture<FiatTransaction> result = new CompletableFuture<>();
+        try {
+            checkLog();
+            checkMoney(money);
+            checkCurrencyUniform(getCurrency(fromAccount), getCurrency(toAccount), money.getCurrency());
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+        engine.execute(fromPartition, () -> withdraw(fromAccount, toAccount, money, fromPartition, toPartition, result));
+        return result;
+    }
+
+    /*
+     * Operation runs on the partition thread, its future is completed when the operation is durable.
+     */
+    private CompletableFuture<FiatTransaction> submitDurable(int partition, Supplier<FiatTransaction> operation) {
+        CompletableFuture<FiatTransaction> result = new CompletableFuture<>();
+        engine.execute(partition, () -> {
+            FiatTransaction transaction;
+            PendingCommit pending;
+            try {
+                transaction = operation.get();
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+                return;
+            } finally {
+                pending = pendingCommit.get();
+                pendingCommit.remove();
+            }
+            if (pending == null) {
+                result.complete(transaction);
+                return;
+            }
+            completeWhenDurable(pending.durable, transaction, result, cause -> engine.handOff(partition, () -> {
+                try {
+                    pending.rollback.run();
+                } finally {
+                    result.completeExceptionally(new TransactionException(cause));
+                }
+            }));
+        });
+        return result;
+    }
+
+    /*
+     * Partition threads and the exclusive callers leave the record to the caller instead of waiting for it.
+     * The commands of the service revert with the inverse operation, so the rollback is safe after other
+     * operations of the partition.
+     */
+    @Override
+    protected CompletableFuture<Void> whenDurable(CompletableFuture<Void> durable, Runnable rollback,
+                                                  Consumer<Throwable> compensation) {
+        pendingCommit.set(new PendingCommit(durable, rollback));
+        return null;
+    }
+
+    /*
+     * Runs on the thread completing the record, a failed one is passed to the rollback, which completes the future.
+     * The log fails the records following a failed one too, newest first, and a partition runs the rollbacks handed
+     * off to it in that order - operations which spent the money of a failed one are rolled back before it.
+     */
+    private void completeWhenDurable(CompletableFuture<Void> durable, FiatTransaction transaction,
+                                     CompletableFuture<FiatTransaction> result, Consumer<Throwable> rollback) {
+        durable.whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                try {
+                    markCommitted(transaction);
+                } finally {
+                    result.complete(transaction);
+                }
+            } else {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                logFailed(cause);
+                rollback.accept(cause);
+            }
+        });
+    }
+
+    private void markCommitted(FiatTransaction transaction) {
+        transactionDataAccess.updateTransactionState(transaction.getId(), TransactionState.COMMITTED);
+    }
+
+    @Override
+    protected FiatTransactionCommand getCommand(@NonNull OperationType operationType,
+                                                @NonNull FiatMoney money,
+                                                @NonNull Account<Long, FiatMoney> accountA,
+                                                Account<Long, FiatMoney> accountB) {
+        BigDecimal amount = money.getAmount();
+        switch (operationType) {
+            case REPLENISH:
+                return CompareAndSetFiatTransactionCommand.add(accountA.getAccountData(), amount);
+            case WITHDRAW:
+                return CompareAndSetFiatTransactionCommand.subtract(accountA.getAccountData(), amount);
+            case TRANSFER:
+                Objects.requireNonNull(accountB);
+                return new IndependentSequentialTransaction(
+                        CompareAndSetFiatTransactionCommand.subtract(accountA.getAccountData(), amount),
+                        CompareAndSetFiatTransactionCommand.add(accountB.getAccountData(), amount));
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    /*
+     * Accounts are owned by the partition thread (or by the caller of an exclusive run) - nothing to lock.
+     */
+    @Override
+    protected void acquireAccounts(@NonNull List<Account<Long, FiatMoney>> accounts) {
+    }
+
+    @Override
+    protected void releaseAccounts(@NonNull List<Account<Long, FiatMoney>> accounts) {
+    }
+
+    /*
+     * First step of a cross-partition transfer, on the source partition.
+     */
+    private void withdraw(Account<Long, FiatMoney> fromAccount, Account<Long, FiatMoney> toAccount, FiatMoney money,
+                          int fromPartition, int toPartition, CompletableFuture<FiatTransaction> result) {
+        FiatTransaction transaction;
+        try {
+            transaction = transactionDataAccess.create(new FiatTransactionData(fromAccount, toAccount, money, OperationType.TRANSFER));
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+            return;
+        }
+        FiatTransactionCommand withdrawal = selectCommand(OperationType.WITHDRAW, money, fromAccount, null);
+        try {
+            withdrawal.execute();
+        } catch (RuntimeException ex) {
+            withdrawal.rollback();
+            rollbacked(transaction, ex, result);
+            return;
+        }
+        engine.handOff(toPartition, () -> replenish(transaction, withdrawal, fromAccount, toAccount, money,
+                fromPartition, toPartition, result));
+    }
+
+    /*
+     * Second step of a cross-partition transfer, on the destination partition.
+     */
+    private void replenish(FiatTransaction transaction, FiatTransactionCommand withdrawal,
+                           Account<Long, FiatMoney> fromAccount, Account<Long, FiatMoney> toAccount, FiatMoney money,
+                           int fromPartition, int toPartition, CompletableFuture<FiatTransaction> result) {
+        FiatTransactionCommand replenishment = selectCommand(OperationType.REPLENISH, money, toAccount, null);
+        CompletableFuture<Void> durable;
+        try {
+            replenishment.execute();
+            checkLog();
+            durable = appendToLog(transaction);
+            // both sides in one version - the withdrawal is already applied by the source partition
+            accountDataAccess.committed(Arrays.asList(fromAccount, toAccount));
+        } catch (RuntimeException ex) {
+            handBack(transaction, withdrawal, replenishment, fromAccount, toAccount, fromPartition, ex, result);
+            return;
+        }
+        metrics.committed(OperationType.TRANSFER, 0);
+        if (durable == null) {
+            markCommitted(transaction);
+            result.complete(transaction);
+            return;
+        }
+        completeWhenDurable(durable, transaction, result, cause -> engine.handOff(toPartition, () ->
+                handBack(transaction, withdrawal, replenishment, fromAccount, toAccount, fromPartition, cause, result)));
+    }
+
+    /*
+     * Rolls the second step back on the destination partition and hands the money back to the source partition.
+     */
+    private void handBack(FiatTransaction transaction, FiatTransactionCommand withdrawal,
+                          FiatTransactionCommand replenishment, Account<Long, FiatMoney> fromAccount,
+                          Account<Long, FiatMoney> toAccount, int fromPartition, Throwable cause,
+                          CompletableFuture<FiatTransaction> result) {
+        replenishment.rollback();
+        accountDataAccess.committed(Collections.singletonList(toAccount));
+        engine.handOff(fromPartition, () -> {
+            withdrawal.rollback();
+            accountDataAccess.committed(Collections.singletonList(fromAccount));
+            rollbacked(transaction, cause, result);
+        });
+    }
+
+    private void rollbacked(FiatTransaction transaction, Throwable cause, CompletableFuture<FiatTransaction> result) {
+        try {
+            transactionDataAccess.updateTransactionState(transaction.getId(), TransactionState.ROLLBACKED);
+            metrics.rolledBack(OperationType.TRANSFER);
+        } finally {
+            result.completeExceptionally(new TransactionException(cause));
+        }
+    }
+
+    private static class PendingCommit {
+        final CompletableFuture<Void> durable;
+        final Runnable rollback;
+
+        PendingCommit(CompletableFuture<Void> durable, Runnable rollback) {
+            this.durable = durable;
+            this.rollback = rollback;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
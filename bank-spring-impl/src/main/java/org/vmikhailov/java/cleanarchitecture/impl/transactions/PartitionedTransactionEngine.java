@@ -0,0 +1,205 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ * Accounts are partitioned by id over single writer threads - a partition thread is the only one changing
+ * balances of its accounts, so it needs no account locks.
+ *
+ * Calls are submitted into the bounded ring buffer of the partition, a full buffer makes the caller wait.
+ * Partitions hand steps of cross-partition operations to each other through an unbounded hand-off queue
+ * instead - a partition thread never waits for another one, so partitions can't deadlock.
+ */
+@Slf4j
+class PartitionedTransactionEngine implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Partition[] partitions;
+    private final Lock exclusiveLock = new ReentrantLock();
+    private volatile boolean running = true;
+
+    PartitionedTransactionEngine(int partitions, int ringSize) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition(i, ringSize);
+        }
+        for (Partition partition : this.partitions) {
+            partition.thread.start();
+        }
+    }
+
+    int getPartitions() {
+        return partitions.length;
+    }
+
+    int partitionOf(long accountId) {
+        return (int) Math.floorMod(accountId, (long) partitions.length);
+    }
+
+    /**
+     * Runs the task on the partition thread, waits while the partition buffer is full.
+     */
+    <T> CompletableFuture<T> submit(int partition, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(partition, () -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the task on the partition thread, waits while the partition buffer is full.
+     * The task is responsible for reporting its own failures.
+     */
+    void execute(int partition, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("engine is closed");
+        }
+        Partition target = partitions[partition];
+        long backoffNanos = 1_000;
+        while (!target.buffer.offer(task)) {
+            LockSupport.parkNanos(backoffNanos);
+            backoffNanos = Math.min(backoffNanos << 1, IDLE_PARK_NANOS);
+        }
+        target.wakeUp();
+    }
+
+    /**
+     * Next step of an operation for another partition, never waits - it is how partition threads talk to each other.
+     */
+    void handOff(int partition, Runnable task) {
+        Partition target = partitions[partition];
+        target.handOffs.add(task);
+        target.wakeUp();
+    }
+
+    /**
+     * Runs the task on the calling thread while all the given partitions are parked - their accounts are
+     * owned by the caller for the time of the task. Exclusive runs are serialized, so two of them can't wait
+     * for partitions parked by each other.
+     */
+    <T> T exclusively(int[] partitionIndexes, Supplier<T> task) {
+        exclusiveLock.lock();
+        try {
+            CountDownLatch parked = new CountDownLatch(partitionIndexes.length);
+            CountDownLatch released = new CountDownLatch(1);
+            for (int partition : partitionIndexes) {
+                execute(partition, () -> {
+                    parked.countDown();
+                    awaitUninterruptibly(released);
+                });
+            }
+            awaitUninterruptibly(parked);
+            try {
+                return task.get();
+            } finally {
+                released.countDown();
+            }
+        } finally {
+            exclusiveLock.unlock();
+        }
+    }
+
+    /**
+     * Stops partitions after they drain their queues.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.thread);
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Partition {
+        final PartitionRingBuffer buffer;
+        final Queue<Runnable> handOffs = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+        volatile boolean parking;
+
+        Partition(int index, int ringSize) {
+            this.buffer = new PartitionRingBuffer(ringSize);
+            this.thread = new Thread(this::run, "bank-partition-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void wakeUp() {
+            if (parking) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /*
+         * Hand-offs go first - they finish operations already started by other partitions.
+         */
+        private Runnable next() {
+            Runnable task = handOffs.poll();
+            return task != null ? task : buffer.poll();
+        }
+
+        private void run() {
+            while (true) {
+                Runnable task = next();
+                if (task == null) {
+                    if (!running) {
+                        return;
+                    }
+                    parking = true;
+                    task = next();
+                    if (task == null) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    parking = false;
+                    if (task == null) {
+                        continue;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    log.error("partition task failed", ex);
+                }
+            }
+        }
+    }
+}
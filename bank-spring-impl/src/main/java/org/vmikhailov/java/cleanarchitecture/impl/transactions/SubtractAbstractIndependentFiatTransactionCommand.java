@@ -23,6 +23,10 @@ class SubtractAbstractIndependentFiatTransactionCommand extends AbstractIndepend
     }
 
     private BigDecimal subtractOperation(BigDecimal initialAmount) {
+        return subtractWithoutOverdraft(initialAmount, subtrahendAmount);
+    }
+
+    static BigDecimal subtractWithoutOverdraft(BigDecimal initialAmount, BigDecimal subtrahendAmount) {
         if (initialAmount == null) {
             throw new CommandException("initial amount is empty");
         }
@@ -31,4 +35,11 @@ class SubtractAbstractIndependentFiatTransactionCommand extends AbstractIndepend
         }
         return initialAmount.subtract(subtrahendAmount);
     }
+
+    static long subtractWithoutOverdraft(long initialMinorUnits, long subtrahendMinorUnits) {
+        if (initialMinorUnits < subtrahendMinorUnits) {
+            throw new CommandException(format("initial amount:%s less then required amount:%s", initialMinorUnits, subtrahendMinorUnits));
+        }
+        return Math.subtractExact(initialMinorUnits, subtrahendMinorUnits);
+    }
 }
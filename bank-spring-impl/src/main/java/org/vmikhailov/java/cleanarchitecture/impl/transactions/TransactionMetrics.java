@@ -0,0 +1,38 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+/*
+ * Outcomes of the transactions made by the fiat transaction services. Called while the accounts
+ * of a transaction may still be held - implementations should only update counters.
+ */
+public interface TransactionMetrics {
+    /**
+     * No metrics - the lock hold time is not even measured.
+     */
+    TransactionMetrics NONE = new TransactionMetrics() {
+        @Override
+        public void committed(OperationType operationType, long lockedNanos) {
+        }
+
+        @Override
+        public void rolledBack(OperationType operationType) {
+        }
+
+        @Override
+        public void lockFailed(OperationType operationType) {
+        }
+    };
+
+    /**
+     * @param lockedNanos time the accounts of the transaction were held, 0 if the service doesn't lock them
+     */
+    void committed(OperationType operationType, long lockedNanos);
+
+    void rolledBack(OperationType operationType);
+
+    /**
+     * The accounts of the transaction couldn't be locked - it failed with a LockedException and was never executed.
+     */
+    void lockFailed(OperationType operationType);
+}
@@ -0,0 +1,67 @@
+package org.vmikhailov.java.cleanarchitecture.impl.usecases;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Asynchronous use cases - bank.async.executor=platform (default) runs the calls on a bounded pool of
+ * bank.async.threads threads, bank.async.executor=virtual on a virtual thread per call when the application
+ * runs on java 21+. bank.async.timeout is the timeout of a call unless the caller sets its own.
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncUseCasesProperties.class)
+public class AsyncUseCasesConfiguration {
+
+    @Bean
+    public FiatCurrencyAsyncBankUseCases asyncBankUseCases(FiatCurrencyBankUseCases useCases,
+                                                           AsyncUseCasesProperties properties) {
+        return new FiatCurrencyAsyncBankUseCases(useCases, executor(properties),
+                Executors.newSingleThreadScheduledExecutor(daemonThreads("bank-async-timer-")),
+                properties.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /*
+     * Not a bean of its own - an Executor bean would replace the task executor Spring Boot configures.
+     */
+    private static ExecutorService executor(AsyncUseCasesProperties properties) {
+        switch (properties.getExecutor()) {
+            case "platform":
+                int threads = properties.getThreads() > 0 ? properties.getThreads() : 2 * Runtime.getRuntime().availableProcessors();
+                return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(properties.getQueueCapacity()), daemonThreads("bank-async-"));
+            case "virtual":
+                return virtualThreadPerTaskExecutor();
+            default:
+                throw new IllegalStateException("unknown bank.async.executor: " + properties.getExecutor());
+        }
+    }
+
+    /*
+     * Looked up reflectively - the module is compiled for java 8.
+     */
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("virtual threads need java 21+, running on " + System.getProperty("java.version"), ex);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger number = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package org.vmikhailov.java.cleanarchitecture.impl.usecases;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+ * bank.async.* - executor of the asynchronous use cases.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.async")
+public class AsyncUseCasesProperties {
+    /**
+     * platform - a bounded pool of platform threads, virtual - a virtual thread per call (java 21+).
+     */
+    private String executor = "platform";
+    /**
+     * Threads of the platform pool, 0 - twice the cores.
+     */
+    private int threads;
+    /**
+     * Calls waiting for a platform thread, further calls fail with RejectedExecutionException.
+     */
+    private int queueCapacity = 10_000;
+    /**
+     * Default timeout of a call, 0 - no timeout.
+     */
+    private Duration timeout = Duration.ZERO;
+}
@@ -0,0 +1,30 @@
+package org.vmikhailov.java.cleanarchitecture.impl.usecases;
+
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.usecases.AsyncBankUseCases;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Owns its executor and timer - closing the use cases shuts them down, the calls already running are completed.
+ */
+public class FiatCurrencyAsyncBankUseCases extends AsyncBankUseCases<Long, FiatMoney, FiatTransaction> implements AutoCloseable {
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+
+    FiatCurrencyAsyncBankUseCases(FiatCurrencyBankUseCases useCases, ExecutorService executor, ScheduledExecutorService timer,
+                                  long timeout, TimeUnit unit) {
+        super(useCases, executor, timer, timeout, unit);
+        this.executor = executor;
+        this.timer = timer;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        timer.shutdown();
+    }
+}
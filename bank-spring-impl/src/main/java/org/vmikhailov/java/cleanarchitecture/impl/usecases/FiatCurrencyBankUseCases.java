@@ -1,13 +1,23 @@
 package org.vmikhailov.java.cleanarchitecture.impl.usecases;
 
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.dao.ClientTotalsDataAccess;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
 import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FixedPointMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
 import org.vmikhailov.java.cleanarchitecture.impl.transactions.FiatTransactionService;
 import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+import org.vmikhailov.java.cleanarchitecture.usecases.UseCaseMetrics;
 
 @Service
 public class FiatCurrencyBankUseCases extends BankUseCases<Long, FiatMoney, FiatTransaction> {
@@ -17,4 +27,28 @@ public class FiatCurrencyBankUseCases extends BankUseCases<Long, FiatMoney, Fiat
                              FiatTransactionService transactionService) {
         super(clientDataAccess, accountDataAccess, transactionDataAccess, transactionService);
     }
+
+    /**
+     * Creates an account with the opening balance kept in currency minor units, or as BigDecimal if the balance
+     * is finer than the minor unit.
+     *
+     * @see #createAccount(Client, AccountData)
+     */
+    public Account<Long, FiatMoney> openAccount(@NonNull Client<Long> client, @NonNull FiatMoney openingBalance) {
+        return createAccount(client, FixedPointMoney.isRepresentable(openingBalance)
+                ? new FixedPointAccountData(openingBalance, client)
+                : new FiatAccountData(openingBalance, client));
+    }
+
+    @Override
+    @Autowired(required = false)
+    public void setMetrics(UseCaseMetrics metrics) {
+        super.setMetrics(metrics);
+    }
+
+    @Override
+    @Autowired(required = false)
+    public void setClientTotals(ClientTotalsDataAccess<Long, FiatMoney> clientTotals) {
+        super.setClientTotals(clientTotals);
+    }
 }
@@ -0,0 +1,19 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+/*
+ * When a committed transaction is reported back to the caller.
+ */
+public enum DurabilityMode {
+    /*
+     * After its own fsync - one fsync per commit.
+     */
+    FSYNC,
+    /*
+     * After an fsync shared with the other commits of the same batch.
+     */
+    GROUP,
+    /*
+     * Right away - the log is written and synced in the background, a crash loses the latest commits.
+     */
+    ASYNC
+}
@@ -0,0 +1,85 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Committed balance change. Single account operations and transfers have one leg, multi-leg transfers - all of theirs.
+ * A created client or account is a record of its own, with no transaction and no legs.
+ */
+@Getter
+@AllArgsConstructor
+public class WalRecord {
+    /*
+     * Assigned by the log on append, 0 for records not appended yet.
+     */
+    private final long sequence;
+    private final long transactionId;
+    /*
+     * null for creations.
+     */
+    private final OperationType operationType;
+    private final List<Leg> legs;
+    /*
+     * null for balance changes.
+     */
+    private final Creation creation;
+
+    public WalRecord(long sequence, long transactionId, OperationType operationType, List<Leg> legs) {
+        this(sequence, transactionId, operationType, legs, null);
+    }
+
+    /**
+     * @param data created client or account, encoded by whoever replays the log
+     */
+    public static WalRecord created(Creation.Type type, byte[] data) {
+        return new WalRecord(0, 0, null, Collections.emptyList(), new Creation(type, data));
+    }
+
+    public static WalRecord of(FiatTransaction transaction) {
+        if (transaction.getOperationType() == OperationType.MULTI_TRANSFER) {
+            List<Leg> legs = new ArrayList<>(transaction.getLegs().size());
+            for (TransferLeg<Long, FiatMoney> leg : transaction.getLegs()) {
+                legs.add(new Leg(leg.getFromAccount().getId(), leg.getToAccount().getId(), leg.getMoney().getAmount()));
+            }
+            return new WalRecord(0, transaction.getId(), transaction.getOperationType(), legs);
+        }
+        long accountA = transaction.getFromAccount().map(Account::getId).orElse(0L);
+        long accountB = transaction.getToAccount().map(Account::getId).orElse(0L);
+        return new WalRecord(0, transaction.getId(), transaction.getOperationType(),
+                Collections.singletonList(new Leg(accountA, accountB, transaction.getAmount().getAmount())));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Leg {
+        private final long accountA;
+        /*
+         * 0 for single account operations.
+         */
+        private final long accountB;
+        private final BigDecimal amount;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Creation {
+        public enum Type {
+            CLIENT,
+            ACCOUNT
+        }
+
+        private final Type type;
+        private final byte[] data;
+    }
+}
@@ -0,0 +1,144 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Log record format:
+ *  frame - body length int, CRC32 of the body int, body,
+ *  body - operation ordinal byte, log sequence, transaction id, legs count, legs (all var-length longs),
+ *  leg - account A, account B, amount scale (zig-zag), amount unscaled value bytes prefixed with their count,
+ *  creation body - CREATION + creation type ordinal byte, log sequence, data length (var-length longs), data.
+ */
+final class WalRecordCodec {
+    static final int FRAME_HEADER_SIZE = 8;
+    private static final int CREATION = 0x40;
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+    private static final WalRecord.Creation.Type[] CREATION_TYPES = WalRecord.Creation.Type.values();
+
+    private WalRecordCodec() {
+    }
+
+    static ByteBuffer encode(WalRecord record, long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(0);
+            output.writeInt(0);
+            if (record.getCreation() != null) {
+                output.writeByte(CREATION + record.getCreation().getType().ordinal());
+                writeVarLong(output, sequence);
+                writeVarLong(output, record.getCreation().getData().length);
+                output.write(record.getCreation().getData());
+                return frame(bytes);
+            }
+            output.writeByte(record.getOperationType().ordinal());
+            writeVarLong(output, sequence);
+            writeVarLong(output, record.getTransactionId());
+            writeVarLong(output, record.getLegs().size());
+            for (WalRecord.Leg leg : record.getLegs()) {
+                writeVarLong(output, leg.getAccountA());
+                writeVarLong(output, leg.getAccountB());
+                BigDecimal amount = leg.getAmount();
+                writeVarLong(output, zigZag(amount.scale()));
+                byte[] unscaled = amount.unscaledValue().toByteArray();
+                if (unscaled.length > 0xFF) {
+                    throw new IllegalArgumentException("amount is too big to be logged");
+                }
+                output.writeByte(unscaled.length);
+                output.write(unscaled);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return frame(bytes);
+    }
+
+    private static ByteBuffer frame(ByteArrayOutputStream bytes) {
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        int bodyLength = frame.capacity() - FRAME_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), FRAME_HEADER_SIZE, bodyLength);
+        frame.putInt(0, bodyLength);
+        frame.putInt(4, (int) crc.getValue());
+        return frame;
+    }
+
+    /**
+     * @return {@code true} if the body matches the checksum of its frame
+     */
+    static boolean isIntact(ByteBuffer body, int checksum) {
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        return (int) crc.getValue() == checksum;
+    }
+
+    static WalRecord decode(ByteBuffer body) {
+        try {
+            int type = body.get() & 0xFF;
+            if (type >= CREATION) {
+                WalRecord.Creation.Type creationType = CREATION_TYPES[type - CREATION];
+                long sequence = readVarLong(body);
+                byte[] data = new byte[(int) readVarLong(body)];
+                body.get(data);
+                return new WalRecord(sequence, 0, null, Collections.emptyList(), new WalRecord.Creation(creationType, data));
+            }
+            OperationType operationType = OPERATION_TYPES[type];
+            long sequence = readVarLong(body);
+            long transactionId = readVarLong(body);
+            int legsCount = (int) readVarLong(body);
+            List<WalRecord.Leg> legs = new ArrayList<>(legsCount);
+            for (int i = 0; i < legsCount; i++) {
+                long accountA = readVarLong(body);
+                long accountB = readVarLong(body);
+                int scale = (int) unZigZag(readVarLong(body));
+                byte[] unscaled = new byte[body.get() & 0xFF];
+                body.get(unscaled);
+                legs.add(new WalRecord.Leg(accountA, accountB, new BigDecimal(new BigInteger(unscaled), scale)));
+            }
+            return new WalRecord(sequence, transactionId, operationType, legs);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new IllegalArgumentException("malformed log record", ex);
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed var-length number");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
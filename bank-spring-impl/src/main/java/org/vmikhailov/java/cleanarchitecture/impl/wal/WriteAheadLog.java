@@ -0,0 +1,368 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Append-only log of the committed transactions.
+ *
+ * Committing threads only encode and enqueue their records, the log thread writes them in batches with a single
+ * gathering write and, depending on the durability mode, a single fsync per batch:
+ *  FSYNC - batches of one record, every commit waits for its own fsync,
+ *  GROUP - records queued during the previous fsync make the next batch, it waits up to the max latency for
+ *          more records while it is smaller than the previous one (a lone committer never waits),
+ *          all the commits of the batch wait for one fsync,
+ *  ASYNC - commits don't wait at all, the log is synced once per max latency.
+ *
+ * Every record gets the next log sequence number when it is appended. The log is a directory of segments,
+ * a segment is rolled over once it grows past the segment size and is named after the sequence following
+ * the greatest one written before it - records of a segment are always below the name of the next segment,
+ * even though concurrent appends can reach the file slightly out of sequence order.
+ *
+ * A failed write or sync fails the log - the records of the batch and all the records queued after them are failed,
+ * newest first, as the later records may depend on the earlier ones, and no new records are taken.
+ *
+ * A torn record at the end of the last segment (crash in the middle of a write) is cut off when the log is opened.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final Path directory;
+    private final DurabilityMode durability;
+    private final int maxBatch;
+    private final long maxLatencyNanos;
+    private final long segmentSize;
+    private final NavigableMap<Long, Path> segments;
+    private final AtomicLong sequence;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private FileChannel channel;
+    private long maxWrittenSequence;
+    private int lastBatchSize = 1;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile long records;
+    private volatile long syncs;
+
+    public WriteAheadLog(Path directory, DurabilityMode durability, int maxBatch, long maxLatency, TimeUnit unit,
+                         long segmentSize) throws IOException {
+        if (maxBatch <= 0 || maxLatency < 0 || segmentSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.durability = durability;
+        this.maxBatch = durability == DurabilityMode.FSYNC ? 1 : maxBatch;
+        this.maxLatencyNanos = unit.toNanos(maxLatency);
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.segments = new ConcurrentSkipListMap<>(segments(directory));
+        this.maxWrittenSequence = openLastSegment();
+        this.sequence = new AtomicLong(maxWrittenSequence);
+        this.thread = new Thread(this::run, "bank-wal");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Segments of the log in the directory by the sequence they are named after.
+     */
+    public static NavigableMap<Long, Path> segments(Path directory) throws IOException {
+        NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Segments that can hold records of the sequence and the later ones.
+     */
+    public static List<Path> segmentsFrom(Path directory, long sequence) throws IOException {
+        NavigableMap<Long, Path> segments = segments(directory);
+        Long first = segments.floorKey(sequence);
+        return new ArrayList<>((first == null ? segments : segments.tailMap(first, true)).values());
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public DurabilityMode getDurability() {
+        return durability;
+    }
+
+    /**
+     * Records written so far.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Fsync calls made so far.
+     */
+    public long getSyncs() {
+        return syncs;
+    }
+
+    /**
+     * Sequence the next appended record is going to get. Records appended before the call have lower sequences.
+     */
+    public long nextSequence() {
+        return sequence.get() + 1;
+    }
+
+    /**
+     * Enqueues the record, records are written in the order of the calls.
+     *
+     * @return future completed once the record is durable according to the durability mode
+     * @throws IllegalStateException if the log is closed or failed to write earlier records
+     */
+    public CompletableFuture<Void> append(WalRecord record) {
+        if (closed) {
+            throw new IllegalStateException("write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("write-ahead log has failed", failure);
+        }
+        long recordSequence = sequence.incrementAndGet();
+        ByteBuffer frame = WalRecordCodec.encode(record, recordSequence);
+        if (durability == DurabilityMode.ASYNC) {
+            queue.add(new Entry(recordSequence, frame, null));
+            return DONE;
+        }
+        Entry entry = new Entry(recordSequence, frame, new CompletableFuture<>());
+        queue.add(entry);
+        return entry.durable;
+    }
+
+    /**
+     * Deletes the segments holding nothing but records below the sequence, the current segment is never deleted.
+     */
+    public void deleteSegmentsBefore(long sequence) throws IOException {
+        Long keep = segments.floorKey(sequence);
+        if (keep == null) {
+            return;
+        }
+        for (Map.Entry<Long, Path> segment : segments.headMap(keep, false).entrySet()) {
+            Files.deleteIfExists(segment.getValue());
+            segments.remove(segment.getKey());
+        }
+    }
+
+    /**
+     * Writes and syncs the records appended before the call.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException closedException = new IllegalStateException("write-ahead log is closed");
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            if (entry.durable != null) {
+                entry.durable.completeExceptionally(closedException);
+            }
+        }
+        channel.close();
+    }
+
+    /*
+     * Opens the last segment for appending, creates the first one in an empty directory.
+     * Returns the greatest sequence in the log.
+     */
+    private long openLastSegment() throws IOException {
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return 0;
+        }
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        channel = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long lastSequence = last.getKey() - 1;
+            WriteAheadLogReader reader = new WriteAheadLogReader(Channels.newInputStream(channel));
+            for (WalRecord record = reader.next(); record != null; record = reader.next()) {
+                lastSequence = Math.max(lastSequence, record.getSequence());
+            }
+            long validLength = reader.getValidLength();
+            if (validLength < channel.size()) {
+                log.warn("cutting torn tail of the write-ahead log {} at {} of {} bytes",
+                        last.getValue(), validLength, channel.size());
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            return lastSequence;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segments.put(firstSequence, file);
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        ByteBuffer[] buffers = new ByteBuffer[maxBatch];
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(durability == DurabilityMode.ASYNC && dirty
+                        ? Math.max(0, maxLatencyNanos - (System.nanoTime() - lastSync))
+                        : IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (failure != null) {
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch);
+                        complete(batch, new UncheckedIOException(failure));
+                        batch.clear();
+                    }
+                    continue;
+                }
+                if (first != null) {
+                    batch.add(first);
+                    fill(batch);
+                    write(batch, buffers);
+                    dirty = true;
+                }
+                boolean roll = channel.position() >= segmentSize;
+                if (dirty && (roll || durability != DurabilityMode.ASYNC || System.nanoTime() - lastSync >= maxLatencyNanos)) {
+                    sync();
+                    lastSync = System.nanoTime();
+                    dirty = false;
+                }
+                complete(batch, null);
+                if (roll) {
+                    channel.close();
+                    openSegment(maxWrittenSequence + 1);
+                }
+            } catch (IOException ex) {
+                log.error("write-ahead log failed", ex);
+                failure = ex;
+                queue.drainTo(batch);
+                complete(batch, new UncheckedIOException(ex));
+                dirty = false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            batch.clear();
+        }
+        if (dirty) {
+            try {
+                sync();
+            } catch (IOException ex) {
+                log.error("write-ahead log failed to sync on close", ex);
+            }
+        }
+    }
+
+    /*
+     * Group commit waits for the batch to reach the size of the previous one, the other modes take what is already queued.
+     */
+    private void fill(List<Entry> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatch - batch.size());
+        if (durability != DurabilityMode.GROUP) {
+            return;
+        }
+        int expected = Math.min(maxBatch, lastBatchSize);
+        long deadline = System.nanoTime() + maxLatencyNanos;
+        while (batch.size() < expected) {
+            long remaining = deadline - System.nanoTime();
+            Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatch - batch.size());
+        }
+        lastBatchSize = batch.size();
+    }
+
+    private void write(List<Entry> batch, ByteBuffer[] buffers) throws IOException {
+        long remaining = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            buffers[i] = entry.frame;
+            remaining += entry.frame.remaining();
+            maxWrittenSequence = Math.max(maxWrittenSequence, entry.sequence);
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers, 0, batch.size());
+        }
+        records += batch.size();
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        syncs++;
+    }
+
+    /*
+     * Failed records are completed backwards.
+     */
+    private static void complete(List<Entry> batch, RuntimeException failure) {
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(failure == null ? i : batch.size() - 1 - i);
+            if (entry.durable == null) {
+                continue;
+            }
+            if (failure == null) {
+                entry.durable.complete(null);
+            } else {
+                entry.durable.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final ByteBuffer frame;
+        private final CompletableFuture<Void> durable;
+
+        private Entry(long sequence, ByteBuffer frame, CompletableFuture<Void> durable) {
+            this.sequence = sequence;
+            this.frame = frame;
+            this.durable = durable;
+        }
+    }
+}
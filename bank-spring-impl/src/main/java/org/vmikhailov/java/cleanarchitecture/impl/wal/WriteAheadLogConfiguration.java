@@ -0,0 +1,27 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Write-ahead log - every committed transaction is appended to the segments in bank.wal.dir,
+ * bank.wal.durability decides whether the commit waits for its own fsync, a group one or none at all.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.wal.dir")
+@EnableConfigurationProperties(WriteAheadLogProperties.class)
+public class WriteAheadLogConfiguration {
+
+    @Bean
+    public WriteAheadLog writeAheadLog(WriteAheadLogProperties properties) throws IOException {
+        return new WriteAheadLog(Paths.get(properties.getDir()), properties.getDurability(),
+                properties.getGroupMaxBatch(), properties.getGroupMaxLatency().toNanos(), TimeUnit.NANOSECONDS,
+                properties.getSegmentSize().toBytes());
+    }
+}
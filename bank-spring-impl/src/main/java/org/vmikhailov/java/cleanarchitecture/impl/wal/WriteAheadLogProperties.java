@@ -0,0 +1,37 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/*
+ * bank.wal.* - write-ahead log of the committed transactions, disabled unless bank.wal.dir is set.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("bank.wal")
+public class WriteAheadLogProperties {
+    /**
+     * Directory of the log segments, appended to if there are some.
+     */
+    private String dir;
+    /**
+     * fsync, group or async.
+     */
+    private DurabilityMode durability = DurabilityMode.GROUP;
+    /**
+     * Max records written and synced at once.
+     */
+    private int groupMaxBatch = 256;
+    /**
+     * Max time a group waits for more records, sync interval of the async mode.
+     */
+    private Duration groupMaxLatency = Duration.ofMillis(1);
+    /**
+     * Size a segment is rolled over at.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+}
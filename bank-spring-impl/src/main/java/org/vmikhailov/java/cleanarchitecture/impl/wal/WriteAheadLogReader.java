@@ -0,0 +1,75 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Reads records of a WriteAheadLog segment. Reading stops at the first torn or corrupted record - nothing after it
+ * could have been acknowledged as durable.
+ */
+public class WriteAheadLogReader implements Closeable {
+    private static final int MAX_RECORD_SIZE = 1 << 26;
+
+    private final DataInputStream input;
+    private long validLength;
+
+    public WriteAheadLogReader(Path file) throws IOException {
+        this(Files.newInputStream(file));
+    }
+
+    public WriteAheadLogReader(InputStream input) {
+        this.input = new DataInputStream(new BufferedInputStream(input));
+    }
+
+    /**
+     * Next record of the log.
+     *
+     * @return next record or {@code null} if log is over
+     */
+    public WalRecord next() throws IOException {
+        ByteBuffer body = nextBody();
+        return body == null ? null : WalRecordCodec.decode(body);
+    }
+
+    /**
+     * Length of the intact part of the log read so far.
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private ByteBuffer nextBody() throws IOException {
+        int length;
+        int checksum;
+        byte[] body;
+        try {
+            length = input.readInt();
+            checksum = input.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            body = new byte[length];
+            input.readFully(body);
+        } catch (EOFException ex) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        if (!WalRecordCodec.isIntact(buffer, checksum)) {
+            return null;
+        }
+        validLength += WalRecordCodec.FRAME_HEADER_SIZE + length;
+        return buffer;
+    }
+}
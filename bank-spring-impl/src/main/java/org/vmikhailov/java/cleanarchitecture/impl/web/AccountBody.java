@@ -0,0 +1,20 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBody {
+    private Long id;
+    private Long clientId;
+    private String currency;
+    private BigDecimal amount;
+    private boolean active;
+}
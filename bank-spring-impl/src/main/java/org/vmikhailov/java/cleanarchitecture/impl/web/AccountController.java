@@ -0,0 +1,57 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/accounts")
+public class AccountController {
+    private final FiatCurrencyBankUseCases useCases;
+    private final BankApiSupport support;
+
+    AccountController(FiatCurrencyBankUseCases useCases, BankApiSupport support) {
+        this.useCases = useCases;
+        this.support = support;
+    }
+
+    @GetMapping("/{id}")
+    public AccountBody getAccount(@PathVariable Long id) {
+        return support.accountBody(support.account(id), useCases.getBalance(id));
+    }
+
+    @PostMapping("/{id}/replenish")
+    public TransactionBody replenish(@PathVariable Long id, @RequestBody MoneyBody body) {
+        return support.transactionBody(useCases.replenishAccount(support.account(id),
+                support.money(body.getCurrency(), body.getAmount())));
+    }
+
+    @PostMapping("/{id}/withdraw")
+    public TransactionBody withdraw(@PathVariable Long id, @RequestBody MoneyBody body) {
+        return support.transactionBody(useCases.withdrawFromAccount(support.account(id),
+                support.money(body.getCurrency(), body.getAmount())));
+    }
+
+    /**
+     * Page of the account history, the next page is requested with the nextCursor of this one.
+     */
+    @GetMapping("/{id}/transactions")
+    public HistoryPageBody getTransactions(@PathVariable Long id,
+                                           @RequestParam(required = false) Long cursor,
+                                           @RequestParam(defaultValue = "50") int size,
+                                           @RequestParam(defaultValue = "NEWEST_FIRST") HistoryDirection direction) {
+        List<FiatTransaction> page = useCases.getTransactionsPage(support.account(id), cursor, size, direction);
+        Long nextCursor = page.size() < size ? null : page.get(page.size() - 1).getId();
+        return new HistoryPageBody(page.stream().map(support::transactionBody).collect(Collectors.toList()), nextCursor);
+    }
+}
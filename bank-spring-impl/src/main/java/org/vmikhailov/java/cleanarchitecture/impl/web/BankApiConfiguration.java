@@ -0,0 +1,21 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.CurrencyCodec;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.IsoCurrencyCodec;
+
+/*
+ * HTTP API over the use cases - currencies are referred to by the codes of the CurrencyCodec bean,
+ * ISO 4217 ones unless the application defines its own codec.
+ */
+@Configuration
+public class BankApiConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(CurrencyCodec.class)
+    public CurrencyCodec currencyCodec() {
+        return new IsoCurrencyCodec();
+    }
+}
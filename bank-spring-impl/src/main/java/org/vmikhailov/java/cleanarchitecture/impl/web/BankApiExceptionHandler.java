@@ -0,0 +1,71 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountAlreadyExists;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountNotFound;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientAlreadyExist;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientDuplicatesFound;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
+
+/*
+ * Bank exceptions as statuses: 404 - no such client or account, 409 - already exists or a locked account
+ * (the operation can be retried), 422 - any other refused operation, e.g. not enough money, 400 - bad request data.
+ */
+@RestControllerAdvice
+public class BankApiExceptionHandler {
+
+    @ExceptionHandler({ClientException.class, AccountException.class})
+    public ResponseEntity<ErrorBody> bankException(RuntimeException ex) {
+        return ResponseEntity.status(statusOf(ex)).body(new ErrorBody(errorOf(ex)));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorBody> illegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(new ErrorBody(errorOf(ex)));
+    }
+
+    /*
+     * E.g. client totals of a transaction service not maintaining them.
+     */
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ResponseEntity<ErrorBody> unsupported(UnsupportedOperationException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(new ErrorBody(errorOf(ex)));
+    }
+
+    static HttpStatus statusOf(Throwable ex) {
+        if (ex instanceof ClientNotExist || ex instanceof AccountNotFound) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (ex instanceof ClientAlreadyExist || ex instanceof ClientDuplicatesFound || ex instanceof AccountAlreadyExists
+                || lockedCause(ex) != null) {
+            return HttpStatus.CONFLICT;
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+
+    /**
+     * Name of the exception, of the lock failure if the use case wrapped one.
+     */
+    static String errorOf(Throwable ex) {
+        Throwable locked = lockedCause(ex);
+        return (locked != null ? locked : ex).getClass().getSimpleName();
+    }
+
+    private static Throwable lockedCause(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LockedException) {
+                return cause;
+            }
+        }
+        return null;
+    }
+}
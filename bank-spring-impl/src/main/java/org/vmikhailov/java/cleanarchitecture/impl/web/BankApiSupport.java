@@ -0,0 +1,76 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.stereotype.Component;
+import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountNotFound;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.snapshot.CurrencyCodec;
+
+import java.math.BigDecimal;
+
+/*
+ * Lookups of the clients and accounts a request refers to by id, and mapping of the bank entities to bodies.
+ */
+@Component
+class BankApiSupport {
+    private final ClientDataAccess<Long> clients;
+    private final FiatAccountDataAccess accounts;
+    private final CurrencyCodec currencyCodec;
+
+    BankApiSupport(ClientDataAccess<Long> clients, FiatAccountDataAccess accounts, CurrencyCodec currencyCodec) {
+        this.clients = clients;
+        this.accounts = accounts;
+        this.currencyCodec = currencyCodec;
+    }
+
+    Client<Long> client(Long id) {
+        return clients.get(id).orElseThrow(ClientNotExist::new);
+    }
+
+    Account<Long, FiatMoney> account(Long id) {
+        if (id == null) {
+            throw new AccountNotFound();
+        }
+        return accounts.get(id).orElseThrow(AccountNotFound::new);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currency is unknown or the amount is missing
+     */
+    FiatMoney money(String currency, BigDecimal amount) {
+        if (currency == null || amount == null) {
+            throw new IllegalArgumentException("currency and amount are required");
+        }
+        return new FiatMoney(currencyCodec.currencyOf(currency), amount);
+    }
+
+    AccountBody accountBody(Account<Long, FiatMoney> account) {
+        return accountBody(account, account.getAccountData().getMoney());
+    }
+
+    /**
+     * @param money balance of the account read by the use cases
+     */
+    AccountBody accountBody(Account<Long, FiatMoney> account, FiatMoney money) {
+        return new AccountBody(account.getId(), account.getAccountData().getClient().getId(),
+                currencyCodec.codeOf(money.getCurrency()), money.getAmount(), account.isActive());
+    }
+
+    MoneyBody moneyBody(FiatMoney money) {
+        return new MoneyBody(currencyCodec.codeOf(money.getCurrency()), money.getAmount());
+    }
+
+    TransactionBody transactionBody(FiatTransaction transaction) {
+        FiatMoney amount = transaction.getAmount();
+        return new TransactionBody(transaction.getId(), transaction.getOperationType(), transaction.getState(),
+                transaction.getFromAccount().map(Account::getId).orElse(null),
+                transaction.getToAccount().map(Account::getId).orElse(null),
+                amount == null ? null : currencyCodec.codeOf(amount.getCurrency()),
+                amount == null ? null : amount.getAmount());
+    }
+}
@@ -0,0 +1,142 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Many operations in one request - a JSON array of BatchOperation's in, a BatchResult per line out.
+ *
+ * Operations are applied one by one as they are parsed, the results are streamed back in the same order and
+ * flushed every FLUSH_EVERY results, so neither the request nor the response is held in memory. Operations are
+ * independent - a failed one doesn't stop the batch, its result has the error instead of the transaction.
+ * An account is looked up once per batch.
+ */
+@RestController
+public class BatchController {
+    public static final String NDJSON = "application/x-ndjson";
+    private static final int FLUSH_EVERY = 256;
+
+    private final FiatCurrencyBankUseCases useCases;
+    private final BankApiSupport support;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader operationReader;
+
+    BatchController(FiatCurrencyBankUseCases useCases, BankApiSupport support, ObjectMapper objectMapper) {
+        this.useCases = useCases;
+        this.support = support;
+        this.objectMapper = objectMapper;
+        this.operationReader = objectMapper.readerFor(BatchOperation.class);
+    }
+
+    /**
+     * Results are written as application/x-ndjson, set here rather than negotiated - errors of the whole
+     * batch (not an array) are returned as JSON before any result is written.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void batch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("batch is not an array of operations");
+            }
+            response.setContentType(NDJSON);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                Map<Long, Account<Long, FiatMoney>> accounts = new HashMap<>();
+                int index = 0;
+                for (JsonToken token = nextToken(parser); token != JsonToken.END_ARRAY; token = nextToken(parser)) {
+                    if (token == null) {
+                        write(generator, new BatchResult(index, null, null, "MalformedBatch"));
+                        break;
+                    }
+                    BatchOperation operation;
+                    try {
+                        operation = operationReader.readValue(parser);
+                    } catch (IOException ex) {
+                        write(generator, new BatchResult(index, null, null, "MalformedBatch"));
+                        break;
+                    }
+                    write(generator, apply(index++, operation, accounts));
+                    if (index % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        }
+    }
+
+    private BatchResult apply(int index, BatchOperation operation, Map<Long, Account<Long, FiatMoney>> accounts) {
+        try {
+            FiatTransaction transaction = apply(operation, accounts);
+            return new BatchResult(index, transaction.getId(), transaction.getState(), null);
+        } catch (RuntimeException ex) {
+            return new BatchResult(index, null, null, BankApiExceptionHandler.errorOf(ex));
+        }
+    }
+
+    private FiatTransaction apply(BatchOperation operation, Map<Long, Account<Long, FiatMoney>> accounts) {
+        if (operation.getOperation() == null) {
+            throw new IllegalArgumentException("operation is required");
+        }
+        Account<Long, FiatMoney> account = account(operation.getAccountId(), accounts);
+        FiatMoney money = support.money(operation.getCurrency(), operation.getAmount());
+        switch (operation.getOperation()) {
+            case REPLENISH:
+                return useCases.replenishAccount(account, money);
+            case WITHDRAW:
+                return useCases.withdrawFromAccount(account, money);
+            case TRANSFER:
+                return useCases.transferMoney(account, account(operation.getToAccountId(), accounts), money);
+            default:
+                throw new IllegalArgumentException("not a batch operation: " + operation.getOperation());
+        }
+    }
+
+    private Account<Long, FiatMoney> account(Long id, Map<Long, Account<Long, FiatMoney>> accounts) {
+        Account<Long, FiatMoney> account = id == null ? null : accounts.get(id);
+        if (account == null) {
+            account = support.account(id);
+            accounts.put(id, account);
+        }
+        return account;
+    }
+
+    /*
+     * null if the request is cut or not JSON - the results written so far can't be taken back,
+     * the batch ends with a MalformedBatch result instead.
+     */
+    private static JsonToken nextToken(JsonParser parser) {
+        try {
+            return parser.nextToken();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void write(JsonGenerator generator, BatchResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", result.getIndex());
+        if (result.getTransactionId() != null) {
+            generator.writeNumberField("transactionId", result.getTransactionId());
+            generator.writeStringField("state", result.getState().name());
+        } else {
+            generator.writeStringField("error", result.getError());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,24 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.math.BigDecimal;
+
+/*
+ * Operation of a batch - REPLENISH and WITHDRAW of the account, TRANSFER from the account to toAccountId.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+    private OperationType operation;
+    private Long accountId;
+    private Long toAccountId;
+    private String currency;
+    private BigDecimal amount;
+}
@@ -0,0 +1,23 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+
+/*
+ * Result of the operation at the index of a batch - either the transaction made or the error it failed with.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    private int index;
+    private Long transactionId;
+    private TransactionState state;
+    private String error;
+}
@@ -0,0 +1,41 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Client profile, the id and the active flag are ignored in requests.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientBody {
+    private Long id;
+    private String name;
+    private String surname;
+    private LocalDate birthDate;
+    private List<DocumentBody> documents;
+    private boolean active;
+
+    static ClientBody of(Client<Long> client) {
+        UniversalBankClientData data = (UniversalBankClientData) client.getClientData();
+        List<DocumentBody> documents = data.getDocuments() == null ? null
+                : data.getDocuments().stream().map(DocumentBody::of).collect(Collectors.toList());
+        return new ClientBody(client.getId(), data.getName(), data.getSurname(), data.getBirthDate(), documents,
+                client.isActive());
+    }
+
+    UniversalBankClientData toClientData() {
+        return new UniversalBankClientData(name, surname, birthDate, documents == null ? null
+                : documents.stream().map(DocumentBody::toDocument).collect(Collectors.toList()));
+    }
+}
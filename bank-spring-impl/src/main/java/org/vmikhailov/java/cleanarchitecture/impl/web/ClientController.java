@@ -0,0 +1,59 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/clients")
+public class ClientController {
+    private final FiatCurrencyBankUseCases useCases;
+    private final BankApiSupport support;
+
+    ClientController(FiatCurrencyBankUseCases useCases, BankApiSupport support) {
+        this.useCases = useCases;
+        this.support = support;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ClientBody registerClient(@RequestBody ClientBody body) {
+        return ClientBody.of(useCases.registerNewClient(body.toClientData()));
+    }
+
+    @GetMapping("/{id}")
+    public ClientBody getClient(@PathVariable Long id) {
+        return ClientBody.of(support.client(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteClient(@PathVariable Long id) {
+        useCases.deleteClient(id);
+    }
+
+    @PostMapping("/{id}/accounts")
+    @ResponseStatus(HttpStatus.CREATED)
+    public AccountBody createAccount(@PathVariable Long id, @RequestBody MoneyBody body) {
+        Client<Long> client = support.client(id);
+        return support.accountBody(useCases.openAccount(client, support.money(body.getCurrency(), body.getAmount())));
+    }
+
+    @GetMapping("/{id}/accounts")
+    public List<AccountBody> getAccounts(@PathVariable Long id) {
+        return useCases.getBalances(support.client(id)).entrySet().stream()
+                .map(balance -> support.accountBody(support.account(balance.getKey()), balance.getValue()))
+                .collect(Collectors.toList());
+    }
+}
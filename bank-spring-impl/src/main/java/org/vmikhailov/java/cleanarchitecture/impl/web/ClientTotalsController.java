@@ -0,0 +1,35 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.context.annotation.Conditional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.vmikhailov.java.cleanarchitecture.impl.totals.ClientTotalsMaintained;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * There's no totals endpoint unless the totals are maintained.
+ */
+@RestController
+@RequestMapping("/clients")
+@Conditional(ClientTotalsMaintained.class)
+public class ClientTotalsController {
+    private final FiatCurrencyBankUseCases useCases;
+    private final BankApiSupport support;
+
+    ClientTotalsController(FiatCurrencyBankUseCases useCases, BankApiSupport support) {
+        this.useCases = useCases;
+        this.support = support;
+    }
+
+    @GetMapping("/{id}/totals")
+    public List<MoneyBody> getTotals(@PathVariable Long id) {
+        return useCases.getClientTotals(support.client(id)).stream()
+                .map(support::moneyBody)
+                .collect(Collectors.toList());
+    }
+}
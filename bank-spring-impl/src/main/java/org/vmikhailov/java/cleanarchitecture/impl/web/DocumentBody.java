@@ -0,0 +1,27 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentBody {
+    private String documentNumber;
+    private ClientDocument.DocumentType documentType;
+    private String clientName;
+    private String clientSurname;
+
+    static DocumentBody of(ClientDocument document) {
+        return new DocumentBody(document.getDocumentNumber(), document.getDocumentType(),
+                document.getClientName(), document.getClientSurname());
+    }
+
+    ClientDocument toDocument() {
+        return new ClientDocument(documentNumber, documentType, clientName, clientSurname);
+    }
+}
@@ -0,0 +1,17 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErrorBody {
+    /**
+     * Simple name of the bank exception, e.g. AccountNotFound.
+     */
+    private String error;
+}
@@ -0,0 +1,20 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryPageBody {
+    private List<TransactionBody> transactions;
+    /**
+     * Cursor of the next page, null if this page is the last one.
+     */
+    private Long nextCursor;
+}
@@ -0,0 +1,27 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+
+import java.math.BigDecimal;
+
+/*
+ * Legs of a multi-leg transfer are not listed, the from/to accounts of it are empty.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBody {
+    private Long id;
+    private OperationType operationType;
+    private TransactionState state;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private String currency;
+    private BigDecimal amount;
+}
@@ -0,0 +1,19 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferBody {
+    private Long fromAccountId;
+    private Long toAccountId;
+    private String currency;
+    private BigDecimal amount;
+}
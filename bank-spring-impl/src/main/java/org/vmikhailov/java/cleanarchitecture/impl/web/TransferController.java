@@ -0,0 +1,25 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+@RestController
+@RequestMapping("/transfers")
+public class TransferController {
+    private final FiatCurrencyBankUseCases useCases;
+    private final BankApiSupport support;
+
+    TransferController(FiatCurrencyBankUseCases useCases, BankApiSupport support) {
+        this.useCases = useCases;
+        this.support = support;
+    }
+
+    @PostMapping
+    public TransactionBody transfer(@RequestBody TransferBody body) {
+        return support.transactionBody(useCases.transferMoney(support.account(body.getFromAccountId()),
+                support.account(body.getToAccountId()), support.money(body.getCurrency(), body.getAmount())));
+    }
+}
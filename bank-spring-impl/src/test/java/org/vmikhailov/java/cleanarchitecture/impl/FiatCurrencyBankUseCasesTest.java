@@ -7,19 +7,24 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
 import org.vmikhailov.java.cleanarchitecture.entities.Currency;
 import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
 import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
 import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountAlreadyExists;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
 import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
 import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientAlreadyExist;
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientDuplicatesFound;
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotActive;
 import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
 import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
 import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
@@ -27,6 +32,7 @@ import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCa
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -134,6 +140,30 @@ public class FiatCurrencyBankUseCasesTest {
         Assertions.assertThrows(ClientNotExist.class, () -> useCases.getClient(existentClientData));
     }
 
+    @Test
+    public void test_register_client_again_after_delete() {
+        ClientData<Long> clientData = generateRandomClientData();
+        Client<Long> deletedClient = useCases.registerNewClient(clientData);
+        useCases.deleteClient(deletedClient.getId());
+
+        Client<Long> registeredAgain = useCases.registerNewClient(clientData);
+
+        assertNotEquals(deletedClient.getId(), registeredAgain.getId());
+        assertEquals(registeredAgain.getId(), useCases.getClient(clientData).getId());
+    }
+
+    @Test
+    public void test_get_client_distinguishes_documents_differ_only_by_case() {
+        String documentNumber = randomString();
+        ClientData<Long> upperCaseClientData = generateClientDataWithDocument(documentNumber.toUpperCase());
+        ClientData<Long> lowerCaseClientData = generateClientDataWithDocument(documentNumber.toLowerCase());
+        Client<Long> upperCaseClient = useCases.registerNewClient(upperCaseClientData);
+        Client<Long> lowerCaseClient = useCases.registerNewClient(lowerCaseClientData);
+
+        assertEquals(upperCaseClient.getId(), useCases.getClient(upperCaseClientData).getId());
+        assertEquals(lowerCaseClient.getId(), useCases.getClient(lowerCaseClientData).getId());
+    }
+
     @Test
     public void test_delete_client_non_exiting_client_throws_exception() {
         Assertions.assertThrows(ClientNotExist.class, () -> useCases.deleteClient(99999_9999L));
@@ -302,6 +332,64 @@ public class FiatCurrencyBankUseCasesTest {
         assertEquals(expectedAmount2, createdAccount2.getAccountData().getMoney().getAmount());
     }
 
+    @Test
+    public void test_withdraw_more_than_balance_is_rollbacked() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> account = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ONE, existentClient));
+
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(account, generateFiatMoney(BigDecimal.TEN)));
+
+        assertEquals(BigDecimal.ONE, account.getAccountData().getMoney().getAmount());
+        assertSame(TransactionState.ROLLBACKED, useCases.getAllTransactions(account).get(0).getState());
+    }
+
+    @Test
+    public void test_transfer_more_than_balance_is_rollbacked() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> fromAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ONE, existentClient));
+        Account<Long, FiatMoney> toAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ZERO, existentClient));
+
+        assertThrows(AccountException.class, () -> useCases.transferMoney(fromAccount, toAccount, generateFiatMoney(BigDecimal.TEN)));
+
+        assertEquals(BigDecimal.ONE, fromAccount.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ZERO, toAccount.getAccountData().getMoney().getAmount());
+        assertSame(TransactionState.ROLLBACKED, useCases.getAllTransactions(fromAccount).get(0).getState());
+    }
+
+    @Test
+    public void test_fixed_point_accounts_transactions() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> fromAccount = useCases.createAccount(existentClient,
+                new FixedPointAccountData(generateFiatMoney(new BigDecimal("10.00")), existentClient));
+        Account<Long, FiatMoney> toAccount = useCases.createAccount(existentClient,
+                new FixedPointAccountData(generateFiatMoney(BigDecimal.ONE), existentClient));
+
+        useCases.replenishAccount(fromAccount, generateFiatMoney(new BigDecimal("0.25")));
+        useCases.withdrawFromAccount(fromAccount, generateFiatMoney(new BigDecimal("1.5")));
+        FiatTransaction transfer = useCases.transferMoney(fromAccount, toAccount, generateFiatMoney(new BigDecimal("3")));
+
+        assertSame(TransactionState.COMMITTED, transfer.getState());
+        assertEquals(new BigDecimal("5.75"), fromAccount.getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal("4.00"), toAccount.getAccountData().getMoney().getAmount());
+
+        assertThrows(AccountException.class, () -> useCases.replenishAccount(toAccount, generateFiatMoney(new BigDecimal("0.001"))));
+        assertThrows(AccountException.class, () -> useCases.transferMoney(toAccount, fromAccount, generateFiatMoney(BigDecimal.TEN)));
+        assertEquals(new BigDecimal("4.00"), toAccount.getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal("5.75"), fromAccount.getAccountData().getMoney().getAmount());
+    }
+
+    @Test
+    public void test_open_account_keeps_balance_in_minor_units() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> account = useCases.openAccount(existentClient, generateFiatMoney(BigDecimal.TEN));
+        Account<Long, FiatMoney> fineAccount = useCases.openAccount(existentClient, generateFiatMoney(new BigDecimal("0.001")));
+
+        assertTrue(account.getAccountData() instanceof FixedPointAccountData);
+        assertFalse(fineAccount.getAccountData() instanceof FixedPointAccountData);
+        useCases.replenishAccount(account, generateFiatMoney(new BigDecimal("0.5")));
+        assertEquals(new BigDecimal("10.50"), useCases.getAccountData(account.getId()).getMoney().getAmount());
+    }
+
     private static Stream<Arguments> randomTestMoney() {
         return DoubleStream.generate(() -> ThreadLocalRandom.current().nextDouble(1_000_000_000_000d))
                 .limit(1000)
@@ -362,6 +450,83 @@ public class FiatCurrencyBankUseCasesTest {
         assertTrue(allTransactions.contains(transaction3));
     }
 
+    @Test
+    public void test_get_all_transactions_of_both_transfer_sides_in_creation_order() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> fromAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.TEN, existentClient));
+        Account<Long, FiatMoney> toAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ONE, existentClient));
+
+        FiatTransaction replenishment = useCases.replenishAccount(toAccount, generateFiatMoney(BigDecimal.ONE));
+        FiatTransaction transfer = useCases.transferMoney(fromAccount, toAccount, generateFiatMoney(BigDecimal.ONE));
+        FiatTransaction withdrawal = useCases.withdrawFromAccount(fromAccount, generateFiatMoney(BigDecimal.ONE));
+
+        assertEquals(Arrays.asList(transfer, withdrawal), useCases.getAllTransactions(fromAccount));
+        assertEquals(Arrays.asList(replenishment, transfer), useCases.getAllTransactions(toAccount));
+    }
+
+    @Test
+    public void test_get_transactions_page_by_page() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> account = useCases.createAccount(existentClient, generateRandomAccountDataForClient(existentClient));
+        FiatTransaction transaction1 = useCases.replenishAccount(account, generateFiatMoney(BigDecimal.ONE));
+        FiatTransaction transaction2 = useCases.replenishAccount(account, generateFiatMoney(BigDecimal.ONE));
+        FiatTransaction transaction3 = useCases.replenishAccount(account, generateFiatMoney(BigDecimal.ONE));
+
+        List<FiatTransaction> latestPage = useCases.getTransactionsPage(account, null, 2, HistoryDirection.NEWEST_FIRST);
+        assertEquals(Arrays.asList(transaction3, transaction2), latestPage);
+        List<FiatTransaction> previousPage = useCases.getTransactionsPage(account, transaction2.getId(), 2, HistoryDirection.NEWEST_FIRST);
+        assertEquals(Collections.singletonList(transaction1), previousPage);
+
+        assertEquals(Arrays.asList(transaction1, transaction2), useCases.getTransactionsPage(account, null, 2, HistoryDirection.OLDEST_FIRST));
+        assertEquals(Collections.singletonList(transaction3), useCases.getTransactionsPage(account, transaction2.getId(), 2, HistoryDirection.OLDEST_FIRST));
+        assertTrue(useCases.getTransactionsPage(account, transaction3.getId(), 2, HistoryDirection.OLDEST_FIRST).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> useCases.getTransactionsPage(account, null, 0, HistoryDirection.OLDEST_FIRST));
+    }
+
+    @Test
+    public void test_multi_leg_transfer_is_one_parent_transaction() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> payrollAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.TEN, existentClient));
+        Account<Long, FiatMoney> employee1 = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ZERO, existentClient));
+        Account<Long, FiatMoney> employee2 = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ONE, existentClient));
+
+        FiatTransaction payroll = useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(payrollAccount, employee1, generateFiatMoney(new BigDecimal(3))),
+                new TransferLeg<>(payrollAccount, employee2, generateFiatMoney(new BigDecimal(4)))));
+
+        assertSame(TransactionState.COMMITTED, payroll.getState());
+        assertSame(OperationType.MULTI_TRANSFER, payroll.getOperationType());
+        assertEquals(new BigDecimal(7), payroll.getAmount().getAmount());
+        assertEquals(2, payroll.getLegs().size());
+        assertEquals(new BigDecimal(3), payrollAccount.getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal(3), employee1.getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal(5), employee2.getAccountData().getMoney().getAmount());
+        assertEquals(Collections.singletonList(payroll), useCases.getAllTransactions(payrollAccount));
+        assertEquals(Collections.singletonList(payroll), useCases.getAllTransactions(employee2));
+    }
+
+    @Test
+    public void test_multi_leg_transfer_is_rolled_back_all_or_nothing() {
+        Client<Long> existentClient = useCases.registerNewClient(generateRandomClientData());
+        Account<Long, FiatMoney> payrollAccount = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.TEN, existentClient));
+        Account<Long, FiatMoney> employee1 = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ZERO, existentClient));
+        Account<Long, FiatMoney> employee2 = useCases.createAccount(existentClient, generateRandomAccountDataForClient(BigDecimal.ONE, existentClient));
+
+        assertThrows(AccountException.class, () -> useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(payrollAccount, employee1, generateFiatMoney(new BigDecimal(4))),
+                new TransferLeg<>(payrollAccount, employee2, generateFiatMoney(new BigDecimal(4))),
+                new TransferLeg<>(employee2, employee1, generateFiatMoney(new BigDecimal(2))),
+                new TransferLeg<>(payrollAccount, employee1, generateFiatMoney(new BigDecimal(4))))));
+
+        assertEquals(BigDecimal.TEN, payrollAccount.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ZERO, employee1.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ONE, employee2.getAccountData().getMoney().getAmount());
+        List<FiatTransaction> transactions = useCases.getAllTransactions(employee1);
+        assertEquals(1, transactions.size());
+        assertSame(TransactionState.ROLLBACKED, transactions.get(0).getState());
+        assertThrows(IllegalArgumentException.class, () -> useCases.transferMoney(Collections.emptyList()));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void test_check_for_required_not_null_arguments_works() {
@@ -377,10 +542,14 @@ public class FiatCurrencyBankUseCasesTest {
     }
 
     private static ClientData<Long> generateRandomClientData() {
+        return generateClientDataWithDocument(randomString());
+    }
+
+    private static ClientData<Long> generateClientDataWithDocument(String documentNumber) {
         ClientDocument randomDataDocument = ClientDocument.builder()
                 .clientName(randomString())
                 .clientSurname(randomString())
-                .documentNumber(randomString())
+                .documentNumber(documentNumber)
                 .documentType(ClientDocument.DocumentType.PASSPORT)
                 .build();
         return UniversalBankClientData.builder()
@@ -0,0 +1,61 @@
+package org.vmikhailov.java.cleanarchitecture.impl.entities;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointMoneyTest {
+    private static final Currency CENTS = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+    private static final Currency NO_MINOR_UNITS = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+
+        @Override
+        public int getMinorUnitDigits() {
+            return 0;
+        }
+    };
+
+    @Test
+    public void test_amount_is_kept_in_minor_units_of_currency() {
+        assertEquals(1050, FixedPointMoney.of(new FiatMoney(CENTS, new BigDecimal("10.5"))).getMinorUnits());
+        assertEquals(10, FixedPointMoney.of(new FiatMoney(NO_MINOR_UNITS, new BigDecimal("10.00"))).getMinorUnits());
+        assertEquals(new BigDecimal("10.50"), new FixedPointMoney(CENTS, 1050).toBigDecimal());
+    }
+
+    @Test
+    public void test_amount_finer_than_minor_unit_is_not_representable() {
+        FiatMoney fractionOfCent = new FiatMoney(CENTS, new BigDecimal("0.001"));
+
+        assertFalse(FixedPointMoney.isRepresentable(fractionOfCent));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.of(fractionOfCent));
+        assertTrue(FixedPointMoney.isRepresentable(new FiatMoney(CENTS, new BigDecimal("0.010"))));
+        assertFalse(FixedPointMoney.isRepresentable(new FiatMoney(CENTS, BigDecimal.valueOf(Long.MAX_VALUE))));
+    }
+
+    @Test
+    public void test_arithmetic_overflow_is_detected() {
+        FixedPointMoney max = new FixedPointMoney(CENTS, Long.MAX_VALUE);
+        FixedPointMoney oneCent = new FixedPointMoney(CENTS, 1);
+
+        assertThrows(ArithmeticException.class, () -> max.add(oneCent));
+        assertThrows(ArithmeticException.class, () -> new FixedPointMoney(CENTS, Long.MIN_VALUE).subtract(oneCent));
+        assertEquals(new FixedPointMoney(CENTS, Long.MAX_VALUE - 1), max.subtract(oneCent));
+    }
+
+    @Test
+    public void test_different_currencies_are_not_mixed() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FixedPointMoney(CENTS, 1).add(new FixedPointMoney(NO_MINOR_UNITS, 1)));
+    }
+}
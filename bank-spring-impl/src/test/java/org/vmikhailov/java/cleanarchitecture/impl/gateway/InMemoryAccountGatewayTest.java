@@ -0,0 +1,389 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
+import org.vmikhailov.java.cleanarchitecture.dao.ClientDataAccess;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.ClientData;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryAccountGatewayTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    private final InMemoryClientGateway clients = new InMemoryClientGateway();
+    private final InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+
+    @Test
+    public void test_cached_client_is_invalidated_by_client_delete() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(accountData(client));
+        assertTrue(account.isActive());
+        assertSame(clients.get(client.getId()).orElse(null), account.getClient());
+
+        clients.delete(client.getId());
+
+        assertFalse(account.isActive());
+        assertNull(account.getClient());
+        assertFalse(accounts.get(account.getId()).map(Account::isActive).orElse(true));
+    }
+
+    @Test
+    public void test_account_held_across_transactions_is_rejected_once_its_client_is_deleted() {
+        BankUseCases<Long, FiatMoney, FiatTransaction> useCases = new BankUseCases<Long, FiatMoney, FiatTransaction>(
+                clients, accounts, new InMemoryTransactionGateway(accounts),
+                new LockBasedFiatTransactionService(new InMemoryTransactionGateway(accounts), accounts, new ImmediateAccountLockPolicy())) {
+        };
+        Client<Long> client = useCases.registerNewClient(clientData());
+        Account<Long, FiatMoney> account = useCases.createAccount(client, accountData(client));
+        Client<Long> otherClient = useCases.registerNewClient(
+                new UniversalBankClientData("other", "surname", LocalDate.of(1980, 1, 1), Collections.emptyList()));
+        Account<Long, FiatMoney> other = useCases.createAccount(otherClient, accountData(otherClient));
+        assertTrue(account.isActive());
+        useCases.replenishAccount(account, money("10"));
+        useCases.transferMoney(account, other, money("1"));
+
+        useCases.deleteClient(client.getId());
+
+        assertFalse(account.isActive());
+        assertThrows(AccountException.class, () -> useCases.replenishAccount(account, money("1")));
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(account, money("1")));
+        assertThrows(AccountException.class, () -> useCases.transferMoney(account, other, money("1")));
+        assertEquals(money("10"), account.getAccountData().getMoney());
+    }
+
+    @Test
+    public void test_updated_account_sees_the_client_delete() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(accountData(client));
+        assertTrue(account.isActive());
+        accounts.update(account.getId(), new FiatAccountData(money("7"), client));
+
+        clients.delete(client.getId());
+
+        assertFalse(account.isActive());
+        assertFalse(accounts.get(account.getId()).map(Account::isActive).orElse(true));
+    }
+
+    @Test
+    public void test_restored_client_replaces_the_cached_one() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(accountData(client));
+        assertTrue(account.isActive());
+
+        Client<Long> restored = clients.restore(client.getId(), client.getClientData(), true);
+
+        assertSame(restored, account.getClient());
+        clients.restore(client.getId(), client.getClientData(), false);
+        assertFalse(account.isActive());
+    }
+
+    @Test
+    public void test_client_storage_without_notifications_is_looked_up_every_time() {
+        InMemoryAccountGateway uncached = new InMemoryAccountGateway(new ClientDataAccess<Long>() {
+            @Override
+            public Client<Long> create(ClientData<Long> data) {
+                return clients.create(data);
+            }
+
+            @Override
+            public void delete(Long identity) {
+                clients.delete(identity);
+            }
+
+            @Override
+            public Optional<Client<Long>> get(Long identity) {
+                return clients.get(identity);
+            }
+
+            @Override
+            public List<Client<Long>> getAll(Predicate<Client<Long>> params) {
+                return clients.getAll(params);
+            }
+        });
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = uncached.create(accountData(client));
+        assertTrue(account.isActive());
+
+        clients.delete(client.getId());
+
+        assertFalse(account.isActive());
+    }
+
+    @Test
+    public void test_accounts_created_while_the_client_is_deleted_see_the_delete() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 200; round++) {
+                Client<Long> client = clients.create(clientData());
+                CountDownLatch start = new CountDownLatch(1);
+                Future<List<Account<Long, FiatMoney>>> created = executor.submit(() -> {
+                    List<Account<Long, FiatMoney>> clientAccounts = new ArrayList<>();
+                    start.await();
+                    for (int i = 0; i < 20; i++) {
+                        Account<Long, FiatMoney> account = accounts.create(accountData(client));
+                        account.isActive();
+                        clientAccounts.add(account);
+                    }
+                    return clientAccounts;
+                });
+                Future<?> deleted = executor.submit(() -> {
+                    start.await();
+                    clients.delete(client.getId());
+                    return null;
+                });
+                start.countDown();
+                deleted.get(5, TimeUnit.SECONDS);
+
+                for (Account<Long, FiatMoney> account : created.get(5, TimeUnit.SECONDS)) {
+                    assertFalse(account.isActive());
+                    assertNull(account.getClient());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_balances_are_read_between_transfers() throws Exception {
+        LockBasedFiatTransactionService transactionService = new LockBasedFiatTransactionService(
+                new InMemoryTransactionGateway(accounts), accounts, new ImmediateAccountLockPolicy());
+        Client<Long> client = clients.create(clientData());
+        List<Account<Long, FiatMoney>> clientAccounts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            clientAccounts.add(accounts.create(new FiatAccountData(money("1000"), client)));
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                writers.add(executor.submit(() -> {
+                    while (!stop.get()) {
+                        int from = ThreadLocalRandom.current().nextInt(3);
+                        Account<Long, FiatMoney> to = clientAccounts.get((from + 1) % 3);
+                        try {
+                            transactionService.make(clientAccounts.get(from), to, money("1"), OperationType.TRANSFER);
+                        } catch (AccountException | TransactionException ex) {
+                            // locked by the other writer or by a locked read
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 20_000; i++) {
+                BigDecimal total = accounts.getBalances(accounts.getAll(client)).stream()
+                        .map(FiatMoney::getAmount)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                assertEquals(0, new BigDecimal("3000").compareTo(total), "read #" + i);
+            }
+            stop.set(true);
+            for (Future<?> writer : writers) {
+                writer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            stop.set(true);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_balance_is_not_read_in_the_middle_of_a_transfer_to_the_same_account() throws Exception {
+        LockBasedFiatTransactionService transactionService = new LockBasedFiatTransactionService(
+                new InMemoryTransactionGateway(accounts), accounts, new ImmediateAccountLockPolicy());
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(new FiatAccountData(money("1000"), client));
+        List<Account<Long, FiatMoney>> read = Collections.singletonList(account);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> {
+                while (!stop.get()) {
+                    try {
+                        transactionService.make(account, account, money("1"), OperationType.TRANSFER);
+                    } catch (LockedException ex) {
+                        // locked by a locked read
+                    }
+                }
+            });
+            for (int i = 0; i < 200_000; i++) {
+                assertEquals(Collections.singletonList(money("1000")), accounts.getBalances(read), "read #" + i);
+            }
+            stop.set(true);
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_snapshot_reads_one_version_while_transfers_commit() throws Exception {
+        LockBasedFiatTransactionService transactionService = new LockBasedFiatTransactionService(
+                new InMemoryTransactionGateway(accounts), accounts, new ImmediateAccountLockPolicy());
+        Client<Long> client = clients.create(clientData());
+        List<Account<Long, FiatMoney>> clientAccounts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            clientAccounts.add(accounts.create(new FiatAccountData(money("1000"), client)));
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> {
+                while (!stop.get()) {
+                    // the money is sent back right away, so no balance goes below 999 and no transfer can fail
+                    int index = ThreadLocalRandom.current().nextInt(3);
+                    Account<Long, FiatMoney> from = clientAccounts.get(index);
+                    Account<Long, FiatMoney> to = clientAccounts.get((index + 1) % 3);
+                    transactionService.make(from, to, money("1"), OperationType.TRANSFER);
+                    transactionService.make(to, from, money("1"), OperationType.TRANSFER);
+                }
+            });
+            for (int i = 0; i < 2_000; i++) {
+                try (BalanceSnapshot<Long, FiatMoney> snapshot = accounts.openSnapshot()) {
+                    List<FiatMoney> first = new ArrayList<>();
+                    for (Account<Long, FiatMoney> account : clientAccounts) {
+                        first.add(snapshot.getBalance(account).orElseThrow(AssertionError::new));
+                    }
+                    Thread.yield();
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (int j = 0; j < clientAccounts.size(); j++) {
+                        FiatMoney balance = snapshot.getBalance(clientAccounts.get(j)).orElseThrow(AssertionError::new);
+                        assertEquals(first.get(j), balance, "snapshot #" + i);
+                        total = total.add(balance.getAmount());
+                    }
+                    assertEquals(0, new BigDecimal("3000").compareTo(total), "snapshot #" + i);
+                }
+            }
+            stop.set(true);
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_snapshot_keeps_its_versions_until_closed() {
+        LockBasedFiatTransactionService transactionService = new LockBasedFiatTransactionService(
+                new InMemoryTransactionGateway(accounts), accounts, new ImmediateAccountLockPolicy());
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(new FiatAccountData(money("10"), client));
+        BalanceSnapshot<Long, FiatMoney> snapshot = accounts.openSnapshot();
+
+        for (int i = 0; i < 100; i++) {
+            transactionService.make(account, money("1"), OperationType.REPLENISH);
+        }
+        Account<Long, FiatMoney> created = accounts.create(new FiatAccountData(money("5"), client));
+
+        assertEquals(Optional.of(money("10")), snapshot.getBalance(account));
+        assertEquals(Optional.empty(), snapshot.getBalance(created));
+        try (BalanceSnapshot<Long, FiatMoney> latest = accounts.openSnapshot()) {
+            assertTrue(latest.getVersion() > snapshot.getVersion());
+            assertEquals(Optional.of(money("110")), latest.getBalance(account));
+            assertEquals(Optional.of(money("5")), latest.getBalance(created));
+        }
+        snapshot.close();
+        assertThrows(IllegalStateException.class, () -> snapshot.getBalance(account));
+    }
+
+    @Test
+    public void test_balance_of_an_updated_account_is_read_from_the_new_data() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> account = accounts.create(accountData(client));
+
+        accounts.update(account.getId(), new FiatAccountData(money("7"), client));
+
+        assertEquals(Collections.singletonList(money("7")), accounts.getBalances(Collections.singletonList(account)));
+    }
+
+    @Test
+    public void test_account_moved_to_another_client_is_indexed_under_it() {
+        Client<Long> client = clients.create(clientData());
+        Client<Long> otherClient = clients.create(clientData());
+        Account<Long, FiatMoney> moved = accounts.create(accountData(client));
+        Account<Long, FiatMoney> kept = accounts.create(accountData(client));
+
+        accounts.update(moved.getId(), new FiatAccountData(money("3"), otherClient));
+
+        assertEquals(Collections.singletonList(kept), accounts.getAll(client));
+        assertEquals(Collections.singletonList(moved), accounts.getAll(otherClient));
+        assertSame(clients.get(otherClient.getId()).orElse(null), moved.getClient());
+        assertTrue(moved.isActive());
+    }
+
+    @Test
+    public void test_deleted_account_stays_in_the_client_index() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> deleted = accounts.create(accountData(client));
+        Account<Long, FiatMoney> kept = accounts.create(accountData(client));
+
+        accounts.delete(deleted.getId());
+
+        assertEquals(new HashSet<>(Arrays.asList(deleted, kept)), new HashSet<>(accounts.getAll(client)));
+        assertFalse(deleted.isActive());
+        assertTrue(kept.isActive());
+    }
+
+    @Test
+    public void test_restored_account_is_indexed_under_its_client() {
+        Client<Long> client = clients.create(clientData());
+        Account<Long, FiatMoney> created = accounts.create(accountData(client));
+        long restoredId = created.getId() + 1_000;
+
+        Account<Long, FiatMoney> restored = accounts.restore(restoredId, accountData(client), false);
+        Account<Long, FiatMoney> next = accounts.create(accountData(client));
+
+        assertEquals(new HashSet<>(Arrays.asList(created, restored, next)), new HashSet<>(accounts.getAll(client)));
+        assertFalse(restored.isActive());
+        assertTrue(next.getId() > restoredId);
+        assertSame(restored, accounts.get(restoredId).orElse(null));
+    }
+
+    private static FiatMoney money(String amount) {
+        return new FiatMoney(TEST_CURRENCY, new BigDecimal(amount));
+    }
+
+    private static UniversalBankClientData clientData() {
+        return new UniversalBankClientData("name", "surname", LocalDate.of(1980, 1, 1), Collections.emptyList());
+    }
+
+    private static FiatAccountData accountData(Client<Long> client) {
+        return new FiatAccountData(new FiatMoney(TEST_CURRENCY, BigDecimal.ONE), client);
+    }
+}
@@ -0,0 +1,103 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransactionData;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryTransactionGatewayTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    private final InMemoryClientGateway clients = new InMemoryClientGateway();
+    private final InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+    private final InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accounts);
+
+    @Test
+    public void test_stored_transaction_resolves_accounts_by_id() {
+        Account<Long, FiatMoney> from = createAccount();
+        Account<Long, FiatMoney> to = createAccount();
+        FiatTransaction created = transactions.create(new FiatTransactionData(from, to, money("2.50"), OperationType.TRANSFER));
+        transactions.updateTransactionState(created.getId(), TransactionState.COMMITTED);
+
+        FiatTransaction stored = transactions.get(created.getId()).orElse(null);
+
+        assertNotNull(stored);
+        assertEquals(created, stored);
+        assertSame(TransactionState.COMMITTED, stored.getState());
+        assertSame(OperationType.TRANSFER, stored.getOperationType());
+        assertEquals(from.getId(), stored.getFromAccount().map(Account::getId).orElse(null));
+        assertEquals(to.getId(), stored.getToAccount().map(Account::getId).orElse(null));
+        assertEquals(money("2.50"), stored.getAmount());
+        assertTrue(stored.test(to));
+        assertFalse(stored.test(createAccount()));
+    }
+
+    @Test
+    public void test_amounts_keep_their_scale() {
+        Account<Long, FiatMoney> account = createAccount();
+        List<FiatMoney> amounts = Arrays.asList(money("0.001"), money("1E+5"),
+                money("123456789012345678901234567890.123"));
+        for (FiatMoney amount : amounts) {
+            transactions.create(new FiatTransactionData(account, null, amount, OperationType.REPLENISH));
+        }
+
+        List<FiatTransaction> history = transactions.getAll(account);
+
+        assertEquals(amounts, history.stream().map(FiatTransaction::getAmount).collect(Collectors.toList()));
+        assertEquals(-5, history.get(1).getAmount().getAmount().scale());
+        assertFalse(history.get(0).getToAccount().isPresent());
+    }
+
+    @Test
+    public void test_multi_leg_transfer_is_journaled_for_every_leg_account() {
+        Account<Long, FiatMoney> from = createAccount();
+        Account<Long, FiatMoney> to1 = createAccount();
+        Account<Long, FiatMoney> to2 = createAccount();
+        FiatTransaction created = transactions.create(new FiatTransactionData(Arrays.asList(
+                new TransferLeg<>(from, to1, money("1")),
+                new TransferLeg<>(from, to2, money("2"))), money("3")));
+
+        List<FiatTransaction> page = transactions.getPage(to2, null, 10, HistoryDirection.NEWEST_FIRST);
+
+        assertEquals(Collections.singletonList(created), page);
+        List<TransferLeg<Long, FiatMoney>> legs = page.get(0).getLegs();
+        assertEquals(2, legs.size());
+        assertEquals(to2.getId(), legs.get(1).getToAccount().getId());
+        assertEquals(money("2"), legs.get(1).getMoney());
+        assertFalse(page.get(0).getFromAccount().isPresent());
+        assertEquals(1, transactions.getAll(from).size());
+    }
+
+    private Account<Long, FiatMoney> createAccount() {
+        Client<Long> client = clients.create(new UniversalBankClientData("name", "surname", LocalDate.of(1980, 1, 1),
+                Collections.emptyList()));
+        return accounts.create(new FiatAccountData(money("0"), client));
+    }
+
+    private static FiatMoney money(String amount) {
+        return new FiatMoney(TEST_CURRENCY, new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,146 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatTransactionDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class, properties = {
+        "bank.transactions.store=mapped",
+        "bank.transactions.mapped.dir=${java.io.tmpdir}/bank-mapped-transactions-test",
+        "bank.transactions.mapped.segment-records=8"})
+public class MappedTransactionGatewayTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    FiatTransactionDataAccess transactionDataAccess;
+
+    @Test
+    public void test_mapped_store_is_selected() {
+        assertTrue(transactionDataAccess instanceof MappedTransactionGateway);
+    }
+
+    @Test
+    public void test_state_is_updated_in_place() {
+        Account<Long, FiatMoney> fromAccount = createAccount(BigDecimal.TEN);
+        Account<Long, FiatMoney> toAccount = createAccount(BigDecimal.ONE);
+
+        FiatTransaction transfer = useCases.transferMoney(fromAccount, toAccount, money(new BigDecimal("4.25")));
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(toAccount, money(BigDecimal.TEN)));
+
+        assertSame(TransactionState.COMMITTED, transfer.getState());
+        FiatTransaction stored = transactionDataAccess.get(transfer.getId()).orElseThrow(AssertionError::new);
+        assertEquals(transfer, stored);
+        assertSame(OperationType.TRANSFER, stored.getOperationType());
+        assertEquals(fromAccount.getId(), stored.getFromAccount().map(Account::getId).orElse(null));
+        assertEquals(toAccount.getId(), stored.getToAccount().map(Account::getId).orElse(null));
+        assertEquals(money(new BigDecimal("4.25")), stored.getAmount());
+        assertTrue(stored.test(fromAccount));
+        assertTrue(stored.test(toAccount));
+
+        List<FiatTransaction> history = useCases.getAllTransactions(toAccount);
+        assertEquals(2, history.size());
+        assertSame(TransactionState.ROLLBACKED, history.get(1).getState());
+        transactionDataAccess.updateTransactionState(history.get(1).getId(), TransactionState.COMMITTED);
+        assertSame(TransactionState.COMMITTED, history.get(1).getState());
+    }
+
+    @Test
+    public void test_history_pages_span_segments() {
+        Account<Long, FiatMoney> account = createAccount(BigDecimal.ZERO);
+        for (int i = 1; i <= 20; i++) {
+            useCases.replenishAccount(account, money(new BigDecimal(i)));
+        }
+
+        List<FiatTransaction> history = useCases.getAllTransactions(account);
+        assertEquals(20, history.size());
+        assertTrue(((MappedTransactionGateway) transactionDataAccess).getSegments() >= 3);
+
+        List<FiatTransaction> newest = useCases.getTransactionsPage(account, null, 7, HistoryDirection.NEWEST_FIRST);
+        List<FiatTransaction> next = useCases.getTransactionsPage(account, newest.get(6).getId(), 7, HistoryDirection.NEWEST_FIRST);
+        assertEquals(Arrays.asList(20, 19, 18, 17, 16, 15, 14), amounts(newest));
+        assertEquals(Arrays.asList(13, 12, 11, 10, 9, 8, 7), amounts(next));
+
+        List<FiatTransaction> oldest = useCases.getTransactionsPage(account, history.get(16).getId(), 7, HistoryDirection.OLDEST_FIRST);
+        assertEquals(Arrays.asList(18, 19, 20), amounts(oldest));
+    }
+
+    @Test
+    public void test_multi_transfer_legs_and_large_amounts_are_kept() {
+        BigDecimal large = new BigDecimal("123456789012345678901234567.89");
+        Account<Long, FiatMoney> payer = createAccount(large);
+        Account<Long, FiatMoney> first = createAccount(BigDecimal.ZERO);
+        Account<Long, FiatMoney> second = createAccount(BigDecimal.ZERO);
+
+        FiatTransaction payroll = useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(payer, first, money(new BigDecimal("0.5"))),
+                new TransferLeg<>(payer, second, money(new BigDecimal("98765432109876543210.01")))));
+
+        FiatTransaction stored = transactionDataAccess.get(payroll.getId()).orElseThrow(AssertionError::new);
+        assertSame(OperationType.MULTI_TRANSFER, stored.getOperationType());
+        assertFalse(stored.getFromAccount().isPresent());
+        List<TransferLeg<Long, FiatMoney>> legs = stored.getLegs();
+        assertEquals(2, legs.size());
+        assertEquals(payer.getId(), legs.get(1).getFromAccount().getId());
+        assertEquals(second.getId(), legs.get(1).getToAccount().getId());
+        assertEquals(money(new BigDecimal("98765432109876543210.01")), legs.get(1).getMoney());
+        assertEquals(money(new BigDecimal("98765432109876543210.51")), stored.getAmount());
+        assertTrue(stored.test(first));
+        assertEquals(Collections.singletonList(payroll), useCases.getAllTransactions(second));
+    }
+
+    private static List<Integer> amounts(List<FiatTransaction> transactions) {
+        return transactions.stream().map(t -> t.getAmount().getAmount().intValueExact()).collect(Collectors.toList());
+    }
+
+    private Account<Long, FiatMoney> createAccount(BigDecimal amount) {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        Client<Long> client = useCases.registerNewClient(UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build());
+        return useCases.createAccount(client, new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
@@ -0,0 +1,155 @@
+package org.vmikhailov.java.cleanarchitecture.impl.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.dao.FiatAccountDataAccess;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class, properties = {
+        "bank.accounts.store=off-heap",
+        "bank.accounts.off-heap.slab-accounts=4",
+        "bank.transactions.service=lock-free"})
+public class OffHeapAccountGatewayTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    FiatAccountDataAccess accountDataAccess;
+
+    @Test
+    public void test_off_heap_store_is_selected() {
+        assertTrue(accountDataAccess instanceof OffHeapAccountGateway);
+    }
+
+    @Test
+    public void test_balance_snapshots_are_not_supported() {
+        assertFalse(useCases.canOpenBalanceSnapshot());
+        assertThrows(UnsupportedOperationException.class, useCases::openBalanceSnapshot);
+    }
+
+    @Test
+    public void test_views_share_the_slab_balance() {
+        Client<Long> client = createClient();
+        Account<Long, FiatMoney> fromAccount = createAccount(client, new BigDecimal("10.50"));
+        Account<Long, FiatMoney> toAccount = createAccount(createClient(), BigDecimal.ONE);
+
+        FiatTransaction transaction = useCases.transferMoney(fromAccount, toAccount, money(new BigDecimal("4.25")));
+
+        assertSame(TransactionState.COMMITTED, transaction.getState());
+        assertEquals(money(new BigDecimal("6.25")), fromAccount.getAccountData().getMoney());
+        assertEquals(money(new BigDecimal("5.25")), useCases.getAccountData(toAccount.getId()).getMoney());
+        assertEquals(fromAccount, accountDataAccess.get(fromAccount.getId()).orElse(null));
+        assertEquals(client.getId(), fromAccount.getClient().getId());
+        assertTrue(fromAccount.isActive());
+
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(toAccount, money(new BigDecimal("0.001"))));
+        accountDataAccess.delete(toAccount.getId());
+        assertFalse(toAccount.isActive());
+    }
+
+    @Test
+    public void test_client_accounts_are_chained_across_slabs() {
+        Client<Long> client = createClient();
+        Client<Long> otherClient = createClient();
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            accounts.add(createAccount(i % 2 == 0 ? client : otherClient, new BigDecimal(i)));
+        }
+        assertTrue(((OffHeapAccountGateway) accountDataAccess).getSlabs() >= 2);
+        assertEquals(new HashSet<>(Arrays.asList(accounts.get(0), accounts.get(2), accounts.get(4))),
+                new HashSet<>(useCases.getAllAccounts(client)));
+
+        accountDataAccess.update(accounts.get(2).getId(), new FiatAccountData(money(new BigDecimal("7.5")), otherClient));
+
+        assertEquals(new HashSet<>(Arrays.asList(accounts.get(0), accounts.get(4))), new HashSet<>(useCases.getAllAccounts(client)));
+        assertEquals(new HashSet<>(Arrays.asList(accounts.get(1), accounts.get(2), accounts.get(3), accounts.get(5))),
+                new HashSet<>(useCases.getAllAccounts(otherClient)));
+        assertEquals(money(new BigDecimal("7.50")), accounts.get(2).getAccountData().getMoney());
+        assertEquals(otherClient.getId(), accounts.get(2).getAccountData().getClient().getId());
+    }
+
+    @Test
+    public void test_concurrent_compare_and_set_operations_are_not_lost() throws Exception {
+        Account<Long, FiatMoney> account = createAccount(createClient(), new BigDecimal(1_000));
+        int threads = 8;
+        int operationsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean replenishing = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        if (replenishing) {
+                            useCases.replenishAccount(account, money(new BigDecimal("0.03")));
+                        } else {
+                            useCases.withdrawFromAccount(account, money(new BigDecimal("0.01")));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal expected = new BigDecimal(1_000).add(new BigDecimal("0.02").multiply(new BigDecimal((threads / 2) * operationsPerThread)));
+        assertEquals(0, expected.compareTo(account.getAccountData().getMoney().getAmount()));
+    }
+
+    private Client<Long> createClient() {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        return useCases.registerNewClient(UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build());
+    }
+
+    private Account<Long, FiatMoney> createAccount(Client<Long> client, BigDecimal amount) {
+        return useCases.createAccount(client, new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
@@ -0,0 +1,118 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountContentionTrackerTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Test
+    public void test_heavy_hitters_are_found_in_bounded_memory() {
+        AccountContentionTracker tracker = new AccountContentionTracker(16, 1);
+        long coldId = 1_000;
+        for (int i = 0; i < 1_000; i++) {
+            tracker.held(1, 100);
+            tracker.failed(2);
+            tracker.held(3, 100);
+            for (int j = 0; j < 5; j++) {
+                tracker.held(coldId++, 100);
+            }
+        }
+
+        List<HotAccount> top = tracker.top(3);
+
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)),
+                top.stream().map(HotAccount::getAccountId).collect(Collectors.toSet()));
+        assertEquals(1_000, top.stream().filter(a -> a.getAccountId() == 2).findFirst().get().getFailures());
+        assertTrue(top.stream().allMatch(a -> a.getAttempts() - a.getError() <= 1_000 && a.getAttempts() >= 1_000));
+        assertEquals(16, tracker.top(100).size());
+    }
+
+    @Test
+    public void test_hold_percentiles_are_within_a_bucket() {
+        AccountContentionTracker tracker = new AccountContentionTracker(4, 1);
+        for (int i = 0; i < 99; i++) {
+            tracker.held(1, 10_000);
+        }
+        tracker.held(1, 5_000_000);
+
+        HotAccount account = tracker.top(1).get(0);
+
+        assertTrue(account.getHoldP50Nanos() >= 10_000 && account.getHoldP50Nanos() <= 12_500);
+        assertTrue(account.getHoldP99Nanos() >= 10_000 && account.getHoldP99Nanos() <= 12_500);
+        assertEquals(5_000_000, account.getHoldMaxNanos());
+        for (int i = 0; i < 10_000; i++) {
+            long nanos = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE >> 1);
+            long limit = AccountContentionTracker.bucketLimit(AccountContentionTracker.bucketOf(nanos));
+            assertTrue(limit >= nanos && limit - nanos <= nanos / 4, () -> nanos + " -> " + limit);
+        }
+    }
+
+    @Test
+    public void test_decay_halves_the_counters() {
+        AccountContentionTracker tracker = new AccountContentionTracker(4, 1);
+        for (int i = 0; i < 10; i++) {
+            tracker.failed(1);
+        }
+
+        tracker.decay();
+
+        assertEquals(5, tracker.top(1).get(0).getAttempts());
+        assertEquals(5, tracker.top(1).get(0).getFailures());
+    }
+
+    @Test
+    public void test_account_lock_failures_and_holds_are_reported() throws Exception {
+        AccountContentionTracker tracker = new AccountContentionTracker(4, 1);
+        InMemoryClientGateway clients = new InMemoryClientGateway();
+        InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+        accounts.setContentionTracker(tracker);
+        Client<Long> client = clients.create(new UniversalBankClientData("name", "surname", LocalDate.of(1980, 1, 1),
+                Collections.emptyList()));
+        Account<Long, FiatMoney> account = accounts.create(new FiatAccountData(new FiatMoney(TEST_CURRENCY, BigDecimal.ONE), client));
+
+        account.lock();
+        account.unlock();
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        try {
+            owner.submit(account::lock).get(1, TimeUnit.SECONDS);
+            assertThrows(LockedException.class, account::lock);
+            owner.submit(account::unlock).get(1, TimeUnit.SECONDS);
+        } finally {
+            owner.shutdown();
+        }
+
+        HotAccount hot = tracker.top(1).get(0);
+        assertEquals(account.getId().longValue(), hot.getAccountId());
+        assertEquals(3, hot.getAttempts());
+        assertEquals(1, hot.getFailures());
+        assertTrue(hot.getHoldMaxNanos() > 0);
+    }
+}
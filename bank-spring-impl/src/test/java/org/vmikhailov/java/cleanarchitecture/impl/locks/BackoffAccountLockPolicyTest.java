@@ -0,0 +1,93 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackoffAccountLockPolicyTest {
+
+    @Test
+    public void test_lock_released_within_max_wait_is_acquired() throws InterruptedException {
+        BackoffAccountLockPolicy policy = new BackoffAccountLockPolicy(10, 5, 5, TimeUnit.SECONDS);
+        Lock lock = new ReentrantLock();
+        Thread holder = holdLock(lock, 20);
+
+        assertTrue(policy.tryAcquire(lock));
+        lock.unlock();
+        holder.join();
+
+        assertEquals(1, policy.getMetrics().getAcquired());
+        assertEquals(1, policy.getMetrics().getContended());
+        assertEquals(0, policy.getMetrics().getTimeouts());
+        assertTrue(policy.getMetrics().getMaxWaitNanos() > 0);
+    }
+
+    @Test
+    public void test_lock_held_longer_than_max_wait_times_out() throws InterruptedException {
+        BackoffAccountLockPolicy policy = new BackoffAccountLockPolicy(10, 5, 5000, TimeUnit.MILLISECONDS);
+        Lock lock = new ReentrantLock();
+        Thread holder = holdLock(lock, 500);
+
+        assertFalse(policy.tryAcquire(lock));
+        holder.join();
+
+        assertEquals(0, policy.getMetrics().getAcquired());
+        assertEquals(1, policy.getMetrics().getTimeouts());
+        assertTrue(policy.getMetrics().getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void test_call_deadline_bounds_all_waits_of_the_call() throws InterruptedException {
+        BackoffAccountLockPolicy policy = new BackoffAccountLockPolicy(10, 5000, 5, TimeUnit.MILLISECONDS);
+        Lock lock = new ReentrantLock();
+        Thread holder = holdLock(lock, 500);
+
+        long start = System.nanoTime();
+        AccountLockPolicy.CallScope scope = policy.startCall();
+        try {
+            assertFalse(policy.tryAcquire(lock));
+        } finally {
+            scope.close();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+        holder.join();
+
+        assertEquals(1, policy.getMetrics().getTimeouts());
+    }
+
+    @Test
+    public void test_free_lock_is_acquired_without_waiting() {
+        BackoffAccountLockPolicy policy = new BackoffAccountLockPolicy(10, 5, 5, TimeUnit.MILLISECONDS);
+        Lock lock = new ReentrantLock();
+
+        assertTrue(policy.tryAcquire(lock));
+        lock.unlock();
+
+        assertEquals(1, policy.getMetrics().getAcquired());
+        assertEquals(0, policy.getMetrics().getContended());
+        assertEquals(0, policy.getMetrics().getWaitNanos());
+    }
+
+    private static Thread holdLock(Lock lock, long millis) throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+        return holder;
+    }
+}
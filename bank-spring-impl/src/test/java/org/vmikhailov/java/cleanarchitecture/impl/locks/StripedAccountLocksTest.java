@@ -0,0 +1,134 @@
+package org.vmikhailov.java.cleanarchitecture.impl.locks;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class, properties = {
+        "bank.locks.stripes=2",
+        "bank.locks.policy=backoff",
+        "bank.locks.max-wait=5s",
+        "bank.locks.call-timeout=5s"})
+public class StripedAccountLocksTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    AccountLockPolicy lockPolicy;
+
+    @Test
+    public void test_stripes_are_rounded_up_to_power_of_two() {
+        AccountLocks locks = new AccountLocks(3);
+
+        assertEquals(4, locks.getStripes());
+        assertSame(locks.lockFor(1), locks.lockFor(5));
+        assertNotSame(locks.lockFor(1), locks.lockFor(2));
+        assertEquals(locks.lockOrder(1), locks.lockOrder(5));
+        assertNotSame(AccountLocks.perAccount().lockFor(1), AccountLocks.perAccount().lockFor(1));
+        assertEquals(42, AccountLocks.perAccount().lockOrder(42));
+    }
+
+    @Test
+    public void test_transfer_between_accounts_of_the_same_stripe_releases_the_stripe() throws Exception {
+        Account<Long, FiatMoney> fromAccount = createAccount(BigDecimal.TEN);
+        createAccount(BigDecimal.ZERO);
+        Account<Long, FiatMoney> toAccount = createAccount(BigDecimal.ZERO);
+
+        assertSame(TransactionState.COMMITTED,
+                useCases.transferMoney(fromAccount, toAccount, money(BigDecimal.ONE)).getState());
+        assertSame(TransactionState.COMMITTED,
+                useCases.transferMoney(toAccount, fromAccount, money(BigDecimal.ONE)).getState());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                fromAccount.lock();
+                toAccount.unlock();
+            }).get(1, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_opposite_transfers_across_stripes_do_not_deadlock() throws Exception {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accounts.add(createAccount(new BigDecimal(1_000_000)));
+        }
+        long timeoutsBefore = lockPolicy.getMetrics().getTimeouts();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Account<Long, FiatMoney> from = accounts.get(t % 4);
+                Account<Long, FiatMoney> to = accounts.get((t + 1 + t / 4) % 4);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        assertSame(TransactionState.COMMITTED, useCases.transferMoney(from, to, money(BigDecimal.ONE)).getState());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(timeoutsBefore, lockPolicy.getMetrics().getTimeouts());
+        BigDecimal total = accounts.stream()
+                .map(a -> a.getAccountData().getMoney().getAmount())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal(4_000_000).compareTo(total));
+    }
+
+    private Account<Long, FiatMoney> createAccount(BigDecimal amount) {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        Client<Long> client = useCases.registerNewClient(UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build());
+        return useCases.createAccount(client, new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
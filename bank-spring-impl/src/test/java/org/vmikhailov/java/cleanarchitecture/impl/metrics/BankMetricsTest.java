@@ -0,0 +1,107 @@
+package org.vmikhailov.java.cleanarchitecture.impl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.LockedException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class)
+public class BankMetricsTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    public void test_calls_commits_rollbacks_and_results_are_recorded() {
+        Account<Long, FiatMoney> from = createAccount(BigDecimal.TEN);
+        Account<Long, FiatMoney> to = createAccount(BigDecimal.ZERO);
+        long transfers = calls("TRANSFER", "success");
+        long failedWithdrawals = calls("WITHDRAW", "failure");
+        double commits = registry.get("bank.transactions.commits").tag("operation", "TRANSFER").counter().count();
+        double rollbacks = registry.get("bank.transactions.rollbacks").tag("operation", "WITHDRAW").counter().count();
+        double returned = registry.get("bank.gateway.result.size").tag("usecase", "GET_ALL_ACCOUNTS").summary().totalAmount();
+
+        useCases.transferMoney(from, to, money(BigDecimal.ONE));
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(to, money(BigDecimal.TEN)));
+        useCases.getAllAccounts(to.getAccountData().getClient());
+
+        assertEquals(transfers + 1, calls("TRANSFER", "success"));
+        assertEquals(failedWithdrawals + 1, calls("WITHDRAW", "failure"));
+        assertEquals(commits + 1, registry.get("bank.transactions.commits").tag("operation", "TRANSFER").counter().count());
+        assertEquals(rollbacks + 1, registry.get("bank.transactions.rollbacks").tag("operation", "WITHDRAW").counter().count());
+        assertEquals(returned + 1, registry.get("bank.gateway.result.size").tag("usecase", "GET_ALL_ACCOUNTS").summary().totalAmount());
+        assertTrue(registry.get("bank.transactions.locked").tag("operation", "TRANSFER").timer().count() > 0);
+    }
+
+    @Test
+    public void test_lock_failure_is_counted() throws Exception {
+        Account<Long, FiatMoney> from = createAccount(BigDecimal.TEN);
+        Account<Long, FiatMoney> to = createAccount(BigDecimal.ZERO);
+        long lockedCalls = calls("TRANSFER", "locked");
+        double lockFailures = registry.get("bank.locks.failures").tag("operation", "TRANSFER").counter().count();
+
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        try {
+            owner.submit(to::lock).get(1, TimeUnit.SECONDS);
+            assertThrows(LockedException.class, () -> useCases.transferMoney(from, to, money(BigDecimal.ONE)));
+            owner.submit(to::unlock).get(1, TimeUnit.SECONDS);
+        } finally {
+            owner.shutdown();
+        }
+
+        assertEquals(lockedCalls + 1, calls("TRANSFER", "locked"));
+        assertEquals(lockFailures + 1, registry.get("bank.locks.failures").tag("operation", "TRANSFER").counter().count());
+    }
+
+    private long calls(String useCase, String outcome) {
+        return registry.get("bank.usecase").tag("usecase", useCase).tag("outcome", outcome).timer().count();
+    }
+
+    private Account<Long, FiatMoney> createAccount(BigDecimal amount) {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        Client<Long> client = useCases.registerNewClient(UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build());
+        return useCases.createAccount(client, new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
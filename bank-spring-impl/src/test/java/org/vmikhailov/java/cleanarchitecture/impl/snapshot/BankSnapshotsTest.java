@@ -0,0 +1,284 @@
+package org.vmikhailov.java.cleanarchitecture.impl.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FixedPointAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.AccountLocks;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.BackoffAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.DurabilityMode;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WalRecord;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankSnapshotsTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+    private static final CurrencyCodec CURRENCY_CODEC = new CurrencyCodec() {
+        @Override
+        public String codeOf(Currency currency) {
+            return "TST";
+        }
+
+        @Override
+        public Currency currencyOf(String code) {
+            return TEST_CURRENCY;
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_bank_is_recovered_from_snapshot_and_log_tail() throws IOException {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        List<FiatTransaction> made = new ArrayList<>();
+        Client<Long> deletedClient;
+        try (Bank bank = new Bank(directory)) {
+            for (int i = 0; i < 10; i++) {
+                accounts.add(bank.createAccount(i, i % 2 == 0));
+            }
+            deletedClient = accounts.get(9).getClient();
+            bank.accounts.delete(accounts.get(8).getId());
+            made.add(bank.service.make(accounts.get(0), accounts.get(1), money("10.50"), OperationType.TRANSFER));
+            made.add(bank.service.make(accounts.get(2), money("3"), OperationType.WITHDRAW));
+
+            SnapshotStats snapshot = bank.snapshots.takeSnapshot();
+            assertEquals(10, snapshot.getClients());
+            assertEquals(10, snapshot.getAccounts());
+            assertEquals(2, snapshot.getTransactions());
+
+            bank.clients.delete(deletedClient.getId());
+            made.add(bank.service.make(accounts.get(1), accounts.get(3), money("0.50"), OperationType.TRANSFER));
+            made.add(bank.service.make(accounts.get(4), money("100"), OperationType.REPLENISH));
+            made.add(bank.service.make(Arrays.asList(
+                    new TransferLeg<>(accounts.get(5), accounts.get(6), money("1")),
+                    new TransferLeg<>(accounts.get(6), accounts.get(7), money("2")))));
+        }
+
+        try (Bank recovered = new Bank(directory)) {
+            RecoveryStats stats = recovered.snapshots.recover();
+            assertNotNull(stats.getSnapshot());
+            assertEquals(3, stats.getReplayedRecords());
+            assertEquals(0, stats.getLoggedClients());
+            assertEquals(0, stats.getLoggedAccounts());
+
+            for (Account<Long, FiatMoney> account : accounts) {
+                Account<Long, FiatMoney> restored = recovered.accounts.get(account.getId()).orElseThrow(AssertionError::new);
+                assertEquals(0, account.getAccountData().getMoney().getAmount()
+                        .compareTo(restored.getAccountData().getMoney().getAmount()));
+                assertSame(TEST_CURRENCY, restored.getAccountData().getMoney().getCurrency());
+                assertEquals(account.getAccountData().getClass(), restored.getAccountData().getClass());
+                assertClientData((UniversalBankClientData) account.getAccountData().getClient().getClientData(),
+                        (UniversalBankClientData) restored.getAccountData().getClient().getClientData());
+            }
+            assertFalse(recovered.accounts.get(accounts.get(8).getId()).get().isActive());
+            // client deletion is not logged - the client is as active as it was in the snapshot
+            assertTrue(recovered.clients.get(deletedClient.getId()).isPresent());
+            for (FiatTransaction transaction : made) {
+                FiatTransaction restored = recovered.transactions.get(transaction.getId()).orElseThrow(AssertionError::new);
+                assertEquals(TransactionState.COMMITTED, restored.getState());
+                assertSame(transaction.getOperationType(), restored.getOperationType());
+                assertEquals(0, transaction.getAmount().getAmount().compareTo(restored.getAmount().getAmount()));
+                assertEquals(transaction.getLegs().size(), restored.getLegs().size());
+            }
+            assertEquals(2, recovered.transactions.getAll(recovered.accounts.get(accounts.get(1).getId()).get()).size());
+        }
+    }
+
+    @Test
+    public void test_accounts_created_after_snapshot_are_recovered_from_log() throws IOException {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        try (Bank bank = new Bank(directory)) {
+            accounts.add(bank.createAccount(0, false));
+            bank.snapshots.takeSnapshot();
+            accounts.add(bank.createAccount(1, false));
+            accounts.add(bank.createAccount(2, true));
+            bank.service.make(accounts.get(0), accounts.get(1), money("100"), OperationType.TRANSFER);
+            bank.service.make(Arrays.asList(
+                    new TransferLeg<>(accounts.get(1), accounts.get(2), money("50.25")),
+                    new TransferLeg<>(accounts.get(2), accounts.get(0), money("0.25"))));
+        }
+
+        try (Bank recovered = new Bank(directory)) {
+            RecoveryStats stats = recovered.snapshots.recover();
+            assertEquals(2, stats.getLoggedClients());
+            assertEquals(2, stats.getLoggedAccounts());
+            assertEquals(6, stats.getReplayedRecords());
+            int[] transactionsCount = {2, 2, 1};
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < accounts.size(); i++) {
+                Account<Long, FiatMoney> account = accounts.get(i);
+                Account<Long, FiatMoney> restored = recovered.accounts.get(account.getId()).orElseThrow(AssertionError::new);
+                assertEquals(0, account.getAccountData().getMoney().getAmount()
+                        .compareTo(restored.getAccountData().getMoney().getAmount()), "account " + account.getId());
+                assertEquals(account.getAccountData().getClass(), restored.getAccountData().getClass());
+                assertEquals(account.getClient().getId(), restored.getClient().getId());
+                assertClientData((UniversalBankClientData) account.getClient().getClientData(),
+                        (UniversalBankClientData) restored.getClient().getClientData());
+                assertEquals(transactionsCount[i], recovered.transactions.getAll(restored).size());
+                total = total.add(restored.getAccountData().getMoney().getAmount());
+            }
+            assertEquals(0, new BigDecimal("3000").compareTo(total));
+        }
+    }
+
+    @Test
+    public void test_recovery_fails_on_change_of_unknown_account() throws IOException {
+        Account<Long, FiatMoney> account;
+        try (Bank bank = new Bank(directory)) {
+            account = bank.createAccount(0, false);
+            bank.snapshots.takeSnapshot();
+            bank.log.append(new WalRecord(0, Long.MAX_VALUE, OperationType.TRANSFER,
+                    Collections.singletonList(new WalRecord.Leg(account.getId(), Long.MAX_VALUE, BigDecimal.TEN)))).join();
+        }
+
+        try (Bank recovered = new Bank(directory)) {
+            assertThrows(IOException.class, recovered.snapshots::recover);
+            assertEquals(0, new BigDecimal("1000").compareTo(
+                    recovered.accounts.get(account.getId()).get().getAccountData().getMoney().getAmount()));
+        }
+    }
+
+    @Test
+    public void test_snapshot_taken_during_transfers_recovers_final_balances() throws Exception {
+        int accountsCount = 64;
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        try (Bank bank = new Bank(directory)) {
+            for (int i = 0; i < accountsCount; i++) {
+                accounts.add(bank.createAccount(i, i % 2 == 0));
+            }
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        int from = random.nextInt(accountsCount);
+                        int to = (from + 1 + random.nextInt(accountsCount - 1)) % accountsCount;
+                        try {
+                            bank.service.make(accounts.get(from), accounts.get(to), money("0.01"), OperationType.TRANSFER);
+                        } catch (RuntimeException ignored) {
+                            // locked or not enough money - no balance change
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (int i = 0; i < 3; i++) {
+                Thread.sleep(50);
+                bank.snapshots.takeSnapshot();
+            }
+            Thread.sleep(50);
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        try (Bank recovered = new Bank(directory)) {
+            recovered.snapshots.recover();
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account<Long, FiatMoney> account : accounts) {
+                BigDecimal restored = recovered.accounts.get(account.getId()).get().getAccountData().getMoney().getAmount();
+                assertEquals(0, account.getAccountData().getMoney().getAmount().compareTo(restored), "account " + account.getId());
+                total = total.add(restored);
+            }
+            assertEquals(0, new BigDecimal(1_000).multiply(BigDecimal.valueOf(accountsCount)).compareTo(total));
+        }
+    }
+
+    private static void assertClientData(UniversalBankClientData expected, UniversalBankClientData actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSurname(), actual.getSurname());
+        assertEquals(expected.getBirthDate(), actual.getBirthDate());
+        if (expected.getDocuments() == null) {
+            assertNull(actual.getDocuments());
+            return;
+        }
+        assertEquals(expected.getDocuments().size(), actual.getDocuments().size());
+        for (int i = 0; i < expected.getDocuments().size(); i++) {
+            ClientDocument expectedDocument = expected.getDocuments().get(i);
+            ClientDocument actualDocument = actual.getDocuments().get(i);
+            assertEquals(expectedDocument.getDocumentNumber(), actualDocument.getDocumentNumber());
+            assertSame(expectedDocument.getDocumentType(), actualDocument.getDocumentType());
+            assertEquals(expectedDocument.getClientName(), actualDocument.getClientName());
+            assertEquals(expectedDocument.getClientSurname(), actualDocument.getClientSurname());
+        }
+    }
+
+    private static FiatMoney money(String amount) {
+        return new FiatMoney(TEST_CURRENCY, new BigDecimal(amount));
+    }
+
+    /*
+     * Lock-based bank with the log and snapshots in the directory, closing it closes the log.
+     */
+    private static final class Bank implements AutoCloseable {
+        final InMemoryClientGateway clients = new InMemoryClientGateway();
+        final InMemoryAccountGateway accounts;
+        final InMemoryTransactionGateway transactions;
+        final WriteAheadLog log;
+        final LockBasedFiatTransactionService service;
+        final BankSnapshots snapshots;
+
+        Bank(Path directory) throws IOException {
+            BackoffAccountLockPolicy lockPolicy = new BackoffAccountLockPolicy(10, 10, 50, TimeUnit.MILLISECONDS);
+            accounts = new InMemoryAccountGateway(clients, lockPolicy, new AccountLocks(AccountLocks.DEFAULT_STRIPES));
+            transactions = new InMemoryTransactionGateway(accounts);
+            log = new WriteAheadLog(directory.resolve("wal"), DurabilityMode.GROUP, 64, 1, TimeUnit.MILLISECONDS, 4096);
+            service = new LockBasedFiatTransactionService(transactions, accounts, lockPolicy);
+            service.setWriteAheadLog(log);
+            snapshots = new BankSnapshots(directory.resolve("snapshots"), 2, 4, CURRENCY_CODEC,
+                    clients, accounts, transactions, log);
+        }
+
+        Account<Long, FiatMoney> createAccount(int number, boolean fixedPoint) {
+            ClientDocument document = new ClientDocument("doc" + number, ClientDocument.DocumentType.PASSPORT,
+                    "name" + number, null);
+            Client<Long> client = clients.create(new UniversalBankClientData("name" + number, "surname" + number,
+                    number % 3 == 0 ? null : LocalDate.of(1980, 1, 1).plusDays(number),
+                    number % 4 == 0 ? null : Collections.singletonList(document)));
+            FiatMoney money = money("1000");
+            return accounts.create(fixedPoint ? new FixedPointAccountData(money, client) : new FiatAccountData(money, client));
+        }
+
+        @Override
+        public void close() throws IOException {
+            snapshots.close();
+            log.close();
+        }
+    }
+}
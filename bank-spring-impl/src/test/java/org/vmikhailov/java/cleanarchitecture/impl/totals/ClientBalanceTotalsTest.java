@@ -0,0 +1,205 @@
+package org.vmikhailov.java.cleanarchitecture.impl.totals;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.AccountData;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.LockBasedFiatTransactionService;
+import org.vmikhailov.java.cleanarchitecture.usecases.BankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientBalanceTotalsTest {
+    private static final Currency USD = new TestCurrency();
+    private static final Currency EUR = new TestCurrency();
+
+    private final InMemoryClientGateway clients = new InMemoryClientGateway();
+    private final InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+    private final InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accounts);
+    private final LockBasedFiatTransactionService transactionService =
+            new LockBasedFiatTransactionService(transactions, accounts, new ImmediateAccountLockPolicy());
+    private final BankUseCases<Long, FiatMoney, FiatTransaction> useCases =
+            new BankUseCases<Long, FiatMoney, FiatTransaction>(clients, accounts, transactions, transactionService) {
+            };
+    private final ClientBalanceTotals totals = new ClientBalanceTotals();
+    private final ClientTotalsVerifier verifier = new ClientTotalsVerifier(clients, accounts, totals);
+
+    ClientBalanceTotalsTest() {
+        transactionService.setClientTotals(totals);
+        useCases.setClientTotals(totals);
+    }
+
+    @Test
+    public void test_totals_follow_committed_transactions_only() {
+        Client<Long> alice = useCases.registerNewClient(clientData("alice"));
+        Client<Long> bob = useCases.registerNewClient(clientData("bob"));
+        Account<Long, FiatMoney> aliceUsd = useCases.createAccount(alice, new FiatAccountData(usd("100"), alice));
+        Account<Long, FiatMoney> aliceSavings = useCases.createAccount(alice, new FiatAccountData(usd("50"), alice));
+        Account<Long, FiatMoney> aliceEur = useCases.createAccount(alice, new FiatAccountData(eur("10"), alice));
+        Account<Long, FiatMoney> bobUsd = useCases.createAccount(bob, new FiatAccountData(usd("0"), bob));
+
+        useCases.replenishAccount(aliceUsd, usd("5"));
+        useCases.withdrawFromAccount(aliceEur, eur("4"));
+        useCases.transferMoney(aliceUsd, aliceSavings, usd("20"));
+        useCases.transferMoney(aliceUsd, bobUsd, usd("30"));
+        useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(aliceSavings, bobUsd, usd("1")),
+                new TransferLeg<>(bobUsd, aliceUsd, usd("2"))));
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(aliceEur, eur("100")));
+
+        assertEquals(0, new BigDecimal("126").compareTo(total(alice, USD)));
+        assertEquals(0, new BigDecimal("6").compareTo(total(alice, EUR)));
+        assertEquals(0, new BigDecimal("29").compareTo(total(bob, USD)));
+        assertNull(total(bob, EUR));
+        ClientTotalsVerifier.Verification verification = verifier.verify();
+        assertEquals(2, verification.getClients());
+        assertEquals(Collections.emptyList(), verification.getMismatches());
+    }
+
+    @Test
+    public void test_transaction_committed_right_after_create_is_counted_once() {
+        AtomicReference<LockBasedFiatTransactionService> service = new AtomicReference<>();
+        InMemoryAccountGateway replenishingAccounts = new InMemoryAccountGateway(clients) {
+            @Override
+            public Account<Long, FiatMoney> create(AccountData<Long, FiatMoney> data) {
+                Account<Long, FiatMoney> account = super.create(data);
+                service.get().make(account, usd("5"), OperationType.REPLENISH);
+                return account;
+            }
+        };
+        InMemoryTransactionGateway replenishingTransactions = new InMemoryTransactionGateway(replenishingAccounts);
+        service.set(new LockBasedFiatTransactionService(replenishingTransactions, replenishingAccounts, new ImmediateAccountLockPolicy()));
+        service.get().setClientTotals(totals);
+        BankUseCases<Long, FiatMoney, FiatTransaction> replenishingUseCases = new BankUseCases<Long, FiatMoney, FiatTransaction>(
+                clients, replenishingAccounts, replenishingTransactions, service.get()) {
+        };
+        replenishingUseCases.setClientTotals(totals);
+        Client<Long> client = replenishingUseCases.registerNewClient(clientData("early"));
+
+        Account<Long, FiatMoney> account = replenishingUseCases.createAccount(client, new FiatAccountData(usd("10"), client));
+
+        assertEquals(0, new BigDecimal("15").compareTo(account.getAccountData().getMoney().getAmount()));
+        assertEquals(0, new BigDecimal("15").compareTo(total(client, USD)));
+    }
+
+    @Test
+    public void test_verifier_finds_no_mismatch_while_transfers_commit() throws Exception {
+        List<Account<Long, FiatMoney>> bankAccounts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Client<Long> client = useCases.registerNewClient(clientData("client" + i));
+            bankAccounts.add(useCases.createAccount(client, new FiatAccountData(usd("1000"), client)));
+            bankAccounts.add(useCases.createAccount(client, new FiatAccountData(usd("500"), client)));
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                writers.add(executor.submit(() -> {
+                    while (!stop.get()) {
+                        int from = ThreadLocalRandom.current().nextInt(bankAccounts.size());
+                        int to = (from + 1 + ThreadLocalRandom.current().nextInt(bankAccounts.size() - 1)) % bankAccounts.size();
+                        try {
+                            useCases.transferMoney(bankAccounts.get(from), bankAccounts.get(to), usd("1"));
+                        } catch (AccountException | TransactionException ex) {
+                            // locked by the other writer or the verifier
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 50; i++) {
+                assertEquals(Collections.emptyList(), verifier.verify().getMismatches(), "verification #" + i);
+            }
+            stop.set(true);
+            for (Future<?> writer : writers) {
+                writer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            stop.set(true);
+            executor.shutdown();
+        }
+        ClientTotalsVerifier.Verification verification = verifier.verify();
+        assertEquals(0, verification.getSkipped());
+        assertEquals(Collections.emptyList(), verification.getMismatches());
+    }
+
+    @Test
+    public void test_verifier_reports_drifted_totals_and_rebuild_recounts_them() {
+        Client<Long> client = useCases.registerNewClient(clientData("drift"));
+        useCases.createAccount(client, new FiatAccountData(usd("7"), client));
+        totals.replace(client.getId(), Arrays.asList(usd("8"), eur("1")));
+
+        List<ClientTotalsMismatch> mismatches = verifier.verify().getMismatches();
+
+        assertEquals(2, mismatches.size());
+        assertEquals(0, new BigDecimal("7").compareTo(mismatches.get(0).getExpected()));
+        assertEquals(0, new BigDecimal("8").compareTo(mismatches.get(0).getTotal()));
+        verifier.rebuild();
+        assertEquals(Collections.emptyList(), verifier.verify().getMismatches());
+        assertEquals(Collections.singletonList(usd("7")), useCases.getClientTotals(client));
+    }
+
+    @Test
+    public void test_totals_query_needs_maintained_totals() {
+        BankUseCases<Long, FiatMoney, FiatTransaction> withoutTotals =
+                new BankUseCases<Long, FiatMoney, FiatTransaction>(clients, accounts, transactions, transactionService) {
+                };
+        Client<Long> client = withoutTotals.registerNewClient(clientData("none"));
+
+        assertThrows(UnsupportedOperationException.class, () -> withoutTotals.getClientTotals(client));
+    }
+
+    private BigDecimal total(Client<Long> client, Currency currency) {
+        return useCases.getClientTotals(client).stream()
+                .filter(total -> total.getCurrency() == currency)
+                .map(FiatMoney::getAmount)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static UniversalBankClientData clientData(String name) {
+        return new UniversalBankClientData(name, "surname", LocalDate.of(1980, 1, 1), Collections.emptyList());
+    }
+
+    private static FiatMoney usd(String amount) {
+        return new FiatMoney(USD, new BigDecimal(amount));
+    }
+
+    private static FiatMoney eur(String amount) {
+        return new FiatMoney(EUR, new BigDecimal(amount));
+    }
+
+    private static final class TestCurrency implements Currency {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    }
+}
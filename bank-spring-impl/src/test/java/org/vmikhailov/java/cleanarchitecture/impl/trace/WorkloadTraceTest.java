@@ -0,0 +1,150 @@
+package org.vmikhailov.java.cleanarchitecture.impl.trace;
+
+import org.junit.jupiter.api.Test;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.transactions.FiatTransactionService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadTraceTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Test
+    public void test_written_records_are_read_back() throws IOException {
+        List<WorkloadTraceRecord> records = Arrays.asList(
+                new WorkloadTraceRecord(0, OperationType.REPLENISH, 1, 0, new BigDecimal("10.25")),
+                new WorkloadTraceRecord(1_500_000, OperationType.TRANSFER, 42, Long.MAX_VALUE, new BigDecimal("123456789012345678901234567890.1")),
+                new WorkloadTraceRecord(7, OperationType.WITHDRAW, 3, 0, new BigDecimal("1E+3")),
+                new WorkloadTraceRecord(9, Arrays.asList(
+                        new WorkloadTraceRecord.Leg(5, 6, new BigDecimal("0.5")),
+                        new WorkloadTraceRecord.Leg(5, Long.MAX_VALUE, new BigDecimal("2.50")))),
+                new WorkloadTraceRecord(11, OperationType.REPLENISH, 6, 0, BigDecimal.ONE));
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        try (WorkloadTraceWriter writer = new WorkloadTraceWriter(trace)) {
+            records.forEach(writer::write);
+        }
+
+        try (WorkloadTraceReader reader = new WorkloadTraceReader(new ByteArrayInputStream(trace.toByteArray()))) {
+            for (WorkloadTraceRecord expected : records) {
+                WorkloadTraceRecord actual = reader.next();
+                assertNotNull(actual);
+                assertEquals(expected.getDelayNanos(), actual.getDelayNanos());
+                assertSame(expected.getOperationType(), actual.getOperationType());
+                assertEquals(expected.getAccountA(), actual.getAccountA());
+                assertEquals(expected.getAccountB(), actual.getAccountB());
+                assertEquals(expected.getAmount(), actual.getAmount());
+                assertEquals(expected.getLegs().size(), actual.getLegs().size());
+                for (int i = 0; i < expected.getLegs().size(); i++) {
+                    assertEquals(expected.getLegs().get(i).getFromAccount(), actual.getLegs().get(i).getFromAccount());
+                    assertEquals(expected.getLegs().get(i).getToAccount(), actual.getLegs().get(i).getToAccount());
+                    assertEquals(expected.getLegs().get(i).getAmount(), actual.getLegs().get(i).getAmount());
+                }
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void test_multi_leg_transfer_is_recorded() throws IOException {
+        InMemoryClientGateway clients = new InMemoryClientGateway();
+        InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+        Client<Long> client = clients.create(new UniversalBankClientData(
+                "name", "surname", LocalDate.of(1980, 1, 1), Collections.emptyList()));
+        Account<Long, FiatMoney> payer = accounts.create(new FiatAccountData(money("10"), client));
+        Account<Long, FiatMoney> first = accounts.create(new FiatAccountData(money("0"), client));
+        Account<Long, FiatMoney> second = accounts.create(new FiatAccountData(money("0"), client));
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        try (WorkloadTraceWriter writer = new WorkloadTraceWriter(trace)) {
+            new RecordingFiatTransactionService(new PassingTransactionService(), writer).make(Arrays.asList(
+                    new TransferLeg<>(payer, first, money("1.5")),
+                    new TransferLeg<>(payer, second, money("2"))));
+        }
+
+        try (WorkloadTraceReader reader = new WorkloadTraceReader(new ByteArrayInputStream(trace.toByteArray()))) {
+            WorkloadTraceRecord record = reader.next();
+            assertNotNull(record);
+            assertSame(OperationType.MULTI_TRANSFER, record.getOperationType());
+            assertEquals(new BigDecimal("3.5"), record.getAmount());
+            assertEquals(2, record.getLegs().size());
+            assertEquals(payer.getId(), record.getLegs().get(0).getFromAccount());
+            assertEquals(first.getId(), record.getLegs().get(0).getToAccount());
+            assertEquals(new BigDecimal("1.5"), record.getLegs().get(0).getAmount());
+            assertEquals(second.getId(), record.getLegs().get(1).getToAccount());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void test_version_1_trace_is_read() throws IOException {
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(trace);
+        output.writeInt(WorkloadTraceWriter.MAGIC);
+        output.writeByte(1);
+        output.write(new byte[]{(byte) OperationType.WITHDRAW.ordinal(), 5, 3, 0, 0, 1, 7});
+
+        try (WorkloadTraceReader reader = new WorkloadTraceReader(new ByteArrayInputStream(trace.toByteArray()))) {
+            WorkloadTraceRecord record = reader.next();
+            assertNotNull(record);
+            assertSame(OperationType.WITHDRAW, record.getOperationType());
+            assertEquals(3, record.getAccountA());
+            assertEquals(BigDecimal.valueOf(7), record.getAmount());
+            assertTrue(record.getLegs().isEmpty());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void test_reading_not_a_trace_fails() {
+        assertThrows(IOException.class, () -> new WorkloadTraceReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+    }
+
+    private static FiatMoney money(String amount) {
+        return new FiatMoney(TEST_CURRENCY, new BigDecimal(amount));
+    }
+
+    /*
+     * Makes nothing - only the recording matters.
+     */
+    private static class PassingTransactionService implements FiatTransactionService {
+        @Override
+        public FiatTransaction make(Account<Long, FiatMoney> account, FiatMoney money, OperationType type) {
+            return null;
+        }
+
+        @Override
+        public FiatTransaction make(Account<Long, FiatMoney> fromAccount, Account<Long, FiatMoney> toAccount,
+                                    FiatMoney money, OperationType type) {
+            return null;
+        }
+
+        @Override
+        public FiatTransaction make(List<TransferLeg<Long, FiatMoney>> legs) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.exceptions.TransactionException;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryAccountGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryClientGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.gateway.InMemoryTransactionGateway;
+import org.vmikhailov.java.cleanarchitecture.impl.locks.ImmediateAccountLockPolicy;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.DurabilityMode;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WalRecord;
+import org.vmikhailov.java.cleanarchitecture.impl.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FailedWriteAheadLogTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    private final InMemoryClientGateway clients = new InMemoryClientGateway();
+    private final InMemoryAccountGateway accounts = new InMemoryAccountGateway(clients);
+    private final InMemoryTransactionGateway transactions = new InMemoryTransactionGateway(accounts);
+
+    @TempDir
+    Path directory;
+
+    private FailingLog log;
+    private HeldLog heldLog;
+
+    @AfterEach
+    public void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        if (heldLog != null) {
+            heldLog.close();
+        }
+    }
+
+    @Test
+    public void test_transaction_not_made_durable_is_rollbacked() throws IOException {
+        LockBasedFiatTransactionService service = new LockBasedFiatTransactionService(
+                transactions, accounts, new ImmediateAccountLockPolicy());
+        log = new FailingLog(directory);
+        service.setWriteAheadLog(log);
+        Account<Long, FiatMoney> from = createAccount("from", BigDecimal.TEN);
+        Account<Long, FiatMoney> to = createAccount("to", BigDecimal.ONE);
+
+        log.failing.set(true);
+        assertThrows(TransactionException.class, () -> service.make(from, to, money(BigDecimal.ONE), OperationType.TRANSFER));
+
+        assertEquals(BigDecimal.TEN, from.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ONE, to.getAccountData().getMoney().getAmount());
+        assertEquals(Collections.singletonList(TransactionState.ROLLBACKED), states(from));
+
+        log.failing.set(false);
+        assertThrows(TransactionException.class, () -> service.make(from, to, money(BigDecimal.ONE), OperationType.TRANSFER));
+        assertEquals(BigDecimal.TEN, from.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ONE, to.getAccountData().getMoney().getAmount());
+    }
+
+    @Test
+    public void test_withdraw_spending_money_not_made_durable_is_rollbacked_first() throws Exception {
+        LockBasedFiatTransactionService service = new LockBasedFiatTransactionService(
+                transactions, accounts, new ImmediateAccountLockPolicy());
+        heldLog = new HeldLog(directory);
+        service.setWriteAheadLog(heldLog);
+        Account<Long, FiatMoney> account = createAccount("account", BigDecimal.ZERO);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<FiatTransaction> replenishment = executor.submit(() ->
+                    service.make(account, money(BigDecimal.TEN), OperationType.REPLENISH));
+            heldLog.awaitRecords(1);
+            // the account isn't held while the replenishment waits for its record
+            Future<FiatTransaction> withdrawal = executor.submit(() ->
+                    service.make(account, money(BigDecimal.TEN), OperationType.WITHDRAW));
+            heldLog.awaitRecords(2);
+
+            heldLog.fail();
+
+            assertRollbacked(withdrawal);
+            assertRollbacked(replenishment);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, BigDecimal.ZERO.compareTo(account.getAccountData().getMoney().getAmount()));
+        List<TransactionState> states = states(account);
+        assertEquals(2, states.size());
+        states.forEach(state -> assertSame(TransactionState.ROLLBACKED, state));
+        assertThrows(TransactionException.class, () -> service.make(account, money(BigDecimal.ONE), OperationType.REPLENISH));
+        assertEquals(2, states(account).size());
+    }
+
+    @Test
+    public void test_partitioned_withdraw_spending_money_not_made_durable_is_rollbacked_first() throws Exception {
+        PartitionedFiatTransactionService service = new PartitionedFiatTransactionService(
+                transactions, accounts, new ImmediateAccountLockPolicy(), 2, 16);
+        try {
+            heldLog = new HeldLog(directory);
+            service.setWriteAheadLog(heldLog);
+            Account<Long, FiatMoney> account = createAccount("account", BigDecimal.ZERO);
+
+            Future<FiatTransaction> replenishment = service.submit(account, money(BigDecimal.TEN), OperationType.REPLENISH);
+            Future<FiatTransaction> withdrawal = service.submit(account, money(BigDecimal.TEN), OperationType.WITHDRAW);
+            heldLog.awaitRecords(2);
+
+            heldLog.fail();
+
+            assertRollbacked(withdrawal);
+            assertRollbacked(replenishment);
+            assertEquals(0, BigDecimal.ZERO.compareTo(account.getAccountData().getMoney().getAmount()));
+            List<TransactionState> states = states(account);
+            assertEquals(2, states.size());
+            states.forEach(state -> assertSame(TransactionState.ROLLBACKED, state));
+            assertThrows(TransactionException.class, () -> service.make(account, money(BigDecimal.ONE), OperationType.REPLENISH));
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void test_partitioned_transaction_not_made_durable_is_rollbacked_on_its_partition() throws IOException {
+        PartitionedFiatTransactionService service = new PartitionedFiatTransactionService(
+                transactions, accounts, new ImmediateAccountLockPolicy(), 2, 16);
+        try {
+            log = new FailingLog(directory);
+            service.setWriteAheadLog(log);
+            Account<Long, FiatMoney> first = createAccount("first", BigDecimal.TEN);
+            Account<Long, FiatMoney> second = createAccount("second", BigDecimal.TEN);
+            assertNotEquals(first.getId() % 2, second.getId() % 2);
+
+            log.failing.set(true);
+            assertThrows(TransactionException.class, () -> service.make(first, second, money(BigDecimal.ONE), OperationType.TRANSFER));
+
+            assertEquals(0, BigDecimal.TEN.compareTo(first.getAccountData().getMoney().getAmount()));
+            assertEquals(0, BigDecimal.TEN.compareTo(second.getAccountData().getMoney().getAmount()));
+            assertEquals(Collections.singletonList(TransactionState.ROLLBACKED), states(first));
+
+            // no new operations once a record failed
+            log.failing.set(false);
+            assertThrows(TransactionException.class, () -> service.make(first, money(BigDecimal.ONE), OperationType.WITHDRAW));
+            assertEquals(0, BigDecimal.TEN.compareTo(first.getAccountData().getMoney().getAmount()));
+            assertEquals(1, states(first).size());
+        } finally {
+            service.close();
+        }
+    }
+
+    private static void assertRollbacked(Future<FiatTransaction> future) {
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof TransactionException);
+    }
+
+    private List<TransactionState> states(Account<Long, FiatMoney> account) {
+        return transactions.getAll(account).stream().map(FiatTransaction::getState).collect(Collectors.toList());
+    }
+
+    private Account<Long, FiatMoney> createAccount(String name, BigDecimal amount) {
+        Client<Long> client = clients.create(new UniversalBankClientData(
+                name, "surname", LocalDate.of(1980, 1, 1), Collections.emptyList()));
+        return accounts.create(new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+
+    /*
+     * Records are held until they are failed - all together, newest first, like the log fails the records queued
+     * after a failed write.
+     */
+    private static class HeldLog extends WriteAheadLog {
+        private final List<CompletableFuture<Void>> held = new ArrayList<>();
+
+        HeldLog(Path directory) throws IOException {
+            super(directory, DurabilityMode.GROUP, 16, 1, TimeUnit.MILLISECONDS, 1 << 20);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Void> append(WalRecord record) {
+            CompletableFuture<Void> durable = new CompletableFuture<>();
+            held.add(durable);
+            notifyAll();
+            return durable;
+        }
+
+        synchronized void awaitRecords(int records) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (held.size() < records) {
+                long remaining = deadline - System.nanoTime();
+                assertTrue(remaining > 0, "records are not appended");
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+
+        void fail() {
+            List<CompletableFuture<Void>> failing;
+            synchronized (this) {
+                failing = new ArrayList<>(held);
+            }
+            UncheckedIOException failure = new UncheckedIOException(new IOException("disk is full"));
+            for (int i = failing.size() - 1; i >= 0; i--) {
+                failing.get(i).completeExceptionally(failure);
+            }
+        }
+    }
+
+    /*
+     * Records are appended, but never become durable while failing.
+     */
+    private static class FailingLog extends WriteAheadLog {
+        final AtomicBoolean failing = new AtomicBoolean();
+
+        FailingLog(Path directory) throws IOException {
+            super(directory, DurabilityMode.GROUP, 16, 1, TimeUnit.MILLISECONDS, 1 << 20);
+        }
+
+        @Override
+        public CompletableFuture<Void> append(WalRecord record) {
+            if (!failing.get()) {
+                return super.append(record);
+            }
+            CompletableFuture<Void> durable = new CompletableFuture<>();
+            durable.completeExceptionally(new UncheckedIOException(new IOException("disk is full")));
+            return durable;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.totals.ClientBalanceTotals;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+import org.vmikhailov.java.cleanarchitecture.impl.web.ClientTotalsController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class, properties = "bank.transactions.service=lock-free")
+public class LockFreeFiatTransactionServiceTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    FiatTransactionService transactionService;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    public void test_lock_free_service_is_selected() {
+        assertTrue(transactionService instanceof LockFreeFiatTransactionService);
+    }
+
+    @Test
+    public void test_client_totals_are_left_out() {
+        assertTrue(context.getBeansOfType(ClientBalanceTotals.class).isEmpty());
+        assertTrue(context.getBeansOfType(ClientTotalsController.class).isEmpty());
+    }
+
+    @Test
+    public void test_concurrent_single_account_operations_are_not_lost() throws Exception {
+        Account<Long, FiatMoney> account = createAccount(new BigDecimal(1_000));
+        int threads = 8;
+        int operationsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean replenishing = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        FiatTransaction transaction = replenishing
+                                ? useCases.replenishAccount(account, money(new BigDecimal(3)))
+                                : useCases.withdrawFromAccount(account, money(BigDecimal.ONE));
+                        assertSame(TransactionState.COMMITTED, transaction.getState());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal expected = new BigDecimal(1_000 + (threads / 2) * operationsPerThread * 2);
+        assertEquals(0, expected.compareTo(account.getAccountData().getMoney().getAmount()));
+    }
+
+    @Test
+    public void test_withdraw_more_than_balance_is_rollbacked() {
+        Account<Long, FiatMoney> account = createAccount(BigDecimal.ONE);
+
+        assertThrows(AccountException.class, () -> useCases.withdrawFromAccount(account, money(BigDecimal.TEN)));
+
+        assertEquals(BigDecimal.ONE, account.getAccountData().getMoney().getAmount());
+        List<FiatTransaction> transactions = useCases.getAllTransactions(account);
+        assertEquals(1, transactions.size());
+        assertSame(TransactionState.ROLLBACKED, transactions.get(0).getState());
+    }
+
+    @Test
+    public void test_transfer_money() {
+        Account<Long, FiatMoney> fromAccount = createAccount(BigDecimal.TEN);
+        Account<Long, FiatMoney> toAccount = createAccount(BigDecimal.ONE);
+
+        FiatTransaction transaction = useCases.transferMoney(fromAccount, toAccount, money(new BigDecimal(4)));
+
+        assertSame(TransactionState.COMMITTED, transaction.getState());
+        assertEquals(new BigDecimal(6), fromAccount.getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal(5), toAccount.getAccountData().getMoney().getAmount());
+    }
+
+    @Test
+    public void test_transfer_more_than_balance_is_rollbacked() {
+        Account<Long, FiatMoney> fromAccount = createAccount(BigDecimal.ONE);
+        Account<Long, FiatMoney> toAccount = createAccount(BigDecimal.ONE);
+
+        assertThrows(AccountException.class, () -> useCases.transferMoney(fromAccount, toAccount, money(BigDecimal.TEN)));
+
+        assertEquals(BigDecimal.ONE, fromAccount.getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ONE, toAccount.getAccountData().getMoney().getAmount());
+        assertSame(TransactionState.ROLLBACKED, useCases.getAllTransactions(toAccount).get(0).getState());
+    }
+
+    private Account<Long, FiatMoney> createAccount(BigDecimal amount) {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        Client<Long> client = useCases.registerNewClient(UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build());
+        return useCases.createAccount(client, new FiatAccountData(money(amount), client));
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
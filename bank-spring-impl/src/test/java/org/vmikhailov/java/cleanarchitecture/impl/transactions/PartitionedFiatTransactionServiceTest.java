@@ -0,0 +1,186 @@
+package org.vmikhailov.java.cleanarchitecture.impl.transactions;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.dao.BalanceSnapshot;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransferLeg;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.impl.usecases.FiatCurrencyBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class, properties = {
+        "bank.transactions.service=partitioned",
+        "bank.engine.partitions=4",
+        "bank.engine.ring-size=64"})
+public class PartitionedFiatTransactionServiceTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    FiatTransactionService transactionService;
+
+    @Test
+    public void test_partitioned_service_is_selected() {
+        assertTrue(transactionService instanceof PartitionedFiatTransactionService);
+        assertEquals(4, ((PartitionedFiatTransactionService) transactionService).getPartitions());
+    }
+
+    @Test
+    public void test_transfers_within_and_across_partitions() {
+        List<Account<Long, FiatMoney>> accounts = createAccounts(5, BigDecimal.TEN);
+
+        for (int i = 1; i < accounts.size(); i++) {
+            FiatTransaction transaction = useCases.transferMoney(accounts.get(0), accounts.get(i), money(BigDecimal.ONE));
+            assertSame(TransactionState.COMMITTED, transaction.getState());
+        }
+
+        assertEquals(new BigDecimal(6), accounts.get(0).getAccountData().getMoney().getAmount());
+        for (int i = 1; i < accounts.size(); i++) {
+            assertEquals(new BigDecimal(11), accounts.get(i).getAccountData().getMoney().getAmount());
+        }
+    }
+
+    @Test
+    public void test_transfer_across_partitions_is_published_for_both_accounts() {
+        List<Account<Long, FiatMoney>> accounts = createAccounts(2, BigDecimal.TEN);
+
+        useCases.transferMoney(accounts.get(0), accounts.get(1), money(BigDecimal.ONE));
+
+        assertTrue(useCases.canOpenBalanceSnapshot());
+        try (BalanceSnapshot<Long, FiatMoney> snapshot = useCases.openBalanceSnapshot()) {
+            assertEquals(new BigDecimal(9), snapshot.getBalance(accounts.get(0)).map(FiatMoney::getAmount).orElse(null));
+            assertEquals(new BigDecimal(11), snapshot.getBalance(accounts.get(1)).map(FiatMoney::getAmount).orElse(null));
+        }
+    }
+
+    @Test
+    public void test_transfer_more_than_balance_is_rollbacked() {
+        List<Account<Long, FiatMoney>> accounts = createAccounts(2, BigDecimal.ONE);
+
+        assertThrows(AccountException.class, () -> useCases.transferMoney(accounts.get(0), accounts.get(1), money(BigDecimal.TEN)));
+
+        assertEquals(BigDecimal.ONE, accounts.get(0).getAccountData().getMoney().getAmount());
+        assertEquals(BigDecimal.ONE, accounts.get(1).getAccountData().getMoney().getAmount());
+        assertSame(TransactionState.ROLLBACKED, useCases.getAllTransactions(accounts.get(1)).get(0).getState());
+    }
+
+    @Test
+    public void test_submitted_operation_completes_the_future() throws Exception {
+        Account<Long, FiatMoney> account = createAccounts(1, BigDecimal.ZERO).get(0);
+
+        CompletableFuture<FiatTransaction> future = ((PartitionedFiatTransactionService) transactionService)
+                .submit(account, money(BigDecimal.ONE), OperationType.REPLENISH);
+
+        assertSame(TransactionState.COMMITTED, future.get(5, TimeUnit.SECONDS).getState());
+        assertEquals(BigDecimal.ONE, account.getAccountData().getMoney().getAmount());
+    }
+
+    @Test
+    public void test_multi_leg_transfer_across_partitions_is_all_or_nothing() {
+        List<Account<Long, FiatMoney>> accounts = createAccounts(4, BigDecimal.TEN);
+
+        FiatTransaction payroll = useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(accounts.get(0), accounts.get(1), money(BigDecimal.ONE)),
+                new TransferLeg<>(accounts.get(0), accounts.get(2), money(BigDecimal.ONE)),
+                new TransferLeg<>(accounts.get(0), accounts.get(3), money(BigDecimal.ONE))));
+        assertSame(TransactionState.COMMITTED, payroll.getState());
+        assertEquals(new BigDecimal(7), accounts.get(0).getAccountData().getMoney().getAmount());
+
+        assertThrows(AccountException.class, () -> useCases.transferMoney(Arrays.asList(
+                new TransferLeg<>(accounts.get(0), accounts.get(1), money(BigDecimal.ONE)),
+                new TransferLeg<>(accounts.get(2), accounts.get(3), money(BigDecimal.TEN.add(BigDecimal.TEN))))));
+        assertEquals(new BigDecimal(7), accounts.get(0).getAccountData().getMoney().getAmount());
+        assertEquals(new BigDecimal(11), accounts.get(1).getAccountData().getMoney().getAmount());
+    }
+
+    @Test
+    public void test_concurrent_transfers_keep_the_total() throws Exception {
+        List<Account<Long, FiatMoney>> accounts = createAccounts(16, new BigDecimal(100));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5_000; i++) {
+                        int from = random.nextInt(accounts.size());
+                        int to = (from + 1 + random.nextInt(accounts.size() - 1)) % accounts.size();
+                        try {
+                            useCases.transferMoney(accounts.get(from), accounts.get(to), money(new BigDecimal(random.nextInt(1, 50))));
+                        } catch (AccountException ex) {
+                            // not enough money, rollbacked
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal total = accounts.stream()
+                .map(a -> a.getAccountData().getMoney().getAmount())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal(1_600).compareTo(total));
+        accounts.forEach(a -> assertTrue(a.getAccountData().getMoney().getAmount().signum() >= 0));
+    }
+
+    private List<Account<Long, FiatMoney>> createAccounts(int count, BigDecimal amount) {
+        List<Account<Long, FiatMoney>> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ClientDocument document = ClientDocument.builder()
+                    .documentNumber(UUID.randomUUID().toString())
+                    .documentType(ClientDocument.DocumentType.PASSPORT)
+                    .build();
+            Client<Long> client = useCases.registerNewClient(UniversalBankClientData.builder()
+                    .name("test_name")
+                    .surname("test_surname")
+                    .birthDate(LocalDate.now())
+                    .documents(Collections.singletonList(document))
+                    .build());
+            accounts.add(useCases.createAccount(client, new FiatAccountData(money(amount), client)));
+        }
+        return accounts;
+    }
+
+    private static FiatMoney money(BigDecimal amount) {
+        return new FiatMoney(TEST_CURRENCY, amount);
+    }
+}
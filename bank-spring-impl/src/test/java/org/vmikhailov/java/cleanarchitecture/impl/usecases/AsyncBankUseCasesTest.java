@@ -0,0 +1,159 @@
+package org.vmikhailov.java.cleanarchitecture.impl.usecases;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.vmikhailov.java.cleanarchitecture.dao.HistoryDirection;
+import org.vmikhailov.java.cleanarchitecture.entities.Currency;
+import org.vmikhailov.java.cleanarchitecture.entities.account.Account;
+import org.vmikhailov.java.cleanarchitecture.entities.account.exceptions.AccountException;
+import org.vmikhailov.java.cleanarchitecture.entities.client.Client;
+import org.vmikhailov.java.cleanarchitecture.entities.client.exceptions.ClientNotExist;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.TransactionState;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.FiatMoney;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.account.FiatAccountData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.ClientDocument;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.client.UniversalBankClientData;
+import org.vmikhailov.java.cleanarchitecture.impl.entities.transactions.FiatTransaction;
+import org.vmikhailov.java.cleanarchitecture.usecases.AsyncBankUseCases;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = Application.class)
+public class AsyncBankUseCasesTest {
+    private static final Currency TEST_CURRENCY = new Currency() {
+        @Override
+        public boolean isSame(Currency other) {
+            return this == other;
+        }
+    };
+
+    @Autowired
+    FiatCurrencyBankUseCases useCases;
+
+    @Autowired
+    FiatCurrencyAsyncBankUseCases asyncUseCases;
+
+    @Test
+    public void test_calls_compose_without_blocking() throws Exception {
+        CompletableFuture<Account<Long, FiatMoney>> from = createAccount(money("10"));
+        CompletableFuture<Account<Long, FiatMoney>> to = createAccount(money("0"));
+
+        CompletableFuture<List<FiatTransaction>> history = from.thenCombine(to, (fromAccount, toAccount) ->
+                asyncUseCases.transferMoney(fromAccount, toAccount, money("4"))
+                        .thenCompose(transfer -> asyncUseCases.getTransactionsPage(toAccount, null, 10, HistoryDirection.NEWEST_FIRST)))
+                .thenCompose(page -> page);
+
+        List<FiatTransaction> transactions = history.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, transactions.size());
+        assertSame(TransactionState.COMMITTED, transactions.get(0).getState());
+        assertEquals(money("4"), transactions.get(0).getAmount());
+    }
+
+    @Test
+    public void test_use_case_exception_fails_the_future() {
+        Client<Long> client = useCases.registerNewClient(clientData());
+        Account<Long, FiatMoney> account = useCases.createAccount(client, new FiatAccountData(money("1"), client));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> asyncUseCases.withdrawFromAccount(account, money("2")).get(5, TimeUnit.SECONDS));
+
+        assertTrue(ex.getCause() instanceof AccountException);
+    }
+
+    @Test
+    public void test_timed_out_and_cancelled_calls_do_not_start() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            AsyncBankUseCases<Long, FiatMoney, FiatTransaction> async = new AsyncBankUseCases<>(useCases, executor, timer, 0, TimeUnit.SECONDS);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            UniversalBankClientData timedOutData = clientData();
+            UniversalBankClientData cancelledData = clientData();
+
+            CompletableFuture<Client<Long>> timedOut = async.withTimeout(20, TimeUnit.MILLISECONDS).registerNewClient(timedOutData);
+            CompletableFuture<Client<Long>> cancelled = async.registerNewClient(cancelledData);
+            assertTrue(cancelled.cancel(false));
+
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof TimeoutException);
+            assertThrows(CancellationException.class, cancelled::join);
+
+            release.countDown();
+            // queued after the dropped calls - they have been skipped once it completes
+            assertNotNull(async.registerNewClient(clientData()).get(5, TimeUnit.SECONDS));
+            assertThrows(ClientNotExist.class, () -> useCases.getClient(timedOutData));
+            assertThrows(ClientNotExist.class, () -> useCases.getClient(cancelledData));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            timer.shutdown();
+        }
+    }
+
+    @Test
+    public void test_rejected_call_fails_the_future() {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AsyncBankUseCases<Long, FiatMoney, FiatTransaction> async = new AsyncBankUseCases<>(useCases,
+                    task -> {
+                        throw new RejectedExecutionException();
+                    }, timer, 1, TimeUnit.SECONDS);
+
+            CompletableFuture<Client<Long>> client = async.registerNewClient(clientData());
+
+            assertTrue(client.isCompletedExceptionally());
+            ExecutionException ex = assertThrows(ExecutionException.class, client::get);
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    private CompletableFuture<Account<Long, FiatMoney>> createAccount(FiatMoney money) {
+        return asyncUseCases.registerNewClient(clientData())
+                .thenCompose(client -> asyncUseCases.createAccount(client, new FiatAccountData(money, client)));
+    }
+
+    private static UniversalBankClientData clientData() {
+        ClientDocument document = ClientDocument.builder()
+                .documentNumber(UUID.randomUUID().toString())
+                .documentType(ClientDocument.DocumentType.PASSPORT)
+                .build();
+        return UniversalBankClientData.builder()
+                .name("test_name")
+                .surname("test_surname")
+                .birthDate(LocalDate.now())
+                .documents(Collections.singletonList(document))
+                .build();
+    }
+
+    private static FiatMoney money(String amount) {
+        return new FiatMoney(TEST_CURRENCY, new BigDecimal(amount));
+    }
+}
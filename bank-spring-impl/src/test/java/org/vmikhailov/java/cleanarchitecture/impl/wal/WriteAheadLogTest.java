@@ -0,0 +1,153 @@
+package org.vmikhailov.java.cleanarchitecture.impl.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vmikhailov.java.cleanarchitecture.entities.transactions.OperationType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+    private static final long SEGMENT_SIZE = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_appended_records_are_read_back_in_every_mode() throws IOException {
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            Path logDirectory = directory.resolve(mode.name());
+            List<WalRecord> records = new ArrayList<>();
+            records.add(record(1, OperationType.REPLENISH, new WalRecord.Leg(7, 0, new BigDecimal("10.25"))));
+            records.add(record(2, OperationType.TRANSFER, new WalRecord.Leg(7, Long.MAX_VALUE, new BigDecimal("1E+3"))));
+            records.add(new WalRecord(0, 3, OperationType.MULTI_TRANSFER, Arrays.asList(
+                    new WalRecord.Leg(1, 2, new BigDecimal("123456789012345678901234567890.1")),
+                    new WalRecord.Leg(2, 3, new BigDecimal("0.01")))));
+            try (WriteAheadLog log = open(logDirectory, mode, SEGMENT_SIZE)) {
+                List<CompletableFuture<Void>> durable = new ArrayList<>();
+                records.forEach(record -> durable.add(log.append(record)));
+                durable.forEach(CompletableFuture::join);
+            }
+
+            List<WalRecord> logged = readAll(logDirectory);
+            assertEquals(records.size(), logged.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertRecord(records.get(i), logged.get(i));
+                assertEquals(i + 1, logged.get(i).getSequence());
+            }
+        }
+    }
+
+    @Test
+    public void test_torn_tail_is_cut_off_on_open() throws IOException {
+        Path logDirectory = directory.resolve("torn");
+        WalRecord first = record(1, OperationType.WITHDRAW, new WalRecord.Leg(5, 0, BigDecimal.ONE));
+        try (WriteAheadLog log = open(logDirectory, DurabilityMode.FSYNC, SEGMENT_SIZE)) {
+            log.append(first).join();
+            log.append(record(2, OperationType.WITHDRAW, new WalRecord.Leg(5, 0, BigDecimal.TEN))).join();
+        }
+        Path segment = WriteAheadLog.segments(logDirectory).lastEntry().getValue();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        WalRecord third = record(3, OperationType.REPLENISH, new WalRecord.Leg(6, 0, BigDecimal.ONE));
+        try (WriteAheadLog log = open(logDirectory, DurabilityMode.FSYNC, SEGMENT_SIZE)) {
+            assertEquals(2, log.nextSequence());
+            log.append(third).join();
+        }
+
+        List<WalRecord> logged = readAll(logDirectory);
+        assertEquals(2, logged.size());
+        assertRecord(first, logged.get(0));
+        assertRecord(third, logged.get(1));
+        assertEquals(2, logged.get(1).getSequence());
+    }
+
+    @Test
+    public void test_group_commit_shares_fsync() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory.resolve("group"), DurabilityMode.GROUP, 64, 50,
+                TimeUnit.MILLISECONDS, SEGMENT_SIZE)) {
+            List<CompletableFuture<Void>> durable = new ArrayList<>();
+            for (int i = 1; i <= 64; i++) {
+                durable.add(log.append(record(i, OperationType.REPLENISH, new WalRecord.Leg(i, 0, BigDecimal.ONE))));
+            }
+            durable.forEach(CompletableFuture::join);
+            assertEquals(64, log.getRecords());
+            assertTrue(log.getSyncs() < 64);
+        }
+    }
+
+    @Test
+    public void test_segments_are_rolled_over_and_deleted_up_to_sequence() throws IOException {
+        Path logDirectory = directory.resolve("segments");
+        try (WriteAheadLog log = open(logDirectory, DurabilityMode.FSYNC, 64)) {
+            for (int i = 1; i <= 20; i++) {
+                log.append(record(i, OperationType.REPLENISH, new WalRecord.Leg(i, 0, BigDecimal.ONE))).join();
+            }
+            NavigableMap<Long, Path> segments = WriteAheadLog.segments(logDirectory);
+            assertTrue(segments.size() > 2);
+            assertEquals(20, readAll(logDirectory).size());
+
+            long cut = 15;
+            log.deleteSegmentsBefore(cut);
+            assertTrue(WriteAheadLog.segments(logDirectory).size() < segments.size());
+            List<WalRecord> tail = readAll(logDirectory);
+            assertTrue(tail.get(0).getSequence() <= cut);
+            assertEquals(20, tail.get(tail.size() - 1).getSequence());
+        }
+    }
+
+    @Test
+    public void test_append_to_closed_log_fails() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory.resolve("closed"), DurabilityMode.ASYNC, 16, 1,
+                TimeUnit.MILLISECONDS, SEGMENT_SIZE);
+        log.close();
+        assertThrows(IllegalStateException.class,
+                () -> log.append(record(1, OperationType.REPLENISH, new WalRecord.Leg(1, 0, BigDecimal.ONE))));
+    }
+
+    private static WriteAheadLog open(Path logDirectory, DurabilityMode mode, long segmentSize) throws IOException {
+        return new WriteAheadLog(logDirectory, mode, 2, 1, TimeUnit.MILLISECONDS, segmentSize);
+    }
+
+    private static List<WalRecord> readAll(Path logDirectory) throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+        for (Path segment : WriteAheadLog.segmentsFrom(logDirectory, 0)) {
+            try (WriteAheadLogReader reader = new WriteAheadLogReader(segment)) {
+                for (WalRecord record = reader.next(); record != null; record = reader.next()) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    private static WalRecord record(long transactionId, OperationType operationType, WalRecord.Leg leg) {
+        return new WalRecord(0, transactionId, operationType, Collections.singletonList(leg));
+    }
+
+    private static void assertRecord(WalRecord expected, WalRecord actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getTransactionId(), actual.getTransactionId());
+        assertSame(expected.getOperationType(), actual.getOperationType());
+        assertEquals(expected.getLegs().size(), actual.getLegs().size());
+        for (int i = 0; i < expected.getLegs().size(); i++) {
+            assertEquals(expected.getLegs().get(i).getAccountA(), actual.getLegs().get(i).getAccountA());
+            assertEquals(expected.getLegs().get(i).getAccountB(), actual.getLegs().get(i).getAccountB());
+            assertEquals(expected.getLegs().get(i).getAmount(), actual.getLegs().get(i).getAmount());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.vmikhailov.java.cleanarchitecture.impl.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.vmikhailov.java.cleanarchitecture.impl.Application;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+public class BankApiTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void test_transfer_and_history_pages() throws Exception {
+        long fromAccount = createAccount("100.00");
+        long toAccount = createAccount("0");
+
+        JsonNode transfer = call(post("/transfers"), "{\"fromAccountId\":" + fromAccount + ",\"toAccountId\":" + toAccount
+                + ",\"currency\":\"EUR\",\"amount\":30.5}", status().isOk());
+        assertEquals("COMMITTED", transfer.get("state").asText());
+        assertEquals("TRANSFER", transfer.get("operationType").asText());
+        call(post("/accounts/" + fromAccount + "/withdraw"), "{\"currency\":\"EUR\",\"amount\":9.5}", status().isOk());
+        call(post("/accounts/" + fromAccount + "/replenish"), "{\"currency\":\"EUR\",\"amount\":1}", status().isOk());
+
+        assertEquals(0, call(get("/accounts/" + fromAccount), null, status().isOk()).get("amount").decimalValue()
+                .compareTo(new BigDecimal("61")));
+        JsonNode firstPage = call(get("/accounts/" + fromAccount + "/transactions?size=2"), null, status().isOk());
+        assertEquals(2, firstPage.get("transactions").size());
+        assertEquals("REPLENISH", firstPage.get("transactions").get(0).get("operationType").asText());
+        JsonNode lastPage = call(get("/accounts/" + fromAccount + "/transactions?size=2&cursor="
+                + firstPage.get("nextCursor").asLong()), null, status().isOk());
+        assertEquals(1, lastPage.get("transactions").size());
+        assertEquals(transfer.get("id").asLong(), lastPage.get("transactions").get(0).get("id").asLong());
+        assertTrue(lastPage.get("nextCursor").isNull());
+    }
+
+    @Test
+    public void test_bank_exceptions_are_mapped_to_statuses() throws Exception {
+        long account = createAccount("1");
+
+        assertEquals("AccountNotFound", call(get("/accounts/0"), null, status().isNotFound()).get("error").asText());
+        call(post("/accounts/" + account + "/withdraw"), "{\"currency\":\"EUR\",\"amount\":2}", status().isUnprocessableEntity());
+        call(post("/accounts/" + account + "/replenish"), "{\"currency\":\"XXY\",\"amount\":2}", status().isBadRequest());
+        call(get("/clients/0"), null, status().isNotFound());
+    }
+
+    @Test
+    public void test_batch_streams_a_result_per_operation() throws Exception {
+        long fromAccount = createAccount("10");
+        long toAccount = createAccount("0");
+        String batch = "[" +
+                "{\"operation\":\"TRANSFER\",\"accountId\":" + fromAccount + ",\"toAccountId\":" + toAccount + ",\"currency\":\"EUR\",\"amount\":4}," +
+                "{\"operation\":\"WITHDRAW\",\"accountId\":" + fromAccount + ",\"currency\":\"EUR\",\"amount\":100}," +
+                "{\"operation\":\"REPLENISH\",\"accountId\":0,\"currency\":\"EUR\",\"amount\":1}," +
+                "{\"operation\":\"REPLENISH\",\"accountId\":" + toAccount + ",\"currency\":\"EUR\",\"amount\":1}" +
+                "]";
+
+        String[] results = mockMvc.perform(post("/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(4, results.length);
+        assertEquals("COMMITTED", objectMapper.readTree(results[0]).get("state").asText());
+        assertEquals("AccountException", objectMapper.readTree(results[1]).get("error").asText());
+        assertEquals("AccountNotFound", objectMapper.readTree(results[2]).get("error").asText());
+        assertEquals(3, objectMapper.readTree(results[3]).get("index").asInt());
+        assertEquals(0, call(get("/accounts/" + toAccount), null, status().isOk()).get("amount").decimalValue()
+                .compareTo(new BigDecimal("5")));
+    }
+
+    @Test
+    public void test_cut_batch_ends_with_malformed_result() throws Exception {
+        long account = createAccount("10");
+        String batch = "[{\"operation\":\"REPLENISH\",\"accountId\":" + account + ",\"currency\":\"EUR\",\"amount\":1},{\"oper";
+
+        String[] results = mockMvc.perform(post("/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, results.length);
+        assertEquals("COMMITTED", objectMapper.readTree(results[0]).get("state").asText());
+        assertEquals("MalformedBatch", objectMapper.readTree(results[1]).get("error").asText());
+        mockMvc.perform(post("/batch").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void test_client_totals_follow_transactions() throws Exception {
+        long account = createAccount("10");
+        call(post("/accounts/" + account + "/replenish"), "{\"currency\":\"EUR\",\"amount\":2.5}", status().isOk());
+        long client = call(get("/accounts/" + account), null, status().isOk()).get("clientId").asLong();
+
+        JsonNode totals = call(get("/clients/" + client + "/totals"), null, status().isOk());
+        assertEquals(1, totals.size());
+        assertEquals("EUR", totals.get(0).get("currency").asText());
+        assertEquals(0, totals.get(0).get("amount").decimalValue().compareTo(new BigDecimal("12.5")));
+    }
+
+    private long createAccount(String amount) throws Exception {
+        JsonNode client = call(post("/clients"), "{\"name\":\"name\",\"surname\":\"surname\",\"birthDate\":\"1980-01-01\"," +
+                "\"documents\":[{\"documentNumber\":\"" + UUID.randomUUID() + "\",\"documentType\":\"PASSPORT\"}]}", status().isCreated());
+        assertTrue(client.get("active").asBoolean());
+        JsonNode account = call(post("/clients/" + client.get("id").asLong() + "/accounts"),
+                "{\"currency\":\"EUR\",\"amount\":" + amount + "}", status().isCreated());
+        assertEquals("EUR", account.get("currency").asText());
+        return account.get("id").asLong();
+    }
+
+    private JsonNode call(MockHttpServletRequestBuilder request, String body, ResultMatcher status) throws Exception {
+        if (body != null) {
+            request.contentType(MediaType.APPLICATION_JSON).content(body);
+        }
+        return objectMapper.readTree(mockMvc.perform(request).andExpect(status).andReturn().getResponse().getContentAsString());
+    }
+}